@@ -24,6 +24,7 @@ import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.WebResource;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.security.AccessControlException;
@@ -33,26 +34,46 @@ import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.plugin.util.GrantRevokeRequest;
+import org.apache.ranger.plugin.util.RangerAdminUnavailableException;
 import org.apache.ranger.plugin.util.RangerRESTClient;
 import org.apache.ranger.plugin.util.RangerRESTUtils;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServicePoliciesBinaryCodec;
 import org.apache.ranger.plugin.util.ServiceTags;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.security.PrivilegedAction;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 public class RangerAdminRESTClient implements RangerAdminClient {
 	private static final Log LOG = LogFactory.getLog(RangerAdminRESTClient.class);
 
+	// time left, after the long-poll wait, for Ranger Admin to build and send the response
+	private static final long LONG_POLL_READ_TIMEOUT_MARGIN_MS = 5 * 1000L;
+
+	private static final int    HTTP_STATUS_TOO_MANY_REQUESTS = 429;
+	private static final String HTTP_DATE_FORMAT              = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
 	private String           serviceName;
 	private String           pluginId;
 	private String clusterName;
+	private boolean supportsPolicyDeltas;
+	private String[] policyDownloadMimeTypes = new String[] { RangerRESTUtils.REST_MIME_TYPE_JSON };
+	private boolean supportsBinaryFormat;
 	private RangerRESTClient restClient;
 	private RangerRESTUtils restUtils   = new RangerRESTUtils();
+	private long longPollTimeoutMs;
+	private volatile long adminLongPollMaxTimeoutMs;
 
 	public RangerAdminRESTClient() {
 	}
@@ -87,6 +108,18 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		clusterName       				= RangerConfiguration.getInstance().get(propertyPrefix + ".ambari.cluster.name", "");
 		int	 restClientConnTimeOutMs	= RangerConfiguration.getInstance().getInt(propertyPrefix + ".policy.rest.client.connection.timeoutMs", 120 * 1000);
 		int	 restClientReadTimeOutMs	= RangerConfiguration.getInstance().getInt(propertyPrefix + ".policy.rest.client.read.timeoutMs", 30 * 1000);
+		supportsPolicyDeltas            = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.rest.supports.policy.deltas", true);
+		supportsBinaryFormat            = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.rest.binary.format", false);
+		boolean gzipResponses           = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.rest.client.gzip.responses", true);
+		boolean gzipRequests            = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.rest.client.gzip.requests", false);
+		long configuredLongPollTimeoutMs = RangerConfiguration.getInstance().getLong(propertyPrefix + ".policy.rest.long.poll.timeoutMs", 20 * 1000L);
+
+		longPollTimeoutMs = Math.min(configuredLongPollTimeoutMs, restClientReadTimeOutMs - LONG_POLL_READ_TIMEOUT_MARGIN_MS);
+
+		if (supportsBinaryFormat) {
+			// Ranger Admin versions that don't support the binary format would return JSON
+			policyDownloadMimeTypes = new String[] { RangerRESTUtils.REST_MIME_TYPE_POLICIES_BINARY, RangerRESTUtils.REST_MIME_TYPE_JSON + ";q=0.9" };
+		}
         if (!StringUtil.isEmpty(tmpUrl)) {
             url = tmpUrl.trim();
         }
@@ -95,6 +128,9 @@ public class RangerAdminRESTClient implements RangerAdminClient {
         }
 
 		init(url, sslConfigFileName, restClientConnTimeOutMs , restClientReadTimeOutMs);
+
+		restClient.setGzipResponses(gzipResponses);
+		restClient.setGzipRequests(gzipRequests);
 	}
 
 	@Override
@@ -117,8 +153,10 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 							.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
 							.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
 							.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId)
-							.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName);
-					return secureWebResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
+							.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName)
+							.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.toString(supportsPolicyDeltas));
+					secureWebResource = addLongPollTimeout(secureWebResource);
+					return acceptPolicies(secureWebResource).get(ClientResponse.class);
 				}
 			};
 			response = user.doAs(action);
@@ -130,36 +168,49 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 					.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
 					.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
 					.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId)
-					.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName);
-			response = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
+					.queryParam(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName)
+					.queryParam(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.toString(supportsPolicyDeltas));
+			webResource = addLongPollTimeout(webResource);
+			response = acceptPolicies(webResource).get(ClientResponse.class);
 		}
 
-		if (response == null || response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
-			if (response == null) {
-				LOG.error("Error getting policies; Received NULL response!!. secureMode=" + isSecureMode + ", user=" + user + ", serviceName=" + serviceName);
+		updateAdminLongPollMaxTimeout(response);
+
+		try {
+			if (response == null || response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+				if (response == null) {
+					LOG.error("Error getting policies; Received NULL response!!. secureMode=" + isSecureMode + ", user=" + user + ", serviceName=" + serviceName);
+				} else {
+					RESTResponse resp = RESTResponse.fromClientResponse(response);
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("No change in policies. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
+					}
+				}
+				ret = null;
+			} else if (response.getStatus() == HttpServletResponse.SC_OK) {
+				ret = getServicePolicies(response);
+			} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
+				LOG.error("Error getting policies; service not found. secureMode=" + isSecureMode + ", user=" + user
+						+ ", response=" + response.getStatus() + ", serviceName=" + serviceName
+						+ ", " + "lastKnownVersion=" + lastKnownVersion
+						+ ", " + "lastActivationTimeInMillis=" + lastActivationTimeInMillis);
+				String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
+
+				RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
+
+				LOG.warn("Received 404 error code with body:[" + exceptionMsg + "], Ignoring");
+			} else if (isAdminUnavailable(response)) {
+				RESTResponse resp = RESTResponse.fromClientResponse(response);
+				LOG.warn("Ranger Admin unavailable for getting policies. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
+
+				throw new RangerAdminUnavailableException(serviceName, response.getStatus(), getRetryAfterMs(response));
 			} else {
 				RESTResponse resp = RESTResponse.fromClientResponse(response);
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("No change in policies. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
-				}
+				LOG.warn("Error getting policies. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
+				ret = null;
 			}
-			ret = null;
-		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
-			ret = response.getEntity(ServicePolicies.class);
-		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
-			LOG.error("Error getting policies; service not found. secureMode=" + isSecureMode + ", user=" + user
-					+ ", response=" + response.getStatus() + ", serviceName=" + serviceName
-					+ ", " + "lastKnownVersion=" + lastKnownVersion
-					+ ", " + "lastActivationTimeInMillis=" + lastActivationTimeInMillis);
-			String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
-
-			RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
-
-			LOG.warn("Received 404 error code with body:[" + exceptionMsg + "], Ignoring");
-		} else {
-			RESTResponse resp = RESTResponse.fromClientResponse(response);
-			LOG.warn("Error getting policies. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
-			ret = null;
+		} finally {
+			close(response);
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -169,6 +220,25 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		return ret;
 	}
 
+	private ServicePolicies getServicePolicies(ClientResponse response) throws Exception {
+		final ServicePolicies ret;
+		final MediaType       type = response.getType();
+
+		if (type != null && type.isCompatible(MediaType.valueOf(RangerRESTUtils.REST_MIME_TYPE_POLICIES_BINARY))) {
+			InputStream in = response.getEntityInputStream();
+
+			try {
+				ret = ServicePoliciesBinaryCodec.read(in);
+			} finally {
+				in.close();
+			}
+		} else {
+			ret = response.getEntity(ServicePolicies.class);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public void grantAccess(final GrantRevokeRequest request) throws Exception {
 		if(LOG.isDebugEnabled()) {
@@ -268,6 +338,7 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		restClient = new RangerRESTClient(url, sslConfigFileName);
 		restClient.setRestClientConnTimeOutMs(restClientConnTimeOutMs);
 		restClient.setRestClientReadTimeOutMs(restClientReadTimeOutMs);
+		restClient.getMetrics().register(pluginId);
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerAdminRESTClient.init(" + url + ", " + sslConfigFileName + ")");
@@ -280,6 +351,82 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		return ret;
 	}
 
+	/*
+	 * Ranger Admin advertises long-poll support, and the longest wait it allows, in a header of the
+	 * download responses. Until such a response is seen, downloads return immediately as before.
+	 */
+	private WebResource addLongPollTimeout(WebResource webResource) {
+		long timeoutMs = Math.min(longPollTimeoutMs, adminLongPollMaxTimeoutMs);
+
+		return timeoutMs > 0 ? webResource.queryParam(RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS, Long.toString(timeoutMs)) : webResource;
+	}
+
+	private WebResource.Builder acceptPolicies(WebResource webResource) {
+		WebResource.Builder ret = webResource.accept(policyDownloadMimeTypes);
+
+		if (supportsBinaryFormat) { // the binary format is gzip compressed already
+			ret = ret.header(HttpHeaders.ACCEPT_ENCODING, "identity");
+		}
+
+		return ret;
+	}
+
+	/*
+	 * a connection is returned to the keep-alive cache only after its response has been read and closed
+	 */
+	private static void close(ClientResponse response) {
+		if (response != null) {
+			try {
+				response.close();
+			} catch (Exception excp) {
+				LOG.warn("failed to close response", excp);
+			}
+		}
+	}
+
+	private static boolean isAdminUnavailable(ClientResponse response) {
+		return response.getStatus() == HTTP_STATUS_TOO_MANY_REQUESTS || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+	}
+
+	// Retry-After is either the number of seconds to wait or an HTTP-date
+	private static long getRetryAfterMs(ClientResponse response) {
+		String value = response.getHeaders().getFirst(RangerRESTUtils.REST_HEADER_RETRY_AFTER);
+		long   ret   = 0;
+
+		if (StringUtils.isNotBlank(value)) {
+			value = value.trim();
+
+			try {
+				ret = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+			} catch (NumberFormatException excp) {
+				try {
+					ret = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(value).getTime() - System.currentTimeMillis();
+				} catch (ParseException parseExcp) {
+					LOG.warn("ignoring invalid value '" + value + "' for response header " + RangerRESTUtils.REST_HEADER_RETRY_AFTER);
+				}
+			}
+		}
+
+		return Math.max(ret, 0);
+	}
+
+	private void updateAdminLongPollMaxTimeout(ClientResponse response) {
+		if (response != null) {
+			String value     = response.getHeaders().getFirst(RangerRESTUtils.REST_HEADER_LONG_POLL_MAX_TIMEOUT_MS);
+			long   timeoutMs = 0;
+
+			if (StringUtils.isNotBlank(value)) {
+				try {
+					timeoutMs = Long.parseLong(value.trim());
+				} catch (NumberFormatException excp) {
+					LOG.warn("ignoring invalid value '" + value + "' for response header " + RangerRESTUtils.REST_HEADER_LONG_POLL_MAX_TIMEOUT_MS);
+				}
+			}
+
+			adminLongPollMaxTimeoutMs = timeoutMs;
+		}
+	}
+
 	@Override
 	public ServiceTags getServiceTagsIfUpdated(final long lastKnownVersion, final long lastActivationTimeInMillis) throws Exception {
 		if(LOG.isDebugEnabled()) {
@@ -299,6 +446,7 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 							.queryParam(RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, Long.toString(lastKnownVersion))
 							.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
 							.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+					secureWebResource = addLongPollTimeout(secureWebResource);
 					return secureWebResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 				}
 			};
@@ -311,38 +459,50 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 					.queryParam(RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, Long.toString(lastKnownVersion))
 					.queryParam(RangerRESTUtils.REST_PARAM_LAST_ACTIVATION_TIME, Long.toString(lastActivationTimeInMillis))
 					.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+			webResource = addLongPollTimeout(webResource);
 			response = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 		}
 
-		if (response == null || response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
-			if (response == null) {
-				LOG.error("Error getting tags; Received NULL response!!. secureMode=" + isSecureMode + ", user=" + user + ", serviceName=" + serviceName);
+		updateAdminLongPollMaxTimeout(response);
+
+		try {
+			if (response == null || response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+				if (response == null) {
+					LOG.error("Error getting tags; Received NULL response!!. secureMode=" + isSecureMode + ", user=" + user + ", serviceName=" + serviceName);
+				} else {
+					RESTResponse resp = RESTResponse.fromClientResponse(response);
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("No change in tags. secureMode=" + isSecureMode + ", user=" + user
+								+ ", response=" + resp + ", serviceName=" + serviceName
+								+ ", " + "lastKnownVersion=" + lastKnownVersion
+								+ ", " + "lastActivationTimeInMillis=" + lastActivationTimeInMillis);
+					}
+				}
+				ret = null;
+			} else if (response.getStatus() == HttpServletResponse.SC_OK) {
+				ret = response.getEntity(ServiceTags.class);
+			} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
+				LOG.error("Error getting tags; service not found. secureMode=" + isSecureMode + ", user=" + user
+						+ ", response=" + response.getStatus() + ", serviceName=" + serviceName
+						+ ", " + "lastKnownVersion=" + lastKnownVersion
+						+ ", " + "lastActivationTimeInMillis=" + lastActivationTimeInMillis);
+				String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
+
+				RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
+
+				LOG.warn("Received 404 error code with body:[" + exceptionMsg + "], Ignoring");
+			} else if (isAdminUnavailable(response)) {
+				RESTResponse resp = RESTResponse.fromClientResponse(response);
+				LOG.warn("Ranger Admin unavailable for getting tags. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
+
+				throw new RangerAdminUnavailableException(serviceName, response.getStatus(), getRetryAfterMs(response));
 			} else {
 				RESTResponse resp = RESTResponse.fromClientResponse(response);
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("No change in tags. secureMode=" + isSecureMode + ", user=" + user
-							+ ", response=" + resp + ", serviceName=" + serviceName
-							+ ", " + "lastKnownVersion=" + lastKnownVersion
-							+ ", " + "lastActivationTimeInMillis=" + lastActivationTimeInMillis);
-				}
+				LOG.warn("Error getting tags. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
+				ret = null;
 			}
-			ret = null;
-		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
-			ret = response.getEntity(ServiceTags.class);
-		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
-			LOG.error("Error getting tags; service not found. secureMode=" + isSecureMode + ", user=" + user
-					+ ", response=" + response.getStatus() + ", serviceName=" + serviceName
-					+ ", " + "lastKnownVersion=" + lastKnownVersion
-					+ ", " + "lastActivationTimeInMillis=" + lastActivationTimeInMillis);
-			String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
-
-			RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
-
-			LOG.warn("Received 404 error code with body:[" + exceptionMsg + "], Ignoring");
-		} else {
-			RESTResponse resp = RESTResponse.fromClientResponse(response);
-			LOG.warn("Error getting tags. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp + ", serviceName=" + serviceName);
-			ret = null;
+		} finally {
+			close(response);
 		}
 
 		if(LOG.isDebugEnabled()) {
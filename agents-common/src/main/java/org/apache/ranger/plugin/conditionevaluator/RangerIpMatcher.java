@@ -30,6 +30,7 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.util.RangerIpAddressTrie;
 
 /**
  * Credits: Large parts of this file have been lifted as is from org.apache.ranger.pdp.knox.URLBasedAuthDB.  Credits for those are due to Dilli Arumugam.
@@ -40,6 +41,11 @@ public class RangerIpMatcher extends RangerAbstractConditionEvaluator {
 	private List<String> _exactIps = new ArrayList<>();
 	private List<String> _wildCardIps = new ArrayList<>();
 	private boolean _allowAny;
+	// exact, wildcard and CIDR values that are valid addresses/prefixes; matched against requests having valid addresses
+	private final RangerIpAddressTrie<Boolean> _ipTrie = new RangerIpAddressTrie<>();
+	// values that couldn't be compiled into the trie; matched as strings, as they might still match a valid request address
+	private List<String> _uncompiledExactIps = new ArrayList<>();
+	private List<String> _uncompiledWildCardIps = new ArrayList<>();
 	
 	@Override
 	public void init() {
@@ -61,20 +67,36 @@ public class RangerIpMatcher extends RangerAbstractConditionEvaluator {
 			LOG.debug("init: wildcard value found.  Will match always.");
 		} else {
 			for (String ip : condition.getValues()) {
+				if (ip.indexOf('/') != -1) { // CIDR: "10.1.0.0/16", "2001:db8::/32"
+					if (!_ipTrie.put(ip, Boolean.TRUE)) {
+						LOG.warn("init: invalid CIDR value [" + ip + "]. Will be matched as a literal");
+						_exactIps.add(ip);
+						_uncompiledExactIps.add(ip);
+					}
+					continue;
+				}
+
 				String digestedIp = digestPolicyIp(ip);
 				if (digestedIp.isEmpty()) {
 					LOG.debug("init: digested ip was empty! Will match always");
 					_allowAny = true;
 				} else if (digestedIp.equals(ip)) {
 					_exactIps.add(ip);
+					if (!_ipTrie.put(ip, Boolean.TRUE)) {
+						_uncompiledExactIps.add(ip);
+					}
 				} else {
 					_wildCardIps.add(digestedIp);
+					String cidr = wildcardToCidr(digestedIp);
+					if (cidr == null || !_ipTrie.put(cidr, Boolean.TRUE)) {
+						_uncompiledWildCardIps.add(digestedIp);
+					}
 				}
 			}
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "]");
+			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "], compiled-prefixes=" + _ipTrie.size());
 		}
 	}
 
@@ -92,7 +114,13 @@ public class RangerIpMatcher extends RangerAbstractConditionEvaluator {
 			if (requestIp == null) {
 				LOG.debug("isMatched: couldn't get ip address from request.  Ok.  Implicitly matched!");
 			} else {
-				ipMatched = isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
+				byte[] requestAddress = RangerIpAddressTrie.parseAddress(requestIp);
+
+				if (requestAddress != null) {
+					ipMatched = _ipTrie.containsPrefixOf(requestAddress) || isWildcardMatched(_uncompiledWildCardIps, requestIp) || isExactlyMatched(_uncompiledExactIps, requestIp);
+				} else { // not a valid address; match as string, as done earlier
+					ipMatched = isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
+				}
 			}
 		}
 		
@@ -139,6 +167,43 @@ public class RangerIpMatcher extends RangerAbstractConditionEvaluator {
 		return result;
 	}
 	
+	/**
+	 * Converts a digested wildcard ip, like "10.1." or "2001:db8:", to the equivalent CIDR, like "10.1.0.0/16" or "2001:db8:0:0:0:0:0:0/32".
+	 * @param digestedIp
+	 * @return null if the digested ip doesn't consist of whole octets/groups
+	 */
+	static String wildcardToCidr(final String digestedIp) {
+		final boolean isIPv4 = digestedIp.endsWith(".");
+
+		if (!isIPv4 && !digestedIp.endsWith(":")) {
+			return null;
+		}
+
+		final String prefix = digestedIp.substring(0, digestedIp.length() - 1);
+
+		final String[] groups     = prefix.split(isIPv4 ? "\\." : ":", -1);
+		final int      groupCount = groups.length;
+		final int      maxGroups  = isIPv4 ? 4 : 8;
+
+		if (groupCount >= maxGroups) {
+			return null;
+		}
+
+		for (String group : groups) {
+			if (group.isEmpty()) { // like "a0::", "1..2."
+				return null;
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(prefix);
+
+		for (int i = groupCount; i < maxGroups; i++) {
+			sb.append(isIPv4 ? ".0" : ":0");
+		}
+
+		return sb.append('/').append(groupCount * (isIPv4 ? 8 : 16)).toString();
+	}
+
 	boolean isWildcardMatched(final List<String> ips, final String requestIp) {
 
 		if(LOG.isDebugEnabled()) {
@@ -27,6 +27,8 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -36,7 +38,11 @@ import java.util.Map;
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
 	private static final Log LOG = LogFactory.getLog(RangerScriptConditionEvaluator.class);
 
-	private ScriptEngine scriptEngine;
+	// set to "false" in evaluatorOptions to evaluate the script text on every call, as earlier versions did
+	public static final String OPTION_ENABLE_SCRIPT_COMPILATION = "enableScriptCompilation";
+
+	private ScriptEngine   scriptEngine;
+	private CompiledScript compiledScript;
 
 	@Override
 	public void init() {
@@ -70,8 +76,22 @@ public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvalu
 			LOG.error("RangerScriptConditionEvaluator.init() failed with exception=" + exp);
 		}
 
+		boolean enableScriptCompilation = MapUtils.isEmpty(evalOptions) || !StringUtils.equalsIgnoreCase(evalOptions.get(OPTION_ENABLE_SCRIPT_COMPILATION), "false");
+
+		if (enableScriptCompilation && scriptEngine instanceof Compilable) {
+			String script = getScript();
+
+			if (StringUtils.isNotBlank(script)) {
+				try {
+					compiledScript = ((Compilable) scriptEngine).compile(script);
+				} catch (ScriptException exception) {
+					LOG.error("RangerScriptConditionEvaluator.init(): failed to compile script, exception=" + exception);
+				}
+			}
+		}
+
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerScriptConditionEvaluator.init(" + condition + ")");
+			LOG.debug("<== RangerScriptConditionEvaluator.init(" + condition + "): isCompiled=" + (compiledScript != null));
 		}
 	}
 
@@ -92,16 +112,12 @@ public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvalu
 
 				RangerScriptExecutionContext context = new RangerScriptExecutionContext(readOnlyRequest);
 
-				Bindings bindings = scriptEngine.createBindings();
-
-				bindings.put("ctx", context);
-
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={" + script + "}");
 				}
 				try {
 
-					Object ret = scriptEngine.eval(script, bindings);
+					Object ret = compiledScript != null ? evalCompiledScript(context) : evalScript(script, context);
 
 					if (ret == null) {
 						ret = context.getResult();
@@ -129,6 +145,24 @@ public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvalu
 
 	}
 
+	private Object evalScript(String script, RangerScriptExecutionContext context) throws ScriptException {
+		Bindings bindings = scriptEngine.createBindings();
+
+		bindings.put("ctx", context);
+
+		return scriptEngine.eval(script, bindings);
+	}
+
+	// fresh bindings for every evaluation, as variables declared by the script (like with 'var') can't be removed from
+	// bindings afterwards; reusing bindings would leak the state of one request into the next
+	private Object evalCompiledScript(RangerScriptExecutionContext context) throws ScriptException {
+		Bindings bindings = scriptEngine.createBindings();
+
+		bindings.put("ctx", context);
+
+		return compiledScript.eval(bindings);
+	}
+
 	protected String getScript() {
 		String ret = null;
 
@@ -21,24 +21,55 @@ package org.apache.ranger.plugin.contextenricher;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerContextEnricherDef;
+import org.apache.ranger.plugin.policyengine.ConcurrentCache;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerStripedCounter;
 
 
 public abstract class RangerAbstractContextEnricher implements RangerContextEnricher {
 	private static final Log LOG = LogFactory.getLog(RangerAbstractContextEnricher.class);
 
+	private static final Log PERF_CONTEXTENRICHER_CACHE_LOG = RangerPerfTracer.getPerfLogger("contextenricher.cache");
+
+	public static final String ENRICHER_OPTION_CACHE_SIZE   = "enricher.cache.size";
+	public static final String ENRICHER_OPTION_CACHE_TTL_MS = "enricher.cache.ttl.ms";
+
+	// request attributes an enricher can declare in getCacheKeyAttributes()
+	public static final String REQUEST_ATTRIBUTE_USER        = "user";
+	public static final String REQUEST_ATTRIBUTE_USER_GROUPS = "userGroups";
+	public static final String REQUEST_ATTRIBUTE_CLIENT_IP   = "clientIPAddress";
+	public static final String REQUEST_ATTRIBUTE_ACCESS_TYPE = "accessType";
+	public static final String REQUEST_ATTRIBUTE_RESOURCE    = "resource";
+
+	private static final long DEFAULT_CACHE_TTL_MS        = 5 * 60 * 1000L;
+	private static final long CACHE_STATS_LOG_INTERVAL_MS = 60 * 1000L;
+
 	protected RangerContextEnricherDef enricherDef;
 	protected String serviceName;
 	protected String appId;
 	protected RangerServiceDef serviceDef;
 
+	private ConcurrentCache<String, CachedContextEntries> enrichmentCache;
+	private long                                          enrichmentCacheTTLMs;
+	private Set<String>                                   cacheKeyAttributes;
+	private final RangerStripedCounter                    cacheHitCount  = new RangerStripedCounter();
+	private final RangerStripedCounter                    cacheMissCount = new RangerStripedCounter();
+	private volatile long                                 nextStatsLogTimeMs;
+
 	@Override
 	public void setEnricherDef(RangerContextEnricherDef enricherDef) {
 		this.enricherDef = enricherDef;
@@ -65,6 +96,19 @@ public abstract class RangerAbstractContextEnricher implements RangerContextEnri
 			LOG.debug("==> RangerAbstractContextEnricher.init(" + enricherDef + ")");
 		}
 
+		int cacheSize = (int) getLongOption(ENRICHER_OPTION_CACHE_SIZE, 0);
+
+		cacheKeyAttributes = getCacheKeyAttributes();
+
+		if(cacheSize > 0 && CollectionUtils.isNotEmpty(cacheKeyAttributes)) {
+			enrichmentCache      = new ConcurrentCache<>(cacheSize);
+			enrichmentCacheTTLMs = getLongOption(ENRICHER_OPTION_CACHE_TTL_MS, DEFAULT_CACHE_TTL_MS);
+
+			LOG.info("RangerAbstractContextEnricher.init(" + getName() + "): caching enrichments, cacheSize=" + cacheSize + ", ttlMs=" + enrichmentCacheTTLMs + ", keyAttributes=" + cacheKeyAttributes);
+		} else {
+			enrichmentCache = null;
+		}
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerAbstractContextEnricher.init(" + enricherDef + ")");
 		}
@@ -72,6 +116,8 @@ public abstract class RangerAbstractContextEnricher implements RangerContextEnri
 
 	@Override
 	public boolean preCleanup() {
+		logCacheStats();
+
 		return true;
 	}
 
@@ -156,6 +202,115 @@ public abstract class RangerAbstractContextEnricher implements RangerContextEnri
 		return ret;
 	}
 
+	/*
+	 * Request attributes - REQUEST_ATTRIBUTE_* - that the context entries added by this enricher depend on. Enrichers
+	 * that declare attributes can cache their entries with getCachedContextEntries()/cacheContextEntries(); caching is
+	 * enabled by enricher option ENRICHER_OPTION_CACHE_SIZE. Returns an empty set by default, i.e. not cacheable.
+	 */
+	protected Set<String> getCacheKeyAttributes() {
+		return Collections.emptySet();
+	}
+
+	/*
+	 * returns the key for the enrichment of the given request, or null if caching is not enabled for this enricher
+	 */
+	protected String getEnrichmentCacheKey(RangerAccessRequest request) {
+		if(enrichmentCache == null || request == null) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+
+		for(String attribute : cacheKeyAttributes) {
+			if(REQUEST_ATTRIBUTE_USER.equals(attribute)) {
+				appendCacheKeyPart(sb, request.getUser());
+			} else if(REQUEST_ATTRIBUTE_USER_GROUPS.equals(attribute)) {
+				Set<String> userGroups = request.getUserGroups();
+
+				sb.append('[');
+				if(userGroups != null) {
+					for(String userGroup : userGroups.size() > 1 ? new TreeSet<>(userGroups) : userGroups) {
+						appendCacheKeyPart(sb, userGroup);
+					}
+				}
+				sb.append(']');
+			} else if(REQUEST_ATTRIBUTE_CLIENT_IP.equals(attribute)) {
+				appendCacheKeyPart(sb, request.getClientIPAddress());
+			} else if(REQUEST_ATTRIBUTE_ACCESS_TYPE.equals(attribute)) {
+				appendCacheKeyPart(sb, request.getAccessType());
+			} else if(REQUEST_ATTRIBUTE_RESOURCE.equals(attribute)) {
+				RangerAccessResource resource = request.getResource();
+
+				appendCacheKeyPart(sb, resource != null ? resource.getCacheKey() : null);
+			} else {
+				return null; // unknown attribute; don't cache
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * returns context entries cached earlier with the given key, or null if not found or expired. Expired entries are
+	 * left in the cache, to be overwritten in place by the caller's cacheContextEntries() with the same key
+	 */
+	protected Map<String, Object> getCachedContextEntries(String cacheKey) {
+		CachedContextEntries cached = cacheKey != null ? enrichmentCache.get(cacheKey) : null;
+		Map<String, Object>  ret    = null;
+
+		if(cached != null && cached.expiryTimeMs > System.currentTimeMillis()) {
+			ret = cached.contextEntries;
+		}
+
+		if(cacheKey != null) {
+			if(ret != null) {
+				cacheHitCount.increment();
+			} else {
+				cacheMissCount.increment();
+			}
+
+			if(PERF_CONTEXTENRICHER_CACHE_LOG.isDebugEnabled() && System.currentTimeMillis() >= nextStatsLogTimeMs) {
+				logCacheStats();
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * contextEntries are shared by all requests that find them in cache, hence should not be modified later
+	 */
+	protected void cacheContextEntries(String cacheKey, Map<String, Object> contextEntries) {
+		if(cacheKey != null && contextEntries != null) {
+			enrichmentCache.put(cacheKey, new CachedContextEntries(Collections.unmodifiableMap(contextEntries), System.currentTimeMillis() + enrichmentCacheTTLMs));
+		}
+	}
+
+	public long getCacheHitCount() {
+		return cacheHitCount.sum();
+	}
+
+	public long getCacheMissCount() {
+		return cacheMissCount.sum();
+	}
+
+	private void logCacheStats() {
+		if(enrichmentCache != null && PERF_CONTEXTENRICHER_CACHE_LOG.isDebugEnabled()) {
+			nextStatsLogTimeMs = System.currentTimeMillis() + CACHE_STATS_LOG_INTERVAL_MS;
+
+			PERF_CONTEXTENRICHER_CACHE_LOG.debug("RangerContextEnricher.cache(serviceName=" + serviceName + ", enricherName=" + getName() + "): hitCount=" + getCacheHitCount() + ", missCount=" + getCacheMissCount() + ", size=" + enrichmentCache.size() + ", evictionCount=" + enrichmentCache.getEvictionCount());
+		}
+	}
+
+	// length-prefixed, so that values containing separator characters can't collide
+	private static void appendCacheKeyPart(StringBuilder sb, String value) {
+		if(value == null) {
+			sb.append('-');
+		} else {
+			sb.append(value.length()).append(':').append(value);
+		}
+	}
+
 	public Properties readProperties(String fileName) {
 		Properties ret = null;
 		
@@ -183,4 +338,14 @@ public abstract class RangerAbstractContextEnricher implements RangerContextEnri
 
 		return ret;
 	}
+
+	private static final class CachedContextEntries {
+		final Map<String, Object> contextEntries;
+		final long                expiryTimeMs;
+
+		CachedContextEntries(Map<String, Object> contextEntries, long expiryTimeMs) {
+			this.contextEntries = contextEntries;
+			this.expiryTimeMs   = expiryTimeMs;
+		}
+	}
 }
@@ -27,7 +27,10 @@ import org.apache.ranger.plugin.geo.RangerGeolocationDatabase;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.store.GeolocationStore;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public abstract class RangerAbstractGeolocationProvider extends RangerAbstractContextEnricher {
 
@@ -105,8 +108,6 @@ public abstract class RangerAbstractGeolocationProvider extends RangerAbstractCo
 			LOG.debug("==> RangerAbstractGeolocationProvider.enrich(" + request + ")");
 		}
 
-		RangerGeolocationData geolocation = null;
-
 		String clientIPAddress = request.getClientIPAddress();
 
 		if (LOG.isDebugEnabled()) {
@@ -114,28 +115,16 @@ public abstract class RangerAbstractGeolocationProvider extends RangerAbstractCo
 		}
 
 		if (StringUtils.isNotBlank(clientIPAddress) && store != null) {
-			geolocation = store.getGeoLocation(clientIPAddress);
-
-			if (geolocation != null) {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("RangerAbstractGeolocationProvider.enrich() - Country=" + geolocation);
-				}
-				Map<String, Object> context = request.getContext();
+			String              cacheKey       = getEnrichmentCacheKey(request);
+			Map<String, Object> contextEntries = getCachedContextEntries(cacheKey);
 
-				String[] geoAttrValues = geolocation.getLocationData();
+			if (contextEntries == null) {
+				contextEntries = getGeolocationContextEntries(clientIPAddress);
 
-				RangerGeolocationDatabase database = store.getGeoDatabase();
-				String[] attributeNames = database.getMetadata().getLocationDataItemNames();
-
-				for (int i = 0; i < geoAttrValues.length && i < attributeNames.length; i++) {
-					String contextName = KEY_CONTEXT_GEOLOCATION_PREFIX + geoMetaPrefix + attributeNames[i];
-					context.put(contextName, geoAttrValues[i]);
-				}
-			} else {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("RangerAbstractGeolocationProvider.enrich() - clientIPAddress '" + clientIPAddress + "' not found.");
-				}
+				cacheContextEntries(cacheKey, contextEntries);
 			}
+
+			request.getContext().putAll(contextEntries);
 		} else {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("RangerAbstractGeolocationProvider.enrich() - clientIPAddress is null or blank, cannot get geolocation");
@@ -145,4 +134,36 @@ public abstract class RangerAbstractGeolocationProvider extends RangerAbstractCo
 			LOG.debug("<== RangerAbstractGeolocationProvider.enrich(" + request + ")");
 		}
 	}
+
+	@Override
+	protected Set<String> getCacheKeyAttributes() {
+		return Collections.singleton(REQUEST_ATTRIBUTE_CLIENT_IP);
+	}
+
+	private Map<String, Object> getGeolocationContextEntries(String clientIPAddress) {
+		Map<String, Object>   ret         = new HashMap<>();
+		RangerGeolocationData geolocation = store.getGeoLocation(clientIPAddress);
+
+		if (geolocation != null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerAbstractGeolocationProvider.enrich() - Country=" + geolocation);
+			}
+
+			String[] geoAttrValues = geolocation.getLocationData();
+
+			RangerGeolocationDatabase database = store.getGeoDatabase();
+			String[] attributeNames = database.getMetadata().getLocationDataItemNames();
+
+			for (int i = 0; i < geoAttrValues.length && i < attributeNames.length; i++) {
+				String contextName = KEY_CONTEXT_GEOLOCATION_PREFIX + geoMetaPrefix + attributeNames[i];
+				ret.put(contextName, geoAttrValues[i]);
+			}
+		} else {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerAbstractGeolocationProvider.enrich() - clientIPAddress '" + clientIPAddress + "' not found.");
+			}
+		}
+
+		return ret;
+	}
 }
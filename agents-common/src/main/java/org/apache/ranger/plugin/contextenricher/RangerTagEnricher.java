@@ -36,6 +36,7 @@ import org.apache.ranger.plugin.policyresourcematcher.RangerDefaultPolicyResourc
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerRefreshScheduler;
 import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.ServiceTags;
@@ -121,7 +122,6 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 				} catch (Throwable exception) {
 					LOG.error("Exception when retrieving tag for the first time for this enricher", exception);
 				}
-				tagRefresher.setDaemon(true);
 				tagRefresher.startRefresher();
 			}
 		} else {
@@ -392,7 +392,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		Set<RangerTagForEval> getTagsForEmptyResourceAndAnyAccess() { return tagsForEmptyResourceAndAnyAccess;}
 	}
 
-	static class RangerTagRefresher extends Thread {
+	static class RangerTagRefresher implements RangerRefreshScheduler.RefreshTask {
 		private static final Log LOG = LogFactory.getLog(RangerTagRefresher.class);
 
 		private final RangerTagRetriever tagRetriever;
@@ -403,13 +403,20 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		private final long pollingIntervalMs;
 		private final String cacheFile;
 		private boolean hasProvidedTagsToReceiver;
+		private Exception lastRefreshFailure;
 		private Gson gson;
 
 
-		final long getPollingIntervalMs() {
+		@Override
+		public final long getPollingIntervalMs() {
 			return pollingIntervalMs;
 		}
 
+		@Override
+		public String getServiceName() {
+			return tagRetriever.getServiceName();
+		}
+
 		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, String cacheFile, long pollingIntervalMs) {
 			this.tagRetriever = tagRetriever;
 			this.tagEnricher = tagEnricher;
@@ -431,40 +438,34 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 			this.lastActivationTimeInMillis = lastActivationTimeInMillis;
 		}
 
+		/*
+		 * called by RangerRefreshScheduler every pollingIntervalMs. A failure to reach Ranger Admin is rethrown, for the
+		 * scheduler to back off
+		 */
 		@Override
-		public void run() {
-
+		public void refresh() throws Exception {
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("==> RangerTagRefresher(pollingIntervalMs=" + pollingIntervalMs + ").run()");
+				LOG.debug("==> RangerTagRefresher(pollingIntervalMs=" + pollingIntervalMs + ").refresh()");
 			}
 
-			while (true) {
+			RangerPerfTracer perf = null;
 
-				try {
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_CONTEXTENRICHER_INIT_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_CONTEXTENRICHER_INIT_LOG, "RangerTagRefresher.populateTags(serviceName=" + tagRetriever.getServiceName() + ",lastKnownVersion=" + lastKnownVersion + ")");
+			}
 
-					// Sleep first and then fetch tags
-					if (pollingIntervalMs > 0) {
-						Thread.sleep(pollingIntervalMs);
-					} else {
-						break;
-					}
-					RangerPerfTracer perf = null;
+			populateTags();
 
-					if(RangerPerfTracer.isPerfTraceEnabled(PERF_CONTEXTENRICHER_INIT_LOG)) {
-						perf = RangerPerfTracer.getPerfTracer(PERF_CONTEXTENRICHER_INIT_LOG, "RangerTagRefresher.populateTags(serviceName=" + tagRetriever.getServiceName() + ",lastKnownVersion=" + lastKnownVersion + ")");
-					}
-					populateTags();
+			RangerPerfTracer.log(perf);
 
-					RangerPerfTracer.log(perf);
+			Exception failure = lastRefreshFailure;
 
-				} catch (InterruptedException excp) {
-					LOG.debug("RangerTagRefresher(pollingIntervalMs=" + pollingIntervalMs + ").run() : interrupted! Exiting thread", excp);
-					break;
-				}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("<== RangerTagRefresher(pollingIntervalMs=" + pollingIntervalMs + ").refresh(): failure=" + failure);
 			}
 
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== RangerTagRefresher().run()");
+			if (failure != null) {
+				throw failure;
 			}
 		}
 
@@ -473,6 +474,8 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 			if (tagEnricher != null) {
 				ServiceTags serviceTags = null;
 
+				lastRefreshFailure = null;
+
 				try {
 					serviceTags = tagRetriever.retrieveTags(lastKnownVersion, lastActivationTimeInMillis);
 
@@ -510,6 +513,8 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 					throw interruptedException;
 				} catch (Exception e) {
 					LOG.error("Encountered unexpected exception. Ignoring", e);
+
+					lastRefreshFailure = e;
 				}
 
 			} else {
@@ -530,24 +535,13 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		}
 
 		final void startRefresher() {
-			try {
-				super.start();
-			} catch (Exception excp) {
-				LOG.error("RangerTagRefresher.startRetriever() - failed to start, exception=" + excp);
+			if (pollingIntervalMs > 0) {
+				RangerRefreshScheduler.getInstance().register(this);
 			}
 		}
 
 		private void stopRefresher() {
-
-			if (super.isAlive()) {
-				super.interrupt();
-
-				try {
-					super.join();
-				} catch (InterruptedException excp) {
-					LOG.error("RangerTagRefresher(): error while waiting for thread to exit", excp);
-				}
-			}
+			RangerRefreshScheduler.getInstance().unregister(this);
 		}
 
 
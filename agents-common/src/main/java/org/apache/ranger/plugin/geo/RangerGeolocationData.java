@@ -71,12 +71,24 @@ public class RangerGeolocationData implements Comparable<RangerGeolocationData>,
 		return data;
 	}
 
+	static RangerGeolocationData create(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
+		return new RangerGeolocationData(fromIPAddress, toIPAddress, locationData);
+	}
+
 	private RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
 		this.fromIPAddress = fromIPAddress;
 		this.toIPAddress = toIPAddress;
 		this.locationData = locationData;
 	}
 
+	public long getFromIPAddress() {
+		return fromIPAddress;
+	}
+
+	public long getToIPAddress() {
+		return toIPAddress;
+	}
+
 	public String[] getLocationData() {
 		return locationData;
 	}
@@ -140,7 +152,7 @@ public class RangerGeolocationData implements Comparable<RangerGeolocationData>,
 			if (bytes != null && bytes.length <= 4) {
 				for (int i = 0; i < bytes.length; i++) {
 					int val = bytes[i] < 0 ? (256 + bytes[i]) : bytes[i];
-					ret += (val << (8 * (3 - i)));
+					ret += ((long) val << (8 * (3 - i)));
 				}
 			}
 		}
@@ -26,7 +26,7 @@ import org.apache.commons.logging.LogFactory;
 public class RangerGeolocationDatabase {
 	private static final Log LOG = LogFactory.getLog(RangerGeolocationDatabase.class);
 
-	private BinarySearchTree<RangerGeolocationData, Long> data = new BinarySearchTree<>();
+	private RangerGeolocationIndex index = new RangerGeolocationIndex.Builder().build();
 
 	private GeolocationMetadata metadata = new GeolocationMetadata();
 
@@ -56,34 +56,30 @@ public class RangerGeolocationDatabase {
 		RangerGeolocationData ret = null;
 
 		if (StringUtils.isNotBlank(ipAddressStr) && RangerGeolocationData.validateAsIP(ipAddressStr, true)) {
-			ret = data.find(RangerGeolocationData.ipAddressToLong(ipAddressStr));
+			RangerGeolocationIndex index = this.index; // setIndex() may get called while find() is half-executed
+			int                    i     = index.find(RangerGeolocationData.ipAddressToLong(ipAddressStr));
+
+			if (i != -1) {
+				ret = RangerGeolocationData.create(index.getFromAddress(i), index.getToAddress(i), index.getLocation(i));
+			}
 		}
 		return ret;
 	}
 
-	public void optimize() {
-		long start = 0L, end = 0L;
-
-		start = System.currentTimeMillis();
-		data.rebalance();
-		end = System.currentTimeMillis();
-
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerGeolocationDatabase.optimize() - Time taken for optimizing database = " + (end - start) + " milliseconds");
-		}
+	public void setIndex(final RangerGeolocationIndex indexArg) {
+		index    = indexArg != null ? indexArg : new RangerGeolocationIndex.Builder().build();
+		metadata = new GeolocationMetadata(index.getAttributeNames());
 	}
 
-	public void setData(final BinarySearchTree<RangerGeolocationData, Long> dataArg) { data = dataArg != null ? dataArg : new BinarySearchTree<RangerGeolocationData, Long>();}
-
 	public void setMetadata(final GeolocationMetadata metadataArg) { metadata = metadataArg != null ? metadataArg : new GeolocationMetadata();}
 
 	public GeolocationMetadata getMetadata() { return metadata; }
 
-	public BinarySearchTree<RangerGeolocationData, Long> getData() { return data; }
+	public RangerGeolocationIndex getIndex() { return index; }
 
 	public void dump(ValuePrinter<RangerGeolocationData> processor) {
 
-		BinarySearchTree<RangerGeolocationData, Long> geoDatabase = getData();
+		RangerGeolocationIndex geoDatabase = getIndex();
 		GeolocationMetadata metadata = getMetadata();
 		processor.build();
 
@@ -91,7 +87,9 @@ public class RangerGeolocationDatabase {
 		processor.print(metadata.toString());
 
 		processor.print("#================== Dump of geoDatabase - START ==================");
-		geoDatabase.preOrderTraverseTree(processor);
+		for (int i = 0; i < geoDatabase.size(); i++) {
+			processor.process(RangerGeolocationData.create(geoDatabase.getFromAddress(i), geoDatabase.getToAddress(i), geoDatabase.getLocation(i)));
+		}
 		processor.print("#================== Dump of geoDatabase - END   ==================");
 
 		processor.close();
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.geo;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * IPv4 ranges sorted by start address, held in primitive arrays and searched with binary search. Each range refers
+ * to an entry in a table of distinct location data, so that repeated locations are stored once.
+ *
+ * Binary format (big-endian):
+ *   int MAGIC, int VERSION, int rangeCount,
+ *   int[rangeCount] fromAddresses, int[rangeCount] toAddresses, int[rangeCount] locationIndexes,
+ *   int attributeCount, UTF[attributeCount] attributeNames,
+ *   int locationCount, { int valueCount, UTF[valueCount] values }[locationCount]
+ *
+ * The range arrays are read directly from a memory-mapped file; only the location table is loaded into heap.
+ */
+public class RangerGeolocationIndex {
+	private static final Log LOG = LogFactory.getLog(RangerGeolocationIndex.class);
+
+	public static final int MAGIC   = 0x52474958; // "RGIX"
+	public static final int VERSION = 1;
+
+	private static final int HEADER_LENGTH = 3 * 4;
+
+	private final IntBuffer  fromAddresses;
+	private final IntBuffer  toAddresses;
+	private final IntBuffer  locationIndexes;
+	private final String[]   attributeNames;
+	private final String[][] locations;
+
+	private RangerGeolocationIndex(IntBuffer fromAddresses, IntBuffer toAddresses, IntBuffer locationIndexes, String[] attributeNames, String[][] locations) {
+		this.fromAddresses   = fromAddresses;
+		this.toAddresses     = toAddresses;
+		this.locationIndexes = locationIndexes;
+		this.attributeNames  = attributeNames;
+		this.locations       = locations;
+	}
+
+	public int size() {
+		return fromAddresses.limit();
+	}
+
+	public String[] getAttributeNames() {
+		return attributeNames;
+	}
+
+	public long getFromAddress(int index) {
+		return fromAddresses.get(index) & 0xFFFFFFFFL;
+	}
+
+	public long getToAddress(int index) {
+		return toAddresses.get(index) & 0xFFFFFFFFL;
+	}
+
+	public String[] getLocation(int index) {
+		return locations[locationIndexes.get(index)];
+	}
+
+	/*
+	 * returns index of the range that contains the given address; -1 if no range contains it
+	 */
+	public int find(long ipAddress) {
+		int low  = 0;
+		int high = size() - 1;
+		int ret  = -1;
+
+		// find the last range starting at or before ipAddress
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (getFromAddress(mid) <= ipAddress) {
+				ret = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		if (ret != -1 && getToAddress(ret) < ipAddress) {
+			ret = -1;
+		}
+
+		return ret;
+	}
+
+	public void writeTo(OutputStream outStream) throws IOException {
+		DataOutputStream out   = new DataOutputStream(new BufferedOutputStream(outStream));
+		int              count = size();
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(count);
+
+		for (IntBuffer buffer : new IntBuffer[] { fromAddresses, toAddresses, locationIndexes }) {
+			for (int i = 0; i < count; i++) {
+				out.writeInt(buffer.get(i));
+			}
+		}
+
+		writeStrings(out, attributeNames);
+
+		out.writeInt(locations.length);
+
+		for (String[] location : locations) {
+			writeStrings(out, location);
+		}
+
+		out.flush();
+	}
+
+	public static boolean isIndexFile(File file) {
+		boolean ret = false;
+
+		if (file.isFile() && file.length() >= HEADER_LENGTH) {
+			try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+				ret = in.readInt() == MAGIC;
+			} catch (IOException excp) {
+				LOG.warn("RangerGeolocationIndex.isIndexFile(" + file + "): failed to read", excp);
+			}
+		}
+
+		return ret;
+	}
+
+	public static boolean isIndexStream(InputStream inStream) throws IOException {
+		byte[] magic = new byte[4];
+
+		inStream.mark(magic.length);
+
+		int len = inStream.read(magic);
+
+		inStream.reset();
+
+		return len == magic.length && ByteBuffer.wrap(magic).getInt() == MAGIC;
+	}
+
+	/*
+	 * memory-maps the range arrays of the given file
+	 */
+	public static RangerGeolocationIndex load(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer  buffer  = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int         count   = readHeader(buffer);
+
+			channel.position(HEADER_LENGTH + 3L * 4 * count);
+
+			// the mapping stays valid after the channel is closed
+			return create(buffer, count, new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+		}
+	}
+
+	/*
+	 * reads the index into heap, for sources that can't be memory-mapped, like classpath resources
+	 */
+	public static RangerGeolocationIndex load(InputStream inStream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[]                buf   = new byte[64 * 1024];
+
+		for (int len = inStream.read(buf); len != -1; len = inStream.read(buf)) {
+			bytes.write(buf, 0, len);
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		int        count  = readHeader(buffer);
+		long       offset = HEADER_LENGTH + 3L * 4 * count;
+
+		return create(buffer, count, new DataInputStream(new ByteArrayInputStream(buffer.array(), (int) offset, buffer.capacity() - (int) offset)));
+	}
+
+	private static int readHeader(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a geolocation index");
+		}
+
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("unsupported geolocation index version: " + buffer.getInt(4));
+		}
+
+		int count = buffer.getInt(8);
+
+		if (count < 0 || HEADER_LENGTH + 3L * 4 * count > buffer.capacity()) {
+			throw new IOException("invalid geolocation index: range count " + count + " exceeds file size");
+		}
+
+		return count;
+	}
+
+	private static RangerGeolocationIndex create(ByteBuffer buffer, int count, DataInputStream tablesIn) throws IOException {
+		IntBuffer  fromAddresses   = slice(buffer, HEADER_LENGTH, count);
+		IntBuffer  toAddresses     = slice(buffer, HEADER_LENGTH + 4 * count, count);
+		IntBuffer  locationIndexes = slice(buffer, HEADER_LENGTH + 8 * count, count);
+		String[]   attributeNames  = readStrings(tablesIn);
+		String[][] locations       = new String[tablesIn.readInt()][];
+
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = readStrings(tablesIn);
+		}
+
+		for (int i = 0; i < count; i++) {
+			int locationIndex = locationIndexes.get(i);
+
+			if (locationIndex < 0 || locationIndex >= locations.length) {
+				throw new IOException("invalid geolocation index: location index " + locationIndex + " at range " + i);
+			}
+		}
+
+		return new RangerGeolocationIndex(fromAddresses, toAddresses, locationIndexes, attributeNames, locations);
+	}
+
+	private static IntBuffer slice(ByteBuffer buffer, int offset, int count) {
+		ByteBuffer dup = buffer.duplicate();
+
+		((Buffer) dup).position(offset);
+		((Buffer) dup).limit(offset + 4 * count);
+
+		return dup.slice().asIntBuffer().asReadOnlyBuffer();
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+		out.writeInt(values.length);
+
+		for (String value : values) {
+			out.writeUTF(value != null ? value : "");
+		}
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		String[] ret = new String[in.readInt()];
+
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = in.readUTF();
+		}
+
+		return ret;
+	}
+
+	public static class Builder {
+		private final List<long[]>               ranges         = new ArrayList<>(); // { from, to, locationIndex }
+		private final Map<List<String>, Integer> locationIdx    = new HashMap<>();
+		private final List<String[]>             locations      = new ArrayList<>();
+		private String[]                         attributeNames = new String[0];
+
+		public Builder setAttributeNames(String[] attributeNames) {
+			this.attributeNames = attributeNames != null ? attributeNames : new String[0];
+
+			return this;
+		}
+
+		public Builder add(long fromAddress, long toAddress, String[] location) {
+			List<String> key   = Arrays.asList(location);
+			Integer      index = locationIdx.get(key);
+
+			if (index == null) {
+				index = locations.size();
+
+				locations.add(location);
+				locationIdx.put(key, index);
+			}
+
+			ranges.add(new long[] { fromAddress, toAddress, index });
+
+			return this;
+		}
+
+		public RangerGeolocationIndex build() {
+			Collections.sort(ranges, new Comparator<long[]>() {
+				@Override
+				public int compare(long[] r1, long[] r2) {
+					int ret = Long.compare(r1[0], r2[0]);
+
+					return ret != 0 ? ret : Long.compare(r1[1], r2[1]);
+				}
+			});
+
+			int   count           = ranges.size();
+			int[] fromAddresses   = new int[count];
+			int[] toAddresses     = new int[count];
+			int[] locationIndexes = new int[count];
+			int   overlapCount    = 0;
+
+			for (int i = 0; i < count; i++) {
+				long[] range = ranges.get(i);
+
+				if (i > 0 && range[0] <= ranges.get(i - 1)[1]) {
+					overlapCount++;
+				}
+
+				fromAddresses[i]   = (int) range[0];
+				toAddresses[i]     = (int) range[1];
+				locationIndexes[i] = (int) range[2];
+			}
+
+			if (overlapCount > 0) {
+				LOG.warn("RangerGeolocationIndex.Builder.build(): " + overlapCount + " ranges overlap with their previous range. Addresses in overlapping ranges might not be resolved correctly");
+			}
+
+			return new RangerGeolocationIndex(IntBuffer.wrap(fromAddresses).asReadOnlyBuffer(), IntBuffer.wrap(toAddresses).asReadOnlyBuffer(), IntBuffer.wrap(locationIndexes).asReadOnlyBuffer(),
+			                                  attributeNames, locations.toArray(new String[locations.size()][]));
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerStripedCounter;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Bounded cache with lock-free reads, for use in place of a synchronized CacheMap on request paths.
+ *
+ * Eviction is an approximation of LRU using the CLOCK (second-chance) algorithm: a read only marks the entry
+ * as referenced, and when the cache grows beyond maxSize the writer that acquires the eviction lock walks the
+ * insertion queue, evicting entries that were not referenced since the previous pass. Writers that find the
+ * eviction lock held do not wait, so the cache can briefly hold a few entries more than maxSize.
+ *
+ * The queue holds the entries themselves, each queued once when its key is added. Entries removed by remove()
+ * stay in the queue until eviction reaches them, or until their count exceeds the cache size, when they are
+ * purged; hence the queue length stays within twice the cache size.
+ */
+public class ConcurrentCache<K, V> {
+    private static final Log LOG = LogFactory.getLog(ConcurrentCache.class);
+
+    private static final int MIN_STALE_COUNT_TO_PURGE = 16;
+
+    private final int                                     maxSize;
+    private final ConcurrentHashMap<K, CacheEntry<K, V>>  entries;
+    private final ConcurrentLinkedQueue<CacheEntry<K, V>> clockQueue    = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger                           size          = new AtomicInteger();
+    private final AtomicInteger                           staleCount    = new AtomicInteger(); // removed entries still in clockQueue
+    private final ReentrantLock                           evictionLock  = new ReentrantLock();
+    private final RangerStripedCounter                    hitCount      = new RangerStripedCounter();
+    private final RangerStripedCounter                    missCount     = new RangerStripedCounter();
+    private final RangerStripedCounter                    evictionCount = new RangerStripedCounter();
+
+    public ConcurrentCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<>(Math.max(16, Math.min(maxSize, 64 * 1024)));
+    }
+
+    public V get(K key) {
+        CacheEntry<K, V> entry = key == null ? null : entries.get(key);
+
+        if(entry == null) {
+            missCount.increment();
+
+            return null;
+        }
+
+        entry.markReferenced();
+        hitCount.increment();
+
+        return entry.value;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public void put(K key, V value) {
+        if(key == null || value == null) {
+            return;
+        }
+
+        CacheEntry<K, V> entry     = new CacheEntry<>(key, value);
+        CacheEntry<K, V> prevEntry = entries.putIfAbsent(key, entry);
+
+        if(prevEntry == null) {
+            size.incrementAndGet();
+            clockQueue.offer(entry);
+
+            evictIfNeeded();
+        } else { // replace the value in place, so that the key is not queued again
+            prevEntry.value = value;
+        }
+    }
+
+    public V remove(K key) {
+        CacheEntry<K, V> entry = key == null ? null : entries.remove(key);
+
+        if(entry == null) {
+            return null;
+        }
+
+        size.decrementAndGet();
+        staleCount.incrementAndGet();
+
+        purgeIfNeeded();
+
+        return entry.value;
+    }
+
+    public void clear() {
+        evictionLock.lock();
+
+        try {
+            entries.clear();
+            clockQueue.clear();
+            size.set(0);
+            staleCount.set(0);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    int getQueueLength() {
+        return clockQueue.size();
+    }
+
+    public double getHitRatio() {
+        long hits  = getHitCount();
+        long total = hits + getMissCount();
+
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    private void evictIfNeeded() {
+        // writers that fail to get the lock rely on the current holder to re-check the size after releasing it
+        while(size.get() > maxSize && evictionLock.tryLock()) {
+            int evictedCount;
+
+            try {
+                evictedCount = evict();
+            } finally {
+                evictionLock.unlock();
+            }
+
+            if(LOG.isDebugEnabled()) {
+                LOG.debug("ConcurrentCache.evictIfNeeded(): evictedCount=" + evictedCount + ", " + this);
+            }
+
+            if(evictedCount == 0) {
+                break;
+            }
+        }
+    }
+
+    private int evict() {
+        int ret = 0;
+
+        // after one full sweep, evict regardless of referenced flag; otherwise readers that keep
+        // referencing every entry would prevent eviction altogether
+        final int sweepSize     = size.get();
+        final int maxIterations = 2 * sweepSize + 1;
+
+        for(int i = 0; i < maxIterations && size.get() > maxSize; i++) {
+            CacheEntry<K, V> entry = clockQueue.poll();
+
+            if(entry == null) {
+                break;
+            }
+
+            if(entries.get(entry.key) != entry) { // removed after being queued
+                staleCount.decrementAndGet();
+
+                continue;
+            }
+
+            if(entry.referenced && i < sweepSize) {
+                entry.referenced = false;
+
+                clockQueue.offer(entry);
+            } else if(entries.remove(entry.key, entry)) {
+                size.decrementAndGet();
+                evictionCount.increment();
+
+                ret++;
+            } else { // removed after the check above; remove() counted it as stale, but it is no longer queued
+                staleCount.decrementAndGet();
+            }
+        }
+
+        return ret;
+    }
+
+    private void purgeIfNeeded() {
+        if(staleCount.get() > Math.max(size.get(), MIN_STALE_COUNT_TO_PURGE) && evictionLock.tryLock()) {
+            int purgedCount = 0;
+
+            try {
+                for(Iterator<CacheEntry<K, V>> iter = clockQueue.iterator(); iter.hasNext(); ) {
+                    CacheEntry<K, V> entry = iter.next();
+
+                    if(entries.get(entry.key) != entry) {
+                        iter.remove();
+                        staleCount.decrementAndGet();
+
+                        purgedCount++;
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+
+            if(LOG.isDebugEnabled()) {
+                LOG.debug("ConcurrentCache.purgeIfNeeded(): purgedCount=" + purgedCount + ", " + this);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("ConcurrentCache={");
+        sb.append("size=").append(size());
+        sb.append("; maxSize=").append(maxSize);
+        sb.append("; hitCount=").append(getHitCount());
+        sb.append("; missCount=").append(getMissCount());
+        sb.append("; evictionCount=").append(getEvictionCount());
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    private static final class CacheEntry<K, V> {
+        final K          key;
+        volatile V       value;
+        volatile boolean referenced;
+
+        CacheEntry(K key, V value) {
+            this.key   = key;
+            this.value = value;
+        }
+
+        void markReferenced() {
+            if(!referenced) { // avoid a write, and the cache-line invalidation, on repeated reads
+                referenced = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+
+/*
+ * Wraps a request whose context is shared with other requests of a batch, so that the request can be evaluated in
+ * parallel with them: evaluation writes into a copy of the context, which is merged into the shared context later.
+ */
+class RangerAccessRequestWithPrivateContext implements RangerAccessRequest {
+	private final RangerAccessRequest source;
+	private final Set<String>         sourceContextKeys;
+	private final Map<String, Object> context;
+
+	RangerAccessRequestWithPrivateContext(final RangerAccessRequest source) {
+		this.source            = source;
+		this.sourceContextKeys = new HashSet<>(source.getContext().keySet());
+		this.context           = new HashMap<>(source.getContext());
+
+		context.remove(RangerAccessRequestUtil.KEY_CONTEXT_TOKEN_EXPANSIONS); // not thread-safe; not to be shared
+	}
+
+	RangerAccessRequest getSource() { return source; }
+
+	/*
+	 * applies the changes made to the private context to the source context - as if the request was evaluated with it
+	 */
+	void mergeContextIntoSource() {
+		Map<String, Object> sourceContext = source.getContext();
+
+		for (String key : sourceContextKeys) {
+			if (!context.containsKey(key) && !key.equals(RangerAccessRequestUtil.KEY_CONTEXT_TOKEN_EXPANSIONS)) {
+				sourceContext.remove(key);
+			}
+		}
+
+		for (Map.Entry<String, Object> entry : context.entrySet()) {
+			if (!entry.getKey().equals(RangerAccessRequestUtil.KEY_CONTEXT_TOKEN_EXPANSIONS)) {
+				sourceContext.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	@Override
+	public RangerAccessResource getResource() { return source.getResource(); }
+
+	@Override
+	public String getAccessType() { return source.getAccessType(); }
+
+	@Override
+	public boolean isAccessTypeAny() { return source.isAccessTypeAny(); }
+
+	@Override
+	public boolean isAccessTypeDelegatedAdmin() { return source.isAccessTypeDelegatedAdmin(); }
+
+	@Override
+	public String getUser() { return source.getUser(); }
+
+	@Override
+	public Set<String> getUserGroups() { return source.getUserGroups(); }
+
+	@Override
+	public Date getAccessTime() { return source.getAccessTime(); }
+
+	@Override
+	public String getClientIPAddress() { return source.getClientIPAddress(); }
+
+	@Override
+	public String getRemoteIPAddress() { return source.getRemoteIPAddress(); }
+
+	@Override
+	public List<String> getForwardedAddresses() { return source.getForwardedAddresses(); }
+
+	@Override
+	public String getClientType() { return source.getClientType(); }
+
+	@Override
+	public String getAction() { return source.getAction(); }
+
+	@Override
+	public String getRequestData() { return source.getRequestData(); }
+
+	@Override
+	public String getSessionId() { return source.getSessionId(); }
+
+	@Override
+	public String getClusterName() { return source.getClusterName(); }
+
+	@Override
+	public Map<String, Object> getContext() { return context; }
+
+	@Override
+	public RangerAccessRequest getReadOnlyCopy() { return new RangerAccessRequestReadOnly(this); }
+
+	@Override
+	public ResourceMatchingScope getResourceMatchingScope() { return source.getResourceMatchingScope(); }
+
+	@Override
+	public String toString() { return source.toString(); }
+}
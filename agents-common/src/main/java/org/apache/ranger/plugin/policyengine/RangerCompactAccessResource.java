@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+
+/*
+ * Immutable resource, with values held in an array indexed by the position of the resource-def in the service-def.
+ * Presence of values is tracked in a bit-mask; key-sets are shared across resources having values for the same
+ * resource-defs. Unlike RangerAccessResourceImpl, no map is allocated per resource. Policy engine, tries and matchers
+ * use it through RangerAccessResource; other implementations can be converted with copyOf().
+ */
+public final class RangerCompactAccessResource implements RangerAccessResource {
+	private final Layout   layout;
+	private final String[] values;
+	private final long     presenceMask;
+	private final String   ownerUser;
+	private final int      hashCode;
+
+	private String              stringifiedValue;
+	private String              stringifiedCacheKeyValue;
+	private Map<String, String> map;
+
+	/*
+	 * values: by position of the resource-def in the service-def; null for resource-defs without a value
+	 */
+	public RangerCompactAccessResource(Layout layout, String[] values, String ownerUser) {
+		if (values.length != layout.getResourceCount()) {
+			throw new IllegalArgumentException("expected " + layout.getResourceCount() + " values; found " + values.length);
+		}
+
+		long presenceMask = 0;
+
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				presenceMask |= (1L << i);
+			}
+		}
+
+		this.layout       = layout;
+		this.values       = values.clone();
+		this.presenceMask = presenceMask;
+		this.ownerUser    = ownerUser;
+		this.hashCode     = 31 * Arrays.hashCode(this.values) + ObjectUtils.hashCode(ownerUser);
+	}
+
+	public static RangerCompactAccessResource copyOf(RangerAccessResource resource, Layout layout) {
+		if (resource instanceof RangerCompactAccessResource && ((RangerCompactAccessResource) resource).layout == layout) {
+			return (RangerCompactAccessResource) resource;
+		}
+
+		String[] values = new String[layout.getResourceCount()];
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = resource.getValue(layout.getResourceName(i));
+		}
+
+		return new RangerCompactAccessResource(layout, values, resource.getOwnerUser());
+	}
+
+	public Layout getLayout() {
+		return layout;
+	}
+
+	@Override
+	public String getOwnerUser() {
+		return ownerUser;
+	}
+
+	@Override
+	public boolean exists(String name) {
+		int ordinal = layout.getOrdinal(name);
+
+		return ordinal != -1 && values[ordinal] != null;
+	}
+
+	@Override
+	public String getValue(String name) {
+		int ordinal = layout.getOrdinal(name);
+
+		return ordinal == -1 ? null : values[ordinal];
+	}
+
+	public String getValue(int ordinal) {
+		return values[ordinal];
+	}
+
+	@Override
+	public RangerServiceDef getServiceDef() {
+		return layout.getServiceDef();
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return presenceMask == 0 ? null : layout.getKeys(presenceMask);
+	}
+
+	@Override
+	public String getLeafName() {
+		return presenceMask == 0 ? null : layout.getResourceName(63 - Long.numberOfLeadingZeros(presenceMask));
+	}
+
+	@Override
+	public String getAsString() {
+		String ret = stringifiedValue;
+
+		if (ret == null && presenceMask != 0) {
+			StringBuilder sb = new StringBuilder();
+
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null) {
+					continue;
+				}
+
+				if (sb.length() > 0) {
+					sb.append(RESOURCE_SEP);
+				}
+
+				sb.append(values[i]);
+			}
+
+			ret = stringifiedValue = sb.toString();
+		}
+
+		return ret;
+	}
+
+	@Override
+	public String getCacheKey() {
+		String ret = stringifiedCacheKeyValue;
+
+		if (ret == null && presenceMask != 0) {
+			StringBuilder sb = new StringBuilder();
+
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null) {
+					continue;
+				}
+
+				if (sb.length() > 0) {
+					sb.append(RESOURCE_SEP);
+				}
+
+				sb.append(layout.getResourceName(i)).append(RESOURCE_NAME_VAL_SEP).append(values[i]);
+			}
+
+			ret = stringifiedCacheKeyValue = sb.toString();
+		}
+
+		return ret;
+	}
+
+	@Override
+	public Map<String, String> getAsMap() {
+		Map<String, String> ret = map;
+
+		if (ret == null) {
+			if (presenceMask == 0) {
+				ret = Collections.emptyMap();
+			} else {
+				Map<String, String> elements = new LinkedHashMap<>();
+
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null) {
+						elements.put(layout.getResourceName(i), values[i]);
+					}
+				}
+
+				ret = Collections.unmodifiableMap(elements);
+			}
+
+			map = ret;
+		}
+
+		return ret;
+	}
+
+	@Override
+	public RangerAccessResource getReadOnlyCopy() {
+		return this;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof RangerCompactAccessResource)) {
+			return false;
+		}
+
+		RangerCompactAccessResource other = (RangerCompactAccessResource) obj;
+
+		return hashCode == other.hashCode &&
+		       Arrays.equals(layout.resourceNames, other.layout.resourceNames) &&
+		       Arrays.equals(values, other.values) &&
+		       ObjectUtils.equals(ownerUser, other.ownerUser);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("RangerCompactAccessResource={");
+		sb.append("ownerUser={").append(ownerUser).append("} ");
+		sb.append("elements={");
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				sb.append(layout.getResourceName(i)).append("=").append(values[i]).append("; ");
+			}
+		}
+		sb.append("} ");
+		sb.append("}");
+
+		return sb.toString();
+	}
+
+	/*
+	 * Positions of resource-defs of a service-def; to be created once per service-def and shared by its resources
+	 */
+	public static final class Layout {
+		private static final int MAX_RESOURCE_COUNT = 64; // presence of values is tracked in a long
+
+		private final RangerServiceDef                serviceDef;
+		private final String[]                        resourceNames;
+		private final Map<String, Integer>            ordinals;
+		private final ConcurrentMap<Long, Set<String>> keysByPresenceMask = new ConcurrentHashMap<>();
+
+		public Layout(RangerServiceDef serviceDef) {
+			List<RangerResourceDef> resourceDefs = serviceDef.getResources();
+			int                     count        = resourceDefs == null ? 0 : resourceDefs.size();
+
+			if (count > MAX_RESOURCE_COUNT) {
+				throw new IllegalArgumentException("service-def " + serviceDef.getName() + " has " + count + " resources; at most " + MAX_RESOURCE_COUNT + " are supported");
+			}
+
+			this.serviceDef    = serviceDef;
+			this.resourceNames = new String[count];
+			this.ordinals      = new HashMap<>();
+
+			for (int i = 0; i < count; i++) {
+				RangerResourceDef resourceDef = resourceDefs.get(i);
+
+				resourceNames[i] = resourceDef == null ? null : resourceDef.getName();
+
+				if (resourceNames[i] != null) {
+					ordinals.put(resourceNames[i], i);
+				}
+			}
+		}
+
+		public RangerServiceDef getServiceDef() {
+			return serviceDef;
+		}
+
+		public int getResourceCount() {
+			return resourceNames.length;
+		}
+
+		public String getResourceName(int ordinal) {
+			return resourceNames[ordinal];
+		}
+
+		/*
+		 * returns the position of the resource-def with the given name, or -1 if the service-def has no such resource
+		 */
+		public int getOrdinal(String resourceName) {
+			Integer ret = resourceName == null ? null : ordinals.get(resourceName);
+
+			return ret == null ? -1 : ret;
+		}
+
+		/*
+		 * returns a resource having value only for the given resource-def, or null if the service-def has no such resource
+		 */
+		public RangerCompactAccessResource newResource(String resourceName, String value) {
+			int ordinal = getOrdinal(resourceName);
+
+			if (ordinal == -1) {
+				return null;
+			}
+
+			String[] values = new String[resourceNames.length];
+
+			values[ordinal] = value;
+
+			return new RangerCompactAccessResource(this, values, null);
+		}
+
+		Set<String> getKeys(long presenceMask) {
+			Set<String> ret = keysByPresenceMask.get(presenceMask);
+
+			if (ret == null) {
+				Set<String> keys = new LinkedHashSet<>();
+
+				for (int i = 0; i < resourceNames.length; i++) {
+					if ((presenceMask & (1L << i)) != 0) {
+						keys.add(resourceNames[i]);
+					}
+				}
+
+				ret = Collections.unmodifiableSet(keys);
+
+				Set<String> existing = keysByPresenceMask.putIfAbsent(presenceMask, ret);
+
+				if (existing != null) {
+					ret = existing;
+				}
+			}
+
+			return ret;
+		}
+	}
+}
@@ -25,23 +25,39 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.apache.ranger.plugin.conditionevaluator.RangerContextAttributeValueInCondition;
+import org.apache.ranger.plugin.conditionevaluator.RangerContextAttributeValueNotInCondition;
+import org.apache.ranger.plugin.conditionevaluator.RangerIpMatcher;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private static final Log LOG = LogFactory.getLog(RangerPolicyEngineImpl.class);
@@ -54,9 +70,16 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private static final Log PERF_POLICYENGINE_USAGE_LOG = RangerPerfTracer.getPerfLogger("policyengine.usage");
 
 	private static final int MAX_POLICIES_FOR_CACHE_TYPE_EVALUATOR = 100;
+	private static final int RANGER_POLICYENGINE_ACCESS_RESULT_CACHE_SIZE = 64 * 1024;
+	private static final int BATCH_EVALUATION_MIN_SPLIT_SIZE = 16;
 
-	private final RangerPolicyRepository policyRepository;
-	private final RangerPolicyRepository tagPolicyRepository;
+	// shared by all engine instances, so that a policy refresh doesn't create a new pool; keyed by parallelism, as
+	// engines of different services can be configured differently. Pool workers are daemon threads that exit when idle
+	private static final ConcurrentMap<Integer, ForkJoinPool> batchEvaluationPools = new ConcurrentHashMap<>();
+
+	private final RangerPolicyEngineOptions options;
+	private final RangerPolicyRepository    policyRepository;
+	private final RangerPolicyRepository    tagPolicyRepository;
 	
 	private List<RangerContextEnricher> allContextEnrichers;
 
@@ -65,6 +88,11 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private boolean  useForwardedIPAddress;
 	private String[] trustedProxyAddresses;
 
+	// opt-in cache of isAccessAllowedNoAudit() results; scoped to this engine instance, hence to its policy version
+	private ConcurrentCache<String, RangerAccessResult> accessResultCache;
+	private List<String>                                accessResultCacheContextAttributes;
+	private boolean                                     accessResultCacheUsesClientIP;
+
 	public RangerPolicyEngineImpl(String appId, ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl(" + appId + ", " + servicePolicies + ", " + options + ")");
@@ -83,6 +111,8 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			options = new RangerPolicyEngineOptions();
 		}
 
+		this.options = options;
+
 		if(StringUtils.isBlank(options.evaluatorType) || StringUtils.equalsIgnoreCase(options.evaluatorType, RangerPolicyEvaluator.EVALUATOR_TYPE_AUTO)) {
 
 			String serviceType  = servicePolicies.getServiceDef().getName();
@@ -108,11 +138,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
 
-		if (!options.disableTagPolicyEvaluation
-				&& tagPolicies != null
-				&& !StringUtils.isEmpty(tagPolicies.getServiceName())
-				&& tagPolicies.getServiceDef() != null
-				&& !CollectionUtils.isEmpty(tagPolicies.getPolicies())) {
+		if (isTagPolicyEvaluationNeeded(tagPolicies, options)) {
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("RangerPolicyEngineImpl : Building tag-policy-repository for tag-service " + tagPolicies.getServiceName());
@@ -127,24 +153,14 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			tagPolicyRepository = null;
 		}
 
-		List<RangerContextEnricher> tmpList;
+		this.allContextEnrichers = getAllContextEnrichers(policyRepository, tagPolicyRepository);
 
-		List<RangerContextEnricher> tagContextEnrichers = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
-		List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
+		policyEvaluatorsMap = createPolicyEvaluatorsMap();
 
-		if (CollectionUtils.isEmpty(tagContextEnrichers)) {
-			tmpList = resourceContextEnrichers;
-		} else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
-			tmpList = tagContextEnrichers;
-		} else {
-			tmpList = new ArrayList<>(tagContextEnrichers);
-			tmpList.addAll(resourceContextEnrichers);
+		if (options.cacheAccessResults) {
+			initAccessResultCache(options);
 		}
 
-		this.allContextEnrichers = tmpList;
-
-		policyEvaluatorsMap = createPolicyEvaluatorsMap();
-
 		RangerPerfTracer.log(perf);
 
 		if (PERF_POLICYENGINE_INIT_LOG.isDebugEnabled()) {
@@ -158,6 +174,78 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 	}
 
+	private RangerPolicyEngineImpl(RangerPolicyEngineImpl other, RangerPolicyRepository policyRepository, RangerPolicyRepository tagPolicyRepository) {
+		this.options               = other.options;
+		this.policyRepository      = policyRepository;
+		this.tagPolicyRepository   = tagPolicyRepository;
+		this.useForwardedIPAddress = other.useForwardedIPAddress;
+		this.trustedProxyAddresses = other.trustedProxyAddresses;
+		this.allContextEnrichers   = getAllContextEnrichers(policyRepository, tagPolicyRepository);
+
+		policyEvaluatorsMap = createPolicyEvaluatorsMap();
+
+		if (options.cacheAccessResults) {
+			initAccessResultCache(options);
+		}
+	}
+
+	/*
+	 * Returns a policy engine for servicePolicies, built by applying the policy changes since this engine to copies of
+	 * its policy repositories: evaluators of unchanged policies are reused, and resource tries are updated only along
+	 * the paths of changed policies. This engine is not modified. Returns null when servicePolicies can't be applied
+	 * incrementally - like when the service-def or the audit-mode has changed, or policy versions are not available;
+	 * a new engine should be created in such cases.
+	 */
+	public RangerPolicyEngineImpl cloneWithDelta(ServicePolicies servicePolicies) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.cloneWithDelta(policyVersion=" + getPolicyVersion() + ", newPolicyVersion=" + servicePolicies.getPolicyVersion() + ")");
+		}
+
+		RangerPolicyEngineImpl ret  = null;
+		RangerPerfTracer       perf = null;
+
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerPolicyEngine.cloneWithDelta(hashCode=" + Integer.toHexString(System.identityHashCode(this)) + ", newPolicyVersion=" + servicePolicies.getPolicyVersion() + ")");
+		}
+
+		List<RangerPolicyDelta> policyDeltas = isSameRepository(policyRepository, servicePolicies.getServiceName(), servicePolicies.getServiceDef(), servicePolicies.getAuditMode())
+		                                       ? RangerPolicyDeltaUtil.getPolicyDeltas(policyRepository.getPolicies(), servicePolicies.getPolicies()) : null;
+
+		if (policyDeltas != null) {
+			ServicePolicies.TagPolicies tagPolicies           = servicePolicies.getTagPolicies();
+			boolean                     hasTagPolicies        = isTagPolicyEvaluationNeeded(tagPolicies, options);
+			boolean                     isTagRepositoryUsable = true;
+			RangerPolicyRepository      newTagPolicyRepository = null;
+
+			if (tagPolicyRepository != null && hasTagPolicies) {
+				List<RangerPolicyDelta> tagPolicyDeltas = isSameRepository(tagPolicyRepository, tagPolicies.getServiceName(), tagPolicies.getServiceDef(), tagPolicies.getAuditMode())
+				                                          ? RangerPolicyDeltaUtil.getPolicyDeltas(tagPolicyRepository.getPolicies(), tagPolicies.getPolicies()) : null;
+
+				if (tagPolicyDeltas != null) {
+					newTagPolicyRepository = new RangerPolicyRepository(tagPolicyRepository, tagPolicyDeltas, getPolicyVersion(tagPolicies.getPolicyVersion()));
+				} else {
+					isTagRepositoryUsable = false;
+				}
+			} else if (tagPolicyRepository != null || hasTagPolicies) { // tag-policies added or removed
+				isTagRepositoryUsable = false;
+			}
+
+			if (isTagRepositoryUsable) {
+				RangerPolicyRepository newPolicyRepository = new RangerPolicyRepository(policyRepository, policyDeltas, getPolicyVersion(servicePolicies.getPolicyVersion()));
+
+				ret = new RangerPolicyEngineImpl(this, newPolicyRepository, newTagPolicyRepository);
+			}
+		}
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.cloneWithDelta(policyVersion=" + getPolicyVersion() + ", newPolicyVersion=" + servicePolicies.getPolicyVersion() + "): " + (ret != null ? "updated" : "not updated; needs rebuild"));
+		}
+
+		return ret;
+	}
+
 	@Override
 	public String getServiceName() {
 		return policyRepository.getServiceName();
@@ -173,6 +261,19 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return policyRepository.getPolicyVersion();
 	}
 
+	/*
+	 * Returns the number of times each policy determined the access or audit result, by policy id
+	 */
+	public Map<Long, Long> getPolicyUsageCounts() {
+		Map<Long, Long> ret = new HashMap<>();
+
+		for (Map.Entry<Long, RangerPolicyEvaluator> entry : policyEvaluatorsMap.entrySet()) {
+			ret.put(entry.getKey(), entry.getValue().getTotalUsageCount());
+		}
+
+		return ret;
+	}
+
 	public RangerPolicyEvaluator getPolicyEvaluator(Long id) {
 		return policyEvaluatorsMap.get(id);
 	}
@@ -332,12 +433,24 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		Collection<RangerAccessResult> ret = new ArrayList<>();
 
-		if (requests != null) {
-			for (RangerAccessRequest request : requests) {
-				RangerAccessResult result = isAccessAllowedNoAudit(request);
+		if (CollectionUtils.isNotEmpty(requests)) {
+			RangerAccessRequest[] requestArray = requests.toArray(new RangerAccessRequest[requests.size()]);
+			RangerAccessResult[]  results      = new RangerAccessResult[requestArray.length];
+			ForkJoinPool          pool         = requestArray.length >= options.batchEvaluationParallelThreshold ? getBatchEvaluationPool(options.batchEvaluationParallelism) : null;
 
-				ret.add(result);
+			if (pool != null) {
+				RangerAccessRequest[] evalRequests = getRequestsWithPrivateContexts(requestArray);
+
+				pool.invoke(new BatchEvaluationTask(evalRequests, results, new ConcurrentHashMap<String, List<RangerPolicyEvaluator>>(), 0, evalRequests.length));
+
+				if (evalRequests != requestArray) {
+					mergePrivateContexts(evalRequests, results);
+				}
+			} else {
+				new BatchEvaluationTask(requestArray, results, new ConcurrentHashMap<String, List<RangerPolicyEvaluator>>(), 0, requestArray.length).evaluate();
 			}
+
+			Collections.addAll(ret, results);
 		}
 
 		if (resultProcessor != null) {
@@ -448,7 +561,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_REQUEST_LOG, "RangerPolicyEngine.isAccessAllowed(user=" + user + "," + userGroups + ",accessType=" + accessType + ")");
 		}
 
-		for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
+		for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators(user, userGroups, accessType)) {
 			ret = evaluator.isAccessAllowed(resources, user, userGroups, accessType);
 
 			if (ret) {
@@ -523,14 +636,21 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		List<RangerPolicy> ret = new ArrayList<>();
 
+		// only policies having an allow policy-item granting the access type to the user, one of the groups or public can allow access
+		List<RangerPolicyEvaluator> candidateEvaluators = policyRepository.getPolicyEvaluators(user, userGroups, accessType);
+
 		// TODO: run through evaluator in tagPolicyRepository as well
-		for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
-			RangerPolicy policy = evaluator.getPolicy();
+		if (CollectionUtils.isNotEmpty(candidateEvaluators)) {
+			for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
+				RangerPolicy policy = evaluator.getPolicy();
 
-			boolean isAccessAllowed = isAccessAllowed(policy.getResources(), user, userGroups, accessType);
+				for (RangerPolicyEvaluator candidateEvaluator : candidateEvaluators) {
+					if (candidateEvaluator.isAccessAllowed(policy.getResources(), user, userGroups, accessType)) {
+						ret.add(policy);
 
-			if (isAccessAllowed) {
-				ret.add(policy);
+						break;
+					}
+				}
 			}
 		}
 
@@ -555,12 +675,14 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
 			if(CollectionUtils.isNotEmpty(tags)) {
 				for (RangerTagForEval tag : tags) {
-					RangerAccessRequest tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
+					RangerAccessRequest tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.newTagResource(tag.getType()), request);
 
-					List<RangerPolicyEvaluator> evaluators = tagPolicyRepository.getPolicyEvaluators(tagEvalRequest.getResource());
+					List<RangerPolicyEvaluator> evaluators = tagPolicyRepository.getPolicyEvaluatorsForTagType(tag.getType());
 
 					for (RangerPolicyEvaluator evaluator : evaluators) {
-						evaluator.getResourceAccessInfo(tagEvalRequest, ret);
+						if (tagPolicyRepository.hasAccessType(evaluator, request.getAccessType())) {
+							evaluator.getResourceAccessInfo(tagEvalRequest, ret);
+						}
 					}
 				}
 			}
@@ -570,7 +692,9 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		if(CollectionUtils.isNotEmpty(resPolicyEvaluators)) {
 			for (RangerPolicyEvaluator evaluator : resPolicyEvaluators) {
-				evaluator.getResourceAccessInfo(request, ret);
+				if (policyRepository.hasAccessType(evaluator, request.getAccessType())) {
+					evaluator.getResourceAccessInfo(request, ret);
+				}
 			}
 		}
 
@@ -585,10 +709,34 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	}
 
 	protected RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request) {
+		return isAccessAllowedNoAudit(request, null);
+	}
+
+	/*
+	 * batchEvaluators, when not null, holds resource policy evaluators looked up for earlier requests of the same batch,
+	 * by resource; requests for the same resource - like different access types on a column - share one trie lookup
+	 */
+	private RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request, ConcurrentMap<String, List<RangerPolicyEvaluator>> batchEvaluators) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + ")");
 		}
 
+		String             cacheKey = accessResultCache != null && request != null ? getAccessResultCacheKey(request) : null;
+		RangerAccessResult cached   = cacheKey != null ? accessResultCache.get(cacheKey) : null;
+
+		if (cached != null) {
+			RangerAccessResult ret = createAccessResult(request);
+
+			ret.setAccessResultFrom(cached);
+			ret.setAuditResultFrom(cached);
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + "): " + ret + " (from cache)");
+			}
+
+			return ret;
+		}
+
 		RangerAccessResult ret = createAccessResult(request);
 
 		if (ret != null && request != null) {
@@ -614,7 +762,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					ret.setIsAccessDetermined(false); // discard allowed result by tag-policies, to evaluate resource policies for possible deny
 				}
 
-				List<RangerPolicyEvaluator> evaluators = policyRepository.getPolicyEvaluators(request.getResource());
+				List<RangerPolicyEvaluator> evaluators = getPolicyEvaluators(request.getResource(), batchEvaluators);
 				for (RangerPolicyEvaluator evaluator : evaluators) {
 					ret.incrementEvaluatedPoliciesCount();
 					evaluator.evaluate(request, ret);
@@ -636,6 +784,15 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					policyRepository.storeAuditEnabledInCache(request, ret);
 				}
 			}
+
+			if (cacheKey != null) {
+				RangerAccessResult toCache = new RangerAccessResult(ret.getServiceName(), ret.getServiceDef(), null);
+
+				toCache.setAccessResultFrom(ret);
+				toCache.setAuditResultFrom(ret);
+
+				accessResultCache.put(cacheKey, toCache);
+			}
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -661,7 +818,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 						LOG.debug("RangerPolicyEngineImpl.isAccessAllowedForTagPolicies: Evaluating policies for tag (" + tag.getType() + ")");
 					}
 
-					RangerAccessRequest tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
+					RangerAccessRequest tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.newTagResource(tag.getType()), request);
 					RangerAccessResult tagEvalResult = createAccessResult(tagEvalRequest);
 
 					// carry fwd results from earlier tags, to optimize the current evaluation
@@ -672,7 +829,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					}
 					tagEvalResult.setAuditResultFrom(result);
 
-					List<RangerPolicyEvaluator> evaluators = tagPolicyRepository.getPolicyEvaluators(tagEvalRequest.getResource());
+					List<RangerPolicyEvaluator> evaluators = tagPolicyRepository.getPolicyEvaluatorsForTagType(tag.getType());
 
 					for (RangerPolicyEvaluator evaluator : evaluators) {
 						result.incrementEvaluatedPoliciesCount();
@@ -794,7 +951,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 				for (PolicyEvaluatorForTag dataMaskEvaluator : dataMaskEvaluators) {
 					RangerPolicyEvaluator evaluator      = dataMaskEvaluator.getEvaluator();
 					RangerTagForEval      tag            = dataMaskEvaluator.getTag();
-					RangerAccessRequest   tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
+					RangerAccessRequest   tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.newTagResource(tag.getType()), request);
 					RangerDataMaskResult  tagEvalResult  = createDataMaskResult(tagEvalRequest);
 
 					tagEvalResult.setAuditResultFrom(result);
@@ -899,7 +1056,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 				for (PolicyEvaluatorForTag rowFilterEvaluator : rowFilterEvaluators) {
 					RangerPolicyEvaluator evaluator      = rowFilterEvaluator.getEvaluator();
 					RangerTagForEval      tag            = rowFilterEvaluator.getTag();
-					RangerAccessRequest   tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
+					RangerAccessRequest   tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.newTagResource(tag.getType()), request);
 					RangerRowFilterResult tagEvalResult  = createRowFilterResult(tagEvalRequest);
 
 					tagEvalResult.setAuditResultFrom(result);
@@ -947,7 +1104,7 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 		if (MapUtils.isNotEmpty(policyEvaluatorsMap)) {
 			for (Map.Entry<Long, RangerPolicyEvaluator> entry : policyEvaluatorsMap.entrySet()) {
-				entry.getValue().setUsageCountImmutable();
+				entry.getValue().updateUsageCount();
 			}
 		}
 
@@ -958,14 +1115,12 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			policyRepository.reorderPolicyEvaluators();
 		}
 
-		if (MapUtils.isNotEmpty(policyEvaluatorsMap)) {
-			for (Map.Entry<Long, RangerPolicyEvaluator> entry : policyEvaluatorsMap.entrySet()) {
-				entry.getValue().resetUsageCount();
-			}
-		}
-
 		RangerPerfTracer.log(perf);
 
+		if (PERF_POLICYENGINE_REBALANCE_LOG.isDebugEnabled()) {
+			PERF_POLICYENGINE_REBALANCE_LOG.debug("RangerPolicyEngine.reorderEvaluators(): policyUsageCounts=" + getPolicyUsageCounts());
+		}
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== reorderEvaluators()");
 		}
@@ -1062,6 +1217,10 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		sb.append("serviceName={").append(this.getServiceName()).append("} ");
 		sb.append(policyRepository);
 
+		if (accessResultCache != null) {
+			sb.append(" accessResultCache={").append(accessResultCache).append("}");
+		}
+
 		sb.append("}");
 
 		return sb;
@@ -1081,6 +1240,256 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 	}
 
+	ConcurrentCache<String, RangerAccessResult> getAccessResultCache() {
+		return accessResultCache;
+	}
+
+	private void initAccessResultCache(RangerPolicyEngineOptions options) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.initAccessResultCache()");
+		}
+
+		Set<String> contextAttributes = new TreeSet<>();
+		boolean     isCacheable       = !hasTagPolicies();
+
+		if (isCacheable) {
+			for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
+				RangerPolicyResourceMatcher resourceMatcher = evaluator.getPolicyResourceMatcher();
+
+				if (resourceMatcher != null && resourceMatcher.getNeedsDynamicEval()) {
+					isCacheable = false;
+				} else if (!options.disableCustomConditions) {
+					RangerPolicy policy = evaluator.getPolicy();
+
+					isCacheable = collectConditionAttributes(policy.getPolicyItems(), contextAttributes)
+							   && collectConditionAttributes(policy.getDenyPolicyItems(), contextAttributes)
+							   && collectConditionAttributes(policy.getAllowExceptions(), contextAttributes)
+							   && collectConditionAttributes(policy.getDenyExceptions(), contextAttributes);
+				}
+
+				if (!isCacheable) {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("RangerPolicyEngineImpl.initAccessResultCache(): policy " + evaluator.getPolicy().getId() + " depends on request attributes not in cache-key");
+					}
+
+					break;
+				}
+			}
+		}
+
+		if (isCacheable) {
+			String propertyName = "ranger.plugin." + getServiceName() + ".policyengine.accessresultcachesize";
+			int    cacheSize    = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_ACCESS_RESULT_CACHE_SIZE);
+
+			accessResultCache                  = new ConcurrentCache<>(cacheSize);
+			accessResultCacheContextAttributes = new ArrayList<>(contextAttributes);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.initAccessResultCache(): isCacheable=" + isCacheable + ", contextAttributes=" + accessResultCacheContextAttributes + ", usesClientIP=" + accessResultCacheUsesClientIP);
+		}
+	}
+
+	private boolean collectConditionAttributes(List<RangerPolicyItem> policyItems, Set<String> contextAttributes) {
+		boolean ret = true;
+
+		if (CollectionUtils.isNotEmpty(policyItems)) {
+			for (RangerPolicyItem policyItem : policyItems) {
+				if (policyItem == null || CollectionUtils.isEmpty(policyItem.getConditions())) {
+					continue;
+				}
+
+				for (RangerPolicyItemCondition condition : policyItem.getConditions()) {
+					RangerPolicyConditionDef conditionDef = getConditionDef(condition.getType());
+
+					if (conditionDef == null) { // condition is ignored by the policy-item evaluator
+						continue;
+					}
+
+					String evaluatorClassName = conditionDef.getEvaluator();
+
+					if (StringUtils.equals(evaluatorClassName, RangerIpMatcher.class.getName())) {
+						accessResultCacheUsesClientIP = true;
+					} else if (StringUtils.equals(evaluatorClassName, RangerContextAttributeValueInCondition.class.getName())
+							|| StringUtils.equals(evaluatorClassName, RangerContextAttributeValueNotInCondition.class.getName())) {
+						String attributeName = conditionDef.getEvaluatorOptions() != null ? conditionDef.getEvaluatorOptions().get("attributeName") : null;
+
+						if (attributeName != null) {
+							contextAttributes.add(attributeName);
+						}
+					} else {
+						ret = false;
+
+						break;
+					}
+				}
+
+				if (!ret) {
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private RangerPolicyConditionDef getConditionDef(String conditionName) {
+		RangerServiceDef serviceDef = policyRepository.getServiceDef();
+
+		if (serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getPolicyConditions())) {
+			for (RangerPolicyConditionDef conditionDef : serviceDef.getPolicyConditions()) {
+				if (StringUtils.equals(conditionName, conditionDef.getName())) {
+					return conditionDef;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessResource resource, ConcurrentMap<String, List<RangerPolicyEvaluator>> batchEvaluators) {
+		String                      cacheKey = batchEvaluators != null && resource != null ? resource.getCacheKey() : null;
+		List<RangerPolicyEvaluator> ret      = cacheKey != null ? batchEvaluators.get(cacheKey) : null;
+
+		if (ret == null) {
+			ret = policyRepository.getPolicyEvaluators(resource);
+
+			if (cacheKey != null) {
+				batchEvaluators.putIfAbsent(cacheKey, ret);
+			}
+		}
+
+		return ret;
+	}
+
+	private static ForkJoinPool getBatchEvaluationPool(int parallelism) {
+		ForkJoinPool ret = parallelism > 1 ? batchEvaluationPools.get(parallelism) : null;
+
+		if (ret == null && parallelism > 1) {
+			synchronized (batchEvaluationPools) {
+				ret = batchEvaluationPools.get(parallelism);
+
+				if (ret == null) {
+					LOG.info("Creating pool for batch evaluation of access requests: parallelism=" + parallelism);
+
+					ret = new ForkJoinPool(parallelism);
+
+					batchEvaluationPools.put(parallelism, ret);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * evaluation writes into the request context (current user, tag and resource), so requests evaluated in parallel
+	 * must not share a context. Requests that share a context with another request of the batch are evaluated with
+	 * a private copy of the context; the caller's requests and contexts are not modified until the batch completes
+	 */
+	private static RangerAccessRequest[] getRequestsWithPrivateContexts(RangerAccessRequest[] requests) {
+		Map<Map<String, Object>, Integer> contextUseCounts = new IdentityHashMap<>();
+
+		for (RangerAccessRequest request : requests) {
+			Map<String, Object> context = request.getContext();
+
+			if (context != null) {
+				Integer useCount = contextUseCounts.get(context);
+
+				contextUseCounts.put(context, useCount == null ? 1 : useCount + 1);
+			}
+		}
+
+		RangerAccessRequest[] ret = requests;
+
+		for (int i = 0; i < requests.length; i++) {
+			Map<String, Object> context = requests[i].getContext();
+
+			if (context != null && contextUseCounts.get(context) > 1) {
+				if (ret == requests) {
+					ret = Arrays.copyOf(requests, requests.length);
+				}
+
+				ret[i] = new RangerAccessRequestWithPrivateContext(requests[i]);
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * merges private contexts into the shared contexts in request order - leaving them as sequential evaluation would.
+	 * Results refer to the caller's requests, not to the wrappers
+	 */
+	private static void mergePrivateContexts(RangerAccessRequest[] evalRequests, RangerAccessResult[] results) {
+		for (int i = 0; i < evalRequests.length; i++) {
+			if (evalRequests[i] instanceof RangerAccessRequestWithPrivateContext) {
+				RangerAccessRequestWithPrivateContext evalRequest = (RangerAccessRequestWithPrivateContext) evalRequests[i];
+				RangerAccessResult                    evalResult  = results[i];
+
+				evalRequest.mergeContextIntoSource();
+
+				if (evalResult != null) {
+					RangerAccessResult result = new RangerAccessResult(evalResult.getServiceName(), evalResult.getServiceDef(), evalRequest.getSource());
+
+					result.setAccessResultFrom(evalResult);
+					result.setAuditResultFrom(evalResult);
+
+					results[i] = result;
+				}
+			}
+		}
+	}
+
+	private String getAccessResultCacheKey(RangerAccessRequest request) {
+		RangerAccessResource resource = request.getResource();
+		Set<String>          groups   = request.getUserGroups();
+		StringBuilder        sb       = new StringBuilder();
+
+		appendCacheKeyPart(sb, resource != null ? resource.getCacheKey() : null);
+		appendCacheKeyPart(sb, resource != null ? resource.getOwnerUser() : null);
+		appendCacheKeyPart(sb, request.getUser());
+		appendCacheKeyPart(sb, request.getAccessType());
+		appendCacheKeyPart(sb, request.getResourceMatchingScope() != null ? request.getResourceMatchingScope().name() : null);
+
+		if (CollectionUtils.isNotEmpty(groups)) {
+			for (String group : groups.size() > 1 ? new TreeSet<>(groups) : groups) {
+				appendCacheKeyPart(sb, group);
+			}
+		}
+
+		sb.append(';');
+
+		if (accessResultCacheUsesClientIP) {
+			appendCacheKeyPart(sb, request.getClientIPAddress());
+		}
+
+		if (!accessResultCacheContextAttributes.isEmpty()) {
+			Map<String, Object> context = request.getContext();
+
+			for (String attributeName : accessResultCacheContextAttributes) {
+				Object value = context != null ? context.get(attributeName) : null;
+
+				if (value != null && !(value instanceof String)) { // non-string values don't have a stable key; skip the cache
+					return null;
+				}
+
+				appendCacheKeyPart(sb, (String) value);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	// length-prefixed, so that values containing separator characters can't collide
+	private static void appendCacheKeyPart(StringBuilder sb, String value) {
+		if (value == null) {
+			sb.append('-');
+		} else {
+			sb.append(value.length()).append(':').append(value);
+		}
+	}
+
 	private boolean hasTagPolicies() {
 		return tagPolicyRepository != null && CollectionUtils.isNotEmpty(tagPolicyRepository.getPolicies());
 	}
@@ -1089,6 +1498,47 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return policyRepository != null && CollectionUtils.isNotEmpty(policyRepository.getPolicies());
 	}
 
+	private static boolean isTagPolicyEvaluationNeeded(ServicePolicies.TagPolicies tagPolicies, RangerPolicyEngineOptions options) {
+		return !options.disableTagPolicyEvaluation
+				&& tagPolicies != null
+				&& !StringUtils.isEmpty(tagPolicies.getServiceName())
+				&& tagPolicies.getServiceDef() != null
+				&& !CollectionUtils.isEmpty(tagPolicies.getPolicies());
+	}
+
+	// evaluators in the repository are initialized with its service-def; hence the service-def should not have changed
+	private static boolean isSameRepository(RangerPolicyRepository repository, String serviceName, RangerServiceDef serviceDef, String auditMode) {
+		RangerServiceDef repositoryServiceDef = repository.getServiceDef();
+
+		return StringUtils.equals(repository.getServiceName(), serviceName)
+				&& serviceDef != null && repositoryServiceDef != null
+				&& serviceDef.getId() != null && serviceDef.getId().equals(repositoryServiceDef.getId())
+				&& serviceDef.getVersion() != null && serviceDef.getVersion().equals(repositoryServiceDef.getVersion())
+				&& repository.getAuditModeEnum() == RangerPolicyRepository.toAuditModeEnum(auditMode);
+	}
+
+	private static long getPolicyVersion(Long policyVersion) {
+		return policyVersion != null ? policyVersion : -1;
+	}
+
+	private static List<RangerContextEnricher> getAllContextEnrichers(RangerPolicyRepository policyRepository, RangerPolicyRepository tagPolicyRepository) {
+		List<RangerContextEnricher> ret;
+
+		List<RangerContextEnricher> tagContextEnrichers = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
+		List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
+
+		if (CollectionUtils.isEmpty(tagContextEnrichers)) {
+			ret = resourceContextEnrichers;
+		} else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
+			ret = tagContextEnrichers;
+		} else {
+			ret = new ArrayList<>(tagContextEnrichers);
+			ret.addAll(resourceContextEnrichers);
+		}
+
+		return ret;
+	}
+
 	private Map<Long, RangerPolicyEvaluator> createPolicyEvaluatorsMap() {
 		Map<Long, RangerPolicyEvaluator> tmpPolicyEvaluatorMap = new HashMap<>();
 
@@ -1160,4 +1610,41 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			evaluator.incrementUsageCount(number);
 		}
 	}
+
+	/*
+	 * evaluates requests[start, end) into results at the same positions, splitting ranges larger than
+	 * BATCH_EVALUATION_MIN_SPLIT_SIZE across the pool. Results are identical to evaluating the requests one after another
+	 */
+	private class BatchEvaluationTask extends RecursiveAction {
+		private final RangerAccessRequest[]                              requests;
+		private final RangerAccessResult[]                               results;
+		private final ConcurrentMap<String, List<RangerPolicyEvaluator>> batchEvaluators;
+		private final int                                                start;
+		private final int                                                end;
+
+		BatchEvaluationTask(RangerAccessRequest[] requests, RangerAccessResult[] results, ConcurrentMap<String, List<RangerPolicyEvaluator>> batchEvaluators, int start, int end) {
+			this.requests        = requests;
+			this.results         = results;
+			this.batchEvaluators = batchEvaluators;
+			this.start           = start;
+			this.end             = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= BATCH_EVALUATION_MIN_SPLIT_SIZE) {
+				evaluate();
+			} else {
+				int mid = (start + end) >>> 1;
+
+				invokeAll(new BatchEvaluationTask(requests, results, batchEvaluators, start, mid), new BatchEvaluationTask(requests, results, batchEvaluators, mid, end));
+			}
+		}
+
+		void evaluate() {
+			for (int i = start; i < end; i++) {
+				results[i] = isAccessAllowedNoAudit(requests[i], batchEvaluators);
+			}
+		}
+	}
 }
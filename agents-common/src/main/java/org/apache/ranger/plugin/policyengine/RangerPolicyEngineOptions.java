@@ -18,25 +18,64 @@
  */
 package org.apache.ranger.plugin.policyengine;
 
+import java.util.Objects;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 
 public class RangerPolicyEngineOptions {
 	public String  evaluatorType           = RangerPolicyEvaluator.EVALUATOR_TYPE_AUTO;
 	public boolean cacheAuditResults       = true;
+	public boolean cacheAccessResults;
 	public boolean disableContextEnrichers;
 	public boolean disableCustomConditions;
 	public boolean disableTagPolicyEvaluation = true;
 	public boolean evaluateDelegateAdminOnly;
 	public boolean disableTrieLookupPrefilter;
+	public boolean optimizeTrieForSpace;
+	public boolean disableIncrementalPolicyUpdate;
+	public boolean reorderTrieEvaluatorsByUsage;
+	public int     batchEvaluationParallelism;
+	public int     batchEvaluationParallelThreshold = 100;
+	public int     buildParallelism;
+	public boolean lazyInitPolicyItemEvaluators;
+
+	public RangerPolicyEngineOptions() {
+	}
+
+	public RangerPolicyEngineOptions(RangerPolicyEngineOptions other) {
+		this.evaluatorType                    = other.evaluatorType;
+		this.cacheAuditResults                = other.cacheAuditResults;
+		this.cacheAccessResults               = other.cacheAccessResults;
+		this.disableContextEnrichers          = other.disableContextEnrichers;
+		this.disableCustomConditions          = other.disableCustomConditions;
+		this.disableTagPolicyEvaluation       = other.disableTagPolicyEvaluation;
+		this.evaluateDelegateAdminOnly        = other.evaluateDelegateAdminOnly;
+		this.disableTrieLookupPrefilter       = other.disableTrieLookupPrefilter;
+		this.optimizeTrieForSpace             = other.optimizeTrieForSpace;
+		this.disableIncrementalPolicyUpdate   = other.disableIncrementalPolicyUpdate;
+		this.reorderTrieEvaluatorsByUsage     = other.reorderTrieEvaluatorsByUsage;
+		this.batchEvaluationParallelism       = other.batchEvaluationParallelism;
+		this.batchEvaluationParallelThreshold = other.batchEvaluationParallelThreshold;
+		this.buildParallelism                 = other.buildParallelism;
+		this.lazyInitPolicyItemEvaluators     = other.lazyInitPolicyItemEvaluators;
+	}
 
 	public void configureForPlugin(Configuration conf, String propertyPrefix) {
 		evaluatorType           = conf.get(propertyPrefix + ".policyengine.option.evaluator.type", RangerPolicyEvaluator.EVALUATOR_TYPE_AUTO);
 		cacheAuditResults       = conf.getBoolean(propertyPrefix + ".policyengine.option.cache.audit.results", true);
+		cacheAccessResults      = conf.getBoolean(propertyPrefix + ".policyengine.option.cache.access.results", false);
 		disableContextEnrichers = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.context.enrichers", false);
 		disableCustomConditions = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", false);
 		disableTagPolicyEvaluation = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.tagpolicy.evaluation", false);
 		disableTrieLookupPrefilter = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.trie.lookup.prefilter", false);
+		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
+		disableIncrementalPolicyUpdate = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.incremental.policy.update", false);
+		reorderTrieEvaluatorsByUsage = conf.getBoolean(propertyPrefix + ".policyengine.option.reorder.trie.evaluators.by.usage", false);
+		batchEvaluationParallelism = conf.getInt(propertyPrefix + ".policyengine.option.batch.evaluation.parallelism", 0);
+		batchEvaluationParallelThreshold = conf.getInt(propertyPrefix + ".policyengine.option.batch.evaluation.parallel.threshold", 100);
+		buildParallelism = conf.getInt(propertyPrefix + ".policyengine.option.build.parallelism", 0);
+		lazyInitPolicyItemEvaluators = conf.getBoolean(propertyPrefix + ".policyengine.option.lazy.init.policy.item.evaluators", false);
 	}
 
 	public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -46,6 +85,7 @@ public class RangerPolicyEngineOptions {
 		disableCustomConditions   = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", true);
 		evaluateDelegateAdminOnly = false;
 		disableTrieLookupPrefilter = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.trie.lookup.prefilter", false);
+		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
 	}
 
 	public void configureDelegateAdmin(Configuration conf, String propertyPrefix) {
@@ -55,4 +95,39 @@ public class RangerPolicyEngineOptions {
 		disableCustomConditions = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.custom.conditions", true);
 		evaluateDelegateAdminOnly = conf.getBoolean(propertyPrefix + ".policyengine.option.evaluate.delegateadmin.only", true);
 	}
+
+	@Override
+	public boolean equals(Object other) {
+		boolean ret = false;
+
+		if (other instanceof RangerPolicyEngineOptions) {
+			RangerPolicyEngineOptions that = (RangerPolicyEngineOptions) other;
+
+			ret = Objects.equals(this.evaluatorType, that.evaluatorType)
+			   && this.cacheAuditResults == that.cacheAuditResults
+			   && this.cacheAccessResults == that.cacheAccessResults
+			   && this.disableContextEnrichers == that.disableContextEnrichers
+			   && this.disableCustomConditions == that.disableCustomConditions
+			   && this.disableTagPolicyEvaluation == that.disableTagPolicyEvaluation
+			   && this.evaluateDelegateAdminOnly == that.evaluateDelegateAdminOnly
+			   && this.disableTrieLookupPrefilter == that.disableTrieLookupPrefilter
+			   && this.optimizeTrieForSpace == that.optimizeTrieForSpace
+			   && this.disableIncrementalPolicyUpdate == that.disableIncrementalPolicyUpdate
+			   && this.reorderTrieEvaluatorsByUsage == that.reorderTrieEvaluatorsByUsage
+			   && this.batchEvaluationParallelism == that.batchEvaluationParallelism
+			   && this.batchEvaluationParallelThreshold == that.batchEvaluationParallelThreshold
+			   && this.buildParallelism == that.buildParallelism
+			   && this.lazyInitPolicyItemEvaluators == that.lazyInitPolicyItemEvaluators;
+		}
+
+		return ret;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(evaluatorType, cacheAuditResults, cacheAccessResults, disableContextEnrichers, disableCustomConditions,
+		                    disableTagPolicyEvaluation, evaluateDelegateAdminOnly, disableTrieLookupPrefilter, optimizeTrieForSpace,
+		                    disableIncrementalPolicyUpdate, reorderTrieEvaluatorsByUsage, batchEvaluationParallelism,
+		                    batchEvaluationParallelThreshold, buildParallelism, lazyInitPolicyItemEvaluators);
+	}
 }
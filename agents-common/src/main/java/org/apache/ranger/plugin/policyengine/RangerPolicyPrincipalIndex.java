@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Inverted index from access type and principal (user/group) to the policy evaluators having an allow policy-item that
+ * grants the access type to the principal.
+ *
+ * An evaluator can only allow an access type to a user when one of its allow policy-items grants it to the user or one of
+ * the user's groups (or to 'public' or {USER}), so the evaluators returned by getCandidateEvaluators() are a superset of
+ * the ones that can allow access; callers still evaluate deny and exceptions on each. Access types are taken from the
+ * policy-items after the evaluators expanded implied grants; '_any' is indexed for every allowed access type and '_admin'
+ * for delegate-admin policy-items.
+ *
+ * hasAccessType() tells whether an evaluator has an allow or deny policy-item for an access type, as only those contribute
+ * to getResourceAccessInfo().
+ *
+ * Built along with the resource tries of the policy repository, hence rebuilt whenever the repository is.
+ */
+class RangerPolicyPrincipalIndex {
+    private final Map<String, PrincipalEvaluators>                   allowIndex           = new HashMap<>();
+    private final Map<String, Map<RangerPolicyEvaluator, Boolean>>   accessTypeEvaluators = new HashMap<>();
+
+    RangerPolicyPrincipalIndex(List<RangerPolicyEvaluator> evaluators) {
+        if (CollectionUtils.isNotEmpty(evaluators)) {
+            for (RangerPolicyEvaluator evaluator : evaluators) {
+                RangerPolicy policy = evaluator.getPolicy();
+
+                if (policy == null) {
+                    continue;
+                }
+
+                if (policy.getPolicyItems() != null) {
+                    for (RangerPolicyItem policyItem : policy.getPolicyItems()) {
+                        if (policyItem == null) {
+                            continue;
+                        }
+
+                        Set<String> accessTypes = getAccessTypes(policyItem);
+
+                        for (String accessType : accessTypes) {
+                            PrincipalEvaluators principalEvaluators = allowIndex.get(accessType);
+
+                            if (principalEvaluators == null) {
+                                principalEvaluators = new PrincipalEvaluators();
+
+                                allowIndex.put(accessType, principalEvaluators);
+                            }
+
+                            principalEvaluators.add(policyItem, evaluator);
+                        }
+
+                        addAccessTypes(accessTypes, evaluator);
+                    }
+                }
+
+                if (policy.getDenyPolicyItems() != null) {
+                    for (RangerPolicyItem policyItem : policy.getDenyPolicyItems()) {
+                        if (policyItem != null) {
+                            addAccessTypes(getAccessTypes(policyItem), evaluator);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    List<RangerPolicyEvaluator> getCandidateEvaluators(String user, Set<String> userGroups, String accessType) {
+        PrincipalEvaluators principalEvaluators = accessType != null ? allowIndex.get(toKey(accessType)) : null;
+
+        return principalEvaluators != null ? principalEvaluators.getCandidateEvaluators(user, userGroups) : Collections.<RangerPolicyEvaluator>emptyList();
+    }
+
+    boolean hasAccessType(RangerPolicyEvaluator evaluator, String accessType) {
+        Map<RangerPolicyEvaluator, Boolean> evaluators = accessType != null ? accessTypeEvaluators.get(toKey(accessType)) : null;
+
+        return evaluators != null && evaluators.containsKey(evaluator);
+    }
+
+    private void addAccessTypes(Set<String> accessTypes, RangerPolicyEvaluator evaluator) {
+        for (String accessType : accessTypes) {
+            Map<RangerPolicyEvaluator, Boolean> evaluators = accessTypeEvaluators.get(accessType);
+
+            if (evaluators == null) {
+                evaluators = new IdentityHashMap<>();
+
+                accessTypeEvaluators.put(accessType, evaluators);
+            }
+
+            evaluators.put(evaluator, Boolean.TRUE);
+        }
+    }
+
+    private static Set<String> getAccessTypes(RangerPolicyItem policyItem) {
+        Set<String> ret = new HashSet<>();
+
+        if (Boolean.TRUE.equals(policyItem.getDelegateAdmin())) {
+            ret.add(RangerPolicyEngine.ADMIN_ACCESS);
+        }
+
+        if (policyItem.getAccesses() != null) {
+            for (RangerPolicyItemAccess access : policyItem.getAccesses()) {
+                if (access != null && access.getType() != null && Boolean.TRUE.equals(access.getIsAllowed())) {
+                    ret.add(toKey(access.getType()));
+                    ret.add(RangerPolicyEngine.ANY_ACCESS);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    // access types are matched ignoring case
+    private static String toKey(String accessType) {
+        return accessType.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class PrincipalEvaluators {
+        private final Map<String, List<RangerPolicyEvaluator>> userEvaluators         = new HashMap<>();
+        private final Map<String, List<RangerPolicyEvaluator>> groupEvaluators        = new HashMap<>();
+        private final List<RangerPolicyEvaluator>              anyPrincipalEvaluators = new ArrayList<>();
+
+        void add(RangerPolicyItem policyItem, RangerPolicyEvaluator evaluator) {
+            List<String> users  = policyItem.getUsers();
+            List<String> groups = policyItem.getGroups();
+
+            if ((users != null && users.contains(RangerPolicyEngine.USER_CURRENT)) || (groups != null && groups.contains(RangerPolicyEngine.GROUP_PUBLIC))) {
+                addToList(anyPrincipalEvaluators, evaluator);
+            } else {
+                addToIndex(userEvaluators, users, evaluator);
+                addToIndex(groupEvaluators, groups, evaluator);
+            }
+        }
+
+        List<RangerPolicyEvaluator> getCandidateEvaluators(String user, Set<String> userGroups) {
+            List<RangerPolicyEvaluator> userMatches = user != null ? userEvaluators.get(user) : null;
+            int                         groupCount  = 0;
+
+            if (CollectionUtils.isNotEmpty(userGroups)) {
+                for (String group : userGroups) {
+                    if (groupEvaluators.containsKey(group)) {
+                        groupCount++;
+                    }
+                }
+            }
+
+            final List<RangerPolicyEvaluator> ret;
+
+            if (groupCount == 0 && userMatches == null) {
+                ret = anyPrincipalEvaluators;
+            } else {
+                // an evaluator can be indexed under the user and multiple groups; return each only once
+                Map<RangerPolicyEvaluator, Boolean> seen = new IdentityHashMap<>();
+
+                ret = new ArrayList<>();
+
+                addUnique(ret, seen, anyPrincipalEvaluators);
+                addUnique(ret, seen, userMatches);
+
+                if (groupCount > 0) {
+                    for (String group : userGroups) {
+                        addUnique(ret, seen, groupEvaluators.get(group));
+                    }
+                }
+            }
+
+            return Collections.unmodifiableList(ret);
+        }
+
+        private static void addToIndex(Map<String, List<RangerPolicyEvaluator>> index, List<String> principals, RangerPolicyEvaluator evaluator) {
+            if (principals != null) {
+                for (String principal : principals) {
+                    if (principal == null) {
+                        continue;
+                    }
+
+                    List<RangerPolicyEvaluator> evaluators = index.get(principal);
+
+                    if (evaluators == null) {
+                        evaluators = new ArrayList<>();
+
+                        index.put(principal, evaluators);
+                    }
+
+                    addToList(evaluators, evaluator);
+                }
+            }
+        }
+
+        // evaluators are indexed one after the other, so a repeat (from another policy-item of the policy) is the last one added
+        private static void addToList(List<RangerPolicyEvaluator> evaluators, RangerPolicyEvaluator evaluator) {
+            if (evaluators.isEmpty() || evaluators.get(evaluators.size() - 1) != evaluator) {
+                evaluators.add(evaluator);
+            }
+        }
+
+        private static void addUnique(List<RangerPolicyEvaluator> list, Map<RangerPolicyEvaluator, Boolean> seen, List<RangerPolicyEvaluator> evaluators) {
+            if (evaluators != null) {
+                for (RangerPolicyEvaluator evaluator : evaluators) {
+                    if (seen.put(evaluator, Boolean.TRUE) == null) {
+                        list.add(evaluator);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -28,29 +28,49 @@ import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyevaluator.RangerCachedPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerOptimizedPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.store.AbstractServiceStore;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 class RangerPolicyRepository {
     private static final Log LOG = LogFactory.getLog(RangerPolicyRepository.class);
 
     private static final Log PERF_CONTEXTENRICHER_INIT_LOG = RangerPerfTracer.getPerfLogger("contextenricher.init");
+    private static final Log PERF_POLICYENGINE_INIT_PHASE_LOG = RangerPerfTracer.getPerfLogger("policyengine.init.phase");
+
+    private static final int RANGER_POLICYENGINE_PREFIX_EVALUATORS_CACHE_SIZE = 1024;
+    private static final int RANGER_POLICYENGINE_TAG_TYPE_EVALUATORS_CACHE_SIZE = 1024;
+
+    // shared by all repositories, so that a policy refresh doesn't create a new pool; keyed by parallelism, as
+    // repositories of different services can be configured differently. Pool workers are daemon threads that exit when idle
+    private static final ConcurrentMap<Integer, ForkJoinPool> buildPools = new ConcurrentHashMap<>();
 
     enum AuditModeEnum {
         AUDIT_ALL, AUDIT_NONE, AUDIT_DEFAULT
@@ -77,7 +97,9 @@ class RangerPolicyRepository {
 
     private final String                      serviceName;
     private final String                      appId;
+    private final RangerPolicyEngineOptions   options;
     private final RangerServiceDef            serviceDef;
+    private final RangerCompactAccessResource.Layout resourceLayout;
     private final List<RangerPolicy>          policies;
     private final long                        policyVersion;
     private List<RangerContextEnricher>       contextEnrichers;
@@ -85,21 +107,39 @@ class RangerPolicyRepository {
     private List<RangerPolicyEvaluator>       dataMaskPolicyEvaluators;
     private List<RangerPolicyEvaluator>       rowFilterPolicyEvaluators;
     private final AuditModeEnum               auditModeEnum;
-    private final Map<String, AuditInfo>      accessAuditCache;
+    private final ConcurrentCache<String, AuditInfo> accessAuditCache;
 
     private final String                      componentServiceName;
     private final RangerServiceDef            componentServiceDef;
     private final Map<String, RangerResourceTrie> policyResourceTrie;
     private final Map<String, RangerResourceTrie> dataMaskResourceTrie;
     private final Map<String, RangerResourceTrie> rowFilterResourceTrie;
+    private final List<String>                    resourceNamesInLevelOrder;
+    private final RangerPolicyPrincipalIndex      principalIndex;
+
+    private final ConcurrentCache<String, List<RangerPolicyEvaluator>> policyPrefixEvaluatorsCache;
+    private final ConcurrentCache<String, List<RangerPolicyEvaluator>> dataMaskPrefixEvaluatorsCache;
+    private final ConcurrentCache<String, List<RangerPolicyEvaluator>> rowFilterPrefixEvaluatorsCache;
+
+    // tag-type => evaluators, for tag repositories. Access evaluators are in trie order; dataMask/rowFilter evaluators are sorted by policy name.
+    // Maps have the tag-types named in the policies, resolved when the repository is built; caches have other tag-types, resolved on first use
+    private final Map<String, List<RangerPolicyEvaluator>> tagTypePolicyEvaluators    = new HashMap<>();
+    private final Map<String, List<RangerPolicyEvaluator>> tagTypeDataMaskEvaluators  = new HashMap<>();
+    private final Map<String, List<RangerPolicyEvaluator>> tagTypeRowFilterEvaluators = new HashMap<>();
+
+    private ConcurrentCache<String, List<RangerPolicyEvaluator>> tagTypePolicyEvaluatorsCache;
+    private ConcurrentCache<String, List<RangerPolicyEvaluator>> tagTypeDataMaskEvaluatorsCache;
+    private ConcurrentCache<String, List<RangerPolicyEvaluator>> tagTypeRowFilterEvaluatorsCache;
 
     RangerPolicyRepository(String appId, ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
         super();
 
         this.componentServiceName = this.serviceName = servicePolicies.getServiceName();
         this.componentServiceDef = this.serviceDef = ServiceDefUtil.normalize(servicePolicies.getServiceDef());
+        this.resourceLayout = createResourceLayout(this.serviceDef);
 
-        this.appId = appId;
+        this.appId   = appId;
+        this.options = options;
 
         this.policies = Collections.unmodifiableList(servicePolicies.getPolicies());
         this.policyVersion = servicePolicies.getPolicyVersion() != null ? servicePolicies.getPolicyVersion() : -1;
@@ -108,15 +148,7 @@ class RangerPolicyRepository {
             LOG.debug("RangerPolicyRepository : building resource-policy-repository for service " + serviceName);
         }
 
-        String auditMode = servicePolicies.getAuditMode();
-
-        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
-            auditModeEnum = AuditModeEnum.AUDIT_ALL;
-        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
-            auditModeEnum = AuditModeEnum.AUDIT_NONE;
-        } else {
-            auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
-        }
+        auditModeEnum = toAuditModeEnum(servicePolicies.getAuditMode());
 
         if (auditModeEnum == AuditModeEnum.AUDIT_DEFAULT) {
             String propertyName = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
@@ -125,7 +157,7 @@ class RangerPolicyRepository {
                 final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
 
                 int auditResultCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<String, AuditInfo>(auditResultCacheSize));
+                accessAuditCache = new ConcurrentCache<>(auditResultCacheSize);
             } else {
                 accessAuditCache = null;
             }
@@ -140,15 +172,22 @@ class RangerPolicyRepository {
 
         init(options);
 
+        this.resourceNamesInLevelOrder = getResourceNamesInLevelOrder(serviceDef);
+        this.principalIndex            = new RangerPolicyPrincipalIndex(policyEvaluators);
+
         if(options.disableTrieLookupPrefilter) {
             policyResourceTrie    = null;
             dataMaskResourceTrie  = null;
             rowFilterResourceTrie = null;
         } else {
-            policyResourceTrie    = createResourceTrieMap(policyEvaluators);
-            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators);
-            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators);
+            policyResourceTrie    = createResourceTrieMap(policyEvaluators, options);
+            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, options);
+            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, options);
         }
+
+        policyPrefixEvaluatorsCache    = createPrefixEvaluatorsCache(policyResourceTrie);
+        dataMaskPrefixEvaluatorsCache  = createPrefixEvaluatorsCache(dataMaskResourceTrie);
+        rowFilterPrefixEvaluatorsCache = createPrefixEvaluatorsCache(rowFilterResourceTrie);
     }
 
     RangerPolicyRepository(String appId, ServicePolicies.TagPolicies tagPolicies, RangerPolicyEngineOptions options,
@@ -160,21 +199,15 @@ class RangerPolicyRepository {
 
         this.serviceDef = normalizeAccessTypeDefs(ServiceDefUtil.normalize(tagPolicies.getServiceDef()), componentServiceDef.getName());
         this.componentServiceDef = componentServiceDef;
+        this.resourceLayout = createResourceLayout(this.serviceDef);
 
-        this.appId = appId;
+        this.appId   = appId;
+        this.options = options;
 
         this.policies = Collections.unmodifiableList(normalizeAndPrunePolicies(tagPolicies.getPolicies(), componentServiceDef.getName()));
         this.policyVersion = tagPolicies.getPolicyVersion() != null ? tagPolicies.getPolicyVersion() : -1;
 
-        String auditMode = tagPolicies.getAuditMode();
-
-        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
-            auditModeEnum = AuditModeEnum.AUDIT_ALL;
-        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
-            auditModeEnum = AuditModeEnum.AUDIT_NONE;
-        } else {
-            auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
-        }
+        auditModeEnum = toAuditModeEnum(tagPolicies.getAuditMode());
 
         this.accessAuditCache = null;
 
@@ -185,14 +218,115 @@ class RangerPolicyRepository {
 
         init(options);
 
+        this.resourceNamesInLevelOrder = getResourceNamesInLevelOrder(serviceDef);
+        this.principalIndex            = new RangerPolicyPrincipalIndex(policyEvaluators);
+
         if(options.disableTrieLookupPrefilter) {
             policyResourceTrie    = null;
             dataMaskResourceTrie  = null;
             rowFilterResourceTrie = null;
         } else {
-            policyResourceTrie    = createResourceTrieMap(policyEvaluators);
-            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators);
-            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators);
+            policyResourceTrie    = createResourceTrieMap(policyEvaluators, options);
+            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, options);
+            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, options);
+        }
+
+        policyPrefixEvaluatorsCache    = createPrefixEvaluatorsCache(policyResourceTrie);
+        dataMaskPrefixEvaluatorsCache  = createPrefixEvaluatorsCache(dataMaskResourceTrie);
+        rowFilterPrefixEvaluatorsCache = createPrefixEvaluatorsCache(rowFilterResourceTrie);
+
+        initTagTypeEvaluators();
+    }
+
+    /*
+     * Creates a repository with the policies of other after applying the given changes. Evaluators of unchanged
+     * policies are reused, and resource tries are updated only along the paths of changed policies; other is not
+     * modified, so requests being evaluated with other continue to see a consistent set of policies.
+     */
+    RangerPolicyRepository(RangerPolicyRepository other, List<RangerPolicyDelta> deltas, long policyVersion) {
+        super();
+
+        this.serviceName               = other.serviceName;
+        this.componentServiceName      = other.componentServiceName;
+        this.serviceDef                = other.serviceDef;
+        this.resourceLayout            = other.resourceLayout;
+        this.componentServiceDef       = other.componentServiceDef;
+        this.appId                     = other.appId;
+        this.options                   = other.options;
+        this.auditModeEnum             = other.auditModeEnum;
+        this.resourceNamesInLevelOrder = other.resourceNamesInLevelOrder;
+        this.policyVersion             = policyVersion;
+        this.accessAuditCache          = other.accessAuditCache != null ? new ConcurrentCache<String, AuditInfo>(other.accessAuditCache.getMaxSize()) : null;
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository : updating policy-repository for service[" + serviceName + "]: policyVersion=" + other.policyVersion + "; newPolicyVersion=" + policyVersion + "; deltaCount=" + deltas.size());
+        }
+
+        final boolean isTagRepository = serviceDef != componentServiceDef;
+
+        if(isTagRepository) {
+            deltas = normalizeAndPrunePolicyDeltas(deltas, componentServiceDef.getName());
+        }
+
+        this.policies = Collections.unmodifiableList(RangerPolicyDeltaUtil.applyDeltas(other.policies, deltas));
+
+        Set<Long> changedPolicyIds = new HashSet<>();
+
+        for (RangerPolicyDelta delta : deltas) {
+            if (delta.getPolicyId() != null) {
+                changedPolicyIds.add(delta.getPolicyId());
+            }
+        }
+
+        List<RangerPolicyEvaluator> addedPolicyEvaluators          = new ArrayList<>();
+        List<RangerPolicyEvaluator> addedDataMaskPolicyEvaluators  = new ArrayList<>();
+        List<RangerPolicyEvaluator> addedRowFilterPolicyEvaluators = new ArrayList<>();
+
+        for (RangerPolicy policy : policies) {
+            if (!changedPolicyIds.contains(policy.getId()) || skipBuildingPolicyEvaluator(policy, options)) {
+                continue;
+            }
+
+            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+
+            if (evaluator != null) {
+                addPolicyEvaluator(evaluator, addedPolicyEvaluators, addedDataMaskPolicyEvaluators, addedRowFilterPolicyEvaluators);
+            }
+        }
+
+        List<RangerPolicyEvaluator> removedPolicyEvaluators          = getPolicyEvaluators(other.policyEvaluators, changedPolicyIds);
+        List<RangerPolicyEvaluator> removedDataMaskPolicyEvaluators  = getPolicyEvaluators(other.dataMaskPolicyEvaluators, changedPolicyIds);
+        List<RangerPolicyEvaluator> removedRowFilterPolicyEvaluators = getPolicyEvaluators(other.rowFilterPolicyEvaluators, changedPolicyIds);
+
+        List<RangerPolicyEvaluator> policyEvaluators          = getUpdatedPolicyEvaluators(other.policyEvaluators, removedPolicyEvaluators, addedPolicyEvaluators);
+        List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = getUpdatedPolicyEvaluators(other.dataMaskPolicyEvaluators, removedDataMaskPolicyEvaluators, addedDataMaskPolicyEvaluators);
+        List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = getUpdatedPolicyEvaluators(other.rowFilterPolicyEvaluators, removedRowFilterPolicyEvaluators, addedRowFilterPolicyEvaluators);
+
+        initEvaluatorsAndContextEnrichers(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, options);
+
+        this.principalIndex = new RangerPolicyPrincipalIndex(this.policyEvaluators);
+
+        if(options.disableTrieLookupPrefilter) {
+            policyResourceTrie    = null;
+            dataMaskResourceTrie  = null;
+            rowFilterResourceTrie = null;
+        } else {
+            policyResourceTrie    = getUpdatedResourceTrieMap(other.policyResourceTrie, this.policyEvaluators, removedPolicyEvaluators, addedPolicyEvaluators);
+            dataMaskResourceTrie  = getUpdatedResourceTrieMap(other.dataMaskResourceTrie, this.dataMaskPolicyEvaluators, removedDataMaskPolicyEvaluators, addedDataMaskPolicyEvaluators);
+            rowFilterResourceTrie = getUpdatedResourceTrieMap(other.rowFilterResourceTrie, this.rowFilterPolicyEvaluators, removedRowFilterPolicyEvaluators, addedRowFilterPolicyEvaluators);
+        }
+
+        policyPrefixEvaluatorsCache    = createPrefixEvaluatorsCache(policyResourceTrie);
+        dataMaskPrefixEvaluatorsCache  = createPrefixEvaluatorsCache(dataMaskResourceTrie);
+        rowFilterPrefixEvaluatorsCache = createPrefixEvaluatorsCache(rowFilterResourceTrie);
+
+        if(isTagRepository) {
+            initTagTypeEvaluators();
+        }
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository : updated policy-repository for service[" + serviceName + "]: rebuiltEvaluatorCount=" + (addedPolicyEvaluators.size() + addedDataMaskPolicyEvaluators.size() + addedRowFilterPolicyEvaluators.size())
+                      + "; reusedEvaluatorCount=" + (this.policyEvaluators.size() + this.dataMaskPolicyEvaluators.size() + this.rowFilterPolicyEvaluators.size() - addedPolicyEvaluators.size() - addedDataMaskPolicyEvaluators.size() - addedRowFilterPolicyEvaluators.size()));
         }
     }
 
@@ -202,6 +336,20 @@ class RangerPolicyRepository {
         return serviceDef;
     }
 
+    /*
+     * Resource for evaluating tag policies of the given tag-type. A compact resource is returned when the
+     * service-def has a 'tag' resource, so that the per-tag requests created by the engine do not allocate a map.
+     */
+    RangerAccessResource newTagResource(String tagType) {
+        RangerAccessResource ret = resourceLayout == null ? null : resourceLayout.newResource(RangerTagResource.KEY_TAG, tagType);
+
+        if (ret == null) {
+            ret = new RangerTagResource(tagType, serviceDef);
+        }
+
+        return ret;
+    }
+
     public List<RangerPolicy> getPolicies() {
         return policies;
     }
@@ -216,10 +364,21 @@ class RangerPolicyRepository {
         return policyEvaluators;
     }
 
+    List<RangerPolicyEvaluator> getPolicyEvaluators(String user, Set<String> userGroups, String accessType) {
+        return principalIndex.getCandidateEvaluators(user, userGroups, accessType);
+    }
+
+    /*
+     * evaluators without an allow or deny policy-item for the access type add nothing to getResourceAccessInfo()
+     */
+    boolean hasAccessType(RangerPolicyEvaluator evaluator, String accessType) {
+        return principalIndex.hasAccessType(evaluator, accessType);
+    }
+
     List<RangerPolicyEvaluator> getPolicyEvaluators(RangerAccessResource resource) {
        String resourceStr = resource == null ? null : resource.getAsString();
 
-       return policyResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getPolicyEvaluators() : getPolicyEvaluators(policyResourceTrie, resource);
+       return policyResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getPolicyEvaluators() : getPolicyEvaluators(policyResourceTrie, policyPrefixEvaluatorsCache, resource);
     }
 
     List<RangerPolicyEvaluator> getDataMaskPolicyEvaluators() {
@@ -229,7 +388,15 @@ class RangerPolicyRepository {
     List<RangerPolicyEvaluator> getDataMaskPolicyEvaluators(RangerAccessResource resource) {
         String resourceStr = resource == null ? null : resource.getAsString();
 
-        return dataMaskResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getDataMaskPolicyEvaluators() : getPolicyEvaluators(dataMaskResourceTrie, resource);
+        return dataMaskResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getDataMaskPolicyEvaluators() : getPolicyEvaluators(dataMaskResourceTrie, dataMaskPrefixEvaluatorsCache, resource);
+    }
+
+    /*
+     * for tag repositories: returns the evaluators of policies for the given tag-type, in the same order as
+     * getPolicyEvaluators(new RangerTagResource(tagType, serviceDef))
+     */
+    List<RangerPolicyEvaluator> getPolicyEvaluatorsForTagType(String tagType) {
+        return getEvaluatorsForTagType(tagType, RangerPolicy.POLICY_TYPE_ACCESS);
     }
 
     List<PolicyEvaluatorForTag> getDataMaskPolicyEvaluators(Set<RangerTagForEval> tags) {
@@ -243,7 +410,7 @@ class RangerPolicyRepository {
     List<RangerPolicyEvaluator> getRowFilterPolicyEvaluators(RangerAccessResource resource) {
         String resourceStr = resource == null ? null : resource.getAsString();
 
-        return rowFilterResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getRowFilterPolicyEvaluators() : getPolicyEvaluators(rowFilterResourceTrie, resource);
+        return rowFilterResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getRowFilterPolicyEvaluators() : getPolicyEvaluators(rowFilterResourceTrie, rowFilterPrefixEvaluatorsCache, resource);
     }
 
     List<PolicyEvaluatorForTag> getRowFilterPolicyEvaluators(Set<RangerTagForEval> tags) {
@@ -252,56 +419,60 @@ class RangerPolicyRepository {
 
     AuditModeEnum getAuditModeEnum() { return auditModeEnum; }
 
-    private List<RangerPolicyEvaluator> getPolicyEvaluators(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource resource) {
-        List<RangerPolicyEvaluator> ret          = null;
-        Set<String>                 resourceKeys = resource == null ? null : resource.getKeys();
+    static AuditModeEnum toAuditModeEnum(String auditMode) {
+        final AuditModeEnum ret;
+
+        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
+            ret = AuditModeEnum.AUDIT_ALL;
+        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
+            ret = AuditModeEnum.AUDIT_NONE;
+        } else {
+            ret = AuditModeEnum.AUDIT_DEFAULT;
+        }
 
-        if(CollectionUtils.isNotEmpty(resourceKeys)) {
-            boolean isRetModifiable = false;
+        return ret;
+    }
 
-            for(String resourceName : resourceKeys) {
-                RangerResourceTrie trie = resourceTrie.get(resourceName);
+    private List<RangerPolicyEvaluator> getPolicyEvaluators(Map<String, RangerResourceTrie> resourceTrie, ConcurrentCache<String, List<RangerPolicyEvaluator>> prefixEvaluatorsCache, RangerAccessResource resource) {
+        List<RangerPolicyEvaluator> ret              = null;
+        int                         levelCount       = 0;
+        String                      leafResourceName = null;
 
-                if(trie == null) { // if no trie exists for this resource level, ignore and continue to next level
-                    continue;
+        if(resource != null) {
+            for(String resourceName : resourceNamesInLevelOrder) {
+                if(resource.exists(resourceName) && resourceTrie.containsKey(resourceName)) {
+                    levelCount++;
+                    leafResourceName = resourceName;
                 }
+            }
+        }
 
-                List<RangerPolicyEvaluator> resourceEvaluators = trie.getEvaluatorsForResource(resource.getValue(resourceName));
-
-                if(CollectionUtils.isEmpty(resourceEvaluators)) { // no policies for this resource, bail out
-                    ret = null;
-                } else if(ret == null) { // initialize ret with policies found for this resource
-                    ret = resourceEvaluators;
-                } else { // remove policies from ret that are not in resourceEvaluators
-                    if(isRetModifiable) {
-                        ret.retainAll(resourceEvaluators);
-                    } else {
-                        final List<RangerPolicyEvaluator> shorterList;
-                        final List<RangerPolicyEvaluator> longerList;
-
-                        if (ret.size() < resourceEvaluators.size()) {
-                            shorterList = ret;
-                            longerList  = resourceEvaluators;
-                        } else {
-                            shorterList = resourceEvaluators;
-                            longerList  = ret;
-                        }
+        if(levelCount > 2 && prefixEvaluatorsCache != null) {
+            // evaluators for non-leaf levels (like database/table for a column) are reused across requests
+            String                      prefixKey        = getPrefixCacheKey(resourceTrie, resource, leafResourceName);
+            List<RangerPolicyEvaluator> prefixEvaluators = prefixEvaluatorsCache.get(prefixKey);
 
-                        ret = new ArrayList<>(shorterList);
-                        ret.retainAll(longerList);
-                        isRetModifiable = true;
-                    }
-                }
+            if(prefixEvaluators == null) {
+                prefixEvaluators = getIntersectedEvaluators(resourceTrie, resource, leafResourceName);
 
-                if(CollectionUtils.isEmpty(ret)) { // if no policy exists, bail out and return empty list
-                    ret = null;
-                    break;
-                }
+                prefixEvaluatorsCache.put(prefixKey, prefixEvaluators);
             }
+
+            if(!prefixEvaluators.isEmpty()) {
+                RangerResourceTrie          leafTrie       = resourceTrie.get(leafResourceName);
+                List<RangerPolicyEvaluator> leafEvaluators = leafTrie.getEvaluatorsForResource(resource.getValue(leafResourceName));
+
+                ret = intersect(prefixEvaluators, leafEvaluators);
+            }
+        } else if(levelCount > 0) {
+            ret = getIntersectedEvaluators(resourceTrie, resource, null);
         }
 
-        if(ret == null) {
+        if(CollectionUtils.isEmpty(ret)) {
             ret = Collections.emptyList();
+        } else if(options.reorderTrieEvaluatorsByUsage) {
+            // trie lists are in id order; when more than one allow policy matches, this changes the policy credited in audit
+            ret = getSortedByEvalRank(ret);
         }
 
         if(LOG.isDebugEnabled()) {
@@ -311,36 +482,321 @@ class RangerPolicyRepository {
         return ret;
     }
 
+    /*
+     * returns evaluators matching all resource-levels in the given resource, other than excludedResourceName;
+     * evaluator lists in the trie are sorted by id, hence so is the returned list
+     */
+    private List<RangerPolicyEvaluator> getIntersectedEvaluators(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource resource, String excludedResourceName) {
+        List<RangerPolicyEvaluator> ret = null;
+
+        for(String resourceName : resourceNamesInLevelOrder) {
+            if(StringUtils.equals(resourceName, excludedResourceName) || !resource.exists(resourceName)) {
+                continue;
+            }
+
+            RangerResourceTrie trie = resourceTrie.get(resourceName);
+
+            if(trie == null) { // if no trie exists for this resource level, ignore and continue to next level
+                continue;
+            }
+
+            List<RangerPolicyEvaluator> resourceEvaluators = trie.getEvaluatorsForResource(resource.getValue(resourceName));
+
+            if(ret == null) { // initialize ret with policies found for this resource
+                ret = resourceEvaluators;
+            } else { // remove policies from ret that are not in resourceEvaluators
+                ret = intersect(ret, resourceEvaluators);
+            }
+
+            if(CollectionUtils.isEmpty(ret)) { // if no policy exists, bail out and return empty list
+                ret = null;
+                break;
+            }
+        }
+
+        if(ret == null) {
+            ret = Collections.emptyList();
+        }
+
+        return ret;
+    }
+
+    // merge-join of two lists sorted by evaluator id; evaluators are matched by identity, as ids need not be unique (like -1)
+    static List<RangerPolicyEvaluator> intersect(List<RangerPolicyEvaluator> list1, List<RangerPolicyEvaluator> list2) {
+        if(list1 == list2) {
+            return list1;
+        }
+
+        if(CollectionUtils.isEmpty(list1) || CollectionUtils.isEmpty(list2)) {
+            return null;
+        }
+
+        final int size1 = list1.size();
+        final int size2 = list2.size();
+
+        List<RangerPolicyEvaluator> ret = new ArrayList<>(Math.min(size1, size2));
+
+        for(int i = 0, j = 0; i < size1 && j < size2; ) {
+            RangerPolicyEvaluator evaluator1 = list1.get(i);
+            RangerPolicyEvaluator evaluator2 = list2.get(j);
+            long                  id1        = evaluator1.getId();
+            long                  id2        = evaluator2.getId();
+
+            if(id1 < id2) {
+                i++;
+            } else if(id1 > id2) {
+                j++;
+            } else {
+                int runEnd1 = i + 1;
+                int runEnd2 = j + 1;
+
+                while(runEnd1 < size1 && list1.get(runEnd1).getId() == id1) {
+                    runEnd1++;
+                }
+
+                while(runEnd2 < size2 && list2.get(runEnd2).getId() == id2) {
+                    runEnd2++;
+                }
+
+                if(runEnd1 - i == 1 && runEnd2 - j == 1) {
+                    if(evaluator1 == evaluator2) {
+                        ret.add(evaluator1);
+                    }
+                } else {
+                    Set<RangerPolicyEvaluator> run2 = Collections.newSetFromMap(new IdentityHashMap<RangerPolicyEvaluator, Boolean>());
+
+                    run2.addAll(list2.subList(j, runEnd2));
+
+                    for(int k = i; k < runEnd1; k++) {
+                        if(run2.contains(list1.get(k))) {
+                            ret.add(list1.get(k));
+                        }
+                    }
+                }
+
+                i = runEnd1;
+                j = runEnd2;
+            }
+        }
+
+        return ret;
+    }
+
+    private String getPrefixCacheKey(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource resource, String leafResourceName) {
+        StringBuilder sb = new StringBuilder();
+
+        for(String resourceName : resourceNamesInLevelOrder) {
+            if(StringUtils.equals(resourceName, leafResourceName) || !resource.exists(resourceName) || !resourceTrie.containsKey(resourceName)) {
+                continue;
+            }
+
+            if(sb.length() > 0) {
+                sb.append(RangerAccessResource.RESOURCE_SEP);
+            }
+
+            sb.append(resourceName).append(RangerAccessResource.RESOURCE_NAME_VAL_SEP).append(resource.getValue(resourceName));
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * returns null if no policy exists for any of the tags, like for empty tags
+     */
+    @SuppressWarnings("unchecked")
     private List<PolicyEvaluatorForTag> getSortedPolicyEvaluatorsForTags(Set<RangerTagForEval> tags, int policyType) {
         List<PolicyEvaluatorForTag> ret = null;
 
         if (CollectionUtils.isNotEmpty(tags) && getServiceDef() != null
                 && (policyType == RangerPolicy.POLICY_TYPE_ACCESS || policyType == RangerPolicy.POLICY_TYPE_DATAMASK || policyType == RangerPolicy.POLICY_TYPE_ROWFILTER)) {
-            ret = new ArrayList<PolicyEvaluatorForTag>();
-
-            for (RangerTagForEval tag : tags) {
-                RangerAccessResource resource = new RangerTagResource(tag.getType(), getServiceDef());
-                List<RangerPolicyEvaluator> evaluators = null;
-                if (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) {
-                    evaluators = getDataMaskPolicyEvaluators(resource);
-                } else if (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER) {
-                    evaluators = getRowFilterPolicyEvaluators(resource);
-                } else {
-                    evaluators = getPolicyEvaluators(resource);
-                }
-                if (CollectionUtils.isNotEmpty(evaluators)) {
+            if (tags.size() == 1) {
+                RangerTagForEval            tag        = tags.iterator().next();
+                List<RangerPolicyEvaluator> evaluators = getSortedEvaluatorsForTagType(tag.getType(), policyType);
+
+                if (!evaluators.isEmpty()) {
+                    ret = new ArrayList<>(evaluators.size());
+
                     for (RangerPolicyEvaluator evaluator : evaluators) {
                         ret.add(new PolicyEvaluatorForTag(evaluator, tag));
                     }
                 }
+            } else {
+                // merge of per-tag lists, each sorted by policy name; on equal names, earlier tag comes first
+                RangerTagForEval[]            tagArray      = tags.toArray(new RangerTagForEval[tags.size()]);
+                List<RangerPolicyEvaluator>[] evaluatorList = new List[tagArray.length];
+                int[]                         nextIdx       = new int[tagArray.length];
+                int                           totalCount    = 0;
+
+                for (int i = 0; i < tagArray.length; i++) {
+                    evaluatorList[i] = getSortedEvaluatorsForTagType(tagArray[i].getType(), policyType);
+                    totalCount      += evaluatorList[i].size();
+                }
+
+                if (totalCount > 0) {
+                    ret = new ArrayList<>(totalCount);
+                }
+
+                for (int count = 0; count < totalCount; count++) {
+                    int minIdx = -1;
+
+                    for (int i = 0; i < tagArray.length; i++) {
+                        if (nextIdx[i] < evaluatorList[i].size() && (minIdx == -1 || POLICY_NAME_COMPARATOR.compare(evaluatorList[i].get(nextIdx[i]), evaluatorList[minIdx].get(nextIdx[minIdx])) < 0)) {
+                            minIdx = i;
+                        }
+                    }
+
+                    ret.add(new PolicyEvaluatorForTag(evaluatorList[minIdx].get(nextIdx[minIdx]++), tagArray[minIdx]));
+                }
             }
         }
-        if (CollectionUtils.isNotEmpty(ret)) {
-            Collections.sort(ret, new PolicyEvaluatorForTag.PolicyNameComparator());
+
+        return ret;
+    }
+
+    private List<RangerPolicyEvaluator> getSortedEvaluatorsForTagType(String tagType, int policyType) {
+        List<RangerPolicyEvaluator> ret = getEvaluatorsForTagType(tagType, policyType);
+
+        if (policyType == RangerPolicy.POLICY_TYPE_ACCESS && ret.size() > 1) { // access evaluators are kept in trie order
+            ret = new ArrayList<>(ret);
+
+            Collections.sort(ret, POLICY_NAME_COMPARATOR);
         }
+
         return ret;
     }
 
+    private List<RangerPolicyEvaluator> getEvaluatorsForTagType(String tagType, int policyType) {
+        final Map<String, List<RangerPolicyEvaluator>>             tagTypeEvaluators;
+        final ConcurrentCache<String, List<RangerPolicyEvaluator>> tagTypeEvaluatorsCache;
+
+        if (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) {
+            tagTypeEvaluators      = tagTypeDataMaskEvaluators;
+            tagTypeEvaluatorsCache = tagTypeDataMaskEvaluatorsCache;
+        } else if (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER) {
+            tagTypeEvaluators      = tagTypeRowFilterEvaluators;
+            tagTypeEvaluatorsCache = tagTypeRowFilterEvaluatorsCache;
+        } else {
+            tagTypeEvaluators      = tagTypePolicyEvaluators;
+            tagTypeEvaluatorsCache = tagTypePolicyEvaluatorsCache;
+        }
+
+        List<RangerPolicyEvaluator> ret = tagType == null ? null : tagTypeEvaluators.get(tagType);
+
+        if (ret == null && tagType != null && tagTypeEvaluatorsCache != null) {
+            ret = tagTypeEvaluatorsCache.get(tagType);
+        }
+
+        if (ret == null) {
+            ret = resolveEvaluatorsForTagType(tagType, policyType);
+
+            if (tagType != null && tagTypeEvaluatorsCache != null) {
+                tagTypeEvaluatorsCache.put(tagType, ret);
+            }
+        }
+
+        return ret;
+    }
+
+    ConcurrentCache<String, List<RangerPolicyEvaluator>> getTagTypePolicyEvaluatorsCache() {
+        return tagTypePolicyEvaluatorsCache;
+    }
+
+    private static RangerCompactAccessResource.Layout createResourceLayout(RangerServiceDef serviceDef) {
+        RangerCompactAccessResource.Layout ret = null;
+
+        try {
+            ret = new RangerCompactAccessResource.Layout(serviceDef);
+        } catch (IllegalArgumentException excp) {
+            LOG.warn("RangerPolicyRepository: compact resources will not be used for service-def " + serviceDef.getName(), excp);
+        }
+
+        return ret;
+    }
+
+    private List<RangerPolicyEvaluator> resolveEvaluatorsForTagType(String tagType, int policyType) {
+        RangerAccessResource resource = newTagResource(tagType);
+
+        if (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) {
+            return getSortedByPolicyName(getDataMaskPolicyEvaluators(resource));
+        } else if (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER) {
+            return getSortedByPolicyName(getRowFilterPolicyEvaluators(resource));
+        } else {
+            return getPolicyEvaluators(resource);
+        }
+    }
+
+    /*
+     * resolves evaluators for tag-types named explicitly in the policies, so that requests for these don't pay for
+     * the trie lookups and sorting. Evaluators for other tag-types, like those matched by wildcards, are resolved
+     * on first use and kept in size-bound caches, as requests can carry any number of such tag-types
+     */
+    private void initTagTypeEvaluators() {
+        if (serviceDef == componentServiceDef || policyEvaluators == null) { // not a tag repository
+            return;
+        }
+
+        Set<String> tagTypes = new HashSet<>();
+
+        for (List<RangerPolicyEvaluator> evaluators : Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators)) {
+            for (RangerPolicyEvaluator evaluator : evaluators) {
+                Map<String, RangerPolicy.RangerPolicyResource> resources   = evaluator.getPolicy().getResources();
+                RangerPolicy.RangerPolicyResource              tagResource = resources == null ? null : resources.get(RangerTagResource.KEY_TAG);
+
+                if (tagResource != null && tagResource.getValues() != null) {
+                    for (String tagType : tagResource.getValues()) {
+                        if (StringUtils.isNotEmpty(tagType) && !StringUtils.containsAny(tagType, "*?")) {
+                            tagTypes.add(tagType);
+                        }
+                    }
+                }
+            }
+        }
+
+        // with reorderTrieEvaluatorsByUsage, the order of access evaluators changes over time; hence not kept
+        boolean keepAccessEvaluators = !options.reorderTrieEvaluatorsByUsage;
+
+        for (String tagType : tagTypes) {
+            if (keepAccessEvaluators) {
+                tagTypePolicyEvaluators.put(tagType, resolveEvaluatorsForTagType(tagType, RangerPolicy.POLICY_TYPE_ACCESS));
+            }
+
+            tagTypeDataMaskEvaluators.put(tagType, resolveEvaluatorsForTagType(tagType, RangerPolicy.POLICY_TYPE_DATAMASK));
+            tagTypeRowFilterEvaluators.put(tagType, resolveEvaluatorsForTagType(tagType, RangerPolicy.POLICY_TYPE_ROWFILTER));
+        }
+
+        String propertyName = "ranger.plugin." + serviceName + ".policyengine.tagtypeevaluatorscachesize";
+        int    cacheSize    = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_TAG_TYPE_EVALUATORS_CACHE_SIZE);
+
+        if (cacheSize > 0) {
+            tagTypePolicyEvaluatorsCache    = keepAccessEvaluators ? new ConcurrentCache<String, List<RangerPolicyEvaluator>>(cacheSize) : null;
+            tagTypeDataMaskEvaluatorsCache  = new ConcurrentCache<>(cacheSize);
+            tagTypeRowFilterEvaluatorsCache = new ConcurrentCache<>(cacheSize);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository.initTagTypeEvaluators(): resolved evaluators for " + tagTypes.size() + " tag-types");
+        }
+    }
+
+    private static List<RangerPolicyEvaluator> getSortedByPolicyName(List<RangerPolicyEvaluator> evaluators) {
+        List<RangerPolicyEvaluator> ret = evaluators;
+
+        if (evaluators.size() > 1) {
+            ret = new ArrayList<>(evaluators);
+
+            Collections.sort(ret, POLICY_NAME_COMPARATOR);
+        }
+
+        return ret;
+    }
+
+    private static final Comparator<RangerPolicyEvaluator> POLICY_NAME_COMPARATOR = new Comparator<RangerPolicyEvaluator>() {
+        @Override
+        public int compare(RangerPolicyEvaluator me, RangerPolicyEvaluator other) {
+            return me.getPolicy().getName().compareTo(other.getPolicy().getName());
+        }
+    };
+
     private RangerServiceDef normalizeAccessTypeDefs(RangerServiceDef serviceDef, final String componentType) {
 
         if (serviceDef != null && StringUtils.isNotBlank(componentType)) {
@@ -539,39 +995,61 @@ class RangerPolicyRepository {
         return ret;
     }
 
-    private void init(RangerPolicyEngineOptions options) {
+    private void init(final RangerPolicyEngineOptions options) {
         List<RangerPolicyEvaluator> policyEvaluators = new ArrayList<>();
         List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = new ArrayList<>();
         List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = new ArrayList<>();
 
-        for (RangerPolicy policy : policies) {
+        RangerPerfTracer perf = null;
+
+        if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_PHASE_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_PHASE_LOG, "RangerPolicyRepository.buildPolicyEvaluators(serviceName=" + serviceName + ",policyCount=" + policies.size() + ")");
+        }
+
+        List<Callable<RangerPolicyEvaluator>> tasks = new ArrayList<>(policies.size());
+
+        for (final RangerPolicy policy : policies) {
             if (skipBuildingPolicyEvaluator(policy, options)) {
                 continue;
             }
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+            tasks.add(new Callable<RangerPolicyEvaluator>() {
+                @Override
+                public RangerPolicyEvaluator call() {
+                    return buildPolicyEvaluator(policy, serviceDef, options);
+                }
+            });
+        }
 
+        for (RangerPolicyEvaluator evaluator : invokeAll(tasks)) {
             if (evaluator != null) {
-                if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
-                    policyEvaluators.add(evaluator);
-                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
-                    dataMaskPolicyEvaluators.add(evaluator);
-                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ROWFILTER) {
-                    rowFilterPolicyEvaluators.add(evaluator);
-                } else {
-                    LOG.warn("RangerPolicyEngine: ignoring policy id=" + policy.getId() + " - invalid policyType '" + policy.getPolicyType() + "'");
-                }
+                addPolicyEvaluator(evaluator, policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators);
             }
         }
-        RangerPolicyEvaluator.PolicyEvalOrderComparator comparator = new RangerPolicyEvaluator.PolicyEvalOrderComparator();
-        Collections.sort(policyEvaluators, comparator);
-        this.policyEvaluators = Collections.unmodifiableList(policyEvaluators);
 
-        Collections.sort(dataMaskPolicyEvaluators, comparator);
-        this.dataMaskPolicyEvaluators = Collections.unmodifiableList(dataMaskPolicyEvaluators);
+        RangerPerfTracer.log(perf);
+
+        initEvaluatorsAndContextEnrichers(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, options);
+    }
 
-        Collections.sort(rowFilterPolicyEvaluators, comparator);
-        this.rowFilterPolicyEvaluators = Collections.unmodifiableList(rowFilterPolicyEvaluators);
+    private static void addPolicyEvaluator(RangerPolicyEvaluator evaluator, List<RangerPolicyEvaluator> policyEvaluators, List<RangerPolicyEvaluator> dataMaskPolicyEvaluators, List<RangerPolicyEvaluator> rowFilterPolicyEvaluators) {
+        RangerPolicy policy = evaluator.getPolicy();
+
+        if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
+            policyEvaluators.add(evaluator);
+        } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
+            dataMaskPolicyEvaluators.add(evaluator);
+        } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ROWFILTER) {
+            rowFilterPolicyEvaluators.add(evaluator);
+        } else {
+            LOG.warn("RangerPolicyEngine: ignoring policy id=" + policy.getId() + " - invalid policyType '" + policy.getPolicyType() + "'");
+        }
+    }
+
+    private void initEvaluatorsAndContextEnrichers(List<RangerPolicyEvaluator> policyEvaluators, List<RangerPolicyEvaluator> dataMaskPolicyEvaluators, List<RangerPolicyEvaluator> rowFilterPolicyEvaluators, RangerPolicyEngineOptions options) {
+        this.policyEvaluators          = getReorderedPolicyEvaluators(policyEvaluators);
+        this.dataMaskPolicyEvaluators  = getReorderedPolicyEvaluators(dataMaskPolicyEvaluators);
+        this.rowFilterPolicyEvaluators = getReorderedPolicyEvaluators(rowFilterPolicyEvaluators);
 
         List<RangerContextEnricher> contextEnrichers = new ArrayList<RangerContextEnricher>();
         if (CollectionUtils.isNotEmpty(this.policyEvaluators)) {
@@ -784,65 +1262,258 @@ class RangerPolicyRepository {
             LOG.debug("==> reorderEvaluators()");
         }
 
-        if(policyResourceTrie != null) {
-            reorderPolicyEvaluators(policyResourceTrie);
-        } else {
-            policyEvaluators = getReorderedPolicyEvaluators(policyEvaluators);
+        // evaluator lists in tries and in prefix caches stay sorted by id; lookups order them by the eval-rank set here
+        policyEvaluators          = getReorderedPolicyEvaluators(policyEvaluators);
+        dataMaskPolicyEvaluators  = getReorderedPolicyEvaluators(dataMaskPolicyEvaluators);
+        rowFilterPolicyEvaluators = getReorderedPolicyEvaluators(rowFilterPolicyEvaluators);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== reorderEvaluators()");
         }
+    }
 
-        if(dataMaskResourceTrie != null) {
-            reorderPolicyEvaluators(dataMaskResourceTrie);
-        } else {
-            dataMaskPolicyEvaluators = getReorderedPolicyEvaluators(dataMaskPolicyEvaluators);
+    private List<RangerPolicyEvaluator> getReorderedPolicyEvaluators(List<RangerPolicyEvaluator> evaluators) {
+        List<RangerPolicyEvaluator> ret = evaluators;
+
+        if (CollectionUtils.isNotEmpty(evaluators)) {
+            ret = new ArrayList<>(evaluators);
+            Collections.sort(ret, new RangerPolicyEvaluator.PolicyEvalOrderComparator());
+
+            for (int i = 0; i < ret.size(); i++) {
+                ret.get(i).setEvalRank(i);
+            }
+
+            ret = Collections.unmodifiableList(ret);
+        }
+
+        return ret;
+    }
+
+    /*
+     * returns the evaluators in the order of eval-rank. Ranks are read once, so that a concurrent reorder
+     * can't break the sort
+     */
+    static List<RangerPolicyEvaluator> getSortedByEvalRank(List<RangerPolicyEvaluator> evaluators) {
+        final int    size       = evaluators.size();
+        final long[] rankAndIdx = new long[size];
+        boolean      isSorted   = true;
+
+        for (int i = 0; i < size; i++) {
+            rankAndIdx[i] = ((long) evaluators.get(i).getEvalRank() << 32) | i;
+
+            if (i > 0 && rankAndIdx[i] < rankAndIdx[i - 1]) {
+                isSorted = false;
+            }
+        }
+
+        if (isSorted) {
+            return evaluators;
         }
 
-        if(rowFilterResourceTrie != null) {
-            reorderPolicyEvaluators(rowFilterResourceTrie);
+        Arrays.sort(rankAndIdx);
+
+        List<RangerPolicyEvaluator> ret = new ArrayList<>(size);
+
+        for (long value : rankAndIdx) {
+            ret.add(evaluators.get((int) value));
+        }
+
+        return ret;
+    }
+
+    private ConcurrentCache<String, List<RangerPolicyEvaluator>> createPrefixEvaluatorsCache(Map<String, RangerResourceTrie> resourceTrie) {
+        final ConcurrentCache<String, List<RangerPolicyEvaluator>> ret;
+
+        if(resourceTrie != null && resourceTrie.size() > 2) {
+            String propertyName = "ranger.plugin." + serviceName + ".policyengine.prefixevaluatorscachesize";
+            int    cacheSize    = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_PREFIX_EVALUATORS_CACHE_SIZE);
+
+            ret = cacheSize > 0 ? new ConcurrentCache<String, List<RangerPolicyEvaluator>>(cacheSize) : null;
         } else {
-            rowFilterPolicyEvaluators = getReorderedPolicyEvaluators(rowFilterPolicyEvaluators);
+            ret = null;
         }
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("<== reorderEvaluators()");
+        return ret;
+    }
+
+    private static List<String> getResourceNamesInLevelOrder(RangerServiceDef serviceDef) {
+        List<String> ret = new ArrayList<>();
+
+        if(serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
+            List<RangerServiceDef.RangerResourceDef> resourceDefs = new ArrayList<>(serviceDef.getResources());
+
+            Collections.sort(resourceDefs, new Comparator<RangerServiceDef.RangerResourceDef>() {
+                @Override
+                public int compare(RangerServiceDef.RangerResourceDef me, RangerServiceDef.RangerResourceDef other) {
+                    int myLevel    = me.getLevel() == null ? 0 : me.getLevel();
+                    int otherLevel = other.getLevel() == null ? 0 : other.getLevel();
+
+                    return Integer.compare(myLevel, otherLevel);
+                }
+            });
+
+            for(RangerServiceDef.RangerResourceDef resourceDef : resourceDefs) {
+                ret.add(resourceDef.getName());
+            }
         }
+
+        return Collections.unmodifiableList(ret);
     }
 
-    private void reorderPolicyEvaluators(Map<String, RangerResourceTrie> trieMap) {
-        if(trieMap != null) {
-            for(Map.Entry<String, RangerResourceTrie> entry : trieMap.entrySet()) {
-                RangerResourceTrie trie = entry.getValue();
+    private Map<String, RangerResourceTrie> createResourceTrieMap(final List<RangerPolicyEvaluator> evaluators, final RangerPolicyEngineOptions options) {
+        final Map<String, RangerResourceTrie> ret;
+
+        if (CollectionUtils.isNotEmpty(evaluators) && serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
+            RangerPerfTracer perf = null;
+
+            if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_PHASE_LOG)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_PHASE_LOG, "RangerPolicyRepository.createResourceTrieMap(serviceName=" + serviceName + ",evaluatorCount=" + evaluators.size() + ")");
+            }
+
+            List<RangerServiceDef.RangerResourceDef> resourceDefs = serviceDef.getResources();
+            List<Callable<RangerResourceTrie>>       tasks        = new ArrayList<>(resourceDefs.size());
+
+            for (final RangerServiceDef.RangerResourceDef resourceDef : resourceDefs) {
+                tasks.add(new Callable<RangerResourceTrie>() {
+                    @Override
+                    public RangerResourceTrie call() {
+                        return new RangerResourceTrie(resourceDef, evaluators, options.optimizeTrieForSpace);
+                    }
+                });
+            }
+
+            List<RangerResourceTrie> tries = invokeAll(tasks);
 
-                if(trie != null) {
-                    trie.reorderEvaluators();
+            ret = new HashMap<>();
+
+            for (int i = 0; i < resourceDefs.size(); i++) {
+                ret.put(resourceDefs.get(i).getName(), tries.get(i));
+            }
+
+            RangerPerfTracer.log(perf);
+        } else {
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    /*
+     * runs the given tasks on the build pool when options.buildParallelism > 1, or one after another otherwise;
+     * returns the results in the order of the tasks
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T>      ret  = new ArrayList<>(tasks.size());
+        ForkJoinPool pool = tasks.size() > 1 ? getBuildPool(options.buildParallelism) : null;
+
+        try {
+            if (pool == null) {
+                for (Callable<T> task : tasks) {
+                    ret.add(task.call());
                 }
+            } else {
+                for (Future<T> future : pool.invokeAll(tasks)) {
+                    ret.add(future.get());
+                }
+            }
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
             }
+
+            throw new RuntimeException(cause);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException("interrupted while building policy-repository for service " + serviceName, excp);
+        } catch (RuntimeException excp) {
+            throw excp;
+        } catch (Exception excp) {
+            throw new RuntimeException(excp);
         }
+
+        return ret;
     }
 
-    private List<RangerPolicyEvaluator> getReorderedPolicyEvaluators(List<RangerPolicyEvaluator> evaluators) {
-        List<RangerPolicyEvaluator> ret = evaluators;
+    private static ForkJoinPool getBuildPool(int parallelism) {
+        ForkJoinPool ret = parallelism > 1 ? buildPools.get(parallelism) : null;
 
-        if (CollectionUtils.isNotEmpty(evaluators)) {
-            ret = new ArrayList<>(evaluators);
-            Collections.sort(ret, new RangerPolicyEvaluator.PolicyEvalOrderComparator());
+        if (ret == null && parallelism > 1) {
+            synchronized (buildPools) {
+                ret = buildPools.get(parallelism);
 
-            ret = Collections.unmodifiableList(ret);
+                if (ret == null) {
+                    LOG.info("Creating pool for building policy engines: parallelism=" + parallelism);
+
+                    ret = new ForkJoinPool(parallelism);
+
+                    buildPools.put(parallelism, ret);
+                }
+            }
         }
 
         return ret;
     }
 
-    private Map<String, RangerResourceTrie> createResourceTrieMap(List<RangerPolicyEvaluator> evaluators) {
+    private Map<String, RangerResourceTrie> getUpdatedResourceTrieMap(Map<String, RangerResourceTrie> trieMap, List<RangerPolicyEvaluator> evaluators, List<RangerPolicyEvaluator> removedEvaluators, List<RangerPolicyEvaluator> addedEvaluators) {
         final Map<String, RangerResourceTrie> ret;
 
-        if (CollectionUtils.isNotEmpty(evaluators) && serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
+        if (trieMap == null || options.optimizeTrieForSpace || CollectionUtils.isEmpty(evaluators)) { // tries with compact layout can't be updated
+            ret = createResourceTrieMap(evaluators, options);
+        } else if (removedEvaluators.isEmpty() && addedEvaluators.isEmpty()) {
+            ret = trieMap;
+        } else {
             ret = new HashMap<>();
 
-            for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators));
+            for (Map.Entry<String, RangerResourceTrie> entry : trieMap.entrySet()) {
+                ret.put(entry.getKey(), new RangerResourceTrie(entry.getValue(), removedEvaluators, addedEvaluators));
+            }
+        }
+
+        return ret;
+    }
+
+    private static List<RangerPolicyEvaluator> getPolicyEvaluators(List<RangerPolicyEvaluator> evaluators, Set<Long> policyIds) {
+        List<RangerPolicyEvaluator> ret = new ArrayList<>();
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            if (policyIds.contains(evaluator.getPolicy().getId())) {
+                ret.add(evaluator);
             }
-        } else {
-            ret = null;
+        }
+
+        return ret;
+    }
+
+    private static List<RangerPolicyEvaluator> getUpdatedPolicyEvaluators(List<RangerPolicyEvaluator> evaluators, List<RangerPolicyEvaluator> removedEvaluators, List<RangerPolicyEvaluator> addedEvaluators) {
+        List<RangerPolicyEvaluator> ret = new ArrayList<>(evaluators);
+
+        ret.removeAll(removedEvaluators);
+        ret.addAll(addedEvaluators);
+
+        return ret;
+    }
+
+    // normalizes policies in the deltas to the component; deltas whose policies are pruned are changed to deletes
+    private List<RangerPolicyDelta> normalizeAndPrunePolicyDeltas(List<RangerPolicyDelta> deltas, final String componentType) {
+        List<RangerPolicyDelta> ret = new ArrayList<>(deltas.size());
+
+        for (RangerPolicyDelta delta : deltas) {
+            Integer changeType = delta.getChangeType();
+
+            if (delta.getPolicy() != null && changeType != null && changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+                List<RangerPolicy> policies = normalizeAndPrunePolicies(new ArrayList<>(Collections.singletonList(delta.getPolicy())), componentType);
+
+                if (policies.isEmpty()) {
+                    delta = new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, delta.getPolicy());
+                }
+            }
+
+            ret.add(delta);
         }
 
         return ret;
@@ -883,6 +1554,14 @@ class RangerPolicyRepository {
 
         sb.append("} ");
 
+        if (accessAuditCache != null) {
+            sb.append("accessAuditCache={").append(accessAuditCache).append("} ");
+        }
+
+        if (policyPrefixEvaluatorsCache != null) {
+            sb.append("policyPrefixEvaluatorsCache={").append(policyPrefixEvaluatorsCache).append("} ");
+        }
+
         return sb;
     }
 
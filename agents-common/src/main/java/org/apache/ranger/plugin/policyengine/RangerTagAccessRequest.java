@@ -30,8 +30,12 @@ import java.util.Map;
 public class RangerTagAccessRequest extends RangerAccessRequestImpl {
 	private final RangerPolicyResourceMatcher.MatchType matchType;
 	public RangerTagAccessRequest(RangerTagForEval resourceTag, RangerServiceDef tagServiceDef, RangerAccessRequest request) {
+		this(resourceTag, new RangerTagResource(resourceTag.getType(), tagServiceDef), request);
+	}
+
+	RangerTagAccessRequest(RangerTagForEval resourceTag, RangerAccessResource tagResource, RangerAccessRequest request) {
 		matchType = resourceTag.getMatchType();
-		super.setResource(new RangerTagResource(resourceTag.getType(), tagServiceDef));
+		super.setResource(tagResource);
 		super.setUser(request.getUser());
 		super.setUserGroups(request.getUserGroups());
 		super.setAction(request.getAction());
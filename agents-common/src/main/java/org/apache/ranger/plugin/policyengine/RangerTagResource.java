@@ -23,7 +23,7 @@ package org.apache.ranger.plugin.policyengine;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 
 class RangerTagResource extends RangerAccessResourceImpl {
-	private static final String KEY_TAG = "tag";
+	static final String KEY_TAG = "tag";
 
 
 	public RangerTagResource(String tagType, RangerServiceDef tagServiceDef) {
@@ -28,6 +28,7 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.RangerStripedCounter;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 
 import java.util.Map;
@@ -39,8 +40,11 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 	private RangerServiceDef serviceDef;
 	private Integer          leafResourceLevel;
 	private int              evalOrder;
-	protected long           usageCount;
-	protected boolean        usageCountMutable = true;
+	private volatile int     evalRank;
+	private volatile long    usageCount;
+	private volatile long    totalUsageCount;
+
+	private final RangerStripedCounter recentUsageCount = new RangerStripedCounter();
 
 
 	@Override
@@ -60,7 +64,7 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 
 	@Override
 	public long getId() {
-		return policy != null ? policy.getId() :-1;
+		return policy != null && policy.getId() != null ? policy.getId() : -1;
 	}
 
 	@Override
@@ -100,6 +104,11 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 		return usageCount;
 	}
 
+	@Override
+	public long getTotalUsageCount() {
+		return totalUsageCount + recentUsageCount.sum();
+	}
+
 	@Override
 	public int getEvalOrder() {
 		return evalOrder;
@@ -115,18 +124,25 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 
 	@Override
 	public void incrementUsageCount(int number) {
-		if (usageCountMutable) usageCount += number;
+		recentUsageCount.add(number);
+	}
+
+	@Override
+	public synchronized void updateUsageCount() {
+		long recentCount = recentUsageCount.sumThenReset();
+
+		totalUsageCount += recentCount;
+		usageCount       = (usageCount >> 1) + recentCount;
 	}
 
 	@Override
-	public void setUsageCountImmutable() {
-		this.usageCountMutable = false;
+	public int getEvalRank() {
+		return evalRank;
 	}
 
 	@Override
-	public void resetUsageCount() {
-		this.usageCount = 0;
-		this.usageCountMutable = true;
+	public void setEvalRank(int evalRank) {
+		this.evalRank = evalRank;
 	}
 
 	@Override
@@ -42,6 +42,7 @@ import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerRowFilterPolicyItem;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
@@ -72,6 +73,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 	private int                             customConditionsCount;
 	private List<RangerDataMaskPolicyItemEvaluator>  dataMaskEvaluators;
 	private List<RangerRowFilterPolicyItemEvaluator> rowFilterEvaluators;
+	private RangerPolicyEngineOptions               options;
+	private volatile boolean                        policyItemEvaluatorsInitialized;
 
 	private String perfTag;
 
@@ -119,33 +122,15 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		resourceMatcher.setPolicy(policy);
 		resourceMatcher.init();
 
-		if(policy != null) {
-			allowEvaluators          = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW);
-			denyEvaluators           = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_DENY);
-			allowExceptionEvaluators = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW_EXCEPTIONS);
-			denyExceptionEvaluators  = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_DENY_EXCEPTIONS);
-			dataMaskEvaluators       = createDataMaskPolicyItemEvaluators(policy, serviceDef, options, policy.getDataMaskPolicyItems());
-			rowFilterEvaluators      = createRowFilterPolicyItemEvaluators(policy, serviceDef, options, policy.getRowFilterPolicyItems());
+		this.options = options;
+
+		if(policy != null && options.lazyInitPolicyItemEvaluators) {
+			// policy-item evaluators will be created on first evaluation of this policy
+			customConditionsCount = getConditionsCount(policy, serviceDef, options);
 		} else {
-			allowEvaluators          = Collections.<RangerPolicyItemEvaluator>emptyList();
-			denyEvaluators           = Collections.<RangerPolicyItemEvaluator>emptyList();
-			allowExceptionEvaluators = Collections.<RangerPolicyItemEvaluator>emptyList();
-			denyExceptionEvaluators  = Collections.<RangerPolicyItemEvaluator>emptyList();
-			dataMaskEvaluators       = Collections.<RangerDataMaskPolicyItemEvaluator>emptyList();
-			rowFilterEvaluators      = Collections.<RangerRowFilterPolicyItemEvaluator>emptyList();
+			initPolicyItemEvaluators();
 		}
 
-		RangerPolicyItemEvaluator.EvalOrderComparator comparator = new RangerPolicyItemEvaluator.EvalOrderComparator();
-		Collections.sort(allowEvaluators, comparator);
-		Collections.sort(denyEvaluators, comparator);
-		Collections.sort(allowExceptionEvaluators, comparator);
-		Collections.sort(denyExceptionEvaluators, comparator);
-
-		/* dataMask, rowFilter policyItems must be evaulated in the order given in the policy; hence no sort
-		Collections.sort(dataMaskEvaluators);
-		Collections.sort(rowFilterEvaluators);
-		*/
-
 		RangerPerfTracer.log(perf);
 
 		if(LOG.isDebugEnabled()) {
@@ -218,6 +203,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 			perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_REQUEST_LOG, "RangerPolicyEvaluator.evaluate(requestHashCode=" + Integer.toHexString(System.identityHashCode(request)) + "," + perfTag + ")");
 		}
 
+		initPolicyItemEvaluatorsIfNeeded();
+
 		if (request != null && result != null && CollectionUtils.isNotEmpty(dataMaskEvaluators)) {
 
 			if (!result.getIsAccessDetermined() || !result.getIsAuditedDetermined()) {
@@ -268,6 +255,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 			perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_REQUEST_LOG, "RangerPolicyEvaluator.evaluate(requestHashCode=" + Integer.toHexString(System.identityHashCode(request)) + "," + perfTag + ")");
 		}
 
+		initPolicyItemEvaluatorsIfNeeded();
+
 		if (request != null && result != null && CollectionUtils.isNotEmpty(rowFilterEvaluators)) {
 			if (!result.getIsAccessDetermined() || !result.getIsAuditedDetermined()) {
 				RangerPolicyResourceMatcher.MatchType matchType = resourceMatcher != null ? resourceMatcher.getMatchType(request.getResource(), request.getContext()) : RangerPolicyResourceMatcher.MatchType.NONE;
@@ -414,6 +403,7 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		}
 
 		if (isMatched) {
+			initPolicyItemEvaluatorsIfNeeded();
 
 			if (CollectionUtils.isNotEmpty(allowEvaluators)) {
 				Set<String> users = new HashSet<>();
@@ -468,6 +458,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 			LOG.debug("==> RangerDefaultPolicyEvaluator.evaluatePolicyItems(" + request + ", " + result + ", " + isResourceMatch + ")");
 		}
 
+		initPolicyItemEvaluatorsIfNeeded();
+
 		RangerPolicyItemEvaluator matchedPolicyItem = getMatchingPolicyItem(request, denyEvaluators, denyExceptionEvaluators);
 
 		if(matchedPolicyItem == null && !result.getIsAllowed()) { // if not denied, evaluate allowItems only if not already allowed
@@ -502,6 +494,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 			LOG.debug("==> RangerDefaultPolicyEvaluator.evaluatePolicyItems(" + request + ", " + result + ")");
 		}
 
+		initPolicyItemEvaluatorsIfNeeded();
+
 		RangerDataMaskPolicyItemEvaluator matchedPolicyItem = getMatchingPolicyItem(request, dataMaskEvaluators);
 		RangerPolicyItemDataMaskInfo      dataMaskInfo      = matchedPolicyItem != null ? matchedPolicyItem.getDataMaskInfo() : null;
 
@@ -527,6 +521,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 			LOG.debug("==> RangerDefaultPolicyEvaluator.evaluatePolicyItems(" + request + ", " + result + ")");
 		}
 
+		initPolicyItemEvaluatorsIfNeeded();
+
 		RangerRowFilterPolicyItemEvaluator matchedPolicyItem = getMatchingPolicyItem(request, rowFilterEvaluators);
 		RangerPolicyItemRowFilterInfo      rowFilterInfo     = matchedPolicyItem != null ? matchedPolicyItem.getRowFilterInfo() : null;
 
@@ -556,6 +552,8 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		 *  1. if a deny matches without hitting any deny-exception, return that
 		 *  2. if an allow matches without hitting any allow-exception, return that
 		 */
+		initPolicyItemEvaluatorsIfNeeded();
+
 		ret = getMatchingPolicyItem(user, userGroups, accessType, denyEvaluators, denyExceptionEvaluators);
 
 		if(ret == null) {
@@ -747,6 +745,112 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 		return ret;
 	}
 
+	private void initPolicyItemEvaluatorsIfNeeded() {
+		if(!policyItemEvaluatorsInitialized) {
+			synchronized(this) {
+				if(!policyItemEvaluatorsInitialized) {
+					initPolicyItemEvaluators();
+				}
+			}
+		}
+	}
+
+	private void initPolicyItemEvaluators() {
+		RangerPolicy     policy     = getPolicy();
+		RangerServiceDef serviceDef = getServiceDef();
+
+		RangerPerfTracer perf = null;
+
+		if(options.lazyInitPolicyItemEvaluators && RangerPerfTracer.isPerfTraceEnabled(PERF_POLICY_INIT_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_INIT_LOG, "RangerPolicyEvaluator.initPolicyItemEvaluators(" + perfTag + ")");
+		}
+
+		if(policy != null) {
+			allowEvaluators          = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW);
+			denyEvaluators           = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_DENY);
+			allowExceptionEvaluators = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW_EXCEPTIONS);
+			denyExceptionEvaluators  = createPolicyItemEvaluators(policy, serviceDef, options, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_DENY_EXCEPTIONS);
+			dataMaskEvaluators       = createDataMaskPolicyItemEvaluators(policy, serviceDef, options, policy.getDataMaskPolicyItems());
+			rowFilterEvaluators      = createRowFilterPolicyItemEvaluators(policy, serviceDef, options, policy.getRowFilterPolicyItems());
+		} else {
+			allowEvaluators          = Collections.<RangerPolicyItemEvaluator>emptyList();
+			denyEvaluators           = Collections.<RangerPolicyItemEvaluator>emptyList();
+			allowExceptionEvaluators = Collections.<RangerPolicyItemEvaluator>emptyList();
+			denyExceptionEvaluators  = Collections.<RangerPolicyItemEvaluator>emptyList();
+			dataMaskEvaluators       = Collections.<RangerDataMaskPolicyItemEvaluator>emptyList();
+			rowFilterEvaluators      = Collections.<RangerRowFilterPolicyItemEvaluator>emptyList();
+		}
+
+		RangerPolicyItemEvaluator.EvalOrderComparator comparator = new RangerPolicyItemEvaluator.EvalOrderComparator();
+		Collections.sort(allowEvaluators, comparator);
+		Collections.sort(denyEvaluators, comparator);
+		Collections.sort(allowExceptionEvaluators, comparator);
+		Collections.sort(denyExceptionEvaluators, comparator);
+
+		/* dataMask, rowFilter policyItems must be evaulated in the order given in the policy; hence no sort
+		Collections.sort(dataMaskEvaluators);
+		Collections.sort(rowFilterEvaluators);
+		*/
+
+		if(!options.lazyInitPolicyItemEvaluators) {
+			customConditionsCount = getConditionEvaluatorsCount(allowEvaluators) + getConditionEvaluatorsCount(denyEvaluators)
+			                      + getConditionEvaluatorsCount(allowExceptionEvaluators) + getConditionEvaluatorsCount(denyExceptionEvaluators)
+			                      + getConditionEvaluatorsCount(dataMaskEvaluators) + getConditionEvaluatorsCount(rowFilterEvaluators);
+		}
+
+		policyItemEvaluatorsInitialized = true;
+
+		RangerPerfTracer.log(perf);
+	}
+
+	private static int getConditionEvaluatorsCount(List<? extends RangerPolicyItemEvaluator> itemEvaluators) {
+		int ret = 0;
+
+		for(RangerPolicyItemEvaluator itemEvaluator : itemEvaluators) {
+			if(CollectionUtils.isNotEmpty(itemEvaluator.getConditionEvaluators())) {
+				ret += itemEvaluator.getConditionEvaluators().size();
+			}
+		}
+
+		return ret;
+	}
+
+	// number of condition-evaluators createPolicyItemEvaluators() would create for the policy, without creating them
+	private int getConditionsCount(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyEngineOptions options) {
+		int ret = 0;
+
+		if(!options.disableCustomConditions && serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getPolicyConditions())) {
+			Set<String> conditionNames = new HashSet<>();
+
+			for(RangerPolicyConditionDef conditionDef : serviceDef.getPolicyConditions()) {
+				conditionNames.add(conditionDef.getName());
+			}
+
+			List<RangerPolicyItem> policyItems = new ArrayList<>(policy.getPolicyItems());
+
+			if(isPolicyItemTypeEnabled(serviceDef, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_DENY)) {
+				policyItems.addAll(policy.getDenyPolicyItems());
+				policyItems.addAll(policy.getAllowExceptions());
+				policyItems.addAll(policy.getDenyExceptions());
+			}
+
+			policyItems.addAll(policy.getDataMaskPolicyItems());
+			policyItems.addAll(policy.getRowFilterPolicyItems());
+
+			for(RangerPolicyItem policyItem : policyItems) {
+				if(CollectionUtils.isNotEmpty(policyItem.getConditions())) {
+					for(RangerPolicy.RangerPolicyItemCondition condition : policyItem.getConditions()) {
+						if(conditionNames.contains(condition.getType())) {
+							ret++;
+						}
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
 	private List<RangerPolicyItemEvaluator> createPolicyItemEvaluators(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyEngineOptions options, int policyItemType) {
 		List<RangerPolicyItemEvaluator> ret         = null;
 		List<RangerPolicyItem>          policyItems = null;
@@ -774,10 +878,6 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 				itemEvaluator.init();
 
 				ret.add(itemEvaluator);
-
-				if(CollectionUtils.isNotEmpty(itemEvaluator.getConditionEvaluators())) {
-					customConditionsCount += itemEvaluator.getConditionEvaluators().size();
-				}
 			}
 		} else {
 			ret = Collections.<RangerPolicyItemEvaluator>emptyList();
@@ -800,10 +900,6 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 				itemEvaluator.init();
 
 				ret.add(itemEvaluator);
-
-				if(CollectionUtils.isNotEmpty(itemEvaluator.getConditionEvaluators())) {
-					customConditionsCount += itemEvaluator.getConditionEvaluators().size();
-				}
 			}
 		} else {
 			ret = Collections.<RangerDataMaskPolicyItemEvaluator>emptyList();
@@ -826,10 +922,6 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 				itemEvaluator.init();
 
 				ret.add(itemEvaluator);
-
-				if(CollectionUtils.isNotEmpty(itemEvaluator.getConditionEvaluators())) {
-					customConditionsCount += itemEvaluator.getConditionEvaluators().size();
-				}
 			}
 		} else {
 			ret = Collections.<RangerRowFilterPolicyItemEvaluator>emptyList();
@@ -54,6 +54,9 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 	private boolean hasCurrentUser;
 	private boolean hasResourceOwner;
 	private boolean hasAllPerms;
+	private boolean hasPublicGroup;
+	private Set<String> users  = Collections.emptySet();
+	private Set<String> groups = Collections.emptySet();
 
 	public RangerDefaultPolicyItemEvaluator(RangerServiceDef serviceDef, RangerPolicy policy, RangerPolicyItem policyItem, int policyItemType, int policyItemIndex, RangerPolicyEngineOptions options) {
 		super(serviceDef, policy, policyItem, policyItemType, policyItemIndex, options);
@@ -131,6 +134,12 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 		this.hasCurrentUser = CollectionUtils.isNotEmpty(users) && users.contains(RangerPolicyEngine.USER_CURRENT);
 		this.hasResourceOwner = CollectionUtils.isNotEmpty(users) && users.contains(RangerPolicyEngine.RESOURCE_OWNER);
 
+		// compile users/groups into hash-sets, so that matchUserGroup() doesn't scan the lists for every request
+		List<String> groups = policyItem.getGroups();
+		this.hasPublicGroup = CollectionUtils.isNotEmpty(groups) && groups.contains(RangerPolicyEngine.GROUP_PUBLIC);
+		this.users          = CollectionUtils.isNotEmpty(users) ? new HashSet<>(users) : Collections.<String>emptySet();
+		this.groups         = CollectionUtils.isNotEmpty(groups) ? new HashSet<>(groups) : Collections.<String>emptySet();
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerDefaultPolicyItemEvaluator(policyId=" + policyId + ", conditionsCount=" + getConditionEvaluators().size() + ")");
 		}
@@ -209,12 +218,11 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 
 		if(policyItem != null) {
 			if(!ret && user != null && policyItem.getUsers() != null) {
-				ret = hasCurrentUser || policyItem.getUsers().contains(user);
+				ret = hasCurrentUser || users.contains(user);
 			}
 
 			if(!ret && userGroups != null && policyItem.getGroups() != null) {
-				ret = policyItem.getGroups().contains(RangerPolicyEngine.GROUP_PUBLIC) ||
-						!Collections.disjoint(policyItem.getGroups(), userGroups);
+				ret = hasPublicGroup || containsAny(groups, userGroups);
 			}
 		}
 
@@ -225,6 +233,34 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 		return ret;
 	}
 
+	// probes the larger set with the elements of the smaller one
+	private static boolean containsAny(Set<String> itemGroups, Set<String> userGroups) {
+		boolean ret = false;
+
+		if (!itemGroups.isEmpty() && !userGroups.isEmpty()) {
+			final Set<String> toIterate;
+			final Set<String> toProbe;
+
+			if (userGroups.size() <= itemGroups.size()) {
+				toIterate = userGroups;
+				toProbe   = itemGroups;
+			} else {
+				toIterate = itemGroups;
+				toProbe   = userGroups;
+			}
+
+			for (String group : toIterate) {
+				if (toProbe.contains(group)) {
+					ret = true;
+
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
 	private boolean matchUserGroupAndOwner(RangerAccessRequest request) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerDefaultPolicyItemEvaluator.matchUserGroupAndOwner(" + request + ")");
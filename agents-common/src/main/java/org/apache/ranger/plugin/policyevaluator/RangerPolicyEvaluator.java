@@ -55,13 +55,26 @@ public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
 
 	int getEvalOrder();
 
+	/*
+	 * usage count used to order evaluators: counts of earlier intervals decay by half at every updateUsageCount()
+	 */
 	long getUsageCount();
 
+	long getTotalUsageCount();
+
 	void incrementUsageCount(int number);
 
-	void setUsageCountImmutable();
+	/*
+	 * adds the count since the previous call to the decayed usage count returned by getUsageCount()
+	 */
+	void updateUsageCount();
+
+	/*
+	 * position of this evaluator in PolicyEvalOrderComparator order, among evaluators of the same policy-type
+	 */
+	int getEvalRank();
 
-	void resetUsageCount();
+	void setEvalRank(int evalRank);
 
 	int getCustomConditionsCount();
 
@@ -25,13 +25,12 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.util.RangerWildcardMatcher;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 
 
@@ -426,26 +425,38 @@ final class CaseInsensitiveEndsWithMatcher extends ResourceMatcher {
 }
 
 final class CaseSensitiveWildcardMatcher extends ResourceMatcher {
+	private final RangerWildcardMatcher wildcardMatcher;
+
 	CaseSensitiveWildcardMatcher(String value) {
 		super(value);
+
+		wildcardMatcher = RangerWildcardMatcher.compile(value, false);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		final RangerWildcardMatcher matcher = getNeedsDynamicEval() ? getExpandedWildcardMatcher(evalContext, false) : wildcardMatcher;
+
+		return matcher.isMatch(resourceValue);
 	}
 	int getPriority() { return 5 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
 }
 
 
 final class CaseInsensitiveWildcardMatcher extends ResourceMatcher {
+	private final RangerWildcardMatcher wildcardMatcher;
+
 	CaseInsensitiveWildcardMatcher(String value) {
 		super(value);
+
+		wildcardMatcher = RangerWildcardMatcher.compile(value, true);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		final RangerWildcardMatcher matcher = getNeedsDynamicEval() ? getExpandedWildcardMatcher(evalContext, true) : wildcardMatcher;
+
+		return matcher.isMatch(resourceValue);
 	}
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
 }
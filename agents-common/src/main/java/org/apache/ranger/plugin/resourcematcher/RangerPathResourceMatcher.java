@@ -26,6 +26,7 @@ import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerWildcardMatcher;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 
 import java.util.ArrayList;
@@ -140,6 +141,76 @@ public class RangerPathResourceMatcher extends RangerDefaultResourceMatcher {
 		return ret;
 	}
 
+	/*
+	 * Matches the policy against each ancestor of pathToCheck, i.e. /a, /a/b, /a/b/c for /a/b/c, shortest first. The
+	 * ancestors are regions of pathToCheck ending just before a pathSeparatorChar, so the path is scanned once and
+	 * each region is given to the compiled matcher without creating a substring. Paths with consecutive separators
+	 * are handled by isRecursiveWildCardMatchOfElements(), as their ancestors (built from the non-empty elements)
+	 * aren't regions of pathToCheck.
+	 */
+	static boolean isRecursiveWildCardMatch(String pathToCheck, RangerWildcardMatcher wildcardMatcher, char pathSeparatorChar) {
+		final int len = pathToCheck != null ? pathToCheck.length() : 0;
+
+		if (len == 0) {
+			return false;
+		}
+
+		char prevChar = pathToCheck.charAt(0);
+
+		for (int i = 1; i < len; i++) {
+			final char c = pathToCheck.charAt(i);
+
+			if (c == pathSeparatorChar) {
+				if (prevChar == pathSeparatorChar) {
+					return isRecursiveWildCardMatchOfElements(pathToCheck, wildcardMatcher, pathSeparatorChar);
+				}
+
+				if (wildcardMatcher.isMatch(pathToCheck, i)) {
+					return true;
+				}
+			}
+
+			prevChar = c;
+		}
+
+		// the full path; when it ends with pathSeparatorChar, it was matched above without the trailing separator
+		return prevChar != pathSeparatorChar ? wildcardMatcher.isMatch(pathToCheck, len)
+		                                     : len == 1 && wildcardMatcher.isMatch(pathToCheck); // pathToCheck consists of only pathSeparatorChar
+	}
+
+	static boolean isRecursiveWildCardMatchOfElements(String pathToCheck, RangerWildcardMatcher wildcardMatcher, char pathSeparatorChar) {
+
+		boolean ret = false;
+
+		if (! StringUtils.isEmpty(pathToCheck)) {
+			String[] pathElements = StringUtils.split(pathToCheck, pathSeparatorChar);
+
+			if(! ArrayUtils.isEmpty(pathElements)) {
+				StringBuilder sb = new StringBuilder();
+
+				if(pathToCheck.charAt(0) == pathSeparatorChar) {
+					sb.append(pathSeparatorChar); // preserve the initial pathSeparatorChar
+				}
+
+				for(String p : pathElements) {
+					sb.append(p);
+
+					ret = wildcardMatcher.isMatch(sb.toString());
+
+					if (ret) {
+						break;
+					}
+
+					sb.append(pathSeparatorChar);
+				}
+			} else { // pathToCheck consists of only pathSeparatorChar
+				ret = wildcardMatcher.isMatch(pathToCheck);
+			}
+		}
+		return ret;
+	}
+
+	// earlier implementation, using FilenameUtils.wildcardMatch(); retained for comparison with the compiled matcher
 	static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
 
 		boolean ret = false;
@@ -188,29 +259,39 @@ public class RangerPathResourceMatcher extends RangerDefaultResourceMatcher {
 }
 
 final class CaseSensitiveRecursiveWildcardMatcher extends ResourceMatcher {
-	private final char levelSeparatorChar;
+	private final char                  levelSeparatorChar;
+	private final RangerWildcardMatcher wildcardMatcher;
+
 	CaseSensitiveRecursiveWildcardMatcher(String value, char levelSeparatorChar) {
 		super(value);
 		this.levelSeparatorChar = levelSeparatorChar;
+		this.wildcardMatcher    = RangerWildcardMatcher.compile(value, false);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return RangerPathResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
+		final RangerWildcardMatcher matcher = getNeedsDynamicEval() ? getExpandedWildcardMatcher(evalContext, false) : wildcardMatcher;
+
+		return RangerPathResourceMatcher.isRecursiveWildCardMatch(resourceValue, matcher, levelSeparatorChar);
 	}
 	int getPriority() { return 7 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
 }
 
 final class CaseInsensitiveRecursiveWildcardMatcher extends ResourceMatcher {
-	private final char levelSeparatorChar;
+	private final char                  levelSeparatorChar;
+	private final RangerWildcardMatcher wildcardMatcher;
+
 	CaseInsensitiveRecursiveWildcardMatcher(String value, char levelSeparatorChar) {
 		super(value);
 		this.levelSeparatorChar = levelSeparatorChar;
+		this.wildcardMatcher    = RangerWildcardMatcher.compile(value, true);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return RangerPathResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
+		final RangerWildcardMatcher matcher = getNeedsDynamicEval() ? getExpandedWildcardMatcher(evalContext, true) : wildcardMatcher;
+
+		return RangerPathResourceMatcher.isRecursiveWildCardMatch(resourceValue, matcher, levelSeparatorChar);
 	}
 	int getPriority() { return 8 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
 
@@ -21,10 +21,14 @@ package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerWildcardMatcher;
 import org.apache.ranger.plugin.util.StringTokenReplacer;
 
 import java.io.Serializable;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 abstract class ResourceMatcher {
@@ -33,6 +37,8 @@ abstract class ResourceMatcher {
     protected final String value;
     protected StringTokenReplacer tokenReplacer;
 
+    private String[] tokenKeys; // context keys of the tokens referenced in value
+
     static final int DYNAMIC_EVALUATION_PENALTY = 8;
 
     ResourceMatcher(String value) { this.value = value; }
@@ -59,6 +65,14 @@ abstract class ResourceMatcher {
 
         if(value != null && (value.indexOf(escapeChar) != -1 || (value.indexOf(startDelimiterChar) != -1 && value.indexOf(endDelimiterChar) != -1))) {
             tokenReplacer = new StringTokenReplacer(startDelimiterChar, endDelimiterChar, escapeChar, tokenPrefix);
+
+            List<String> tokenNames = tokenReplacer.getTokenNames(value);
+
+            tokenKeys = new String[tokenNames.size()];
+
+            for (int i = 0; i < tokenKeys.length; i++) {
+                tokenKeys[i] = RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE + tokenNames.get(i);
+            }
         }
 
         if(LOG.isDebugEnabled()) {
@@ -71,7 +85,9 @@ abstract class ResourceMatcher {
         final String ret;
 
         if(tokenReplacer != null) {
-            ret = tokenReplacer.replaceTokens(value, evalContext);
+            ExpandedValue expandedValue = getExpandedValueEntry(evalContext);
+
+            ret = expandedValue != null ? expandedValue.value : tokenReplacer.replaceTokens(value, evalContext);
         } else {
             ret = value;
         }
@@ -79,6 +95,110 @@ abstract class ResourceMatcher {
         return ret;
     }
 
+    RangerWildcardMatcher getExpandedWildcardMatcher(Map<String, Object> evalContext, boolean ignoreCase) {
+        final RangerWildcardMatcher ret;
+
+        ExpandedValue expandedValue = tokenReplacer != null ? getExpandedValueEntry(evalContext) : null;
+
+        if (expandedValue != null) {
+            RangerWildcardMatcher matcher = expandedValue.wildcardMatcher;
+
+            if (matcher == null || matcher.isIgnoreCase() != ignoreCase) {
+                matcher = RangerWildcardMatcher.compile(expandedValue.value, ignoreCase);
+
+                expandedValue.wildcardMatcher = matcher;
+            }
+
+            ret = matcher;
+        } else {
+            ret = RangerWildcardMatcher.compile(getExpandedValue(evalContext), ignoreCase);
+        }
+
+        return ret;
+    }
+
+    /*
+     * Expansion of the tokens in value depends only on the values of the referenced tokens in the context. For a
+     * request, the same matcher is often evaluated once per resource value (like for each column of a table). The
+     * expansion is cached in the request context, and reused while the token values are unchanged - as contexts are
+     * mutable and may be reused by callers.
+     */
+    private ExpandedValue getExpandedValueEntry(Map<String, Object> evalContext) {
+        if (evalContext == null || evalContext.isEmpty()) { // replaceTokens() leaves value unchanged in this case
+            return null;
+        }
+
+        final ExpandedValues expandedValues = getExpandedValues(evalContext);
+
+        if (expandedValues == null) { // read-only context
+            return null;
+        }
+
+        final String[] keys       = tokenKeys;
+        ExpandedValue  ret        = expandedValues.get(this);
+        boolean        isReusable = ret != null;
+
+        for (int i = 0; isReusable && i < keys.length; i++) {
+            Object tokenValue = evalContext.get(keys[i]);
+            Object cached     = ret.tokenValues[i];
+
+            isReusable = tokenValue == cached || (tokenValue != null && tokenValue.equals(cached));
+        }
+
+        if (!isReusable) {
+            Object[] tokenValues = new Object[keys.length];
+
+            for (int i = 0; i < keys.length; i++) {
+                tokenValues[i] = evalContext.get(keys[i]);
+            }
+
+            ret = new ExpandedValue(tokenValues, tokenReplacer.replaceTokens(value, evalContext));
+
+            expandedValues.put(this, ret);
+        }
+
+        return ret;
+    }
+
+    private static ExpandedValues getExpandedValues(Map<String, Object> evalContext) {
+        Object         val = evalContext.get(RangerAccessRequestUtil.KEY_CONTEXT_TOKEN_EXPANSIONS);
+        ExpandedValues ret;
+
+        if (val instanceof ExpandedValues) {
+            ret = (ExpandedValues) val;
+        } else {
+            ret = new ExpandedValues();
+
+            try {
+                evalContext.put(RangerAccessRequestUtil.KEY_CONTEXT_TOKEN_EXPANSIONS, ret);
+            } catch (UnsupportedOperationException excp) {
+                ret = null;
+            }
+        }
+
+        return ret;
+    }
+
+    private static final class ExpandedValues extends IdentityHashMap<ResourceMatcher, ExpandedValue> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String toString() {
+            return "ExpandedValues(size=" + size() + ")";
+        }
+    }
+
+    private static final class ExpandedValue {
+        final Object[]        tokenValues;
+        final String          value;
+        RangerWildcardMatcher wildcardMatcher;
+
+        ExpandedValue(Object[] tokenValues, String value) {
+            this.tokenValues = tokenValues;
+            this.value       = value;
+        }
+    }
+
     public static class PriorityComparator implements Comparator<ResourceMatcher>, Serializable {
         @Override
         public int compare(ResourceMatcher me, ResourceMatcher other) {
@@ -20,6 +20,7 @@
 package org.apache.ranger.plugin.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Map;
@@ -61,12 +62,13 @@ public class RangerBasePlugin {
 	private String                    serviceName;
 	private String                    clusterName;
 	private PolicyRefresher           refresher;
-	private RangerPolicyEngine        policyEngine;
+	private volatile RangerPolicyEngine policyEngine;
 	private RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
 	private RangerAccessResultProcessor resultProcessor;
 	private boolean                   useForwardedIPAddress;
 	private String[]                  trustedProxyAddresses;
 	private Timer                     policyEngineRefreshTimer;
+	private RangerSharedPolicyEngine  sharedPolicyEngine;
 
 	Map<String, LogHistory> logHistoryList = new Hashtable<String, RangerBasePlugin.LogHistory>();
 	int logInterval = 30000; // 30 seconds
@@ -117,8 +119,6 @@ public class RangerBasePlugin {
 		configuration.initAudit(appId);
 
 		String propertyPrefix    = "ranger.plugin." + serviceType;
-		long   pollingIntervalMs = configuration.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000);
-		String cacheDir          = configuration.get(propertyPrefix + ".policy.cache.dir");
 		serviceName = configuration.get(propertyPrefix + ".service.name");
 		clusterName = RangerConfiguration.getInstance().get(propertyPrefix + ".ambari.cluster.name", "");
 
@@ -143,10 +143,33 @@ public class RangerBasePlugin {
 
 		policyEngineOptions.configureForPlugin(configuration, propertyPrefix);
 
+		boolean sharePolicyEngine = configuration.getBoolean(propertyPrefix + ".policy.engine.shared", false);
+
+		if (sharePolicyEngine) {
+			// plugins of the same appId for the same service, with same policy-engine configuration, share the refresher and the policy engine.
+			// appId is part of the key as the refresher, the policy cache file and the context enrichers are set up with it.
+			// options are copied, as the policy engine updates them (like evaluatorType) during initialization
+			Object sharedPolicyEngineKey = Arrays.asList(serviceType, serviceName, appId, new RangerPolicyEngineOptions(policyEngineOptions), useForwardedIPAddress,
+			                                             trustedProxyAddresses == null ? null : Arrays.asList(trustedProxyAddresses));
+
+			sharedPolicyEngine = RangerSharedPolicyEngine.join(sharedPolicyEngineKey, this);
+		} else {
+			startPolicyRefresher(null);
+		}
+	}
+
+	void startPolicyRefresher(RangerSharedPolicyEngine sharedPolicyEngine) {
+		RangerConfiguration configuration = RangerConfiguration.getInstance();
+
+		String propertyPrefix    = "ranger.plugin." + serviceType;
+		long   pollingIntervalMs = configuration.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000);
+		String cacheDir          = configuration.get(propertyPrefix + ".policy.cache.dir");
+
+		this.sharedPolicyEngine = sharedPolicyEngine;
+
 		RangerAdminClient admin = createAdminClient(serviceName, appId, propertyPrefix);
 
 		refresher = new PolicyRefresher(this, serviceType, appId, serviceName, admin, pollingIntervalMs, cacheDir);
-		refresher.setDaemon(true);
 		refresher.startRefresher();
 
 		long policyReorderIntervalMs = configuration.getLong(propertyPrefix + ".policy.policyReorderInterval", 60 * 1000);
@@ -188,13 +211,32 @@ public class RangerBasePlugin {
 			if (policies == null) {
 				this.policyEngine = null;
 			} else {
-				RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(appId, policies, policyEngineOptions);
+				RangerPolicyEngine policyEngine = null;
+
+				if (oldPolicyEngine instanceof RangerPolicyEngineImpl && !policyEngineOptions.disableIncrementalPolicyUpdate) {
+					try {
+						policyEngine = ((RangerPolicyEngineImpl) oldPolicyEngine).cloneWithDelta(policies);
+					} catch (Exception e) {
+						LOG.warn("setPolicies: failed to update policy engine with changed policies. Creating a new policy engine", e);
+					}
+				}
+
+				if (policyEngine == null) {
+					policyEngine = new RangerPolicyEngineImpl(appId, policies, policyEngineOptions);
+				}
+
 				policyEngine.setUseForwardedIPAddress(useForwardedIPAddress);
 				policyEngine.setTrustedProxyAddresses(trustedProxyAddresses);
 
 				this.policyEngine = policyEngine;
 			}
 
+			RangerSharedPolicyEngine sharedPolicyEngine = this.sharedPolicyEngine;
+
+			if (sharedPolicyEngine != null) {
+				sharedPolicyEngine.setPolicyEngine(this.policyEngine);
+			}
+
 			if (oldPolicyEngine != null && !oldPolicyEngine.preCleanup()) {
 				LOG.error("preCleanup() failed on the previous policy engine instance !!");
 			}
@@ -205,14 +247,30 @@ public class RangerBasePlugin {
 
 	public void cleanup() {
 
-		PolicyRefresher refresher = this.refresher;
+		RangerSharedPolicyEngine sharedPolicyEngine = this.sharedPolicyEngine;
+
+		// leave() stops the refresher of this plugin, if it is the owner, before handing it over to another plugin
+		boolean isLastUser = sharedPolicyEngine == null || sharedPolicyEngine.leave(this);
+
+		stopPolicyRefresher();
 
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
+		this.serviceName        = null;
+		this.policyEngine       = null;
+		this.sharedPolicyEngine = null;
+
+		if (policyEngine != null && isLastUser) {
+			policyEngine.cleanup();
+		}
+
+	}
+
+	void stopPolicyRefresher() {
+		PolicyRefresher refresher = this.refresher;
+
 		Timer policyEngineRefreshTimer = this.policyEngineRefreshTimer;
 
-		this.serviceName  = null;
-		this.policyEngine = null;
 		this.refresher    = null;
 		this.policyEngineRefreshTimer = null;
 
@@ -223,11 +281,14 @@ public class RangerBasePlugin {
 		if (policyEngineRefreshTimer != null) {
 			policyEngineRefreshTimer.cancel();
 		}
+	}
 
-		if (policyEngine != null) {
-			policyEngine.cleanup();
-		}
+	RangerPolicyEngine getPolicyEngine() {
+		return policyEngine;
+	}
 
+	void setPolicyEngine(RangerPolicyEngine policyEngine) {
+		this.policyEngine = policyEngine;
 	}
 
 	public void setResultProcessor(RangerAccessResultProcessor resultProcessor) {
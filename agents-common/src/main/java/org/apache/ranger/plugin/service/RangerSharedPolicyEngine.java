@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+
+/*
+ * Policy engine shared by RangerBasePlugin instances in a JVM that have the same appId and are configured for the same
+ * service with same policy-engine options. Only one of the plugins - the owner - runs the policy refresher; each policy engine it builds
+ * is made available to all plugins. When the owner leaves, another plugin takes over the refresher; the policy engine
+ * is cleaned up when the last plugin leaves.
+ */
+class RangerSharedPolicyEngine {
+	private static final Log LOG = LogFactory.getLog(RangerSharedPolicyEngine.class);
+
+	private static final Map<Object, RangerSharedPolicyEngine> registry = new HashMap<>();
+
+	private final Object                 key;
+	private final List<RangerBasePlugin> plugins       = new CopyOnWriteArrayList<>();
+	private final Object                 refresherLock = new Object();
+	private volatile RangerBasePlugin    owner;
+	private RangerBasePlugin             refresherOwner; // plugin whose refresher is running; guarded by refresherLock
+	private RangerPolicyEngine           policyEngine;
+
+	private RangerSharedPolicyEngine(Object key) {
+		this.key = key;
+	}
+
+	/*
+	 * adds the plugin to the shared engine for the given key, creating one if necessary. When created, the given plugin
+	 * becomes the owner and its policy refresher is started.
+	 *
+	 * Starting a refresher downloads policies from Ranger Admin, so it is done outside the registry lock - to not hold
+	 * up plugins of other services. Refresher starts and stops of a shared engine are serialized by refresherLock
+	 */
+	static RangerSharedPolicyEngine join(Object key, RangerBasePlugin plugin) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerSharedPolicyEngine.join(" + key + ")");
+		}
+
+		RangerSharedPolicyEngine ret;
+
+		synchronized (registry) {
+			ret = registry.get(key);
+
+			if (ret == null) {
+				ret = new RangerSharedPolicyEngine(key);
+
+				registry.put(key, ret);
+			}
+
+			if (ret.owner == null) {
+				ret.owner = plugin;
+
+				ret.plugins.add(plugin);
+			} else {
+				ret.addPlugin(plugin);
+			}
+		}
+
+		// for a plugin that isn't the owner this waits for the owner's refresher to start, i.e. for the first policy engine
+		ret.updatePolicyRefresher();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerSharedPolicyEngine.join(" + key + "): pluginCount=" + ret.plugins.size());
+		}
+
+		return ret;
+	}
+
+	/*
+	 * removes the plugin from this shared engine. If the plugin is the owner, its policy refresher is stopped and
+	 * another plugin is made the owner.
+	 *
+	 * returns true if this was the last plugin, in which case the caller should cleanup the policy engine
+	 */
+	boolean leave(RangerBasePlugin plugin) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerSharedPolicyEngine.leave(" + key + ")");
+		}
+
+		final boolean ret;
+		boolean       wasOwner = false;
+
+		synchronized (registry) {
+			plugins.remove(plugin);
+
+			if (owner == plugin) {
+				owner = plugins.isEmpty() ? null : plugins.get(0);
+
+				wasOwner = true;
+			}
+
+			ret = plugins.isEmpty();
+
+			if (ret) {
+				registry.remove(key);
+			}
+		}
+
+		if (wasOwner) {
+			updatePolicyRefresher();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerSharedPolicyEngine.leave(" + key + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * moves the refresher to the current owner: stops the refresher that runs for an earlier owner, if any, and starts
+	 * the current owner's. The owner is read under refresherLock, so joins and leaves that interleave end up with
+	 * exactly one refresher running - for the latest owner
+	 */
+	private void updatePolicyRefresher() {
+		synchronized (refresherLock) {
+			RangerBasePlugin owner = this.owner;
+
+			if (refresherOwner != owner) {
+				if (refresherOwner != null) {
+					refresherOwner.stopPolicyRefresher();
+				}
+
+				refresherOwner = owner;
+
+				if (owner != null) {
+					owner.startPolicyRefresher(this);
+				}
+			}
+		}
+	}
+
+	/*
+	 * called when the owner's policy refresher builds a new policy engine
+	 */
+	synchronized void setPolicyEngine(RangerPolicyEngine policyEngine) {
+		this.policyEngine = policyEngine;
+
+		for (RangerBasePlugin plugin : plugins) {
+			plugin.setPolicyEngine(policyEngine);
+		}
+	}
+
+	// synchronized with setPolicyEngine(), so that the plugin doesn't miss an engine published concurrently
+	private synchronized void addPlugin(RangerBasePlugin plugin) {
+		plugins.add(plugin);
+
+		plugin.setPolicyEngine(policyEngine);
+	}
+
+	int getPluginCount() {
+		return plugins.size();
+	}
+
+	static int getSharedPolicyEngineCount() {
+		synchronized (registry) {
+			return registry.size();
+		}
+	}
+}
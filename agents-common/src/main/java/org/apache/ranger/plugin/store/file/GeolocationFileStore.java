@@ -26,15 +26,16 @@ import org.apache.ranger.plugin.geo.GeolocationMetadata;
 import org.apache.ranger.plugin.store.GeolocationStore;
 import org.apache.ranger.plugin.geo.RangerGeolocationDatabase;
 import org.apache.ranger.plugin.geo.RangerGeolocationData;
+import org.apache.ranger.plugin.geo.RangerGeolocationIndex;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -134,22 +135,22 @@ public class GeolocationFileStore implements GeolocationStore {
 		return ret;
 	}
 
-	private Reader getReader(String dataFileName) throws IOException {
-		Reader ret = null;
+	private InputStream getInputStream(String dataFileName) throws IOException {
+		InputStream ret = null;
 
 		File f = new File(dataFileName);
 
 		if(f.exists() && f.canRead()) {
 			LOG.info("GeolocationFileStore: reading location data from file '" + dataFileName + "'");
 
-			ret = new FileReader(dataFileName);
+			ret = new FileInputStream(dataFileName);
 		} else {
 			InputStream inStr = this.getClass().getResourceAsStream(dataFileName);
 
 			if(inStr != null) {
 				LOG.info("GeolocationFileStore: reading location data from resource '" + dataFileName + "'");
 
-				ret = new InputStreamReader(inStr);
+				ret = inStr;
 			}
 		}
 
@@ -157,7 +158,7 @@ public class GeolocationFileStore implements GeolocationStore {
 			throw new FileNotFoundException(dataFileName);
 		}
 
-		return ret;
+		return new BufferedInputStream(ret);
 	}
 
 	RangerGeolocationDatabase build(String dataFileName) {
@@ -170,25 +171,48 @@ public class GeolocationFileStore implements GeolocationStore {
 		start = System.currentTimeMillis();
 
 		try {
-			bufferedReader = new BufferedReader(getReader(dataFileName));
+			File dataFile = new File(dataFileName);
+
+			if (RangerGeolocationIndex.isIndexFile(dataFile)) { // binary index: range arrays are memory-mapped, not read into heap
+				LOG.info("GeolocationFileStore: mapping location index file '" + dataFileName + "'");
+
+				database = new RangerGeolocationDatabase();
+				database.setIndex(RangerGeolocationIndex.load(dataFile));
+			} else {
+				InputStream inStream = getInputStream(dataFileName);
+
+				if (RangerGeolocationIndex.isIndexStream(inStream)) {
+					database = new RangerGeolocationDatabase();
+					database.setIndex(RangerGeolocationIndex.load(inStream));
+
+					inStream.close();
+				} else {
+					bufferedReader = new BufferedReader(new InputStreamReader(inStream));
+
+					RangerGeolocationIndex.Builder indexBuilder = new RangerGeolocationIndex.Builder();
 
-			database  = new RangerGeolocationDatabase();
+					String line;
+					int lineNumber = 0;
+					isMetalineProcessed = false;
 
-			String line;
-			int lineNumber = 0;
-			isMetalineProcessed = false;
+					while(( line = bufferedReader.readLine()) != null) {
+						lineNumber++;
+						if (!processLine(lineNumber, line, indexBuilder)) {
+							LOG.error("RangerGeolocationDatabaseBuilder.build() - Invalid geo-specification - " + lineNumber + ":" + line);
+							indexBuilder = null;
+							break;
+						}
+					}
+
+					bufferedReader.close();
+					bufferedReader = null;
 
-			while(( line = bufferedReader.readLine()) != null) {
-				lineNumber++;
-				if (!processLine(lineNumber, line, database)) {
-					LOG.error("RangerGeolocationDatabaseBuilder.build() - Invalid geo-specification - " + lineNumber + ":" + line);
-					database = null;
-					break;
+					if (indexBuilder != null) {
+						database = new RangerGeolocationDatabase();
+						database.setIndex(indexBuilder.build());
+					}
 				}
 			}
-
-			bufferedReader.close();
-			bufferedReader = null;
 		}
 		catch(FileNotFoundException ex) {
 			LOG.error("RangerGeolocationDatabaseBuilder.build() - Unable to open file '" + dataFileName + "'");
@@ -213,14 +237,10 @@ public class GeolocationFileStore implements GeolocationStore {
 			LOG.debug("RangerGeolocationDatabaseBuilder.build() - Time taken for reading file = " + (end - start) + " milliseconds");
 		}
 
-		if (database != null) {
-			database.optimize();
-		}
-
 		return database;
 	}
 
-	private boolean processLine(int lineNumber, String line, RangerGeolocationDatabase database) {
+	private boolean processLine(int lineNumber, String line, RangerGeolocationIndex.Builder indexBuilder) {
 
 		boolean ret = true;
 
@@ -232,7 +252,7 @@ public class GeolocationFileStore implements GeolocationStore {
 				if (!isMetalineProcessed) {
 					GeolocationMetadata metadata = GeolocationMetadata.create(fields, lineNumber);
 					if (metadata != null) {
-						database.setMetadata(metadata);
+						indexBuilder.setAttributeNames(metadata.getLocationDataItemNames());
 						isMetalineProcessed = true;
 					} else {
 						LOG.error("GeolocationFileStore.processLine() - Invalid metadata specification " + lineNumber + ":" + line);
@@ -241,7 +261,7 @@ public class GeolocationFileStore implements GeolocationStore {
 				} else {
 					RangerGeolocationData data = RangerGeolocationData.create(fields, lineNumber, useDotFormat);
 					if (data != null) {
-						database.getData().insert(data);
+						indexBuilder.add(data.getFromIPAddress(), data.getToIPAddress(), data.getLocationData());
 					} else {
 						LOG.error("GeolocationFileStore.processLine() - Invalid data specification " + lineNumber + ":" + line);
 					}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.store.file;
+
+import org.apache.ranger.plugin.geo.RangerGeolocationDatabase;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Converts a geolocation CSV file, as read by GeolocationFileStore, to the binary index format of
+ * RangerGeolocationIndex. GeolocationFileStore memory-maps such files when given in FilePath option.
+ */
+public class GeolocationIndexConverter {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: " + GeolocationIndexConverter.class.getName() + " <csv-file> <index-file> [ipInDotFormat=true|false]");
+
+			System.exit(1);
+		}
+
+		int ret = convert(args[0], args[1], args.length < 3 || Boolean.parseBoolean(args[2])) ? 0 : 1;
+
+		System.exit(ret);
+	}
+
+	public static boolean convert(String csvFileName, String indexFileName, boolean ipInDotFormat) throws IOException {
+		Map<String, String> context = new HashMap<>();
+
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, csvFileName);
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_REINIT, "true");
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_IP_IN_DOT_FORMAT, Boolean.toString(ipInDotFormat));
+
+		GeolocationFileStore store = new GeolocationFileStore();
+
+		store.init(context);
+
+		RangerGeolocationDatabase database = store.getGeoDatabase();
+
+		if (database == null) {
+			System.err.println("failed to read " + csvFileName);
+
+			return false;
+		}
+
+		try (OutputStream out = new FileOutputStream(indexFileName)) {
+			database.getIndex().writeTo(out);
+		}
+
+		System.out.println("wrote " + database.getIndex().size() + " ranges to " + indexFileName);
+
+		return true;
+	}
+}
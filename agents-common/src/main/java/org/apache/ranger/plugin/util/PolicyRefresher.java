@@ -19,10 +19,16 @@
 
 package org.apache.ranger.plugin.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 
 import org.apache.commons.lang.StringUtils;
@@ -36,7 +42,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 
-public class PolicyRefresher extends Thread {
+public class PolicyRefresher implements RangerRefreshScheduler.RefreshTask {
 	private static final Log LOG = LogFactory.getLog(PolicyRefresher.class);
 
 	private static final Log PERF_POLICYENGINE_INIT_LOG = RangerPerfTracer.getPerfLogger("policyengine.init");
@@ -46,15 +52,20 @@ public class PolicyRefresher extends Thread {
 	private final String            serviceName;
 	private final RangerAdminClient rangerAdmin;
 	private final String            cacheFileName;
+	private final String            snapshotFileName;
 	private final String            cacheDir;
 	private final Gson              gson;
 	private final boolean           disableCacheIfServiceNotFound;
+	private final boolean           useBinaryFormatForCache;
+	private final boolean           loadCacheFirst;
 
 	private long 	pollingIntervalMs   = 30 * 1000;
 	private long 	lastKnownVersion    = -1L;
 	private long	lastActivationTimeInMillis;
 	private boolean policiesSetInPlugin;
 	private boolean serviceDefSetInPlugin;
+	private ServicePolicies lastKnownServicePolicies;
+	private Exception       lastRefreshFailure;
 
 	public PolicyRefresher(RangerBasePlugin plugIn, String serviceType, String appId, String serviceName, RangerAdminClient rangerAdmin, long pollingIntervalMs, String cacheDir) {
 		if(LOG.isDebugEnabled()) {
@@ -75,7 +86,8 @@ public class PolicyRefresher extends Thread {
 		cacheFilename = cacheFilename.replace(File.separatorChar,  '_');
 		cacheFilename = cacheFilename.replace(File.pathSeparatorChar,  '_');
 
-		this.cacheFileName = cacheFilename;
+		this.cacheFileName    = cacheFilename;
+		this.snapshotFileName = cacheFilename.substring(0, cacheFilename.length() - ".json".length()) + ".snapshot";
 		this.cacheDir = cacheDir;
 
 		Gson gson = null;
@@ -88,6 +100,8 @@ public class PolicyRefresher extends Thread {
 
 		String propertyPrefix    = "ranger.plugin." + serviceType;
 		disableCacheIfServiceNotFound = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+		useBinaryFormatForCache       = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.cache.binary.format", false);
+		loadCacheFirst                = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.cache.load.first", false);
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").PolicyRefresher()");
@@ -145,40 +159,40 @@ public class PolicyRefresher extends Thread {
 	}
 
 	public void startRefresher() {
+		boolean isLoadedFromCache = loadCacheFirst && loadPolicyFromCache();
 
-		loadPolicy();
+		if(!isLoadedFromCache) {
+			loadPolicy();
+		}
 
-		super.start();
+		// policies loaded from the cache can be stale; refresh them from Ranger Admin in the background right away
+		RangerRefreshScheduler.getInstance().register(this, isLoadedFromCache);
 	}
 
 	public void stopRefresher() {
-		super.interrupt();
-
-	    try {
-	        super.join();
-	      } catch (InterruptedException excp) {
-	        LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): error while waiting for thread to exit", excp);
-	      }
+		RangerRefreshScheduler.getInstance().unregister(this);
 	}
 
-	public void run() {
-
+	/*
+	 * called by RangerRefreshScheduler every pollingIntervalMs. A failure to reach Ranger Admin is rethrown, for the
+	 * scheduler to back off
+	 */
+	@Override
+	public void refresh() throws Exception {
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").run()");
+			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").refresh()");
 		}
 
-		while(true) {
-			loadPolicy();
-			try {
-				Thread.sleep(pollingIntervalMs);
-			} catch(InterruptedException excp) {
-				LOG.info("PolicyRefresher(serviceName=" + serviceName + ").run(): interrupted! Exiting thread", excp);
-				break;
-			}
-		}
+		loadPolicy();
+
+		Exception failure = lastRefreshFailure;
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").run()");
+			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").refresh(): failure=" + failure);
+		}
+
+		if(failure != null) {
+			throw failure;
 		}
 	}
 
@@ -223,6 +237,7 @@ public class PolicyRefresher extends Thread {
 				policiesSetInPlugin = true;
 				setLastActivationTimeInMillis(System.currentTimeMillis());
 				lastKnownVersion = svcPolicies.getPolicyVersion();
+				lastKnownServicePolicies = svcPolicies;
 			} else {
 				if (!policiesSetInPlugin && !serviceDefSetInPlugin) {
 					plugIn.setPolicies(null);
@@ -235,6 +250,7 @@ public class PolicyRefresher extends Thread {
 				plugIn.setPolicies(null);
 				setLastActivationTimeInMillis(System.currentTimeMillis());
 				lastKnownVersion = -1;
+				lastKnownServicePolicies = null;
 				serviceDefSetInPlugin = true;
 			}
 		} catch (Exception excp) {
@@ -260,9 +276,15 @@ public class PolicyRefresher extends Thread {
 			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.loadPolicyFromPolicyAdmin(serviceName=" + serviceName + ")");
 		}
 
+		lastRefreshFailure = null;
+
 		try {
 			svcPolicies = rangerAdmin.getServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis);
 
+			if(RangerPolicyDeltaUtil.isDelta(svcPolicies)) {
+				svcPolicies = applyPolicyDeltas(svcPolicies);
+			}
+
 			boolean isUpdated = svcPolicies != null;
 
 			if(isUpdated) {
@@ -287,6 +309,7 @@ public class PolicyRefresher extends Thread {
 		} catch (Exception excp) {
 			LOG.error("PolicyRefresher(serviceName=" + serviceName + "): failed to refresh policies. Will continue to use last known version of policies (" + lastKnownVersion + ")", excp);
 			svcPolicies = null;
+			lastRefreshFailure = excp;
 		}
 
 		RangerPerfTracer.log(perf);
@@ -298,6 +321,112 @@ public class PolicyRefresher extends Thread {
 		 return svcPolicies;
 	}
 
+	private ServicePolicies applyPolicyDeltas(ServicePolicies policyDeltas) throws Exception {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").applyPolicyDeltas(lastKnownVersion=" + lastKnownVersion + ", newVersion=" + policyDeltas.getPolicyVersion() + ")");
+		}
+
+		final ServicePolicies ret;
+
+		if(lastKnownServicePolicies != null && lastKnownServicePolicies.getPolicyVersion() != null && lastKnownServicePolicies.getPolicyVersion() == lastKnownVersion) {
+			ret = RangerPolicyDeltaUtil.applyDeltas(lastKnownServicePolicies, policyDeltas);
+		} else {
+			LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): policies of version " + lastKnownVersion + " not available to apply the changes. Downloading all policies");
+
+			ServicePolicies servicePolicies = rangerAdmin.getServicePoliciesIfUpdated(-1L, lastActivationTimeInMillis);
+
+			ret = RangerPolicyDeltaUtil.isDelta(servicePolicies) ? null : servicePolicies;
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").applyPolicyDeltas(lastKnownVersion=" + lastKnownVersion + ", newVersion=" + policyDeltas.getPolicyVersion() + ")");
+		}
+
+		return ret;
+	}
+
+	/*
+	 * sets policies from the snapshot, or from the cache file when there is no usable snapshot, in the plugin without
+	 * waiting for Ranger Admin. The refresher thread then checks with Ranger Admin for changes since that version
+	 */
+	private boolean loadPolicyFromCache() {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").loadPolicyFromCache()");
+		}
+
+		ServicePolicies svcPolicies = null;
+
+		try {
+			svcPolicies = loadFromSnapshot();
+
+			if (svcPolicies == null) {
+				svcPolicies = loadFromCache();
+			}
+
+			if (svcPolicies != null) {
+				plugIn.setPolicies(svcPolicies);
+				policiesSetInPlugin = true;
+				setLastActivationTimeInMillis(System.currentTimeMillis());
+			}
+		} catch (Exception excp) {
+			LOG.error("Encountered unexpected exception while loading policies from cache, ignoring..", excp);
+
+			// policies will be downloaded from Ranger Admin
+			svcPolicies              = null;
+			lastKnownVersion         = -1L;
+			lastKnownServicePolicies = null;
+		}
+
+		boolean ret = svcPolicies != null && policiesSetInPlugin;
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").loadPolicyFromCache(): " + ret);
+		}
+
+		return ret;
+	}
+
+	private ServicePolicies loadFromSnapshot() {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").loadFromSnapshot()");
+		}
+
+		ServicePolicies policies     = null;
+		File            snapshotFile = cacheDir == null ? null : new File(cacheDir + File.separator + snapshotFileName);
+
+		if(snapshotFile != null && snapshotFile.isFile() && snapshotFile.canRead()) {
+			RangerPerfTracer perf = null;
+
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.loadFromSnapshot(serviceName=" + serviceName + ")");
+			}
+
+			try {
+				ServicePoliciesSnapshot snapshot = ServicePoliciesSnapshot.open(snapshotFile);
+
+				if(StringUtils.equals(serviceName, snapshot.getServiceName())) {
+					policies = snapshot.getServicePolicies();
+
+					lastKnownVersion         = snapshot.getPolicyVersion();
+					lastKnownServicePolicies = policies;
+
+					LOG.info("PolicyRefresher(serviceName=" + serviceName + "): loaded policies version " + lastKnownVersion + " from snapshot '" + snapshotFile.getAbsolutePath() + "'; will be verified with Ranger Admin");
+				} else {
+					LOG.warn("ignoring snapshot '" + snapshotFile.getAbsolutePath() + "' of unexpected serviceName '" + snapshot.getServiceName() + "'");
+				}
+			} catch (Exception excp) {
+				LOG.error("failed to load policies from snapshot " + snapshotFile.getAbsolutePath() + ". Will use the cache file", excp);
+			} finally {
+				RangerPerfTracer.log(perf);
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").loadFromSnapshot(): " + (policies != null));
+		}
+
+		return policies;
+	}
 
 	private ServicePolicies loadFromCache() {
 
@@ -310,7 +439,7 @@ public class PolicyRefresher extends Thread {
 		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
     	if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-    		Reader reader = null;
+    		InputStream in = null;
 
     		RangerPerfTracer perf = null;
 
@@ -319,9 +448,14 @@ public class PolicyRefresher extends Thread {
     		}
 
     		try {
-	        	reader = new FileReader(cacheFile);
+	        	in = new BufferedInputStream(new FileInputStream(cacheFile));
 
-		        policies = gson.fromJson(reader, ServicePolicies.class);
+	        	// cache file could be in either format, depending on the configuration when it was saved
+	        	if(ServicePoliciesBinaryCodec.isBinaryFormat(in)) {
+	        		policies = ServicePoliciesBinaryCodec.read(in);
+	        	} else {
+	        		policies = gson.fromJson(new InputStreamReader(in), ServicePolicies.class);
+	        	}
 
 		        if(policies != null) {
 		        	if(!StringUtils.equals(serviceName, policies.getServiceName())) {
@@ -331,15 +465,16 @@ public class PolicyRefresher extends Thread {
 		        	}
 
 		        	lastKnownVersion = policies.getPolicyVersion() == null ? -1 : policies.getPolicyVersion().longValue();
+		        	lastKnownServicePolicies = policies;
 		         }
 	        } catch (Exception excp) {
 	        	LOG.error("failed to load policies from cache file " + cacheFile.getAbsolutePath(), excp);
 	        } finally {
 	        	RangerPerfTracer.log(perf);
 
-	        	if(reader != null) {
+	        	if(in != null) {
 	        		try {
-	        			reader.close();
+	        			in.close();
 	        		} catch(Exception excp) {
 	        			LOG.error("error while closing opened cache file " + cacheFile.getAbsolutePath(), excp);
 	        		}
@@ -386,18 +521,28 @@ public class PolicyRefresher extends Thread {
 					perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToCache(serviceName=" + serviceName + ")");
 				}
 
-				Writer writer = null;
+				Closeable out = null;
 	
 				try {
-					writer = new FileWriter(cacheFile);
-	
-			        gson.toJson(policies, writer);
+					if(useBinaryFormatForCache) {
+						OutputStream outStream = new BufferedOutputStream(new FileOutputStream(cacheFile));
+
+						out = outStream;
+
+						ServicePoliciesBinaryCodec.write(policies, outStream);
+					} else {
+						Writer writer = new OutputStreamWriter(new FileOutputStream(cacheFile));
+
+						out = writer;
+
+						gson.toJson(policies, writer);
+					}
 		        } catch (Exception excp) {
 		        	LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        } finally {
-		        	if(writer != null) {
+		        	if(out != null) {
 		        		try {
-		        			writer.close();
+		        			out.close();
 		        		} catch(Exception excp) {
 		        			LOG.error("error while closing opened cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        		}
@@ -406,6 +551,9 @@ public class PolicyRefresher extends Thread {
 
 				RangerPerfTracer.log(perf);
 
+				if(loadCacheFirst) {
+					saveToSnapshot(policies);
+				}
 	    	}
 		} else {
 			LOG.info("policies is null. Nothing to save in cache");
@@ -416,6 +564,24 @@ public class PolicyRefresher extends Thread {
 		}
 	}
 
+	private void saveToSnapshot(ServicePolicies policies) {
+		File snapshotFile = new File(cacheDir + File.separator + snapshotFileName);
+
+		RangerPerfTracer perf = null;
+
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToSnapshot(serviceName=" + serviceName + ")");
+		}
+
+		try {
+			ServicePoliciesSnapshot.write(policies, snapshotFile);
+		} catch (Exception excp) {
+			LOG.error("failed to save policies to snapshot '" + snapshotFile.getAbsolutePath() + "'", excp);
+		}
+
+		RangerPerfTracer.log(perf);
+	}
+
 	private void disableCache() {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher.disableCache(serviceName=" + serviceName + ")");
@@ -437,6 +603,12 @@ public class PolicyRefresher extends Thread {
 			}
 		}
 
+		File snapshotFile = cacheDir == null ? null : new File(cacheDir + File.separator + snapshotFileName);
+
+		if(snapshotFile != null && snapshotFile.isFile() && !snapshotFile.delete()) {
+			LOG.error("Failed to delete policies snapshot " + snapshotFile.getAbsolutePath());
+		}
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== PolicyRefresher.disableCache(serviceName=" + serviceName + ")");
 		}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.util;
+
+/*
+ * Binary radix tree of IPv4 and IPv6 address prefixes, for longest-prefix-match lookups of addresses. Lookup walks
+ * at most one node per address bit - 32 for IPv4, 128 for IPv6 - regardless of the number of prefixes in the tree.
+ *
+ * Prefixes are given in CIDR notation, like "10.1.0.0/16" or "2001:db8::/32"; an address without "/length" is
+ * a prefix of full length. Only the textual forms that are unambiguous are accepted: dotted-quad IPv4 without
+ * leading zeros, and IPv6 with 1 to 8 hex groups and at most one "::". Other strings are rejected.
+ *
+ * Not thread-safe for updates; safe for concurrent lookups once populated.
+ */
+public class RangerIpAddressTrie<V> {
+    private static final int IPV4_LENGTH = 4;
+    private static final int IPV6_LENGTH = 16;
+
+    private final Node<V> ipv4Root = new Node<>();
+    private final Node<V> ipv6Root = new Node<>();
+    private int           size;
+
+    /*
+     * returns false if prefix is not a valid CIDR/address; the tree is not modified in such case
+     */
+    public boolean put(String prefix, V value) {
+        String addressStr   = prefix;
+        int    prefixLength = -1;
+        int    idxSlash     = prefix == null ? -1 : prefix.indexOf('/');
+
+        if (idxSlash != -1) {
+            addressStr   = prefix.substring(0, idxSlash);
+            prefixLength = parseNumber(prefix.substring(idxSlash + 1), 10, 3);
+
+            if (prefixLength == -1) {
+                return false;
+            }
+        }
+
+        byte[] address = parseAddress(addressStr);
+
+        if (address == null) {
+            return false;
+        }
+
+        if (prefixLength == -1) {
+            prefixLength = address.length * 8;
+        } else if (prefixLength > address.length * 8) {
+            return false;
+        }
+
+        put(address, prefixLength, value);
+
+        return true;
+    }
+
+    public void put(byte[] address, int prefixLength, V value) {
+        Node<V> node = address.length == IPV4_LENGTH ? ipv4Root : ipv6Root;
+
+        for (int i = 0; i < prefixLength; i++) {
+            if (isBitSet(address, i)) {
+                if (node.one == null) {
+                    node.one = new Node<>();
+                }
+
+                node = node.one;
+            } else {
+                if (node.zero == null) {
+                    node.zero = new Node<>();
+                }
+
+                node = node.zero;
+            }
+        }
+
+        if (!node.hasValue) {
+            node.hasValue = true;
+            size++;
+        }
+
+        node.value = value;
+    }
+
+    /*
+     * returns the value of the longest prefix that contains the given address; null if the address is not valid or no
+     * prefix contains it
+     */
+    public V get(String address) {
+        byte[] parsed = parseAddress(address);
+
+        return parsed == null ? null : get(parsed);
+    }
+
+    public V get(byte[] address) {
+        Node<V> node = address.length == IPV4_LENGTH ? ipv4Root : ipv6Root;
+        V       ret  = node.value;
+        int     bits = address.length * 8;
+
+        for (int i = 0; i < bits; i++) {
+            node = isBitSet(address, i) ? node.one : node.zero;
+
+            if (node == null) {
+                break;
+            }
+
+            if (node.hasValue) {
+                ret = node.value;
+            }
+        }
+
+        return ret;
+    }
+
+    public boolean containsPrefixOf(String address) {
+        byte[] parsed = parseAddress(address);
+
+        return parsed != null && containsPrefixOf(parsed);
+    }
+
+    public boolean containsPrefixOf(byte[] address) {
+        Node<V> node = address.length == IPV4_LENGTH ? ipv4Root : ipv6Root;
+        int     bits = address.length * 8;
+
+        for (int i = 0; !node.hasValue && i < bits; i++) {
+            node = isBitSet(address, i) ? node.one : node.zero;
+
+            if (node == null) {
+                return false;
+            }
+        }
+
+        return node.hasValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+     * returns the 4 (IPv4) or 16 (IPv6) bytes of the given address; null if the string is not a valid address
+     */
+    public static byte[] parseAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+
+        return address.indexOf(':') != -1 ? parseIPv6Address(address) : parseIPv4Address(address);
+    }
+
+    private static byte[] parseIPv4Address(String address) {
+        byte[] ret       = new byte[IPV4_LENGTH];
+        int    partCount = 0;
+        int    start     = 0;
+
+        while (start <= address.length()) {
+            int end = address.indexOf('.', start);
+
+            if (end == -1) {
+                end = address.length();
+            }
+
+            if (partCount == IPV4_LENGTH) {
+                return null;
+            }
+
+            String part = address.substring(start, end);
+
+            if (part.length() > 1 && part.charAt(0) == '0') { // leading zeros are ambiguous (octal in some parsers)
+                return null;
+            }
+
+            int value = parseNumber(part, 10, 3);
+
+            if (value == -1 || value > 255) {
+                return null;
+            }
+
+            ret[partCount++] = (byte) value;
+            start            = end + 1;
+        }
+
+        return partCount == IPV4_LENGTH ? ret : null;
+    }
+
+    private static byte[] parseIPv6Address(String address) {
+        int idxDoubleColon = address.indexOf("::");
+
+        if (idxDoubleColon != -1 && address.indexOf("::", idxDoubleColon + 1) != -1) {
+            return null;
+        }
+
+        int[] head      = idxDoubleColon == -1 ? parseIPv6Groups(address) : parseIPv6Groups(address.substring(0, idxDoubleColon));
+        int[] tail      = idxDoubleColon == -1 ? new int[0] : parseIPv6Groups(address.substring(idxDoubleColon + 2));
+        int   maxGroups = idxDoubleColon == -1 ? 8 : 7; // "::" stands for at least one group
+
+        if (head == null || tail == null || head.length + tail.length > maxGroups || (idxDoubleColon == -1 && head.length != 8)) {
+            return null;
+        }
+
+        byte[] ret = new byte[IPV6_LENGTH];
+
+        for (int i = 0; i < head.length; i++) {
+            ret[i * 2]     = (byte) (head[i] >> 8);
+            ret[i * 2 + 1] = (byte) head[i];
+        }
+
+        for (int i = 0; i < tail.length; i++) {
+            int idx = 8 - tail.length + i;
+
+            ret[idx * 2]     = (byte) (tail[i] >> 8);
+            ret[idx * 2 + 1] = (byte) tail[i];
+        }
+
+        return ret;
+    }
+
+    private static int[] parseIPv6Groups(String groups) {
+        if (groups.isEmpty()) {
+            return new int[0];
+        }
+
+        String[] parts = groups.split(":", -1);
+        int[]    ret   = new int[parts.length];
+
+        for (int i = 0; i < parts.length; i++) {
+            ret[i] = parseNumber(parts[i], 16, 4);
+
+            if (ret[i] == -1) {
+                return null;
+            }
+        }
+
+        return ret;
+    }
+
+    // returns -1 if str is empty, longer than maxDigits or has a character that isn't a digit in the given radix
+    private static int parseNumber(String str, int radix, int maxDigits) {
+        if (str.isEmpty() || str.length() > maxDigits) {
+            return -1;
+        }
+
+        int ret = 0;
+
+        for (int i = 0; i < str.length(); i++) {
+            int digit = Character.digit(str.charAt(i), radix);
+
+            if (digit == -1) {
+                return -1;
+            }
+
+            ret = ret * radix + digit;
+        }
+
+        return ret;
+    }
+
+    private static boolean isBitSet(byte[] address, int bitIndex) {
+        return (address[bitIndex >> 3] & (0x80 >> (bitIndex & 7))) != 0;
+    }
+
+    private static final class Node<V> {
+        Node<V> zero;
+        Node<V> one;
+        V       value;
+        boolean hasValue;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RangerPolicyDeltaUtil {
+	private static final Log LOG = LogFactory.getLog(RangerPolicyDeltaUtil.class);
+
+	/*
+	 * Returns the changes that turn oldPolicies into newPolicies. Policies are matched by id and are considered
+	 * unchanged when their versions are equal. Returns null when the changes can't be determined - i.e. when a
+	 * policy has no id or no version, or the same id is present more than once.
+	 */
+	public static List<RangerPolicyDelta> getPolicyDeltas(List<RangerPolicy> oldPolicies, List<RangerPolicy> newPolicies) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicyCount=" + size(oldPolicies) + ", newPolicyCount=" + size(newPolicies) + ")");
+		}
+
+		List<RangerPolicyDelta> ret             = new ArrayList<>();
+		Map<Long, RangerPolicy> oldPoliciesById = getPoliciesById(oldPolicies);
+
+		if (oldPoliciesById == null) {
+			ret = null;
+		} else if (CollectionUtils.isNotEmpty(newPolicies)) {
+			Map<Long, RangerPolicy> newPoliciesById = new HashMap<>();
+
+			for (RangerPolicy newPolicy : newPolicies) {
+				if (!isVersioned(newPolicy) || newPoliciesById.put(newPolicy.getId(), newPolicy) != null) {
+					ret = null;
+
+					break;
+				}
+
+				RangerPolicy oldPolicy = oldPoliciesById.get(newPolicy.getId());
+
+				if (oldPolicy == null) {
+					ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, newPolicy));
+				} else if (!oldPolicy.getVersion().equals(newPolicy.getVersion())) {
+					ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, newPolicy));
+				}
+			}
+
+			if (ret != null) {
+				for (RangerPolicy oldPolicy : oldPolicies) {
+					if (!newPoliciesById.containsKey(oldPolicy.getId())) {
+						ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, oldPolicy));
+					}
+				}
+			}
+		} else if (oldPolicies != null) {
+			for (RangerPolicy oldPolicy : oldPolicies) {
+				ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, oldPolicy));
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicyCount=" + size(oldPolicies) + ", newPolicyCount=" + size(newPolicies) + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns policies after applying the given changes, in the order of policies, with created policies at the end.
+	 */
+	public static List<RangerPolicy> applyDeltas(List<RangerPolicy> policies, List<RangerPolicyDelta> deltas) {
+		if (CollectionUtils.isEmpty(deltas)) {
+			return policies;
+		}
+
+		Map<Long, RangerPolicy> changedPolicies = new HashMap<>();
+		List<RangerPolicy>      createdPolicies = new ArrayList<>();
+
+		for (RangerPolicyDelta delta : deltas) {
+			Long policyId = delta.getPolicyId();
+
+			if (policyId == null || delta.getChangeType() == null) {
+				LOG.warn("RangerPolicyDeltaUtil.applyDeltas(): ignoring invalid delta " + delta);
+
+				continue;
+			}
+
+			switch (delta.getChangeType()) {
+				case RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE:
+				case RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE:
+					changedPolicies.put(policyId, delta.getPolicy());
+					break;
+
+				case RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE:
+					changedPolicies.put(policyId, null);
+					break;
+
+				default:
+					LOG.warn("RangerPolicyDeltaUtil.applyDeltas(): ignoring delta with unknown changeType " + delta);
+					break;
+			}
+		}
+
+		List<RangerPolicy> ret = new ArrayList<>(size(policies) + changedPolicies.size());
+
+		if (policies != null) {
+			for (RangerPolicy policy : policies) {
+				if (!changedPolicies.containsKey(policy.getId())) {
+					ret.add(policy);
+				} else {
+					RangerPolicy changedPolicy = changedPolicies.remove(policy.getId());
+
+					if (changedPolicy != null) {
+						ret.add(changedPolicy);
+					}
+				}
+			}
+		}
+
+		for (RangerPolicyDelta delta : deltas) { // policies not present earlier, in the order of deltas
+			Long policyId = delta.getPolicyId();
+
+			if (policyId != null && changedPolicies.containsKey(policyId)) {
+				RangerPolicy changedPolicy = changedPolicies.remove(policyId);
+
+				if (changedPolicy != null) {
+					createdPolicies.add(changedPolicy);
+				}
+			}
+		}
+
+		ret.addAll(createdPolicies);
+
+		return ret;
+	}
+
+	/*
+	 * Returns the changes equivalent to applying deltas followed by laterDeltas; a policy changed in both is
+	 * listed at its position in deltas. Returns null when the two are not consistent - like a policy created twice.
+	 */
+	public static List<RangerPolicyDelta> mergeDeltas(List<RangerPolicyDelta> deltas, List<RangerPolicyDelta> laterDeltas) {
+		if (CollectionUtils.isEmpty(deltas)) {
+			return laterDeltas;
+		} else if (CollectionUtils.isEmpty(laterDeltas)) {
+			return deltas;
+		}
+
+		Map<Long, RangerPolicyDelta> deltasById = new LinkedHashMap<>();
+
+		for (RangerPolicyDelta delta : deltas) {
+			if (delta.getPolicyId() == null || deltasById.put(delta.getPolicyId(), delta) != null) {
+				return null;
+			}
+		}
+
+		for (RangerPolicyDelta laterDelta : laterDeltas) {
+			Long              policyId = laterDelta.getPolicyId();
+			RangerPolicyDelta delta    = policyId != null ? deltasById.get(policyId) : null;
+
+			if (policyId == null || laterDelta.getChangeType() == null) {
+				return null;
+			} else if (delta == null) {
+				deltasById.put(policyId, laterDelta);
+			} else {
+				int changeType      = delta.getChangeType();
+				int laterChangeType = laterDelta.getChangeType();
+
+				if (changeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+					if (laterChangeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE) {
+						return null;
+					}
+
+					deltasById.put(policyId, new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, laterDelta.getPolicy()));
+				} else if (laterChangeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE) {
+					return null;
+				} else if (laterChangeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+					if (changeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE) {
+						deltasById.remove(policyId);
+					} else {
+						deltasById.put(policyId, laterDelta);
+					}
+				} else { // update after a create or an update
+					deltasById.put(policyId, new RangerPolicyDelta(changeType, laterDelta.getPolicy()));
+				}
+			}
+		}
+
+		return new ArrayList<>(deltasById.values());
+	}
+
+	/*
+	 * Returns the policies after applying the changes in servicePolicyDeltas - as returned by a delta download - to
+	 * servicePolicies. Other attributes, like the service-def and the policy version, are taken from servicePolicyDeltas.
+	 */
+	public static ServicePolicies applyDeltas(ServicePolicies servicePolicies, ServicePolicies servicePolicyDeltas) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyDeltaUtil.applyDeltas(fromVersion=" + servicePolicies.getPolicyVersion() + ", toVersion=" + servicePolicyDeltas.getPolicyVersion() + ")");
+		}
+
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(servicePolicyDeltas.getServiceName());
+		ret.setServiceId(servicePolicyDeltas.getServiceId());
+		ret.setPolicyVersion(servicePolicyDeltas.getPolicyVersion());
+		ret.setPolicyUpdateTime(servicePolicyDeltas.getPolicyUpdateTime());
+		ret.setServiceDef(servicePolicyDeltas.getServiceDef());
+		ret.setAuditMode(servicePolicyDeltas.getAuditMode());
+		ret.setPolicies(applyDeltas(servicePolicies.getPolicies(), servicePolicyDeltas.getPolicyDeltas()));
+
+		ServicePolicies.TagPolicies tagPolicyDeltas = servicePolicyDeltas.getTagPolicies();
+
+		if (tagPolicyDeltas != null) {
+			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+			List<RangerPolicy>          policies    = servicePolicies.getTagPolicies() != null ? servicePolicies.getTagPolicies().getPolicies() : null;
+
+			tagPolicies.setServiceName(tagPolicyDeltas.getServiceName());
+			tagPolicies.setServiceId(tagPolicyDeltas.getServiceId());
+			tagPolicies.setPolicyVersion(tagPolicyDeltas.getPolicyVersion());
+			tagPolicies.setPolicyUpdateTime(tagPolicyDeltas.getPolicyUpdateTime());
+			tagPolicies.setServiceDef(tagPolicyDeltas.getServiceDef());
+			tagPolicies.setAuditMode(tagPolicyDeltas.getAuditMode());
+			tagPolicies.setPolicies(applyDeltas(policies, tagPolicyDeltas.getPolicyDeltas()));
+
+			ret.setTagPolicies(tagPolicies);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyDeltaUtil.applyDeltas(fromVersion=" + servicePolicies.getPolicyVersion() + ", toVersion=" + servicePolicyDeltas.getPolicyVersion() + "): policyCount=" + size(ret.getPolicies()));
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns true if servicePolicies has the changes since an earlier version instead of all policies
+	 */
+	public static boolean isDelta(ServicePolicies servicePolicies) {
+		return servicePolicies != null && servicePolicies.getPolicies() == null && servicePolicies.getPolicyDeltas() != null;
+	}
+
+	private static Map<Long, RangerPolicy> getPoliciesById(List<RangerPolicy> policies) {
+		Map<Long, RangerPolicy> ret = new HashMap<>();
+
+		if (policies != null) {
+			for (RangerPolicy policy : policies) {
+				if (!isVersioned(policy) || ret.put(policy.getId(), policy) != null) {
+					ret = null;
+
+					break;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static boolean isVersioned(RangerPolicy policy) {
+		return policy != null && policy.getId() != null && policy.getVersion() != null;
+	}
+
+	private static int size(List<?> list) {
+		return list == null ? 0 : list.size();
+	}
+}
@@ -24,6 +24,8 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -33,10 +35,12 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 
 import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 
@@ -56,8 +60,10 @@ import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
-import com.sun.jersey.client.urlconnection.HTTPSProperties;
+import com.sun.jersey.client.urlconnection.HttpURLConnectionFactory;
+import com.sun.jersey.client.urlconnection.URLConnectionClientHandler;
 
 
 public class RangerRESTClient {
@@ -103,6 +109,11 @@ public class RangerRESTClient {
 	private int  mRestClientConnTimeOutMs;
 	private int  mRestClientReadTimeOutMs;
 
+	private boolean mGzipResponses = true;
+	private boolean mGzipRequests;
+
+	private final RangerRESTClientMetrics metrics = new RangerRESTClientMetrics();
+
 	public RangerRESTClient() {
 		this(RangerConfiguration.getInstance().get(RANGER_PROP_POLICYMGR_URL),
 			 RangerConfiguration.getInstance().get(RANGER_PROP_POLICYMGR_SSLCONFIG_FILENAME));
@@ -147,6 +158,32 @@ public class RangerRESTClient {
 		this.mRestClientReadTimeOutMs = mRestClientReadTimeOutMs;
 	}
 
+	public boolean isGzipResponses() {
+		return mGzipResponses;
+	}
+
+	/**
+	 * @param gzipResponses when true, responses are requested gzip-encoded, unless the request sets Accept-Encoding
+	 */
+	public void setGzipResponses(boolean gzipResponses) {
+		this.mGzipResponses = gzipResponses;
+	}
+
+	public boolean isGzipRequests() {
+		return mGzipRequests;
+	}
+
+	/**
+	 * @param gzipRequests when true, request entities are sent gzip-encoded. Needs a Ranger Admin that decodes them
+	 */
+	public void setGzipRequests(boolean gzipRequests) {
+		this.mGzipRequests = gzipRequests;
+	}
+
+	public RangerRESTClientMetrics getMetrics() {
+		return metrics;
+	}
+
 	public void setBasicAuthInfo(String username, String password) {
 		mUsername = username;
 		mPassword = password;
@@ -198,9 +235,9 @@ public class RangerRESTClient {
 				}
 			};
 
-			config.getProperties().put(HTTPSProperties.PROPERTY_HTTPS_PROPERTIES, new HTTPSProperties(hv, sslContext));
-
-			client = Client.create(config);
+			// HTTPSProperties would set a new SSLSocketFactory in each connection; as the JDK reuses a kept-alive
+			// HTTPS connection only for the same SSLSocketFactory, every request would then need a new TLS handshake
+			client = new Client(new URLConnectionClientHandler(new SSLConnectionFactory(sslContext.getSocketFactory(), hv)), config);
 		}
 
 		if(client == null) {
@@ -215,6 +252,12 @@ public class RangerRESTClient {
 			client.addFilter(new HTTPBasicAuthFilter(mUsername, mPassword));
 		}
 
+		if(mGzipResponses || mGzipRequests) {
+			client.addFilter(new GZIPContentEncodingFilter(mGzipRequests));
+		}
+
+		client.addFilter(metrics);
+
 		// Set Connection Timeout and ReadTime for the PolicyRefresh
 		client.setConnectTimeout(mRestClientConnTimeOutMs);
 		client.setReadTimeout(mRestClientReadTimeOutMs);
@@ -410,4 +453,28 @@ public class RangerRESTClient {
 			}
 		}
 	}
+
+	private static final class SSLConnectionFactory implements HttpURLConnectionFactory {
+		private final SSLSocketFactory sslSocketFactory;
+		private final HostnameVerifier hostnameVerifier;
+
+		SSLConnectionFactory(SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
+			this.sslSocketFactory = sslSocketFactory;
+			this.hostnameVerifier = hostnameVerifier;
+		}
+
+		@Override
+		public HttpURLConnection getHttpURLConnection(URL url) throws IOException {
+			HttpURLConnection ret = (HttpURLConnection) url.openConnection();
+
+			if (ret instanceof HttpsURLConnection) {
+				HttpsURLConnection httpsConnection = (HttpsURLConnection) ret;
+
+				httpsConnection.setSSLSocketFactory(sslSocketFactory);
+				httpsConnection.setHostnameVerifier(hostnameVerifier);
+			}
+
+			return ret;
+		}
+	}
 }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Request counts and latencies of a RangerRESTClient. Latency is the time until the response status and headers are
+ * received; the entity is streamed to the caller afterwards.
+ *
+ * Long-polled requests, i.e. with query parameter longPollTimeoutMs, are held by Ranger Admin until there is a change
+ * or the timeout expires; these are counted in longPollRequestCount and left out of latencies.
+ */
+public class RangerRESTClientMetrics extends ClientFilter implements RangerRESTClientMetricsMBean {
+	private static final Log LOG                  = LogFactory.getLog(RangerRESTClientMetrics.class);
+	private static final Log PERF_REST_CLIENT_LOG = RangerPerfTracer.getPerfLogger("rest.client");
+
+	private static final int    HTTP_STATUS_TOO_MANY_REQUESTS = 429;
+	private static final String LONG_POLL_QUERY_PARAM         = RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS + "=";
+
+	private final AtomicLong requestCount         = new AtomicLong();
+	private final AtomicLong failedRequestCount   = new AtomicLong();
+	private final AtomicLong activeRequestCount   = new AtomicLong();
+	private final AtomicLong longPollRequestCount = new AtomicLong();
+	private final AtomicLong totalLatencyMs       = new AtomicLong();
+	private final AtomicLong maxLatencyMs         = new AtomicLong();
+	private ObjectName       objectName;
+
+	@Override
+	public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+		RangerPerfTracer perf = null;
+
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_REST_CLIENT_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_REST_CLIENT_LOG, "RangerRESTClient.request(method=" + request.getMethod() + ", uri=" + request.getURI().getPath() + ")");
+		}
+
+		long    startTimeMs = System.currentTimeMillis();
+		boolean isLongPoll  = isLongPoll(request);
+		boolean isFailed    = true;
+
+		activeRequestCount.incrementAndGet();
+
+		try {
+			ClientResponse ret = getNext().handle(request);
+
+			isFailed = ret.getStatus() == HTTP_STATUS_TOO_MANY_REQUESTS || ret.getStatus() >= 500;
+
+			return ret;
+		} finally {
+			long latencyMs = System.currentTimeMillis() - startTimeMs;
+
+			activeRequestCount.decrementAndGet();
+			requestCount.incrementAndGet();
+
+			if (isFailed) {
+				failedRequestCount.incrementAndGet();
+			}
+
+			if (isLongPoll) {
+				longPollRequestCount.incrementAndGet();
+			} else {
+				totalLatencyMs.addAndGet(latencyMs);
+
+				for (long max = maxLatencyMs.get(); latencyMs > max && !maxLatencyMs.compareAndSet(max, latencyMs); max = maxLatencyMs.get()) {
+					// retry until updated, or another thread records a higher latency
+				}
+			}
+
+			RangerPerfTracer.log(perf);
+		}
+	}
+
+	@Override
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return number of requests that failed with an exception, HTTP 429 or HTTP 5xx
+	 */
+	@Override
+	public long getFailedRequestCount() {
+		return failedRequestCount.get();
+	}
+
+	/**
+	 * @return number of requests waiting for a response, hence holding a connection
+	 */
+	@Override
+	public long getActiveRequestCount() {
+		return activeRequestCount.get();
+	}
+
+	@Override
+	public long getLongPollRequestCount() {
+		return longPollRequestCount.get();
+	}
+
+	/**
+	 * @return total latency of requests other than long-polled ones
+	 */
+	@Override
+	public long getTotalLatencyMs() {
+		return totalLatencyMs.get();
+	}
+
+	@Override
+	public long getMaxLatencyMs() {
+		return maxLatencyMs.get();
+	}
+
+	@Override
+	public long getAverageLatencyMs() {
+		long count = requestCount.get() - longPollRequestCount.get();
+
+		return count > 0 ? totalLatencyMs.get() / count : 0;
+	}
+
+	/*
+	 * registers this with the platform MBean server, replacing metrics registered earlier with the same name. Failures
+	 * are logged, as metrics should not keep the plugin from working
+	 */
+	public synchronized void register(String name) {
+		unregister();
+
+		try {
+			MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+			ObjectName  objectName  = new ObjectName("org.apache.ranger:type=RESTClient,name=" + ObjectName.quote(name));
+
+			if (mbeanServer.isRegistered(objectName)) {
+				mbeanServer.unregisterMBean(objectName);
+			}
+
+			mbeanServer.registerMBean(this, objectName);
+
+			this.objectName = objectName;
+		} catch (JMException | RuntimeException excp) {
+			LOG.warn("RangerRESTClientMetrics.register(" + name + "): failed to register with MBean server", excp);
+		}
+	}
+
+	public synchronized void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException | RuntimeException excp) {
+				LOG.debug("RangerRESTClientMetrics.unregister(" + objectName + "): failed to unregister from MBean server", excp);
+			}
+
+			objectName = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RangerRESTClientMetrics={requestCount=" + getRequestCount() + ", failedRequestCount=" + getFailedRequestCount()
+		       + ", activeRequestCount=" + getActiveRequestCount() + ", longPollRequestCount=" + getLongPollRequestCount()
+		       + ", averageLatencyMs=" + getAverageLatencyMs() + ", maxLatencyMs=" + getMaxLatencyMs() + "}";
+	}
+
+	private static boolean isLongPoll(ClientRequest request) {
+		String query = request.getURI().getRawQuery();
+
+		return query != null && (query.startsWith(LONG_POLL_QUERY_PARAM) || query.contains("&" + LONG_POLL_QUERY_PARAM));
+	}
+}
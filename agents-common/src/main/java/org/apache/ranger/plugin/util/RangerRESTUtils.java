@@ -54,10 +54,16 @@ public class RangerRESTUtils {
 
 	public static final String REST_EXPECTED_MIME_TYPE = "application/json";
 	public static final String REST_MIME_TYPE_JSON     = "application/json";
+	public static final String REST_MIME_TYPE_POLICIES_BINARY = "application/x-ranger-policies"; // see ServicePoliciesBinaryCodec
 
 	public static final String REST_PARAM_LAST_KNOWN_POLICY_VERSION = "lastKnownVersion";
 	public static final String REST_PARAM_LAST_ACTIVATION_TIME = "lastActivationTime";
 	public static final String REST_PARAM_PLUGIN_ID                 = "pluginId";
+	public static final String REST_PARAM_SUPPORTS_POLICY_DELTAS    = "supportsPolicyDeltas";
+	public static final String REST_PARAM_LONG_POLL_TIMEOUT_MS      = "longPollTimeoutMs";
+
+	public static final String REST_HEADER_LONG_POLL_MAX_TIMEOUT_MS = "X-Ranger-Long-Poll-Max-Timeout-Ms";
+	public static final String REST_HEADER_RETRY_AFTER              = "Retry-After";
 
 	private static final int MAX_PLUGIN_ID_LEN = 255;
 	
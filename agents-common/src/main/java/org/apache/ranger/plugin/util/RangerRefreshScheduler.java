@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+
+/**
+ * Runs the policy and tag refreshers of all plugins in the JVM on a shared pool of threads.
+ *
+ * - the first refresh of a task is delayed by a random startup jitter, so that plugins started together don't poll together
+ * - after a failure, the next refresh is delayed by an exponential backoff with jitter, capped at maxBackoffMs. A Retry-After
+ *   hint from Ranger Admin, see RangerAdminUnavailableException, is honored as the minimum delay
+ * - each task is scheduled on its own, so that a refresh held by a long-poll doesn't delay other tasks - including the other
+ *   refresher of the same service. A long-polled refresh holds a pool thread while it waits; the pool grows up to maxThreads
+ * - once a refresh completes, other tasks of the same service due within coalesceWindowMs are run right away, on their own
+ *   threads, so that the policy and tag downloads of a service are made back-to-back and reuse the connection to Ranger Admin.
+ *   Tasks are only ever run early, never held back for another task - a long-poll still delays no one
+ */
+public class RangerRefreshScheduler {
+	private static final Log LOG = LogFactory.getLog(RangerRefreshScheduler.class);
+
+	public static final String CONFIG_PREFIX = "ranger.plugin.refresh.scheduler.";
+
+	public interface RefreshTask {
+		String getServiceName();
+
+		long getPollingIntervalMs();
+
+		/*
+		 * throws an exception if the refresh failed, to have the next refresh delayed with backoff
+		 */
+		void refresh() throws Exception;
+	}
+
+	interface Clock {
+		long currentTimeMillis();
+	}
+
+	private static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	private static volatile RangerRefreshScheduler sInstance;
+
+	private final int                         maxThreads;
+	private final long                        startupJitterMs;
+	private final long                        maxBackoffMs;
+	private final long                        coalesceWindowMs;
+	private final Clock                       clock;
+	private final ScheduledThreadPoolExecutor executor;
+	private final Map<RefreshTask, TaskState> tasks = new IdentityHashMap<>();
+
+	public static RangerRefreshScheduler getInstance() {
+		RangerRefreshScheduler ret = sInstance;
+
+		if (ret == null) {
+			synchronized (RangerRefreshScheduler.class) {
+				ret = sInstance;
+
+				if (ret == null) {
+					RangerConfiguration config = RangerConfiguration.getInstance();
+
+					ret = new RangerRefreshScheduler(config.getInt(CONFIG_PREFIX + "max.threads", 16),
+					                                 config.getLong(CONFIG_PREFIX + "startup.jitter.ms", 10 * 1000L),
+					                                 config.getLong(CONFIG_PREFIX + "max.backoff.ms", 5 * 60 * 1000L),
+					                                 config.getLong(CONFIG_PREFIX + "coalesce.window.ms", 10 * 1000L),
+					                                 SYSTEM_CLOCK);
+
+					sInstance = ret;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	RangerRefreshScheduler(int maxThreads, long startupJitterMs, long maxBackoffMs, long coalesceWindowMs, Clock clock) {
+		this.maxThreads       = Math.max(maxThreads, 1);
+		this.startupJitterMs  = Math.max(startupJitterMs, 0);
+		this.maxBackoffMs     = Math.max(maxBackoffMs, 0);
+		this.coalesceWindowMs = Math.max(coalesceWindowMs, 0);
+		this.clock            = clock;
+		this.executor         = new ScheduledThreadPoolExecutor(1, new RefreshThreadFactory());
+
+		executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+		executor.allowCoreThreadTimeOut(true);
+		executor.setRemoveOnCancelPolicy(true);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerRefreshScheduler(maxThreads=" + this.maxThreads + ", startupJitterMs=" + this.startupJitterMs + ", maxBackoffMs=" + this.maxBackoffMs + ", coalesceWindowMs=" + this.coalesceWindowMs + ")");
+		}
+	}
+
+	public void register(RefreshTask task) {
+		register(task, false);
+	}
+
+	/*
+	 * with refreshNow, the first refresh is run without waiting for the polling interval - only for the startup jitter
+	 */
+	public void register(RefreshTask task, boolean refreshNow) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerRefreshScheduler.register(serviceName=" + task.getServiceName() + ", task=" + task + ", refreshNow=" + refreshNow + ")");
+		}
+
+		long      firstDelayMs = (refreshNow ? 0 : task.getPollingIntervalMs()) + nextRandom(Math.min(startupJitterMs, task.getPollingIntervalMs()));
+		TaskState state        = new TaskState(task, clock.currentTimeMillis() + firstDelayMs);
+
+		synchronized (tasks) {
+			tasks.put(task, state);
+
+			executor.setCorePoolSize(Math.min(tasks.size(), maxThreads));
+		}
+
+		state.schedule();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerRefreshScheduler.register(serviceName=" + task.getServiceName() + ", task=" + task + "): firstDelayMs=" + firstDelayMs);
+		}
+	}
+
+	/*
+	 * once this returns, the task will not be run again. If the task is being run by another thread, that thread is
+	 * interrupted and this waits for the task to complete
+	 */
+	public void unregister(RefreshTask task) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerRefreshScheduler.unregister(serviceName=" + task.getServiceName() + ", task=" + task + ")");
+		}
+
+		final TaskState state;
+
+		synchronized (tasks) {
+			state = tasks.remove(task);
+
+			executor.setCorePoolSize(Math.max(Math.min(tasks.size(), maxThreads), 1));
+		}
+
+		// wait outside the lock on tasks, as the running task might register or unregister other tasks
+		if (state != null) {
+			state.cancel();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerRefreshScheduler.unregister(serviceName=" + task.getServiceName() + ", task=" + task + ")");
+		}
+	}
+
+	long getDelayMs(long pollingIntervalMs, int failureCount, long retryAfterMs) {
+		if (failureCount <= 0) {
+			return pollingIntervalMs;
+		}
+
+		long maxBackoffMs = Math.max(this.maxBackoffMs, pollingIntervalMs);
+		long backoffMs    = pollingIntervalMs;
+
+		for (int i = 1; i < failureCount && backoffMs < maxBackoffMs; i++) {
+			backoffMs *= 2;
+		}
+
+		backoffMs = Math.min(backoffMs, maxBackoffMs);
+
+		// half of the backoff is jitter, to spread out plugins that failed together
+		long ret = backoffMs / 2 + nextRandom(backoffMs - backoffMs / 2);
+
+		if (retryAfterMs > 0) {
+			long hintMs = Math.min(retryAfterMs, maxBackoffMs);
+
+			ret = Math.max(ret, hintMs + nextRandom(hintMs / 10));
+		}
+
+		return ret;
+	}
+
+	/*
+	 * runs other tasks of the given task's service that are due within coalesceWindowMs right away. The tasks run on their
+	 * own threads, so the caller isn't held by a long-poll in any of them
+	 */
+	void runCoalescedTasks(RefreshTask task) {
+		if (coalesceWindowMs <= 0) {
+			return;
+		}
+
+		final String serviceName = task.getServiceName();
+		final long   dueTimeMs   = clock.currentTimeMillis() + coalesceWindowMs;
+
+		synchronized (tasks) {
+			for (Map.Entry<RefreshTask, TaskState> entry : tasks.entrySet()) {
+				if (entry.getKey() != task && StringUtils.equals(entry.getKey().getServiceName(), serviceName)) {
+					entry.getValue().runEarly(dueTimeMs);
+				}
+			}
+		}
+	}
+
+	TaskState getTaskState(RefreshTask task) {
+		synchronized (tasks) {
+			return tasks.get(task);
+		}
+	}
+
+	private static long nextRandom(long bound) {
+		return bound > 0 ? (long) (ThreadLocalRandom.current().nextDouble() * bound) : 0;
+	}
+
+	final class TaskState implements Runnable {
+		private final RefreshTask  task;
+		private long               nextRunTimeMs;
+		private int                failureCount;
+		private ScheduledFuture<?> future;
+		private Thread             runningThread;
+		private boolean            isCancelled;
+		private boolean            isRunEarly;
+
+		TaskState(RefreshTask task, long nextRunTimeMs) {
+			this.task          = task;
+			this.nextRunTimeMs = nextRunTimeMs;
+		}
+
+		synchronized long getNextRunTimeMs() {
+			return nextRunTimeMs;
+		}
+
+		synchronized int getFailureCount() {
+			return failureCount;
+		}
+
+		// runs the task, and schedules its next run
+		@Override
+		public void run() {
+			final boolean isCoalesced;
+
+			synchronized (this) {
+				if (isCancelled || runningThread != null) {
+					return;
+				}
+
+				future        = null;
+				runningThread = Thread.currentThread();
+				isCoalesced   = isRunEarly;
+				isRunEarly    = false;
+			}
+
+			long    startTimeMs  = clock.currentTimeMillis();
+			long    retryAfterMs = 0;
+			boolean isFailed     = false;
+
+			try {
+				task.refresh();
+			} catch (InterruptedException excp) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerRefreshScheduler: refresh interrupted. serviceName=" + task.getServiceName() + ", task=" + task);
+				}
+			} catch (RangerAdminUnavailableException excp) {
+				isFailed     = true;
+				retryAfterMs = excp.getRetryAfterMs();
+			} catch (Throwable excp) {
+				isFailed = true;
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerRefreshScheduler: refresh failed. serviceName=" + task.getServiceName() + ", task=" + task, excp);
+				}
+			} finally {
+				synchronized (this) {
+					runningThread = null;
+
+					Thread.interrupted(); // clear the interrupt, if any, from cancel()
+
+					notifyAll();
+				}
+			}
+
+			synchronized (this) {
+				failureCount = isFailed ? failureCount + 1 : 0;
+
+				long delayMs = getDelayMs(task.getPollingIntervalMs(), failureCount, retryAfterMs);
+
+				// after a success, time spent in the refresh (like a long-polled download) counts towards the polling interval
+				nextRunTimeMs = (isFailed ? clock.currentTimeMillis() : startTimeMs) + delayMs;
+
+				if (isFailed) {
+					LOG.info("RangerRefreshScheduler: refresh failed " + failureCount + " time(s) in a row. serviceName=" + task.getServiceName()
+					         + ", task=" + task + ", retryAfterMs=" + retryAfterMs + ", nextRefreshInMs=" + delayMs);
+				}
+
+				schedule();
+			}
+
+			// a run made early for another task doesn't pull in further tasks, so that tasks of a service don't keep pulling each other in
+			if (!isFailed && !isCoalesced) {
+				runCoalescedTasks(task);
+			}
+		}
+
+		// runs the task now, if it is due by the given time and isn't running or backing off after a failure
+		synchronized void runEarly(long dueTimeMs) {
+			if (isCancelled || runningThread != null || failureCount > 0 || nextRunTimeMs > dueTimeMs) {
+				return;
+			}
+
+			nextRunTimeMs = clock.currentTimeMillis();
+			isRunEarly    = true;
+
+			schedule();
+		}
+
+		synchronized void schedule() {
+			if (isCancelled) {
+				return;
+			}
+
+			if (future != null) {
+				future.cancel(false);
+			}
+
+			future = executor.schedule(this, Math.max(nextRunTimeMs - clock.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+		}
+
+		// cancels further runs; if the task is being run by another thread, interrupts it and waits for the run to complete
+		synchronized void cancel() {
+			isCancelled = true;
+
+			if (future != null) {
+				future.cancel(false);
+
+				future = null;
+			}
+
+			if (runningThread != null && runningThread != Thread.currentThread()) {
+				runningThread.interrupt();
+			}
+
+			boolean isInterrupted = false;
+
+			while (runningThread != null && runningThread != Thread.currentThread()) {
+				try {
+					wait();
+				} catch (InterruptedException excp) {
+					isInterrupted = true;
+				}
+			}
+
+			if (isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static final class RefreshThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, "RangerRefreshScheduler-" + threadCount.incrementAndGet());
+
+			ret.setDaemon(true);
+
+			return ret;
+		}
+	}
+}
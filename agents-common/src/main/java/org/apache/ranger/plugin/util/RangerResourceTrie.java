@@ -30,10 +30,15 @@ import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher;
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
@@ -41,15 +46,21 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
 
     private static final String DEFAULT_WILDCARD_CHARS = "*?";
 
-    private final String   resourceName;
-    private final boolean  optIgnoreCase;
-    private final boolean  optWildcard;
-    private final String   wildcardChars;
-    private final TrieNode root;
+    private final String          resourceName;
+    private final Integer         resourceLevel;
+    private final boolean         optIgnoreCase;
+    private final boolean         optWildcard;
+    private final String          wildcardChars;
+    private final TrieNode        root;        // null when compact layout is used
+    private final CompactTrieNode compactRoot; // null when default layout is used
 
     public RangerResourceTrie(RangerServiceDef.RangerResourceDef resourceDef, List<T> evaluators) {
+        this(resourceDef, evaluators, false);
+    }
+
+    public RangerResourceTrie(RangerServiceDef.RangerResourceDef resourceDef, List<T> evaluators, boolean useCompactLayout) {
         if(LOG.isDebugEnabled()) {
-            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ")");
+            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", useCompactLayout=" + useCompactLayout + ")");
         }
 
         Map<String, String> matcherOptions = resourceDef.getMatcherOptions();
@@ -69,46 +80,79 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         }
 
         this.resourceName  = resourceDef.getName();
+        this.resourceLevel = resourceDef.getLevel();
         this.optIgnoreCase = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
         this.optWildcard   = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
         this.wildcardChars = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
-        this.root          = new TrieNode(Character.valueOf((char)0));
+
+        TrieNode root = new TrieNode(Character.valueOf((char)0));
 
         for(T evaluator : evaluators) {
-            Map<String, RangerPolicyResource> policyResources = evaluator.getPolicyResource();
-            RangerPolicyResource              policyResource  = policyResources != null ? policyResources.get(resourceName) : null;
+            updateEvaluator(root, evaluator, true, null);
+        }
 
-            if(policyResource == null) {
-                if(evaluator.getLeafResourceLevel() != null && resourceDef.getLevel() != null && evaluator.getLeafResourceLevel() < resourceDef.getLevel()) {
-                    root.addWildcardEvaluator(evaluator);
-                }
+        root.postSetup(null);
 
-                continue;
-            }
+        if(useCompactLayout) {
+            this.root        = null;
+            this.compactRoot = CompactTrieNode.create(root, null);
+        } else {
+            this.root        = root;
+            this.compactRoot = null;
+        }
 
-            if(policyResource.getIsExcludes()) {
-                root.addWildcardEvaluator(evaluator);
-            } else {
-                RangerResourceMatcher resourceMatcher = evaluator.getResourceMatcher(resourceName);
+        LOG.info(toString());
 
-                if(resourceMatcher != null && (resourceMatcher.isMatchAny())) {
-                    root.addWildcardEvaluator(evaluator);
-                } else {
-                    if(CollectionUtils.isNotEmpty(policyResource.getValues())) {
-                        for (String resource : policyResource.getValues()) {
-                            insert(resource, policyResource.getIsRecursive(), evaluator);
-                        }
-                    }
-                }
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + "): " + toString());
+        }
+    }
+
+    /*
+     * Creates a trie with the contents of other, less removedEvaluators, plus addedEvaluators. Nodes of other are not
+     * modified: nodes on the paths of the changed evaluators - and nodes below them, when the wildcard-evaluators they
+     * inherit change - are copied; all other nodes are shared with other. Hence requests being evaluated with other
+     * continue to see a consistent trie.
+     */
+    public RangerResourceTrie(RangerResourceTrie<T> other, Collection<T> removedEvaluators, Collection<T> addedEvaluators) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerResourceTrie(" + other.resourceName + ", removedEvaluatorCount=" + CollectionUtils.size(removedEvaluators) + ", addedEvaluatorCount=" + CollectionUtils.size(addedEvaluators) + ")");
+        }
+
+        if(other.isCompactLayout()) {
+            throw new IllegalArgumentException("RangerResourceTrie(" + other.resourceName + "): trie with compact layout can't be updated");
+        }
+
+        this.resourceName  = other.resourceName;
+        this.resourceLevel = other.resourceLevel;
+        this.optIgnoreCase = other.optIgnoreCase;
+        this.optWildcard   = other.optWildcard;
+        this.wildcardChars = other.wildcardChars;
+
+        Set<TrieNode> copiedNodes = Collections.newSetFromMap(new IdentityHashMap<TrieNode, Boolean>());
+        TrieNode      root        = other.root.copy();
+
+        copiedNodes.add(root);
+
+        if(removedEvaluators != null) {
+            for(T evaluator : removedEvaluators) {
+                updateEvaluator(root, evaluator, false, copiedNodes);
             }
         }
 
-        root.postSetup(null);
+        if(addedEvaluators != null) {
+            for(T evaluator : addedEvaluators) {
+                updateEvaluator(root, evaluator, true, copiedNodes);
+            }
+        }
 
-        LOG.info(toString());
+        root.postSetup(null, copiedNodes);
+
+        this.root        = root;
+        this.compactRoot = null;
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + "): " + toString());
+            LOG.debug("<== RangerResourceTrie(" + resourceName + ", removedEvaluatorCount=" + CollectionUtils.size(removedEvaluators) + ", addedEvaluatorCount=" + CollectionUtils.size(addedEvaluators) + "): copiedNodeCount=" + copiedNodes.size() + "; " + toString());
         }
     }
 
@@ -123,25 +167,29 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
 
         List<T> ret = null;
 
-        TrieNode curr = root;
+        if(compactRoot != null) {
+            ret = getEvaluatorsFromCompactTrie(resource);
+        } else {
+            TrieNode curr = root;
 
-        final int len = resource.length();
-        for(int i = 0; i < len; i++) {
-            Character ch    = getLookupChar(resource.charAt(i));
-            TrieNode  child = curr.getChild(ch);
+            final int len = resource.length();
+            for(int i = 0; i < len; i++) {
+                Character ch    = getLookupChar(resource.charAt(i));
+                TrieNode  child = curr.getChild(ch);
 
-            if(child == null) {
-                ret = curr.getWildcardEvaluators();
-                curr = null; // so that curr.getEvaluators() will not be called below
-                break;
-            }
+                if(child == null) {
+                    ret = curr.getWildcardEvaluators();
+                    curr = null; // so that curr.getEvaluators() will not be called below
+                    break;
+                }
 
-            curr = child;
-        }
+                curr = child;
+            }
 
-        if(ret == null) {
-            if(curr != null) {
-                ret = curr.getEvaluators();
+            if(ret == null) {
+                if(curr != null) {
+                    ret = curr.getEvaluators();
+                }
             }
         }
 
@@ -155,18 +203,22 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
     public TrieData getTrieData() {
         TrieData ret = new TrieData();
 
-        root.populateTrieData(ret);
+        if(compactRoot != null) {
+            compactRoot.populateTrieData(ret);
+        } else {
+            root.populateTrieData(ret);
+        }
         ret.maxDepth = getMaxDepth();
 
         return ret;
     }
 
     public int getMaxDepth() {
-        return root.getMaxDepth();
+        return compactRoot != null ? compactRoot.getMaxDepth() : root.getMaxDepth();
     }
 
-    public void reorderEvaluators() {
-        root.reorderEvaluators(null);
+    public boolean isCompactLayout() {
+        return compactRoot != null;
     }
 
     private final Character getLookupChar(char ch) {
@@ -177,7 +229,72 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         return Character.valueOf(ch);
     }
 
-    private void insert(String resource, boolean isRecursive, T evaluator) {
+    private char getLookupCharPrimitive(char ch) {
+        return optIgnoreCase ? Character.toLowerCase(ch) : ch;
+    }
+
+    private List<T> getEvaluatorsFromCompactTrie(String resource) {
+        CompactTrieNode<T> curr = compactRoot;
+
+        final int len = resource.length();
+        int       i   = 0;
+
+        while(i < len) {
+            CompactTrieNode<T> child = curr.getChild(getLookupCharPrimitive(resource.charAt(i)));
+
+            if(child == null) {
+                return curr.getWildcardEvaluators();
+            }
+
+            i++;
+
+            // nodes collapsed into child's edge share curr's wildcard-evaluators; a mismatch or an end of
+            // resource inside the edge therefore yields the same result as the original un-collapsed path
+            final char[] edgeSuffix = child.getEdgeSuffix();
+
+            for(int j = 0; j < edgeSuffix.length; j++, i++) {
+                if(i == len || getLookupCharPrimitive(resource.charAt(i)) != edgeSuffix[j]) {
+                    return curr.getWildcardEvaluators();
+                }
+            }
+
+            curr = child;
+        }
+
+        return curr.getEvaluators();
+    }
+
+    // adds evaluator to, or removes it from, the nodes for its resource values; copiedNodes is null while building a new trie
+    private void updateEvaluator(TrieNode root, T evaluator, boolean isAdd, Set<TrieNode> copiedNodes) {
+        Map<String, RangerPolicyResource> policyResources = evaluator.getPolicyResource();
+        RangerPolicyResource              policyResource  = policyResources != null ? policyResources.get(resourceName) : null;
+
+        if(policyResource == null) {
+            if(evaluator.getLeafResourceLevel() != null && resourceLevel != null && evaluator.getLeafResourceLevel() < resourceLevel) {
+                root.updateWildcardEvaluator(evaluator, isAdd);
+            }
+
+            return;
+        }
+
+        if(policyResource.getIsExcludes()) {
+            root.updateWildcardEvaluator(evaluator, isAdd);
+        } else {
+            RangerResourceMatcher resourceMatcher = evaluator.getResourceMatcher(resourceName);
+
+            if(resourceMatcher != null && (resourceMatcher.isMatchAny())) {
+                root.updateWildcardEvaluator(evaluator, isAdd);
+            } else {
+                if(CollectionUtils.isNotEmpty(policyResource.getValues())) {
+                    for (String resource : policyResource.getValues()) {
+                        insert(root, resource, policyResource.getIsRecursive(), evaluator, isAdd, copiedNodes);
+                    }
+                }
+            }
+        }
+    }
+
+    private void insert(TrieNode root, String resource, boolean isRecursive, T evaluator, boolean isAdd, Set<TrieNode> copiedNodes) {
         TrieNode curr       = root;
         boolean  isWildcard = false;
 
@@ -192,13 +309,17 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
                 }
             }
 
-            curr = curr.getOrCreateChild(ch);
+            curr = copiedNodes == null ? curr.getOrCreateChild(ch) : curr.getOrCopyChild(ch, isAdd, copiedNodes);
+
+            if(curr == null) { // evaluator to remove is not in the trie
+                return;
+            }
         }
 
         if(isWildcard || isRecursive) {
-            curr.addWildcardEvaluator(evaluator);
+            curr.updateWildcardEvaluator(evaluator, isAdd);
         } else {
-            curr.addEvaluator(evaluator);
+            curr.updateEvaluator(evaluator, isAdd);
         }
     }
 
@@ -209,6 +330,7 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         TrieData trieData = getTrieData();
 
         sb.append("resourceName=").append(resourceName);
+        sb.append("; compactLayout=").append(isCompactLayout());
         sb.append("; optIgnoreCase=").append(optIgnoreCase);
         sb.append("; optWildcard=").append(optWildcard);
         sb.append("; wildcardChars=").append(wildcardChars);
@@ -220,19 +342,54 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         sb.append("; wildcardEvaluatorListCount=").append(trieData.wildcardEvaluatorListCount);
         sb.append("; evaluatorListRefCount=").append(trieData.evaluatorListRefCount);
         sb.append("; wildcardEvaluatorListRefCount=").append(trieData.wildcardEvaluatorListRefCount);
+        sb.append("; estimatedMemoryBytes=").append(trieData.estimatedMemoryBytes);
+        sb.append("; estimatedMemoryBytesPerNode=").append(trieData.getEstimatedMemoryBytesPerNode());
 
         return sb.toString();
     }
 
     public class TrieData {
-        int nodeCount;
-        int leafNodeCount;
-        int singleChildNodeCount;
-        int maxDepth;
-        int evaluatorListCount;
-        int wildcardEvaluatorListCount;
-        int evaluatorListRefCount;
-        int wildcardEvaluatorListRefCount;
+        int  nodeCount;
+        int  leafNodeCount;
+        int  singleChildNodeCount;
+        int  maxDepth;
+        int  evaluatorListCount;
+        int  wildcardEvaluatorListCount;
+        int  evaluatorListRefCount;
+        int  wildcardEvaluatorListRefCount;
+        long estimatedMemoryBytes;
+
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public long getEstimatedMemoryBytes() {
+            return estimatedMemoryBytes;
+        }
+
+        public long getEstimatedMemoryBytesPerNode() {
+            return nodeCount == 0 ? 0 : estimatedMemoryBytes / nodeCount;
+        }
+    }
+
+    // approximate sizes, in bytes, on a 64-bit JVM with compressed oops; used only for reporting
+    static final int OBJECT_HEADER_SIZE    = 12;
+    static final int ARRAY_HEADER_SIZE     = 16;
+    static final int REFERENCE_SIZE        = 4;
+    static final int HASHMAP_SIZE          = 48;
+    static final int HASHMAP_ENTRY_SIZE    = 32;
+    static final int ARRAYLIST_SIZE        = 24;
+
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    static long getEstimatedListSize(List<?> list) {
+        return list == null ? 0 : align(ARRAYLIST_SIZE) + align(ARRAY_HEADER_SIZE + (long) REFERENCE_SIZE * list.size());
     }
 }
 
@@ -242,6 +399,8 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
     private List<T>                  evaluators;
     private List<T>                  wildcardEvaluators;
     private boolean   isSharingParentWildcardEvaluators;
+    private List<T>                  ownEvaluators;         // evaluators added to this node; evaluators also has those inherited
+    private List<T>                  ownWildcardEvaluators; // wildcard-evaluators added to this node
 
     TrieNode(Character c) {
         this.c = c;
@@ -269,14 +428,42 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         return ret;
     }
 
+    boolean isSharingParentWildcardEvaluators() {
+        return isSharingParentWildcardEvaluators;
+    }
+
     void populateTrieData(RangerResourceTrie.TrieData trieData) {
         trieData.nodeCount++;
 
+        // node: header + char-ref + 5 refs + boolean; boxed chars below 128 are cached and not counted
+        trieData.estimatedMemoryBytes += RangerResourceTrie.align(RangerResourceTrie.OBJECT_HEADER_SIZE + 6 * RangerResourceTrie.REFERENCE_SIZE + 1);
+
+        if(ownWildcardEvaluators != null && ownWildcardEvaluators != wildcardEvaluators) {
+            trieData.estimatedMemoryBytes += RangerResourceTrie.getEstimatedListSize(ownWildcardEvaluators);
+        }
+
+        if(ownEvaluators != null && ownEvaluators != evaluators) {
+            trieData.estimatedMemoryBytes += RangerResourceTrie.getEstimatedListSize(ownEvaluators);
+        }
+
+        if(children != null) {
+            int tableSize = 16;
+
+            while(tableSize * 3 / 4 < children.size()) {
+                tableSize *= 2;
+            }
+
+            trieData.estimatedMemoryBytes += RangerResourceTrie.align(RangerResourceTrie.HASHMAP_SIZE)
+                                           + RangerResourceTrie.align(RangerResourceTrie.ARRAY_HEADER_SIZE + RangerResourceTrie.REFERENCE_SIZE * tableSize)
+                                           + (long) RangerResourceTrie.HASHMAP_ENTRY_SIZE * children.size();
+        }
+
         if(wildcardEvaluators != null) {
             if(isSharingParentWildcardEvaluators) {
                 trieData.wildcardEvaluatorListRefCount++;
             } else {
                 trieData.wildcardEvaluatorListCount++;
+                trieData.estimatedMemoryBytes += RangerResourceTrie.getEstimatedListSize(wildcardEvaluators);
             }
         }
 
@@ -285,6 +472,7 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
                 trieData.evaluatorListRefCount++;
             } else {
                 trieData.evaluatorListCount++;
+                trieData.estimatedMemoryBytes += RangerResourceTrie.getEstimatedListSize(evaluators);
             }
         }
 
@@ -336,90 +524,157 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         return child;
     }
 
-    void addEvaluator(T evaluator) {
-        if(evaluators == null) {
-            evaluators = new ArrayList<>();
-        }
+    // should only be called on a node in copiedNodes, i.e. a node not shared with another trie
+    TrieNode getOrCopyChild(Character c, boolean createIfAbsent, Set<TrieNode> copiedNodes) {
+        TrieNode child = children == null ? null : children.get(c);
+
+        if(child == null) {
+            if(createIfAbsent) {
+                child = getOrCreateChild(c);
 
-        if(!evaluators.contains(evaluator)) {
-            evaluators.add(evaluator);
+                copiedNodes.add(child);
+            }
+        } else if(!copiedNodes.contains(child)) {
+            child = child.copy();
+
+            children.put(c, child);
+            copiedNodes.add(child);
         }
+
+        return child;
+    }
+
+    TrieNode<T> copy() {
+        TrieNode<T> ret = new TrieNode<>(c);
+
+        ret.children                          = children == null ? null : new HashMap<>(children);
+        ret.evaluators                        = evaluators;
+        ret.wildcardEvaluators                = wildcardEvaluators;
+        ret.isSharingParentWildcardEvaluators = isSharingParentWildcardEvaluators;
+        ret.ownEvaluators                     = ownEvaluators == null ? null : new ArrayList<>(ownEvaluators);
+        ret.ownWildcardEvaluators             = ownWildcardEvaluators == null ? null : new ArrayList<>(ownWildcardEvaluators);
+
+        return ret;
     }
 
-    void addWildcardEvaluator(T evaluator) {
-        if(wildcardEvaluators == null) {
-            wildcardEvaluators = new ArrayList<>();
+    void updateEvaluator(T evaluator, boolean isAdd) {
+        if(isAdd) {
+            if(ownEvaluators == null) {
+                ownEvaluators = new ArrayList<>();
+            }
+
+            if(!ownEvaluators.contains(evaluator)) {
+                ownEvaluators.add(evaluator);
+            }
+        } else if(ownEvaluators != null) {
+            ownEvaluators.remove(evaluator);
         }
+    }
+
+    void updateWildcardEvaluator(T evaluator, boolean isAdd) {
+        if(isAdd) {
+            if(ownWildcardEvaluators == null) {
+                ownWildcardEvaluators = new ArrayList<>();
+            }
 
-        if(!wildcardEvaluators.contains(evaluator)) {
-            wildcardEvaluators.add(evaluator);
+            if(!ownWildcardEvaluators.contains(evaluator)) {
+                ownWildcardEvaluators.add(evaluator);
+            }
+        } else if(ownWildcardEvaluators != null) {
+            ownWildcardEvaluators.remove(evaluator);
         }
     }
 
+    boolean isEmpty() {
+        return (children == null || children.isEmpty()) && CollectionUtils.isEmpty(ownEvaluators) && CollectionUtils.isEmpty(ownWildcardEvaluators);
+    }
+
     void postSetup(List<T> parentWildcardEvaluators) {
+        postSetup(parentWildcardEvaluators, null);
+    }
+
+    /*
+     * finalizes evaluators and wildcard-evaluators lists of the node by including those inherited from the parent.
+     * When copiedNodes is not null, the trie is being updated: only nodes in copiedNodes are updated - along with
+     * nodes below them whose inherited wildcard-evaluators have changed, which are copied first. Other nodes are
+     * shared with the trie being updated, and are left as is.
+     */
+    void postSetup(List<T> parentWildcardEvaluators, Set<TrieNode> copiedNodes) {
+        final List<T> prevWildcardEvaluators = this.wildcardEvaluators;
+        final List<T> prevEvaluators         = this.evaluators;
+
+        RangerPolicyResourceEvaluator.IdComparator comparator = new RangerPolicyResourceEvaluator.IdComparator();
+
         // finalize wildcard-evaluators list by including parent's wildcard evaluators
-        if(parentWildcardEvaluators != null) {
-            if(CollectionUtils.isEmpty(this.wildcardEvaluators)) {
-                this.wildcardEvaluators = parentWildcardEvaluators;
-            } else {
-                for (T evaluator : parentWildcardEvaluators) {
-                    addWildcardEvaluator(evaluator);
-                }
-            }
-        }
+        this.wildcardEvaluators                = merge(ownWildcardEvaluators, parentWildcardEvaluators, comparator);
         this.isSharingParentWildcardEvaluators = wildcardEvaluators == parentWildcardEvaluators;
 
         // finalize evaluators list by including wildcard evaluators
-        if(wildcardEvaluators != null) {
-            if(CollectionUtils.isEmpty(this.evaluators)) {
-                this.evaluators = wildcardEvaluators;
-            } else {
-                for (T evaluator : wildcardEvaluators) {
-                    addEvaluator(evaluator);
-                }
-            }
-        }
+        this.evaluators = merge(ownEvaluators, wildcardEvaluators, comparator);
 
-        RangerPolicyResourceEvaluator.IdComparator comparator = new RangerPolicyResourceEvaluator.IdComparator();
-        if(!isSharingParentWildcardEvaluators && CollectionUtils.isNotEmpty(wildcardEvaluators)) {
-            Collections.sort(wildcardEvaluators, comparator);
-        }
+        if(copiedNodes != null) { // retain unchanged lists, so that the nodes below can continue to be shared
+            if(!isSharingParentWildcardEvaluators && prevWildcardEvaluators != null && prevWildcardEvaluators.equals(wildcardEvaluators)) {
+                this.wildcardEvaluators = prevWildcardEvaluators;
+            }
 
-        if(evaluators != wildcardEvaluators && CollectionUtils.isNotEmpty(evaluators)) {
-            Collections.sort(evaluators, comparator);
+            if(evaluators != wildcardEvaluators && prevEvaluators != null && prevEvaluators.equals(evaluators)) {
+                this.evaluators = prevEvaluators;
+            }
         }
 
         if(children != null) {
-            for(Map.Entry<Character, TrieNode> entry : children.entrySet()) {
-                TrieNode child = entry.getValue();
+            Iterator<Map.Entry<Character, TrieNode>> iter = children.entrySet().iterator();
+
+            while(iter.hasNext()) {
+                Map.Entry<Character, TrieNode> entry = iter.next();
+                TrieNode                       child = entry.getValue();
+
+                if(copiedNodes != null) {
+                    if(!copiedNodes.contains(child)) {
+                        if(wildcardEvaluators == prevWildcardEvaluators) { // nothing changed for the nodes below
+                            continue;
+                        }
+
+                        child = child.copy();
+
+                        entry.setValue(child);
+                        copiedNodes.add(child);
+                    }
 
-                child.postSetup(wildcardEvaluators);
+                    child.postSetup(wildcardEvaluators, copiedNodes);
+
+                    if(child.isEmpty()) { // lookups will get the same evaluators from this node
+                        iter.remove();
+                    }
+                } else {
+                    child.postSetup(wildcardEvaluators, null);
+                }
             }
         }
     }
 
-    void reorderEvaluators(List<T> parentWildcardEvaluators) {
-        boolean isEvaluatorsSameAsWildcardEvaluators = evaluators == wildcardEvaluators;
-
-        if(isSharingParentWildcardEvaluators) {
-            wildcardEvaluators = parentWildcardEvaluators;
-        } else {
-            wildcardEvaluators = getSortedCopy(wildcardEvaluators);
-        }
+    private static <T extends RangerPolicyResourceEvaluator> List<T> merge(List<T> ownEvaluators, List<T> inheritedEvaluators, RangerPolicyResourceEvaluator.IdComparator comparator) {
+        final List<T> ret;
 
-        if(isEvaluatorsSameAsWildcardEvaluators) {
-            evaluators = wildcardEvaluators;
+        if(CollectionUtils.isEmpty(ownEvaluators)) {
+            ret = inheritedEvaluators;
         } else {
-            evaluators = getSortedCopy(evaluators);
-        }
-
-        if(children != null) {
-            for(Map.Entry<Character, TrieNode> entry : children.entrySet()) {
-                TrieNode child = entry.getValue();
+            if(CollectionUtils.isEmpty(inheritedEvaluators)) {
+                ret = ownEvaluators;
+            } else {
+                ret = new ArrayList<>(ownEvaluators);
 
-                child.reorderEvaluators(wildcardEvaluators);
+                for(T evaluator : inheritedEvaluators) {
+                    if(!ret.contains(evaluator)) {
+                        ret.add(evaluator);
+                    }
+                }
             }
+
+            Collections.sort(ret, comparator);
         }
+
+        return ret;
     }
 
     public void toString(String prefix, StringBuilder sb) {
@@ -458,22 +713,182 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
     }
 
     public void clear() {
-        children           = null;
-        evaluators         = null;
-        wildcardEvaluators = null;
+        children              = null;
+        evaluators            = null;
+        wildcardEvaluators    = null;
+        ownEvaluators         = null;
+        ownWildcardEvaluators = null;
     }
+}
 
-    private List<T> getSortedCopy(List<T> evaluators) {
-        final List<T> ret;
+/*
+ * Read-only trie node used when RangerPolicyEngineOptions.optimizeTrieForSpace is set. Children are kept in a
+ * sorted char[] (binary searched, no boxing) and chains of single-child nodes that carry no evaluators of their
+ * own are collapsed into the edge leading to the next node (path compression).
+ */
+class CompactTrieNode<T extends RangerPolicyResourceEvaluator> {
+    private static final char[]            EMPTY_CHARS             = new char[0];
+    private static final CompactTrieNode[] EMPTY_CHILDREN          = new CompactTrieNode[0];
+    private static final int               LINEAR_SEARCH_THRESHOLD = 8;
+
+    private final char[]            edgeSuffix;
+    private final char[]            childChars;
+    private final CompactTrieNode[] children;
+    private final boolean           isSharingParentWildcardEvaluators;
+    private List<T>                 evaluators;
+    private List<T>                 wildcardEvaluators;
+
+    private CompactTrieNode(char[] edgeSuffix, char[] childChars, CompactTrieNode[] children, List<T> evaluators, List<T> wildcardEvaluators, boolean isSharingParentWildcardEvaluators) {
+        this.edgeSuffix                        = edgeSuffix;
+        this.childChars                        = childChars;
+        this.children                          = children;
+        this.evaluators                        = evaluators;
+        this.wildcardEvaluators                = wildcardEvaluators;
+        this.isSharingParentWildcardEvaluators = isSharingParentWildcardEvaluators;
+    }
 
-        if(CollectionUtils.isNotEmpty(evaluators)) {
-            ret = new ArrayList<>(evaluators);
+    static <T extends RangerPolicyResourceEvaluator> CompactTrieNode<T> create(TrieNode<T> node, char[] edgeSuffix) {
+        Map<Character, TrieNode> nodeChildren = node.getChildren();
+        int                      childCount   = nodeChildren == null ? 0 : nodeChildren.size();
+        final char[]             childChars;
+        final CompactTrieNode[]  children;
 
-            Collections.sort(ret, new RangerPolicyResourceEvaluator.IdComparator());
+        if(childCount == 0) {
+            childChars = EMPTY_CHARS;
+            children   = EMPTY_CHILDREN;
         } else {
-            ret = evaluators;
+            childChars = new char[childCount];
+            children   = new CompactTrieNode[childCount];
+
+            int idx = 0;
+            for(Character c : nodeChildren.keySet()) {
+                childChars[idx++] = c;
+            }
+
+            Arrays.sort(childChars);
+
+            for(idx = 0; idx < childCount; idx++) {
+                TrieNode<T>   child  = nodeChildren.get(childChars[idx]);
+                StringBuilder suffix = null;
+
+                while(isCollapsible(child)) {
+                    Map.Entry<Character, TrieNode> entry = child.getChildren().entrySet().iterator().next();
+
+                    if(suffix == null) {
+                        suffix = new StringBuilder();
+                    }
+
+                    suffix.append(entry.getKey().charValue());
+
+                    child = entry.getValue();
+                }
+
+                children[idx] = create(child, suffix == null ? EMPTY_CHARS : suffix.toString().toCharArray());
+            }
         }
 
-        return ret;
+        return new CompactTrieNode<>(edgeSuffix == null ? EMPTY_CHARS : edgeSuffix, childChars, children, node.getEvaluators(), node.getWildcardEvaluators(), node.isSharingParentWildcardEvaluators());
+    }
+
+    // a node can be folded into its parent's edge only when lookups ending at, or failing at, the node
+    // would return the parent's wildcard-evaluators anyway
+    private static boolean isCollapsible(TrieNode node) {
+        Map<Character, TrieNode> children = node.getChildren();
+
+        return children != null && children.size() == 1 && node.isSharingParentWildcardEvaluators() && node.getEvaluators() == node.getWildcardEvaluators();
     }
+
+    char[] getEdgeSuffix() {
+        return edgeSuffix;
+    }
+
+    List<T> getEvaluators() {
+        return evaluators;
+    }
+
+    List<T> getWildcardEvaluators() {
+        return wildcardEvaluators;
+    }
+
+    @SuppressWarnings("unchecked")
+    CompactTrieNode<T> getChild(char c) {
+        final char[] keys = childChars;
+
+        if(keys.length <= LINEAR_SEARCH_THRESHOLD) {
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i] == c) {
+                    return children[i];
+                } else if(keys[i] > c) {
+                    break;
+                }
+            }
+
+            return null;
+        }
+
+        int idx = Arrays.binarySearch(keys, c);
+
+        return idx < 0 ? null : children[idx];
+    }
+
+    void populateTrieData(RangerResourceTrie.TrieData trieData) {
+        trieData.nodeCount++;
+
+        // node: header + 5 refs + boolean
+        trieData.estimatedMemoryBytes += RangerResourceTrie.align(RangerResourceTrie.OBJECT_HEADER_SIZE + 5 * RangerResourceTrie.REFERENCE_SIZE + 1);
+
+        if(edgeSuffix.length > 0) {
+            trieData.estimatedMemoryBytes += RangerResourceTrie.align(RangerResourceTrie.ARRAY_HEADER_SIZE + 2 * edgeSuffix.length);
+        }
+
+        if(children.length > 0) {
+            trieData.estimatedMemoryBytes += RangerResourceTrie.align(RangerResourceTrie.ARRAY_HEADER_SIZE + 2 * childChars.length)
+                                           + RangerResourceTrie.align(RangerResourceTrie.ARRAY_HEADER_SIZE + RangerResourceTrie.REFERENCE_SIZE * children.length);
+        }
+
+        if(wildcardEvaluators != null) {
+            if(isSharingParentWildcardEvaluators) {
+                trieData.wildcardEvaluatorListRefCount++;
+            } else {
+                trieData.wildcardEvaluatorListCount++;
+                trieData.estimatedMemoryBytes += RangerResourceTrie.getEstimatedListSize(wildcardEvaluators);
+            }
+        }
+
+        if(evaluators != null) {
+            if(evaluators == wildcardEvaluators) {
+                trieData.evaluatorListRefCount++;
+            } else {
+                trieData.evaluatorListCount++;
+                trieData.estimatedMemoryBytes += RangerResourceTrie.getEstimatedListSize(evaluators);
+            }
+        }
+
+        if(children.length > 0) {
+            if(children.length == 1) {
+                trieData.singleChildNodeCount++;
+            }
+
+            for(CompactTrieNode child : children) {
+                child.populateTrieData(trieData);
+            }
+        } else {
+            trieData.leafNodeCount++;
+        }
+    }
+
+    int getMaxDepth() {
+        int ret = 0;
+
+        for(CompactTrieNode child : children) {
+            int maxChildDepth = child.getMaxDepth() + child.edgeSuffix.length;
+
+            if(maxChildDepth > ret) {
+                ret = maxChildDepth;
+            }
+        }
+
+        return ret + 1;
+    }
+
 }
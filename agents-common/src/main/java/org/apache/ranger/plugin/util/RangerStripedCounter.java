@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*
+ * Counter for values updated concurrently by many threads and read rarely. Updates go to a single base value
+ * until two threads collide on it; from then on updates are spread over cells, each padded to its own cache line,
+ * indexed by the updating thread. Cells start at 2 and double on each further collision, up to the concurrency
+ * level; hence a counter that sees little contention - like the usage count of most policies - stays small. The
+ * value is the sum of base and all cells.
+ */
+public class RangerStripedCounter {
+    private static final int MAX_STRIPES = 64;
+
+    private static final AtomicLongFieldUpdater<RangerStripedCounter> BASE_UPDATER = AtomicLongFieldUpdater.newUpdater(RangerStripedCounter.class, "base");
+
+    private final    int    maxStripes;
+    private volatile long   base;
+    private volatile Cell[] cells;
+
+    public RangerStripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RangerStripedCounter(int concurrencyLevel) {
+        int maxStripes = 2;
+
+        while(maxStripes < concurrencyLevel && maxStripes < MAX_STRIPES) {
+            maxStripes <<= 1;
+        }
+
+        this.maxStripes = maxStripes;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        Cell[] cells = this.cells;
+
+        if(cells == null) {
+            long base = this.base;
+
+            if(BASE_UPDATER.compareAndSet(this, base, base + delta)) {
+                return;
+            }
+
+            cells = growCells(null);
+        }
+
+        while(true) {
+            Cell cell  = cells[getCellIndex(cells.length)];
+            long value = cell.value;
+
+            if(cell.compareAndSet(value, value + delta)) {
+                break;
+            }
+
+            if(cells.length >= maxStripes) {
+                cell.add(delta);
+
+                break;
+            }
+
+            cells = growCells(cells);
+        }
+    }
+
+    public long sum() {
+        long   ret   = base;
+        Cell[] cells = this.cells;
+
+        if(cells != null) {
+            for(Cell cell : cells) {
+                ret += cell.value;
+            }
+        }
+
+        return ret;
+    }
+
+    public void reset() {
+        Cell[] cells = this.cells;
+
+        base = 0;
+
+        if(cells != null) {
+            for(Cell cell : cells) {
+                cell.value = 0;
+            }
+        }
+    }
+
+    public long sumThenReset() {
+        long   ret   = BASE_UPDATER.getAndSet(this, 0);
+        Cell[] cells = this.cells;
+
+        if(cells != null) {
+            for(Cell cell : cells) {
+                ret += cell.getAndSet(0);
+            }
+        }
+
+        return ret;
+    }
+
+    int getStripeCount() {
+        Cell[] cells = this.cells;
+
+        return cells == null ? 0 : cells.length;
+    }
+
+    // doubles the cells - keeping the existing ones, so that concurrent updates to them are not lost
+    private synchronized Cell[] growCells(Cell[] expected) {
+        Cell[] ret = cells;
+
+        if(ret == expected && (ret == null || ret.length < maxStripes)) {
+            int stripeCount = ret == null ? 2 : ret.length << 1;
+            int i           = 0;
+
+            Cell[] newCells = new Cell[stripeCount];
+
+            if(ret != null) {
+                for(; i < ret.length; i++) {
+                    newCells[i] = ret[i];
+                }
+            }
+
+            for(; i < stripeCount; i++) {
+                newCells[i] = new Cell();
+            }
+
+            ret   = newCells;
+            cells = newCells;
+        }
+
+        return ret;
+    }
+
+    private static int getCellIndex(int stripeCount) {
+        long threadId = Thread.currentThread().getId();
+
+        return (int) (threadId ^ (threadId >>> 16)) & (stripeCount - 1);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    private static final class Cell {
+        private static final AtomicLongFieldUpdater<Cell> VALUE_UPDATER = AtomicLongFieldUpdater.newUpdater(Cell.class, "value");
+
+        // padding to keep cells updated by different threads on separate cache lines
+        volatile long p0, p1, p2, p3, p4, p5, p6;
+        volatile long value;
+        volatile long q0, q1, q2, q3, q4, q5, q6;
+
+        boolean compareAndSet(long expect, long update) {
+            return VALUE_UPDATER.compareAndSet(this, expect, update);
+        }
+
+        void add(long delta) {
+            VALUE_UPDATER.addAndGet(this, delta);
+        }
+
+        long getAndSet(long newValue) {
+            return VALUE_UPDATER.getAndSet(this, newValue);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+/*
+ * Wildcard ('*' and '?') matcher with the same semantics as FilenameUtils.wildcardMatch(), but compiled once per
+ * pattern: common pattern shapes (abc, abc*, *abc, *abc*, abc*xyz) are matched with a single region comparison, and
+ * others with an iterative matcher that backtracks only to the last '*' seen. Matching doesn't allocate, unlike
+ * FilenameUtils.wildcardMatch() which tokenizes the pattern and allocates a backtrack stack on every call.
+ *
+ * FilenameUtils.wildcardMatch() ignores a '*' that is immediately followed by '?' (i.e. "a*?c" matches like "a?c");
+ * this is retained, so that existing policies continue to match the same resources.
+ */
+public abstract class RangerWildcardMatcher {
+    public static final char WILDCARD_ANY_SEQUENCE = '*';
+    public static final char WILDCARD_ANY_CHAR     = '?';
+
+    protected final String  pattern;
+    protected final boolean ignoreCase;
+
+    RangerWildcardMatcher(String pattern, boolean ignoreCase) {
+        this.pattern    = pattern;
+        this.ignoreCase = ignoreCase;
+    }
+
+    public static RangerWildcardMatcher compile(String wildcardPattern, boolean ignoreCase) {
+        if (wildcardPattern == null) {
+            throw new IllegalArgumentException("pattern can't be null");
+        }
+
+        final String pattern = removeStarsBeforeAnyChar(wildcardPattern);
+
+        final int len          = pattern.length();
+        int       firstRunEnd  = -1; // index after the first run of '*'s
+        int       lastRunStart = -1; // index of the first '*' in the last run of '*'s
+        int       lastStar     = -1;
+        int       starRunCount = 0;
+        boolean   hasAnyChar   = false;
+
+        for (int i = 0; i < len; i++) {
+            char c = pattern.charAt(i);
+
+            if (c == WILDCARD_ANY_CHAR) {
+                hasAnyChar = true;
+            } else if (c == WILDCARD_ANY_SEQUENCE) {
+                if (lastStar == -1 || lastStar != i - 1) {
+                    starRunCount++;
+                    lastRunStart = i;
+                }
+
+                if (starRunCount == 1) {
+                    firstRunEnd = i + 1;
+                }
+
+                lastStar = i;
+            }
+        }
+
+        final RangerWildcardMatcher ret;
+
+        if (hasAnyChar || starRunCount > 2) {
+            ret = new GenericMatcher(pattern, ignoreCase);
+        } else if (starRunCount == 0) {                                      // abc
+            ret = new EqualsMatcher(pattern, ignoreCase);
+        } else if (starRunCount == 1) {
+            String prefix = pattern.substring(0, lastRunStart);
+            String suffix = pattern.substring(firstRunEnd);
+
+            if (prefix.isEmpty() && suffix.isEmpty()) {                      // *
+                ret = new AnyMatcher(pattern, ignoreCase);
+            } else {                                                         // abc*, *xyz, abc*xyz
+                ret = new PrefixSuffixMatcher(pattern, ignoreCase, prefix, suffix);
+            }
+        } else if (pattern.charAt(0) == WILDCARD_ANY_SEQUENCE && lastStar == len - 1) { // *abc*
+            ret = new ContainsMatcher(pattern, ignoreCase, pattern.substring(firstRunEnd, lastRunStart));
+        } else {                                                             // abc*xyz*, *abc*xyz
+            ret = new GenericMatcher(pattern, ignoreCase);
+        }
+
+        return ret;
+    }
+
+    /*
+     * Equivalent of FilenameUtils.wildcardMatch(str, pattern, ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE),
+     * for patterns that can't be compiled ahead of time, like patterns with tokens to be replaced per request.
+     */
+    public static boolean wildcardMatch(String str, String pattern, boolean ignoreCase) {
+        if (str == null || pattern == null) {
+            return str == null && pattern == null;
+        }
+
+        return genericMatch(str, str.length(), pattern, ignoreCase);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public boolean isMatch(String str) {
+        return str != null && isMatch(str, str.length());
+    }
+
+    // matches the pattern against str.substring(0, endIdx), without creating the substring
+    public abstract boolean isMatch(String str, int endIdx);
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + pattern + (ignoreCase ? ", ignoreCase" : "") + ")";
+    }
+
+    static boolean genericMatch(String str, int strLen, String pattern, boolean ignoreCase) {
+        final int patternLen = pattern.length();
+
+        int strIdx         = 0;
+        int patternIdx     = 0;
+        int starPatternIdx = -1;
+        int starStrIdx     = 0;
+
+        while (strIdx < strLen) {
+            if (patternIdx < patternLen) {
+                char pc = pattern.charAt(patternIdx);
+
+                if (pc == WILDCARD_ANY_SEQUENCE) {
+                    while (++patternIdx < patternLen && pattern.charAt(patternIdx) == WILDCARD_ANY_SEQUENCE) {
+                        // skip consecutive '*'s
+                    }
+
+                    if (patternIdx < patternLen && pattern.charAt(patternIdx) == WILDCARD_ANY_CHAR) {
+                        continue; // '*' followed by '?' is ignored, as in FilenameUtils.wildcardMatch()
+                    }
+
+                    starPatternIdx = patternIdx;
+                    starStrIdx     = strIdx;
+
+                    continue;
+                }
+
+                if (pc == WILDCARD_ANY_CHAR || charEquals(pc, str.charAt(strIdx), ignoreCase)) {
+                    patternIdx++;
+                    strIdx++;
+
+                    continue;
+                }
+            }
+
+            if (starPatternIdx == -1) {
+                return false;
+            }
+
+            // backtrack: let the last '*' consume one more character
+            patternIdx = starPatternIdx;
+            strIdx     = ++starStrIdx;
+        }
+
+        while (patternIdx < patternLen && pattern.charAt(patternIdx) == WILDCARD_ANY_SEQUENCE) {
+            patternIdx++;
+        }
+
+        return patternIdx == patternLen;
+    }
+
+    static String removeStarsBeforeAnyChar(String pattern) {
+        if (pattern.indexOf("" + WILDCARD_ANY_SEQUENCE + WILDCARD_ANY_CHAR) == -1) {
+            return pattern;
+        }
+
+        StringBuilder sb = new StringBuilder(pattern.length());
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+
+            if (c == WILDCARD_ANY_SEQUENCE) {
+                int runEnd = i + 1;
+
+                while (runEnd < pattern.length() && pattern.charAt(runEnd) == WILDCARD_ANY_SEQUENCE) {
+                    runEnd++;
+                }
+
+                if (runEnd < pattern.length() && pattern.charAt(runEnd) == WILDCARD_ANY_CHAR) {
+                    i = runEnd - 1;
+
+                    continue;
+                }
+            }
+
+            sb.append(c);
+        }
+
+        return sb.toString();
+    }
+
+    // same comparison as String.regionMatches(ignoreCase=true, ...), which IOCase.INSENSITIVE uses
+    static boolean charEquals(char c1, char c2, boolean ignoreCase) {
+        if (c1 == c2) {
+            return true;
+        }
+
+        if (ignoreCase) {
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+
+            return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+        }
+
+        return false;
+    }
+
+    static final class AnyMatcher extends RangerWildcardMatcher {
+        AnyMatcher(String pattern, boolean ignoreCase) {
+            super(pattern, ignoreCase);
+        }
+
+        @Override
+        public boolean isMatch(String str, int endIdx) {
+            return str != null;
+        }
+    }
+
+    static final class EqualsMatcher extends RangerWildcardMatcher {
+        EqualsMatcher(String pattern, boolean ignoreCase) {
+            super(pattern, ignoreCase);
+        }
+
+        @Override
+        public boolean isMatch(String str, int endIdx) {
+            return str != null && endIdx == pattern.length() && str.regionMatches(ignoreCase, 0, pattern, 0, endIdx);
+        }
+    }
+
+    static final class PrefixSuffixMatcher extends RangerWildcardMatcher {
+        private final String prefix;
+        private final String suffix;
+        private final int    minLength;
+
+        PrefixSuffixMatcher(String pattern, boolean ignoreCase, String prefix, String suffix) {
+            super(pattern, ignoreCase);
+
+            this.prefix    = prefix;
+            this.suffix    = suffix;
+            this.minLength = prefix.length() + suffix.length();
+        }
+
+        @Override
+        public boolean isMatch(String str, int endIdx) {
+            return str != null && endIdx >= minLength
+                    && str.regionMatches(ignoreCase, 0, prefix, 0, prefix.length())
+                    && str.regionMatches(ignoreCase, endIdx - suffix.length(), suffix, 0, suffix.length());
+        }
+    }
+
+    static final class ContainsMatcher extends RangerWildcardMatcher {
+        private final String infix;
+
+        ContainsMatcher(String pattern, boolean ignoreCase, String infix) {
+            super(pattern, ignoreCase);
+
+            this.infix = infix;
+        }
+
+        @Override
+        public boolean isMatch(String str, int endIdx) {
+            if (str == null) {
+                return false;
+            }
+
+            final int infixLen = infix.length();
+
+            for (int i = 0, last = endIdx - infixLen; i <= last; i++) {
+                if (str.regionMatches(ignoreCase, i, infix, 0, infixLen)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    static final class GenericMatcher extends RangerWildcardMatcher {
+        private final int minLength; // number of non-'*' characters in the pattern
+
+        GenericMatcher(String pattern, boolean ignoreCase) {
+            super(pattern, ignoreCase);
+
+            int count = 0;
+
+            for (int i = 0; i < pattern.length(); i++) {
+                if (pattern.charAt(i) != WILDCARD_ANY_SEQUENCE) {
+                    count++;
+                }
+            }
+
+            this.minLength = count;
+        }
+
+        @Override
+        public boolean isMatch(String str, int endIdx) {
+            return str != null && endIdx >= minLength && genericMatch(str, endIdx, pattern, ignoreCase);
+        }
+    }
+}
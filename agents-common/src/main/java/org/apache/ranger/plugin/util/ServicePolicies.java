@@ -28,6 +28,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.codehaus.jackson.annotate.JsonAutoDetect;
@@ -45,14 +46,15 @@ import com.google.common.base.Objects;
 public class ServicePolicies implements java.io.Serializable {
 	private static final long serialVersionUID = 1L;
 
-	private String             serviceName;
-	private Long               serviceId;
-	private Long               policyVersion;
-	private Date               policyUpdateTime;
-	private List<RangerPolicy> policies;
-	private RangerServiceDef   serviceDef;
-	private String             auditMode = RangerPolicyEngine.AUDIT_DEFAULT;
-	private TagPolicies        tagPolicies;
+	private String                  serviceName;
+	private Long                    serviceId;
+	private Long                    policyVersion;
+	private Date                    policyUpdateTime;
+	private List<RangerPolicy>      policies;
+	private RangerServiceDef        serviceDef;
+	private String                  auditMode = RangerPolicyEngine.AUDIT_DEFAULT;
+	private TagPolicies             tagPolicies;
+	private List<RangerPolicyDelta> policyDeltas;
 
 	/**
 	 * @return the serviceName
@@ -146,6 +148,18 @@ public class ServicePolicies implements java.io.Serializable {
 	public void setTagPolicies(ServicePolicies.TagPolicies tagPolicies) {
 		this.tagPolicies = tagPolicies;
 	}
+	/**
+	 * @return the policyDeltas - changes since the version known to the caller; set instead of policies in a delta download
+	 */
+	public List<RangerPolicyDelta> getPolicyDeltas() {
+		return policyDeltas;
+	}
+	/**
+	 * @param policyDeltas the policyDeltas to set
+	 */
+	public void setPolicyDeltas(List<RangerPolicyDelta> policyDeltas) {
+		this.policyDeltas = policyDeltas;
+	}
 	
 	@Override
 	public String toString() {
@@ -158,6 +172,7 @@ public class ServicePolicies implements java.io.Serializable {
 			.add("serviceDef", serviceDef)
 			.add("auditMode", auditMode)
 			.add("tagPolicies", tagPolicies)
+			.add("policyDeltas", policyDeltas)
 			.toString();
 	}
 
@@ -169,13 +184,14 @@ public class ServicePolicies implements java.io.Serializable {
 	public static class TagPolicies implements java.io.Serializable {
 		private static final long serialVersionUID = 1L;
 
-		private String             serviceName;
-		private Long               serviceId;
-		private Long               policyVersion;
-		private Date               policyUpdateTime;
-		private List<RangerPolicy> policies;
-		private RangerServiceDef   serviceDef;
-		private String             auditMode = RangerPolicyEngine.AUDIT_DEFAULT;
+		private String                  serviceName;
+		private Long                    serviceId;
+		private Long                    policyVersion;
+		private Date                    policyUpdateTime;
+		private List<RangerPolicy>      policies;
+		private RangerServiceDef        serviceDef;
+		private String                  auditMode = RangerPolicyEngine.AUDIT_DEFAULT;
+		private List<RangerPolicyDelta> policyDeltas;
 		/**
 		 * @return the serviceName
 		 */
@@ -256,6 +272,18 @@ public class ServicePolicies implements java.io.Serializable {
 		public void setAuditMode(String auditMode) {
 			this.auditMode = auditMode;
 		}
+		/**
+		 * @return the policyDeltas - changes since the version known to the caller; set instead of policies in a delta download
+		 */
+		public List<RangerPolicyDelta> getPolicyDeltas() {
+			return policyDeltas;
+		}
+		/**
+		 * @param policyDeltas the policyDeltas to set
+		 */
+		public void setPolicyDeltas(List<RangerPolicyDelta> policyDeltas) {
+			this.policyDeltas = policyDeltas;
+		}
 
 		@Override
 		public String toString() {
@@ -267,6 +295,7 @@ public class ServicePolicies implements java.io.Serializable {
 					.add("policies", policies)
 					.add("serviceDef", serviceDef)
 					.add("auditMode", auditMode)
+					.add("policyDeltas", policyDeltas)
 					.toString();
 		}
 	}
@@ -0,0 +1,583 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Compact binary encoding of ServicePolicies, used as an alternative to JSON to download policies from Ranger Admin
+ * and for the policy cache file in plugins.
+ *
+ * The encoding has the same structure as the JSON representation of ServicePolicies, with following differences:
+ * - each distinct string (field names, users, groups, resource values, ..) is written only once; later occurrences
+ *   refer to the first occurrence by its index
+ * - integral numbers are written as variable length integers
+ * - everything after the header is compressed with gzip
+ *
+ * Policies are encoded and decoded as they are serialized and deserialized by Gson, without building the JSON tree
+ * of the whole document: write() passes Gson a JsonWriter that encodes each token; read() decodes into the character
+ * stream of the JSON document, which Gson reads with a JsonReader.
+ *
+ * Format: MAGIC (int), VERSION (byte), gzip compressed values
+ */
+public class ServicePoliciesBinaryCodec {
+	private static final int  MAGIC   = 0x52504f4c; // "RPOL"
+	private static final byte VERSION = 2;
+
+	private static final byte TYPE_NULL   = 0;
+	private static final byte TYPE_TRUE   = 1;
+	private static final byte TYPE_FALSE  = 2;
+	private static final byte TYPE_LONG   = 3;
+	private static final byte TYPE_NUMBER = 4;
+	private static final byte TYPE_STRING = 5;
+	private static final byte TYPE_OBJECT = 6;
+	private static final byte TYPE_ARRAY  = 7;
+	private static final byte TYPE_END    = 8; // end of array
+
+	private static final long END_OF_OBJECT = 0; // in place of the reference to the name of the next member
+
+	private static final int     BUFFER_SIZE = 64 * 1024;
+	private static final Charset UTF8        = Charset.forName("UTF-8");
+	private static final Gson    gson        = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+	private ServicePoliciesBinaryCodec() {
+	}
+
+	/*
+	 * writes given policies to out; out is not closed
+	 */
+	public static void write(ServicePolicies policies, OutputStream out) throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+
+		header.writeInt(MAGIC);
+		header.writeByte(VERSION);
+		header.flush();
+
+		GZIPOutputStream gzipOut = new GZIPOutputStream(out, BUFFER_SIZE);
+		DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(gzipOut, BUFFER_SIZE));
+
+		try {
+			gson.toJson(policies, ServicePolicies.class, new Encoder(dataOut));
+		} catch (JsonParseException excp) {
+			throw toIOException(excp);
+		}
+
+		dataOut.flush();
+		gzipOut.finish();
+		out.flush();
+	}
+
+	/*
+	 * reads policies written by write(); in is not closed
+	 */
+	public static ServicePolicies read(InputStream in) throws IOException {
+		DataInputStream header = new DataInputStream(in);
+
+		if (header.readInt() != MAGIC) {
+			throw new IOException("not in binary policies format");
+		}
+
+		byte version = header.readByte();
+
+		if (version != VERSION) {
+			throw new IOException("unsupported binary policies format version " + version);
+		}
+
+		DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE));
+
+		try {
+			return gson.fromJson(new JsonReader(new Decoder(dataIn)), ServicePolicies.class);
+		} catch (JsonParseException excp) {
+			throw toIOException(excp);
+		}
+	}
+
+	/*
+	 * checks if the stream starts with the binary policies header, without consuming it; in must support mark()
+	 */
+	public static boolean isBinaryFormat(InputStream in) throws IOException {
+		boolean ret = false;
+
+		if (in.markSupported()) {
+			in.mark(Integer.SIZE / Byte.SIZE);
+
+			try {
+				ret = new DataInputStream(in).readInt() == MAGIC;
+			} catch (IOException excp) {
+				ret = false;
+			} finally {
+				in.reset();
+			}
+		}
+
+		return ret;
+	}
+
+	public static boolean isBinaryFormat(File file) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			return isBinaryFormat(in);
+		}
+	}
+
+	// Gson wraps IOExceptions of the underlying streams
+	private static IOException toIOException(JsonParseException excp) {
+		return excp.getCause() instanceof IOException ? (IOException) excp.getCause() : new IOException(excp);
+	}
+
+	/*
+	 * JsonWriter that encodes values as they are written, along the lines of Gson's JsonTreeWriter. Objects end with
+	 * END_OF_OBJECT and arrays with TYPE_END, as the count of members isn't known when an object or array begins
+	 */
+	private static class Encoder extends JsonWriter {
+		private static final Writer UNWRITABLE_WRITER = new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int counter) {
+				throw new AssertionError();
+			}
+
+			@Override
+			public void flush() {
+				throw new AssertionError();
+			}
+
+			@Override
+			public void close() {
+				throw new AssertionError();
+			}
+		};
+
+		private final DataOutputStream     out;
+		private final Map<String, Integer> strings = new HashMap<>();
+		private String                     deferredName;
+
+		Encoder(DataOutputStream out) {
+			super(UNWRITABLE_WRITER);
+
+			this.out = out;
+		}
+
+		@Override
+		public JsonWriter beginObject() throws IOException {
+			writeType(TYPE_OBJECT);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter endObject() throws IOException {
+			if (deferredName != null) {
+				throw new IllegalStateException("name without value: " + deferredName);
+			}
+
+			writeVarLong(END_OF_OBJECT);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter beginArray() throws IOException {
+			writeType(TYPE_ARRAY);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter endArray() throws IOException {
+			out.writeByte(TYPE_END);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter name(String name) throws IOException {
+			if (name == null) {
+				throw new NullPointerException("name == null");
+			}
+
+			if (deferredName != null) {
+				throw new IllegalStateException("name without value: " + deferredName);
+			}
+
+			deferredName = name;
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter nullValue() throws IOException {
+			if (deferredName != null && !getSerializeNulls()) { // skip the member altogether
+				deferredName = null;
+			} else {
+				writeType(TYPE_NULL);
+			}
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(String value) throws IOException {
+			if (value == null) {
+				return nullValue();
+			}
+
+			writeType(TYPE_STRING);
+			writeString(value, 0);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(boolean value) throws IOException {
+			writeType(value ? TYPE_TRUE : TYPE_FALSE);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(double value) throws IOException {
+			if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+				throw new IllegalArgumentException("numeric values must be finite, but was " + value);
+			}
+
+			writeType(TYPE_NUMBER);
+			writeString(Double.toString(value), 0);
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(long value) throws IOException {
+			writeType(TYPE_LONG);
+			writeVarLong((value << 1) ^ (value >> 63)); // zig-zag, to keep small negative values short
+
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(Number value) throws IOException {
+			if (value == null) {
+				return nullValue();
+			}
+
+			if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				return value(value.longValue());
+			}
+
+			String str = value.toString();
+
+			if (!isLenient() && (str.equals("-Infinity") || str.equals("Infinity") || str.equals("NaN"))) {
+				throw new IllegalArgumentException("numeric values must be finite, but was " + value);
+			}
+
+			writeType(TYPE_NUMBER);
+			writeString(str, 0);
+
+			return this;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() {
+			// out is owned by the caller
+		}
+
+		// writes the name of the member, if any, followed by the type of its value
+		private void writeType(byte type) throws IOException {
+			if (deferredName != null) {
+				writeString(deferredName, 1); // 1: to not collide with END_OF_OBJECT
+
+				deferredName = null;
+			}
+
+			out.writeByte(type);
+		}
+
+		// offset followed by length and UTF-8 bytes for a string seen first time; otherwise offset + 1 + index of the string
+		private void writeString(String str, long offset) throws IOException {
+			Integer idx = strings.get(str);
+
+			if (idx != null) {
+				writeVarLong(offset + idx + 1L);
+			} else {
+				byte[] bytes = str.getBytes(UTF8);
+
+				strings.put(str, strings.size());
+
+				writeVarLong(offset);
+				writeVarLong(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		private void writeVarLong(long val) throws IOException {
+			while ((val & ~0x7FL) != 0) {
+				out.writeByte((int) ((val & 0x7F) | 0x80));
+
+				val >>>= 7;
+			}
+
+			out.writeByte((int) val);
+		}
+	}
+
+	/*
+	 * decodes values into the characters of the JSON document, a token at a time. Gson's JsonReader is used over this,
+	 * instead of a JsonReader subclass like Gson's JsonTreeReader, as Gson reads map keys using JsonReader internals
+	 */
+	private static class Decoder extends Reader {
+		private final DataInputStream in;
+		private final List<String>    strings = new ArrayList<>();
+		private final Deque<Scope>    scopes  = new ArrayDeque<>();
+		private final StringBuilder   buffer  = new StringBuilder();
+		private int                   bufferPos;
+		private boolean               isValueRead;
+
+		Decoder(DataInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			while (bufferPos == buffer.length()) {
+				if (!readToken()) {
+					return -1;
+				}
+			}
+
+			int ret = Math.min(len, buffer.length() - bufferPos);
+
+			buffer.getChars(bufferPos, bufferPos + ret, cbuf, off);
+
+			bufferPos += ret;
+
+			return ret;
+		}
+
+		@Override
+		public void close() {
+			// in is owned by the caller
+		}
+
+		// replaces the buffer contents with characters of the next token; returns false at the end of the document
+		private boolean readToken() throws IOException {
+			buffer.setLength(0);
+			bufferPos = 0;
+
+			Scope scope = scopes.peek();
+
+			if (scope == null) {
+				if (isValueRead) {
+					return false;
+				}
+
+				isValueRead = true;
+
+				readValue(in.readByte());
+			} else if (scope.isObject) {
+				long nameRef = readVarLong();
+
+				if (nameRef == END_OF_OBJECT) {
+					buffer.append('}');
+
+					scopes.pop();
+				} else {
+					if (!scope.isEmpty) {
+						buffer.append(',');
+					}
+
+					scope.isEmpty = false;
+
+					appendString(readString(nameRef - 1));
+					buffer.append(':');
+
+					readValue(in.readByte());
+				}
+			} else {
+				byte type = in.readByte();
+
+				if (type == TYPE_END) {
+					buffer.append(']');
+
+					scopes.pop();
+				} else {
+					if (!scope.isEmpty) {
+						buffer.append(',');
+					}
+
+					scope.isEmpty = false;
+
+					readValue(type);
+				}
+			}
+
+			return true;
+		}
+
+		// appends a scalar value, or the beginning of an object or array
+		private void readValue(byte type) throws IOException {
+			switch (type) {
+				case TYPE_NULL:
+					buffer.append("null");
+				break;
+
+				case TYPE_TRUE:
+					buffer.append("true");
+				break;
+
+				case TYPE_FALSE:
+					buffer.append("false");
+				break;
+
+				case TYPE_LONG: {
+					long val = readVarLong();
+
+					buffer.append((val >>> 1) ^ -(val & 1));
+				}
+				break;
+
+				case TYPE_NUMBER:
+					buffer.append(readString(readVarLong()));
+				break;
+
+				case TYPE_STRING:
+					appendString(readString(readVarLong()));
+				break;
+
+				case TYPE_OBJECT:
+					buffer.append('{');
+
+					scopes.push(new Scope(true));
+				break;
+
+				case TYPE_ARRAY:
+					buffer.append('[');
+
+					scopes.push(new Scope(false));
+				break;
+
+				default:
+					throw new IOException("invalid value type " + type + " in binary policies format");
+			}
+		}
+
+		private void appendString(String str) {
+			buffer.append('"');
+
+			for (int i = 0; i < str.length(); i++) {
+				char c = str.charAt(i);
+
+				if (c == '"' || c == '\\') {
+					buffer.append('\\').append(c);
+				} else if (c < 0x20) {
+					buffer.append(String.format("\\u%04x", (int) c));
+				} else {
+					buffer.append(c);
+				}
+			}
+
+			buffer.append('"');
+		}
+
+		private String readString(long idx) throws IOException {
+			final String ret;
+
+			if (idx == 0) {
+				byte[] bytes = new byte[(int) readVarLong()];
+
+				in.readFully(bytes);
+
+				ret = new String(bytes, UTF8);
+
+				strings.add(ret);
+			} else if (idx <= strings.size()) {
+				ret = strings.get((int) (idx - 1));
+			} else {
+				throw new IOException("invalid string reference " + idx + " in binary policies format");
+			}
+
+			return ret;
+		}
+
+		private long readVarLong() throws IOException {
+			long ret   = 0;
+			int  shift = 0;
+
+			while (true) {
+				byte b = in.readByte();
+
+				ret |= (long) (b & 0x7F) << shift;
+
+				if ((b & 0x80) == 0) {
+					break;
+				}
+
+				shift += 7;
+
+				if (shift > 63) {
+					throw new IOException("invalid variable length integer in binary policies format");
+				}
+			}
+
+			return ret;
+		}
+
+		private static class Scope {
+			final boolean isObject;
+			boolean       isEmpty = true;
+
+			Scope(boolean isObject) {
+				this.isObject = isObject;
+			}
+		}
+	}
+}
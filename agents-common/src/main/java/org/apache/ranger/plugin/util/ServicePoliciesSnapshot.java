@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned snapshot of ServicePolicies, used by plugins to start serving from the policies they last downloaded
+ * before contacting Ranger Admin.
+ *
+ * The snapshot file is memory-mapped. Service name and policy version are read from the header, without decoding the
+ * policies; policies, encoded with ServicePoliciesBinaryCodec, are decoded from the mapped file on first call to
+ * getServicePolicies(), after their checksum is verified. A snapshot is written to a temporary file that then replaces
+ * the earlier snapshot, so that a plugin that stops while writing finds either the earlier or the new snapshot.
+ *
+ * Format: MAGIC (int), VERSION (int), policyVersion (long), bodyLength (int), bodyCrc (int), serviceNameLength (int),
+ *         serviceName (UTF-8), body
+ */
+public class ServicePoliciesSnapshot {
+	public static final int MAGIC   = 0x5250534e; // "RPSN"
+	public static final int VERSION = 1;
+
+	private static final int     OFFSET_POLICY_VERSION = 8;
+	private static final int     OFFSET_BODY_LENGTH    = 16;
+	private static final int     OFFSET_BODY_CRC       = 20;
+	private static final int     OFFSET_NAME_LENGTH    = 24;
+	private static final int     HEADER_LENGTH         = 28; // followed by serviceName
+	private static final int     MAX_NAME_LENGTH       = 64 * 1024;
+	private static final Charset UTF8                  = Charset.forName("UTF-8");
+
+	private final ByteBuffer buffer;
+	private final String     serviceName;
+	private final long       policyVersion;
+	private final int        bodyOffset;
+	private final int        bodyLength;
+	private final int        bodyCrc;
+	private ServicePolicies  servicePolicies;
+
+	private ServicePoliciesSnapshot(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a policies snapshot");
+		}
+
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("unsupported policies snapshot version: " + buffer.getInt(4));
+		}
+
+		int nameLength = buffer.getInt(OFFSET_NAME_LENGTH);
+
+		this.bodyLength = buffer.getInt(OFFSET_BODY_LENGTH);
+		this.bodyOffset = HEADER_LENGTH + nameLength;
+
+		if (nameLength < 0 || nameLength > MAX_NAME_LENGTH || bodyLength < 0 || (long) bodyOffset + bodyLength != buffer.capacity()) {
+			throw new IOException("invalid policies snapshot: lengths in header don't match the file size " + buffer.capacity());
+		}
+
+		byte[]     name = new byte[nameLength];
+		ByteBuffer dup  = buffer.duplicate();
+
+		((Buffer) dup).position(HEADER_LENGTH);
+		dup.get(name);
+
+		this.buffer        = buffer;
+		this.serviceName   = new String(name, UTF8);
+		this.policyVersion = buffer.getLong(OFFSET_POLICY_VERSION);
+		this.bodyCrc       = buffer.getInt(OFFSET_BODY_CRC);
+	}
+
+	/*
+	 * memory-maps the given snapshot file and reads its header; policies are decoded by getServicePolicies()
+	 */
+	public static ServicePoliciesSnapshot open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+
+			// the mapping stays valid after the channel is closed
+			return new ServicePoliciesSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/*
+	 * writes a snapshot of the given policies to file, replacing the existing snapshot only once the new one is complete
+	 */
+	public static void write(ServicePolicies policies, File file) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		ServicePoliciesBinaryCodec.write(policies, body);
+
+		byte[]     bodyBytes = body.toByteArray();
+		byte[]     name      = (policies.getServiceName() == null ? "" : policies.getServiceName()).getBytes(UTF8);
+		long       version   = policies.getPolicyVersion() == null ? -1 : policies.getPolicyVersion();
+		CRC32      crc       = new CRC32();
+		ByteBuffer header    = ByteBuffer.allocate(HEADER_LENGTH);
+		File       tmpFile   = new File(file.getPath() + ".tmp");
+
+		crc.update(bodyBytes);
+
+		header.putInt(MAGIC).putInt(VERSION).putLong(version).putInt(bodyBytes.length).putInt((int) crc.getValue()).putInt(name.length);
+
+		try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+			out.write(header.array());
+			out.write(name);
+			out.write(bodyBytes);
+			out.getFD().sync();
+		}
+
+		try {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException excp) {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public long getPolicyVersion() {
+		return policyVersion;
+	}
+
+	/*
+	 * decodes policies from the mapped file on first call; throws IOException if the checksum doesn't match
+	 */
+	public synchronized ServicePolicies getServicePolicies() throws IOException {
+		if (servicePolicies == null) {
+			CRC32  crc   = new CRC32();
+			byte[] chunk = new byte[64 * 1024];
+
+			try (InputStream in = new BodyInputStream()) {
+				for (int len = in.read(chunk); len != -1; len = in.read(chunk)) {
+					crc.update(chunk, 0, len);
+				}
+			}
+
+			if ((int) crc.getValue() != bodyCrc) {
+				throw new IOException("policies snapshot of service " + serviceName + " is corrupt: checksum mismatch");
+			}
+
+			try (InputStream in = new BodyInputStream()) {
+				servicePolicies = ServicePoliciesBinaryCodec.read(in);
+			}
+		}
+
+		return servicePolicies;
+	}
+
+	// reads the body from the mapped buffer, without copying it to heap first
+	private class BodyInputStream extends InputStream {
+		private final ByteBuffer body;
+
+		BodyInputStream() {
+			ByteBuffer dup = buffer.duplicate();
+
+			((Buffer) dup).position(bodyOffset);
+			((Buffer) dup).limit(bodyOffset + bodyLength);
+
+			body = dup.slice();
+		}
+
+		@Override
+		public int read() {
+			return body.hasRemaining() ? (body.get() & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+
+			if (!body.hasRemaining()) {
+				return -1;
+			}
+
+			int ret = Math.min(len, body.remaining());
+
+			body.get(b, off, ret);
+
+			return ret;
+		}
+
+		@Override
+		public int available() {
+			return body.remaining();
+		}
+	}
+}
@@ -19,6 +19,8 @@
 
 package org.apache.ranger.plugin.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class StringTokenReplacer {
@@ -88,5 +90,50 @@ public class StringTokenReplacer {
         }
 
         return ret.toString();
-    }  
+    }
+
+    /**
+     * Returns the names (without tokenPrefix) of the tokens that replaceTokens() would look up in the context for the given value.
+     * Callers can use this to detect whether a previous expansion of the value is still valid for a new context.
+     */
+    public List<String> getTokenNames(String value) {
+        List<String> ret = new ArrayList<>();
+
+        if(value == null || value.length() < 1 ||
+                (value.indexOf(startChar) == -1 && value.indexOf(endChar) == -1 && value.indexOf(escapeChar) == -1)) {
+            return ret;
+        }
+
+        StringBuilder token = null;
+
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if(c == escapeChar) {
+                i++;
+                if(i < value.length() && token != null) {
+                    token.append(value.charAt(i));
+                }
+                continue;
+            }
+
+            if(token == null) { // not in token
+                if(c == startChar) {
+                    token = new StringBuilder();
+                }
+            } else { // in token
+                if(c == endChar) {
+                    String rawToken = token.toString();
+                    if (tokenPrefix.length() == 0 || rawToken.startsWith(tokenPrefix)) {
+                        ret.add(rawToken.substring(tokenPrefix.length()));
+                    }
+                    token = null;
+                } else {
+                    token.append(c);
+                }
+            }
+        }
+
+        return ret;
+    }
 }
@@ -221,6 +221,85 @@ public class RangerIpMatcherTest {
 		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.20.33.10")));
 	}
 	
+	@Test
+	public void test_wildcardToCidr() {
+		Assert.assertEquals("1.2.3.0/24", RangerIpMatcher.wildcardToCidr("1.2.3."));
+		Assert.assertEquals("193.0.0.0/8", RangerIpMatcher.wildcardToCidr("193."));
+		Assert.assertEquals("a0:b0:0:0:0:0:0:0/32", RangerIpMatcher.wildcardToCidr("a0:b0:"));
+		// not whole octets/groups, or too many of them: can't be converted
+		Assert.assertNull(RangerIpMatcher.wildcardToCidr("1.2.3.4"));
+		Assert.assertNull(RangerIpMatcher.wildcardToCidr("1.2.3.4."));
+		Assert.assertNull(RangerIpMatcher.wildcardToCidr("a0::"));
+	}
+
+	@Test
+	public void test_cidr() {
+		RangerIpMatcher ipMatcher = createMatcher(new String[]{"10.20.0.0/14"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.0.1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.23.255.255")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.24.0.0")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.19.255.255")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8::1")));
+
+		ipMatcher = createMatcher(new String[]{"2001:DB8::/32", "192.168.1.1/32"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:0db8:ffff:0:0:0:0:1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db9::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("192.168.1.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("192.168.1.2")));
+
+		// wildcards and CIDRs can be mixed; ipv6 wildcards match any textual form of the address
+		ipMatcher = createMatcher(new String[]{"172.16.0.0/12", "10.1.*", "fe80:*"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("172.31.1.1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.1.2.3")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("FE80::1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("172.32.1.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.2.2.3")));
+
+		// invalid CIDR values don't match anything, other than themselves
+		ipMatcher = createMatcher(new String[]{"10.0.0.0/33", "10.0.0/8"} );
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.0.0.1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.0.0/8")));
+	}
+
+	@Test
+	public void test_ipv6() {
+		// requests that matched exact and wildcard values as strings still match
+		RangerIpMatcher ipMatcher = createMatcher(new String[]{"2001:db8::1", "fe80:*", "2001:DB8:0:1:*"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:DB8::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("fe80::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("fe80:1:2:3:4:5:6:7")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8:0:1::2")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8::2")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("fe81::1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8:0:2::1")));
+
+		// valid addresses are now matched by value: other textual forms of the same address match as well
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:0db8:0000:0000:0000:0000:0000:0001")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8:0:0:0:0:0:1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("FE80:0000::0001")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:0db8:0:0001::2")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8:0:0:0:0:0:10")));
+
+		ipMatcher = createMatcher(new String[]{"::1", "0:*"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("0:0:0:0:0:0:0:1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("::2")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("1::1")));
+
+		// values that aren't whole groups are still matched as string prefixes
+		ipMatcher = createMatcher(new String[]{"2001:DB8::1"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8::10")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8:0:0:0:0:0:1")));
+
+		// requests that aren't valid addresses - zone-ids, mixed ipv4 notation - are matched as strings, as earlier
+		ipMatcher = createMatcher(new String[]{"fe80::1%eth0", "::ffff:*"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("fe80::1%eth0")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("fe80::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("::ffff:10.1.2.3")));
+	}
+
 	RangerIpMatcher createMatcher(String[] ipArray) {
 		RangerIpMatcher matcher = new RangerIpMatcher();
 
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.conditionevaluator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangerScriptConditionEvaluatorTest {
+
+	@Test
+	public void testCompiledScriptSameAsEval() {
+		String script = "var isUser1 = ctx.getUser() == 'user1'; ctx.result = isUser1 && ctx.getRequestContextAttribute('site') == 'dc1';";
+
+		RangerScriptConditionEvaluator compiled = createEvaluator(script, true);
+		RangerScriptConditionEvaluator eval     = createEvaluator(script, false);
+
+		for (String user : Arrays.asList("user1", "user2", "user1")) {
+			for (String site : Arrays.asList("dc1", "dc2", null)) {
+				RangerAccessRequestImpl request = createRequest(user, site);
+
+				Assert.assertEquals("user=" + user + ", site=" + site, eval.isMatched(request), compiled.isMatched(request));
+			}
+		}
+
+		Assert.assertTrue(compiled.isMatched(createRequest("user1", "dc1")));
+		Assert.assertFalse(compiled.isMatched(createRequest("user2", "dc1")));
+	}
+
+	@Test
+	public void testGlobalsDontLeakAcrossEvaluations() {
+		// 'seen' is an implicit global, set only by the first evaluation
+		String script = "if (ctx.getUser() == 'user1') { seen = true; } ctx.result = (typeof seen !== 'undefined');";
+
+		RangerScriptConditionEvaluator evaluator = createEvaluator(script, true);
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null)));
+		Assert.assertFalse(evaluator.isMatched(createRequest("user2", null)));
+	}
+
+	@Test
+	public void testVarDeclarationsDontLeakAcrossEvaluations() {
+		// 'allowed' is declared with var, which can't be deleted from the bindings once set
+		String script = "var allowed; if (ctx.getUser() == 'admin') { allowed = true; } allowed == true";
+
+		RangerScriptConditionEvaluator evaluator = createEvaluator(script, true);
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("admin", null)));
+		Assert.assertFalse(evaluator.isMatched(createRequest("guest", null)));
+		Assert.assertTrue(evaluator.isMatched(createRequest("admin", null)));
+		Assert.assertFalse(evaluator.isMatched(createRequest("guest", null)));
+	}
+
+	private static RangerScriptConditionEvaluator createEvaluator(String script, boolean enableScriptCompilation) {
+		Map<String, String> evaluatorOptions = new HashMap<>();
+
+		evaluatorOptions.put("engineName", "JavaScript");
+		evaluatorOptions.put(RangerScriptConditionEvaluator.OPTION_ENABLE_SCRIPT_COMPILATION, Boolean.toString(enableScriptCompilation));
+
+		RangerPolicyConditionDef conditionDef = new RangerPolicyConditionDef();
+
+		conditionDef.setName("_expression");
+		conditionDef.setEvaluatorOptions(evaluatorOptions);
+
+		RangerScriptConditionEvaluator ret = new RangerScriptConditionEvaluator();
+
+		ret.setConditionDef(conditionDef);
+		ret.setPolicyItemCondition(new RangerPolicyItemCondition("_expression", Collections.singletonList(script)));
+		ret.init();
+
+		return ret;
+	}
+
+	private static RangerAccessRequestImpl createRequest(String user, String site) {
+		RangerAccessRequestImpl ret = new RangerAccessRequestImpl();
+
+		ret.setResource(new RangerAccessResourceImpl());
+		ret.setUser(user);
+
+		if (site != null) {
+			ret.getContext().put("site", site);
+		}
+
+		return ret;
+	}
+}
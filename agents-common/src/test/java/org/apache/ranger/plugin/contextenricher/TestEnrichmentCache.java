@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.contextenricher;
+
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerContextEnricherDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestEnrichmentCache {
+
+    @Test
+    public void testCachedEnrichment() {
+        CountingEnricher enricher = createEnricher("100", null);
+
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+        enricher.enrich(createRequest("user1", "10.0.0.2"));
+
+        RangerAccessRequest request = createRequest("user1", "10.0.0.1");
+
+        enricher.enrich(request);
+
+        assertEquals(2, enricher.computeCount);
+        assertEquals(2, enricher.getCacheHitCount());
+        assertEquals(2, enricher.getCacheMissCount());
+        assertEquals("10.0.0.1", request.getContext().get("ENRICHED_IP"));
+    }
+
+    @Test
+    public void testExpiredEnrichment() throws Exception {
+        CountingEnricher enricher = createEnricher("100", "1");
+
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+
+        Thread.sleep(5);
+
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+
+        assertEquals(2, enricher.computeCount);
+    }
+
+    @Test
+    public void testExpiredEnrichmentIsRefreshed() throws Exception {
+        CountingEnricher enricher = createEnricher("1", "200");
+
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+
+        Thread.sleep(250);
+
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+
+        assertEquals(2, enricher.computeCount);
+        assertEquals(1, enricher.getCacheHitCount());
+        assertEquals(2, enricher.getCacheMissCount());
+    }
+
+    @Test
+    public void testCacheKey() {
+        CountingEnricher enricher = createEnricher("100", null);
+
+        RangerAccessRequestImpl request1 = createRequest("user1", "10.0.0.1");
+        RangerAccessRequestImpl request2 = createRequest("user1", "10.0.0.1");
+        RangerAccessRequestImpl request3 = createRequest("user1", "10.0.0.1");
+
+        request1.setUserGroups(new LinkedHashSet<>(Arrays.asList("g1", "g2")));
+        request2.setUserGroups(new LinkedHashSet<>(Arrays.asList("g2", "g1")));
+        request3.setUserGroups(new HashSet<>(Collections.singletonList("g1")));
+
+        assertEquals(enricher.getEnrichmentCacheKey(request1), enricher.getEnrichmentCacheKey(request2));
+        assertNotEquals(enricher.getEnrichmentCacheKey(request1), enricher.getEnrichmentCacheKey(request3));
+        assertNotEquals(enricher.getEnrichmentCacheKey(createRequest("user1", "10.0.0.1")), enricher.getEnrichmentCacheKey(createRequest("user2", "10.0.0.1")));
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        CountingEnricher enricher = createEnricher(null, null);
+
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+        enricher.enrich(createRequest("user1", "10.0.0.1"));
+
+        assertEquals(2, enricher.computeCount);
+        assertNull(enricher.getEnrichmentCacheKey(createRequest("user1", "10.0.0.1")));
+    }
+
+    private static CountingEnricher createEnricher(String cacheSize, String cacheTTLMs) {
+        Map<String, String> options = new HashMap<>();
+
+        if (cacheSize != null) {
+            options.put(RangerAbstractContextEnricher.ENRICHER_OPTION_CACHE_SIZE, cacheSize);
+        }
+
+        if (cacheTTLMs != null) {
+            options.put(RangerAbstractContextEnricher.ENRICHER_OPTION_CACHE_TTL_MS, cacheTTLMs);
+        }
+
+        CountingEnricher ret = new CountingEnricher();
+
+        ret.setEnricherDef(new RangerContextEnricherDef(1L, "counting", CountingEnricher.class.getName(), options));
+        ret.init();
+
+        return ret;
+    }
+
+    private static RangerAccessRequestImpl createRequest(String user, String clientIPAddress) {
+        RangerAccessRequestImpl ret = new RangerAccessRequestImpl();
+
+        ret.setUser(user);
+        ret.setClientIPAddress(clientIPAddress);
+
+        return ret;
+    }
+
+    static class CountingEnricher extends RangerAbstractContextEnricher {
+        int computeCount;
+
+        @Override
+        public void enrich(RangerAccessRequest request) {
+            String              cacheKey       = getEnrichmentCacheKey(request);
+            Map<String, Object> contextEntries = getCachedContextEntries(cacheKey);
+
+            if (contextEntries == null) {
+                computeCount++;
+
+                contextEntries = new HashMap<>();
+
+                contextEntries.put("ENRICHED_IP", request.getClientIPAddress());
+
+                cacheContextEntries(cacheKey, contextEntries);
+            }
+
+            request.getContext().putAll(contextEntries);
+        }
+
+        @Override
+        protected Set<String> getCacheKeyAttributes() {
+            return new LinkedHashSet<>(Arrays.asList(REQUEST_ATTRIBUTE_USER, REQUEST_ATTRIBUTE_USER_GROUPS, REQUEST_ATTRIBUTE_CLIENT_IP));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestConcurrentCache {
+	@Test
+	public void testGetPut() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<>(16);
+
+		assertNull(cache.get("key1"));
+
+		cache.put("key1", "value1");
+		cache.put("key2", "value2");
+
+		assertEquals("value1", cache.get("key1"));
+		assertEquals("value2", cache.get("key2"));
+		assertTrue(cache.containsKey("key1"));
+		assertEquals(2, cache.size());
+
+		cache.put("key1", "value1.1");
+
+		assertEquals("value1.1", cache.get("key1"));
+		assertEquals(2, cache.size());
+
+		assertEquals("value2", cache.remove("key2"));
+		assertNull(cache.get("key2"));
+		assertEquals(1, cache.size());
+
+		assertEquals(4, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		assertNull(cache.get("key1"));
+	}
+
+	@Test
+	public void testEviction() {
+		final int initialCapacity = 16;
+
+		ConcurrentCache<String, String> cache = new ConcurrentCache<>(initialCapacity);
+
+		for (int i = 0; i < initialCapacity; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		// reference first half, so that the second half gets evicted first
+		for (int i = 0; i < initialCapacity / 2; i++) {
+			assertEquals(String.valueOf(i), cache.get(String.valueOf(i)));
+		}
+
+		for (int i = initialCapacity; i < initialCapacity + initialCapacity / 2; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertEquals(initialCapacity, cache.size());
+		assertEquals(initialCapacity / 2, cache.getEvictionCount());
+
+		for (int i = 0; i < initialCapacity / 2; i++) {
+			assertNotNull("recently accessed key evicted: " + i, cache.get(String.valueOf(i)));
+		}
+
+		for (int i = initialCapacity / 2; i < initialCapacity; i++) {
+			assertNull("key not evicted: " + i, cache.get(String.valueOf(i)));
+		}
+	}
+
+	@Test
+	public void testQueueIsBoundedAcrossRemovePut() {
+		final int maxSize  = 1000;
+		final int keyCount = 100;
+
+		ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(maxSize);
+
+		for (int cycle = 0; cycle < 10000; cycle++) {
+			for (int key = 0; key < keyCount; key++) {
+				cache.remove(key);
+				cache.put(key, cycle);
+			}
+		}
+
+		assertEquals(keyCount, cache.size());
+		assertTrue("queue not bounded: " + cache.getQueueLength(), cache.getQueueLength() <= 2 * keyCount + 1);
+		assertEquals(0, cache.getEvictionCount());
+
+		for (int key = 0; key < keyCount; key++) {
+			assertEquals(Integer.valueOf(9999), cache.get(key));
+		}
+	}
+
+	@Test
+	public void testReinsertedKeyIsNotEvictedEarly() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<>(2);
+
+		cache.put("a", "a1");
+		cache.put("b", "b1");
+		cache.remove("a");
+		cache.put("a", "a2");
+		cache.put("c", "c1");
+
+		assertEquals(2, cache.size());
+		assertNull("older key not evicted", cache.get("b"));
+		assertEquals("a2", cache.get("a"));
+		assertEquals("c1", cache.get("c"));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final int maxSize     = 128;
+		final int threadCount = 8;
+		final int opCount     = 10000;
+
+		final ConcurrentCache<Integer, Integer> cache  = new ConcurrentCache<>(maxSize);
+		final AtomicInteger                     errors = new AtomicInteger();
+		List<Thread>                            threads = new ArrayList<>();
+
+		for (int t = 0; t < threadCount; t++) {
+			final int seed = t;
+
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < opCount; i++) {
+						Integer key   = (i * 31 + seed) % (maxSize * 4);
+						Integer value = cache.get(key);
+
+						if (value == null) {
+							cache.put(key, key);
+						} else if (!value.equals(key)) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			};
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(0, errors.get());
+		assertEquals((long) threadCount * opCount, cache.getHitCount() + cache.getMissCount());
+		assertTrue("cache size exceeds limit: " + cache.size(), cache.size() <= maxSize + threadCount);
+	}
+}
@@ -50,6 +50,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -60,6 +62,9 @@ import static org.junit.Assert.*;
 public class TestPolicyEngine {
 	static Gson gsonBuilder;
 
+	private boolean buildPolicyEngineFromDeltas;
+	private boolean useCompactResources;
+
 	@BeforeClass
 	public static void setUpBeforeClass() throws Exception {
 		gsonBuilder = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z")
@@ -295,45 +300,189 @@ public class TestPolicyEngine {
 		runTestsFromResourceFiles(resourceFiles);
 	}
 
-	private void runTestsFromResourceFiles(String[] resourceNames) {
-		for(String resourceName : resourceNames) {
-			InputStream inStream = this.getClass().getResourceAsStream(resourceName);
-			InputStreamReader reader   = new InputStreamReader(inStream);
+	@Test
+	public void testPolicyEngine_hdfs_optimizeTrieForSpace() {
+		String[] hdfsTestResourceFiles = { "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_hdfs_resourcespec.json" };
 
-			runTests(reader, resourceName);
-		}
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation = false;
+		policyEngineOptions.optimizeTrieForSpace       = true;
+
+		runTestsFromResourceFiles(hdfsTestResourceFiles, policyEngineOptions);
 	}
 
-	private void runTests(InputStreamReader reader, String testName) {
-		PolicyEngineTestCase testCase = gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
+	@Test
+	public void testPolicyEngine_hive_optimizeTrieForSpace() {
+		String[] hiveTestResourceFiles = { "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hive_mask_filter.json" };
 
-		assertTrue("invalid input: " + testName, testCase != null && testCase.serviceDef != null && testCase.policies != null && testCase.tests != null);
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
 
-		ServicePolicies servicePolicies = new ServicePolicies();
-		servicePolicies.setServiceName(testCase.serviceName);
-		servicePolicies.setServiceDef(testCase.serviceDef);
-		servicePolicies.setPolicies(testCase.policies);
+		policyEngineOptions.disableTagPolicyEvaluation = false;
+		policyEngineOptions.optimizeTrieForSpace       = true;
 
-		if (StringUtils.isNotBlank(testCase.auditMode)) {
-			servicePolicies.setAuditMode(testCase.auditMode);
+		runTestsFromResourceFiles(hiveTestResourceFiles, policyEngineOptions);
+	}
+
+	@Test
+	public void testPolicyEngine_cacheAccessResults() {
+		String[] testResourceFiles = { "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hbase.json", "/policyengine/test_policyengine_hdfs.json" };
+
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation = false;
+		policyEngineOptions.cacheAccessResults         = true;
+
+		runTestsFromResourceFiles(testResourceFiles, policyEngineOptions);
+	}
+
+	@Test
+	public void testPolicyEngine_batchEvaluation() {
+		String[] testResourceFiles = { "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hbase.json", "/policyengine/test_policyengine_hdfs.json" };
+
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation       = false;
+		policyEngineOptions.batchEvaluationParallelism       = 4;
+		policyEngineOptions.batchEvaluationParallelThreshold = 1;
+
+		runTestsFromResourceFiles(testResourceFiles, policyEngineOptions);
+	}
+
+	@Test
+	public void testPolicyEngine_batchEvaluationWithSharedContext() {
+		String               testName = "/policyengine/test_policyengine_tag_hdfs.json";
+		PolicyEngineTestCase testCase = gsonBuilder.fromJson(new InputStreamReader(this.getClass().getResourceAsStream(testName)), PolicyEngineTestCase.class);
+
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation       = false;
+		policyEngineOptions.batchEvaluationParallelism       = 4;
+		policyEngineOptions.batchEvaluationParallelThreshold = 1;
+
+		RangerPolicyEngine        policyEngine    = new RangerPolicyEngineImpl(testName, createServicePolicies(testCase), policyEngineOptions);
+		Set<RangerTagForEval>     tags            = gsonBuilder.fromJson("[{\"type\":\"PII\"}]", new TypeToken<Set<RangerTagForEval>>() {}.getType());
+		Map<String, Object>       sharedContext   = new HashMap<>();
+		List<RangerAccessRequest> batchRequests   = new ArrayList<>();
+		List<RangerAccessResult>  expectedResults = new ArrayList<>();
+
+		RangerAccessRequestUtil.setRequestTagsInContext(sharedContext, tags);
+
+		for (int i = 0; i < 64; i++) {
+			RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+			resource.setServiceDef(testCase.serviceDef);
+			resource.setValue("path", "/resource/" + i);
+
+			RangerAccessRequestImpl batchRequest = new RangerAccessRequestImpl(resource, i % 2 == 0 ? "read" : "write", i % 3 == 0 ? "user-ra" : "user-a", null);
+			RangerAccessRequestImpl request      = new RangerAccessRequestImpl(resource, batchRequest.getAccessType(), batchRequest.getUser(), null);
+
+			batchRequest.setContext(sharedContext);
+			request.setContext(new HashMap<>(sharedContext));
+
+			batchRequests.add(batchRequest);
+			expectedResults.add(policyEngine.isAccessAllowed(request, null));
 		}
 
-		if (null != testCase.tagPolicyInfo) {
-			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
-			tagPolicies.setServiceName(testCase.tagPolicyInfo.serviceName);
-			tagPolicies.setServiceDef(testCase.tagPolicyInfo.serviceDef);
-			tagPolicies.setPolicies(testCase.tagPolicyInfo.tagPolicies);
+		List<RangerAccessResult> results = new ArrayList<>(policyEngine.isAccessAllowed(batchRequests, null));
 
-			if (StringUtils.isNotBlank(testCase.auditMode)) {
-				tagPolicies.setAuditMode(testCase.auditMode);
-			}
-			servicePolicies.setTagPolicies(tagPolicies);
+		assertEquals(batchRequests.size(), results.size());
+
+		for (int i = 0; i < results.size(); i++) {
+			RangerAccessResult expected = expectedResults.get(i);
+			RangerAccessResult result   = results.get(i);
+
+			assertSame("batch result for another request - " + i, batchRequests.get(i), result.getAccessRequest());
+			assertEquals("isAllowed mismatched in batch - " + i, expected.getIsAllowed(), result.getIsAllowed());
+			assertEquals("isAudited mismatched in batch - " + i, expected.getIsAudited(), result.getIsAudited());
+			assertEquals("policyId mismatched in batch - " + i, expected.getPolicyId(), result.getPolicyId());
 		}
 
+		// the caller's context has the engine's writes, as after evaluating the requests one after another
+		RangerAccessRequest lastRequest = batchRequests.get(batchRequests.size() - 1);
+
+		assertSame(tags, RangerAccessRequestUtil.getRequestTagsFromContext(sharedContext));
+		assertSame(lastRequest.getResource(), RangerAccessRequestUtil.getCurrentResourceFromContext(sharedContext));
+		assertEquals(lastRequest.getUser(), RangerAccessRequestUtil.getCurrentUserFromContext(sharedContext));
+	}
+
+	@Test
+	public void testPolicyEngine_parallelBuild() {
+		String[] testResourceFiles = { "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hive_mask_filter.json", "/policyengine/test_policyengine_hbase.json",
+		                               "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_tag_hdfs.json" };
+
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation = false;
+		policyEngineOptions.buildParallelism           = 4;
+
+		runTestsFromResourceFiles(testResourceFiles, policyEngineOptions);
+	}
+
+	@Test
+	public void testPolicyEngine_lazyInitPolicyItemEvaluators() {
+		String[] testResourceFiles = { "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hive_mask_filter.json", "/policyengine/test_policyengine_hdfs.json",
+		                               "/policyengine/test_policyengine_conditions.json", "/policyengine/test_policyengine_tag_hdfs.json" };
+
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation   = false;
+		policyEngineOptions.lazyInitPolicyItemEvaluators = true;
+
+		runTestsFromResourceFiles(testResourceFiles, policyEngineOptions);
+	}
+
+	@Test
+	public void testPolicyEngine_compactResources() {
+		String[] testResourceFiles = { "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hive_mask_filter.json", "/policyengine/test_policyengine_hbase.json",
+		                               "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_tag_hdfs.json" };
+
+		useCompactResources = true;
+
+		runTestsFromResourceFiles(testResourceFiles);
+	}
+
+	@Test
+	public void testPolicyEngine_incrementalPolicyUpdate() {
+		String[] testResourceFiles = { "/policyengine/test_policyengine_hdfs.json", "/policyengine/test_policyengine_hive.json", "/policyengine/test_policyengine_hive_mask_filter.json",
+		                               "/policyengine/test_policyengine_hbase.json", "/policyengine/test_policyengine_tag_hdfs.json" };
+
+		buildPolicyEngineFromDeltas = true;
+
+		runTestsFromResourceFiles(testResourceFiles);
+
+		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
+
+		policyEngineOptions.disableTagPolicyEvaluation = false;
+		policyEngineOptions.optimizeTrieForSpace       = true;
+
+		runTestsFromResourceFiles(testResourceFiles, policyEngineOptions);
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames) {
 		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
 
 		policyEngineOptions.disableTagPolicyEvaluation = false;
 
+		runTestsFromResourceFiles(resourceNames, policyEngineOptions);
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames, RangerPolicyEngineOptions policyEngineOptions) {
+		for(String resourceName : resourceNames) {
+			InputStream inStream = this.getClass().getResourceAsStream(resourceName);
+			InputStreamReader reader   = new InputStreamReader(inStream);
+
+			runTests(reader, resourceName, policyEngineOptions);
+		}
+	}
+
+	private void runTests(InputStreamReader reader, String testName, RangerPolicyEngineOptions policyEngineOptions) {
+		PolicyEngineTestCase testCase = gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
+
+		assertTrue("invalid input: " + testName, testCase != null && testCase.serviceDef != null && testCase.policies != null && testCase.tests != null);
+
+		ServicePolicies servicePolicies = createServicePolicies(testCase);
+
 		boolean useForwardedIPAddress = RangerConfiguration.getInstance().getBoolean("ranger.plugin.hive.use.x-forwarded-for.ipaddress", false);
 		String trustedProxyAddressString = RangerConfiguration.getInstance().get("ranger.plugin.hive.trusted.proxy.ipaddresses");
 		String[] trustedProxyAddresses = StringUtils.split(trustedProxyAddressString, ';');
@@ -342,13 +491,19 @@ public class TestPolicyEngine {
 				trustedProxyAddresses[i] = trustedProxyAddresses[i].trim();
 			}
 		}
-		RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(testName, servicePolicies, policyEngineOptions);
+		RangerPolicyEngine policyEngine = buildPolicyEngineFromDeltas ? createPolicyEngineFromDeltas(testName, servicePolicies, policyEngineOptions)
+		                                                              : new RangerPolicyEngineImpl(testName, servicePolicies, policyEngineOptions);
 		policyEngine.setUseForwardedIPAddress(useForwardedIPAddress);
 		policyEngine.setTrustedProxyAddresses(trustedProxyAddresses);
 		long requestCount = 0L;
 
+		RangerCompactAccessResource.Layout compactResourceLayout = useCompactResources ? new RangerCompactAccessResource.Layout(testCase.serviceDef) : null;
+
 		RangerAccessRequest request = null;
 
+		List<RangerAccessRequest> batchRequests = new ArrayList<>();
+		List<TestData>            batchTests    = new ArrayList<>();
+
 		for(TestData test : testCase.tests) {
 			request = test.request;
 			if ((requestCount++ % 10) == 1) {
@@ -423,6 +578,10 @@ public class TestPolicyEngine {
 				policyEngine.preProcess(request);
 			}
 
+			if (useCompactResources && request instanceof RangerAccessRequestImpl) {
+				((RangerAccessRequestImpl) request).setResource(RangerCompactAccessResource.copyOf(request.getResource(), compactResourceLayout));
+			}
+
 			RangerAccessResultProcessor auditHandler = new RangerDefaultAuditHandler();
 
 			if(test.result != null) {
@@ -433,6 +592,17 @@ public class TestPolicyEngine {
 				assertEquals("isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
 				assertEquals("isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
 				assertEquals("policyId mismatched! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+
+				if (policyEngineOptions.cacheAccessResults) {
+					RangerAccessResult repeated = policyEngine.isAccessAllowed(request, null);
+
+					assertEquals("isAllowed mismatched on repeat! - " + test.name, expected.getIsAllowed(), repeated.getIsAllowed());
+					assertEquals("isAudited mismatched on repeat! - " + test.name, expected.getIsAudited(), repeated.getIsAudited());
+					assertEquals("policyId mismatched on repeat! - " + test.name, expected.getPolicyId(), repeated.getPolicyId());
+				}
+
+				batchRequests.add(request);
+				batchTests.add(test);
 			}
 
 			if(test.dataMaskResult != null) {
@@ -466,6 +636,142 @@ public class TestPolicyEngine {
 				assertEquals("deniedGroups mismatched! - " + test.name, expected.getDeniedGroups(), result.getDeniedGroups());
 			}
 		}
+
+		if (policyEngineOptions.batchEvaluationParallelism > 1) {
+			List<RangerAccessResult> results = new ArrayList<>(policyEngine.isAccessAllowed(batchRequests, null));
+
+			assertEquals("batch result count mismatched! - " + testName, batchTests.size(), results.size());
+
+			for (int i = 0; i < results.size(); i++) {
+				TestData           test     = batchTests.get(i);
+				RangerAccessResult expected = test.result;
+				RangerAccessResult result   = results.get(i);
+
+				assertNotNull("batch result was null! - " + test.name, result);
+				assertSame("batch result for another request! - " + test.name, batchRequests.get(i), result.getAccessRequest());
+				assertEquals("isAllowed mismatched in batch! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+				assertEquals("isAudited mismatched in batch! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+				assertEquals("policyId mismatched in batch! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+			}
+		}
+
+		ConcurrentCache<String, RangerAccessResult> accessResultCache = ((RangerPolicyEngineImpl) policyEngine).getAccessResultCache();
+
+		if (accessResultCache != null) {
+			assertTrue("accessResultCache not used - " + testName, accessResultCache.getHitCount() > 0);
+		}
+	}
+
+	private ServicePolicies createServicePolicies(PolicyEngineTestCase testCase) {
+		ServicePolicies servicePolicies = new ServicePolicies();
+		servicePolicies.setServiceName(testCase.serviceName);
+		servicePolicies.setServiceDef(testCase.serviceDef);
+		servicePolicies.setPolicies(testCase.policies);
+
+		if (StringUtils.isNotBlank(testCase.auditMode)) {
+			servicePolicies.setAuditMode(testCase.auditMode);
+		}
+
+		if (null != testCase.tagPolicyInfo) {
+			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+			tagPolicies.setServiceName(testCase.tagPolicyInfo.serviceName);
+			tagPolicies.setServiceDef(testCase.tagPolicyInfo.serviceDef);
+			tagPolicies.setPolicies(testCase.tagPolicyInfo.tagPolicies);
+
+			if (StringUtils.isNotBlank(testCase.auditMode)) {
+				tagPolicies.setAuditMode(testCase.auditMode);
+			}
+			servicePolicies.setTagPolicies(tagPolicies);
+		}
+
+		return servicePolicies;
+	}
+
+	/*
+	 * Creates a policy engine with an earlier version of the policies - where some policies are missing, some are
+	 * different and there is an extra policy - and updates it to servicePolicies with RangerPolicyEngineImpl.cloneWithDelta()
+	 */
+	private RangerPolicyEngine createPolicyEngineFromDeltas(String testName, ServicePolicies servicePolicies, RangerPolicyEngineOptions policyEngineOptions) {
+		ServicePolicies earlierServicePolicies = new ServicePolicies();
+
+		earlierServicePolicies.setServiceName(servicePolicies.getServiceName());
+		earlierServicePolicies.setServiceDef(servicePolicies.getServiceDef());
+		earlierServicePolicies.setAuditMode(servicePolicies.getAuditMode());
+		earlierServicePolicies.setPolicies(getEarlierPolicies(servicePolicies.getServiceDef(), servicePolicies.getPolicies()));
+
+		if (servicePolicies.getTagPolicies() != null) {
+			ServicePolicies.TagPolicies tagPolicies        = servicePolicies.getTagPolicies();
+			ServicePolicies.TagPolicies earlierTagPolicies = new ServicePolicies.TagPolicies();
+
+			earlierTagPolicies.setServiceName(tagPolicies.getServiceName());
+			earlierTagPolicies.setServiceDef(tagPolicies.getServiceDef());
+			earlierTagPolicies.setAuditMode(tagPolicies.getAuditMode());
+			earlierTagPolicies.setPolicies(getEarlierPolicies(tagPolicies.getServiceDef(), tagPolicies.getPolicies()));
+
+			earlierServicePolicies.setTagPolicies(earlierTagPolicies);
+		}
+
+		RangerPolicyEngineImpl earlierPolicyEngine = new RangerPolicyEngineImpl(testName, earlierServicePolicies, policyEngineOptions);
+		RangerPolicyEngineImpl ret                 = earlierPolicyEngine.cloneWithDelta(servicePolicies);
+
+		assertNotNull("cloneWithDelta() returned null - " + testName, ret);
+
+		for (int i = 2; i < servicePolicies.getPolicies().size(); i += 3) { // unchanged policies
+			Long policyId = servicePolicies.getPolicies().get(i).getId();
+
+			assertSame("evaluator not reused for policy " + policyId + " - " + testName, earlierPolicyEngine.getPolicyEvaluator(policyId), ret.getPolicyEvaluator(policyId));
+		}
+
+		return ret;
+	}
+
+	// policies at index 0, 3, 6.. are missing, those at 1, 4, 7.. have no policy-items; the last policy is not in policies
+	private List<RangerPolicy> getEarlierPolicies(RangerServiceDef serviceDef, List<RangerPolicy> policies) {
+		List<RangerPolicy> ret        = new ArrayList<>();
+		long               maxId      = 0;
+
+		if (serviceDef.getId() == null) {
+			serviceDef.setId(1L);
+		}
+
+		if (serviceDef.getVersion() == null) {
+			serviceDef.setVersion(1L);
+		}
+
+		for (int i = 0; i < policies.size(); i++) {
+			RangerPolicy policy = policies.get(i);
+
+			if (policy.getId() == null) {
+				policy.setId((long) (i + 1));
+			}
+
+			policy.setVersion(2L);
+
+			maxId = Math.max(maxId, policy.getId());
+
+			if (i % 3 == 1) {
+				RangerPolicy earlierPolicy = gsonBuilder.fromJson(gsonBuilder.toJson(policy), RangerPolicy.class);
+
+				earlierPolicy.setVersion(1L);
+				earlierPolicy.setPolicyItems(new ArrayList<RangerPolicy.RangerPolicyItem>());
+				earlierPolicy.setDenyPolicyItems(new ArrayList<RangerPolicy.RangerPolicyItem>());
+
+				ret.add(earlierPolicy);
+			} else if (i % 3 == 2) {
+				ret.add(policy);
+			}
+		}
+
+		if (!policies.isEmpty()) {
+			RangerPolicy deletedPolicy = gsonBuilder.fromJson(gsonBuilder.toJson(policies.get(0)), RangerPolicy.class);
+
+			deletedPolicy.setId(maxId + 1);
+			deletedPolicy.setVersion(1L);
+
+			ret.add(deletedPolicy);
+		}
+
+		return ret;
 	}
 
 	static class PolicyEngineTestCase {
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestRangerCompactAccessResource {
+	@Test
+	public void testSameAsResourceImpl() {
+		RangerServiceDef                   serviceDef = getServiceDef("database", "table", "column");
+		RangerCompactAccessResource.Layout layout     = new RangerCompactAccessResource.Layout(serviceDef);
+		Map<String, String>                elements   = new HashMap<>();
+
+		elements.put("database", "db1");
+		elements.put("table", "tbl1");
+
+		RangerAccessResourceImpl    impl    = new RangerAccessResourceImpl(elements, "user1");
+		RangerCompactAccessResource compact = RangerCompactAccessResource.copyOf(impl, layout);
+
+		impl.setServiceDef(serviceDef);
+
+		assertEquals(impl.getAsString(), compact.getAsString());
+		assertEquals(impl.getCacheKey(), compact.getCacheKey());
+		assertEquals(impl.getLeafName(), compact.getLeafName());
+		assertEquals(impl.getKeys(), compact.getKeys());
+		assertEquals(impl.getAsMap(), compact.getAsMap());
+		assertEquals("user1", compact.getOwnerUser());
+		assertTrue(compact.exists("table"));
+		assertFalse(compact.exists("column"));
+		assertFalse(compact.exists("unknown"));
+		assertEquals("tbl1", compact.getValue("table"));
+		assertNull(compact.getValue("column"));
+		assertSame(compact, compact.getReadOnlyCopy());
+		assertSame(compact, RangerCompactAccessResource.copyOf(compact, layout));
+	}
+
+	@Test
+	public void testEqualsAndSharedKeys() {
+		RangerCompactAccessResource.Layout layout = new RangerCompactAccessResource.Layout(getServiceDef("database", "table", "column"));
+
+		RangerCompactAccessResource resource1 = new RangerCompactAccessResource(layout, new String[] { "db1", "tbl1", null }, null);
+		RangerCompactAccessResource resource2 = new RangerCompactAccessResource(layout, new String[] { "db1", "tbl1", null }, null);
+		RangerCompactAccessResource resource3 = new RangerCompactAccessResource(layout, new String[] { "db1", "tbl2", null }, null);
+		RangerCompactAccessResource empty     = new RangerCompactAccessResource(layout, new String[3], null);
+
+		assertEquals(resource1, resource2);
+		assertEquals(resource1.hashCode(), resource2.hashCode());
+		assertNotEquals(resource1, resource3);
+		assertSame(resource1.getKeys(), resource3.getKeys());
+		assertNull(empty.getKeys());
+		assertNull(empty.getLeafName());
+		assertNull(empty.getAsString());
+		assertTrue(empty.getAsMap().isEmpty());
+	}
+
+	@Test
+	public void testSingleValueResource() {
+		RangerServiceDef                   serviceDef = getServiceDef("tag");
+		RangerCompactAccessResource.Layout layout     = new RangerCompactAccessResource.Layout(serviceDef);
+		RangerCompactAccessResource        compact    = layout.newResource(RangerTagResource.KEY_TAG, "PII");
+		RangerTagResource                  impl       = new RangerTagResource("PII", serviceDef);
+
+		assertEquals(impl.getAsString(), compact.getAsString());
+		assertEquals(impl.getCacheKey(), compact.getCacheKey());
+		assertEquals(impl.getAsMap(), compact.getAsMap());
+		assertNull(layout.newResource("unknown", "PII"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueCountMismatch() {
+		RangerCompactAccessResource.Layout layout = new RangerCompactAccessResource.Layout(getServiceDef("database", "table"));
+
+		new RangerCompactAccessResource(layout, new String[] { "db1" }, null);
+	}
+
+	private static RangerServiceDef getServiceDef(String... resourceNames) {
+		RangerServiceDef        ret          = new RangerServiceDef();
+		List<RangerResourceDef> resourceDefs = new ArrayList<>();
+
+		for (String resourceName : resourceNames) {
+			RangerResourceDef resourceDef = new RangerResourceDef();
+
+			resourceDef.setName(resourceName);
+
+			resourceDefs.add(resourceDef);
+		}
+
+		ret.setName("test");
+		ret.setResources(resourceDefs);
+
+		return ret;
+	}
+}
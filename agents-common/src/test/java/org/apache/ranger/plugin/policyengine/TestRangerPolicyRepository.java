@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerDataMaskPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TestRangerPolicyRepository {
+	@Test
+	public void testPolicyEvaluatorsForTagType() throws Exception {
+		RangerServiceDef tagServiceDef  = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_TAG_NAME);
+		RangerServiceDef hdfsServiceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME);
+
+		List<RangerPolicy> policies = new ArrayList<>();
+
+		policies.add(createTagPolicy(1L, "PII-read", "PII"));
+		policies.add(createTagPolicy(2L, "PCI-read", "PCI"));
+		policies.add(createTagPolicy(3L, "A-PII-read", "PII"));
+
+		ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+
+		tagPolicies.setServiceName("tagdev");
+		tagPolicies.setServiceDef(tagServiceDef);
+		tagPolicies.setPolicies(policies);
+		tagPolicies.setPolicyVersion(1L);
+
+		RangerPolicyRepository repository = new RangerPolicyRepository("test", tagPolicies, new RangerPolicyEngineOptions(), hdfsServiceDef, "hdfsdev");
+
+		for (String tagType : new String[] { "PII", "PCI", "PHI", "SSN" }) {
+			List<RangerPolicyEvaluator> evaluators = repository.getPolicyEvaluatorsForTagType(tagType);
+
+			assertEquals(tagType, repository.getPolicyEvaluators(new RangerTagResource(tagType, repository.getServiceDef())), evaluators);
+			assertSame(tagType, evaluators, repository.getPolicyEvaluatorsForTagType(tagType));
+		}
+
+		assertEquals(Collections.singletonList("PCI-read"), getPolicyNames(repository.getPolicyEvaluatorsForTagType("PCI")));
+		assertEquals(Collections.emptyList(), getPolicyNames(repository.getPolicyEvaluatorsForTagType("SSN")));
+
+		List<String> piiPolicyNames = getPolicyNames(repository.getPolicyEvaluatorsForTagType("PII"));
+
+		Collections.sort(piiPolicyNames);
+
+		assertEquals(Arrays.asList("A-PII-read", "PII-read"), piiPolicyNames);
+	}
+
+	@Test
+	public void testDataMaskPolicyEvaluatorsForTags() throws Exception {
+		RangerServiceDef tagServiceDef  = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_TAG_NAME);
+		RangerServiceDef hiveServiceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME);
+
+		List<RangerPolicy> policies = new ArrayList<>();
+
+		policies.add(createTagDataMaskPolicy(1L, "PII-mask", "PII"));
+		policies.add(createTagDataMaskPolicy(2L, "A-PCI-mask", "PCI"));
+
+		ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+
+		tagPolicies.setServiceName("tagdev");
+		tagPolicies.setServiceDef(tagServiceDef);
+		tagPolicies.setPolicies(policies);
+		tagPolicies.setPolicyVersion(1L);
+
+		RangerPolicyRepository repository = new RangerPolicyRepository("test", tagPolicies, new RangerPolicyEngineOptions(), hiveServiceDef, "hivedev");
+
+		List<PolicyEvaluatorForTag> evaluators = repository.getDataMaskPolicyEvaluators(getTags("PII"));
+
+		assertEquals(1, evaluators.size());
+		assertEquals("PII-mask", evaluators.get(0).getEvaluator().getPolicy().getName());
+		assertEquals("PII", evaluators.get(0).getTag().getType());
+
+		evaluators = repository.getDataMaskPolicyEvaluators(getTags("PII", "SSN", "PCI"));
+
+		assertEquals(2, evaluators.size());
+		assertEquals("A-PCI-mask", evaluators.get(0).getEvaluator().getPolicy().getName());
+		assertEquals("PCI", evaluators.get(0).getTag().getType());
+		assertEquals("PII-mask", evaluators.get(1).getEvaluator().getPolicy().getName());
+
+		// null when there are no tags or no policies for the tags - for one tag as well as for many
+		assertNull(repository.getDataMaskPolicyEvaluators(getTags()));
+		assertNull(repository.getDataMaskPolicyEvaluators(getTags("SSN")));
+		assertNull(repository.getDataMaskPolicyEvaluators(getTags("SSN", "PHI")));
+		assertNull(repository.getRowFilterPolicyEvaluators(getTags("PII")));
+	}
+
+	@Test
+	public void testPolicyEvaluatorsForUnknownTagTypesAreBounded() throws Exception {
+		RangerServiceDef tagServiceDef  = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_TAG_NAME);
+		RangerServiceDef hdfsServiceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME);
+
+		ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+
+		tagPolicies.setServiceName("tagdev");
+		tagPolicies.setServiceDef(tagServiceDef);
+		tagPolicies.setPolicies(Collections.singletonList(createTagPolicy(1L, "PII-read", "PII")));
+		tagPolicies.setPolicyVersion(1L);
+
+		RangerPolicyRepository      repository    = new RangerPolicyRepository("test", tagPolicies, new RangerPolicyEngineOptions(), hdfsServiceDef, "hdfsdev");
+		List<RangerPolicyEvaluator> piiEvaluators = repository.getPolicyEvaluatorsForTagType("PII");
+		int                         maxCacheSize  = repository.getTagTypePolicyEvaluatorsCache().getMaxSize();
+
+		for (int i = 0; i < maxCacheSize * 2; i++) {
+			assertEquals(Collections.emptyList(), repository.getPolicyEvaluatorsForTagType("TAG-" + i));
+		}
+
+		assertTrue(repository.getTagTypePolicyEvaluatorsCache().size() <= maxCacheSize);
+		assertSame(piiEvaluators, repository.getPolicyEvaluatorsForTagType("PII"));
+	}
+
+	@Test
+	public void testPolicyEvaluatorsForPoliciesWithoutIds() throws Exception {
+		RangerServiceDef hiveServiceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME);
+
+		ServicePolicies servicePolicies = new ServicePolicies();
+
+		servicePolicies.setServiceName("hivedev");
+		servicePolicies.setServiceDef(hiveServiceDef);
+		// the policies are listed in different order in database and table tries, as their wildcard levels differ
+		servicePolicies.setPolicies(Arrays.asList(createHivePolicy(null, "db1-all-tables", "db1", "*"), createHivePolicy(null, "tbl1-all-databases", "*", "tbl1"), createHivePolicy(-1L, "db1-tbl1", "db1", "tbl1")));
+		servicePolicies.setPolicyVersion(1L);
+
+		RangerPolicyRepository repository = new RangerPolicyRepository("test", servicePolicies, new RangerPolicyEngineOptions());
+
+		RangerAccessResourceImpl table  = new RangerAccessResourceImpl();
+		RangerAccessResourceImpl column = new RangerAccessResourceImpl();
+
+		table.setServiceDef(hiveServiceDef);
+		column.setServiceDef(hiveServiceDef);
+		table.setValue("database", "db1");
+		table.setValue("table", "tbl1");
+		column.setValue("database", "db1");
+		column.setValue("table", "tbl1");
+		column.setValue("column", "col1");
+
+		List<String> expected = Arrays.asList("db1-all-tables", "db1-tbl1", "tbl1-all-databases");
+
+		for (RangerAccessResourceImpl resource : new RangerAccessResourceImpl[] { table, column, column }) {
+			List<String> policyNames = getPolicyNames(repository.getPolicyEvaluators(resource));
+
+			Collections.sort(policyNames);
+
+			assertEquals(resource.getAsString(), expected, policyNames);
+		}
+	}
+
+	private static RangerPolicy createHivePolicy(Long id, String name, String database, String table) {
+		RangerPolicy     policy     = new RangerPolicy();
+		RangerPolicyItem policyItem = new RangerPolicyItem();
+
+		policyItem.getUsers().add("user1");
+		policyItem.getAccesses().add(new RangerPolicyItemAccess("select"));
+
+		policy.setId(id);
+		policy.setName(name);
+		policy.setService("hivedev");
+		policy.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+		policy.getResources().put("database", new RangerPolicyResource(database));
+		policy.getResources().put("table", new RangerPolicyResource(table));
+		policy.getResources().put("column", new RangerPolicyResource("*"));
+		policy.getPolicyItems().add(policyItem);
+
+		return policy;
+	}
+
+	private static RangerPolicy createTagPolicy(Long id, String name, String tagType) {
+		RangerPolicy     policy     = new RangerPolicy();
+		RangerPolicyItem policyItem = new RangerPolicyItem();
+
+		policyItem.getUsers().add("user1");
+		policyItem.getAccesses().add(new RangerPolicyItemAccess("hdfs:read"));
+
+		policy.setId(id);
+		policy.setName(name);
+		policy.setService("tagdev");
+		policy.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+		policy.getResources().put(RangerTagResource.KEY_TAG, new RangerPolicyResource(tagType));
+		policy.getPolicyItems().add(policyItem);
+
+		return policy;
+	}
+
+	private static RangerPolicy createTagDataMaskPolicy(Long id, String name, String tagType) {
+		RangerPolicy             policy     = new RangerPolicy();
+		RangerDataMaskPolicyItem policyItem = new RangerDataMaskPolicyItem();
+
+		policyItem.getUsers().add("user1");
+		policyItem.getAccesses().add(new RangerPolicyItemAccess("hive:select"));
+		policyItem.setDataMaskInfo(new RangerPolicyItemDataMaskInfo("hive:MASK", null, null));
+
+		policy.setId(id);
+		policy.setName(name);
+		policy.setService("tagdev");
+		policy.setPolicyType(RangerPolicy.POLICY_TYPE_DATAMASK);
+		policy.getResources().put(RangerTagResource.KEY_TAG, new RangerPolicyResource(tagType));
+		policy.getDataMaskPolicyItems().add(policyItem);
+
+		return policy;
+	}
+
+	private static Set<RangerTagForEval> getTags(String... tagTypes) {
+		Set<RangerTagForEval> ret = new LinkedHashSet<>();
+
+		for (String tagType : tagTypes) {
+			ret.add(new RangerTagForEval(new RangerTag(tagType, null), RangerPolicyResourceMatcher.MatchType.SELF));
+		}
+
+		return ret;
+	}
+
+	private static List<String> getPolicyNames(List<RangerPolicyEvaluator> evaluators) {
+		List<String> ret = new ArrayList<>();
+
+		for (RangerPolicyEvaluator evaluator : evaluators) {
+			ret.add(evaluator.getPolicy().getName());
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.junit.Test;
+
+public class RangerDefaultPolicyItemEvaluatorTest {
+
+	@Test
+	public void test_matchUserGroup() {
+		List<String> groups = new ArrayList<>();
+
+		for (int i = 0; i < 500; i++) {
+			groups.add("group" + i);
+		}
+
+		RangerPolicyItemEvaluator evaluator = createEvaluator(Arrays.asList("user1", "user2"), groups);
+
+		assertTrue(evaluator.matchUserGroup("user1", Collections.<String>emptySet()));
+		assertTrue(evaluator.matchUserGroup("user3", asSet("other", "group499")));
+		assertTrue(evaluator.matchUserGroup(null, asSet("group0")));
+		assertFalse(evaluator.matchUserGroup("user3", asSet("other1", "other2")));
+		assertFalse(evaluator.matchUserGroup("user3", null));
+		assertFalse(evaluator.matchUserGroup("user3", Collections.<String>emptySet()));
+
+		// more request groups than policy-item groups
+		Set<String> userGroups = new HashSet<>();
+
+		for (int i = 0; i < 1000; i++) {
+			userGroups.add("other" + i);
+		}
+
+		RangerPolicyItemEvaluator smallEvaluator = createEvaluator(Collections.<String>emptyList(), Arrays.asList("g1", "g2"));
+
+		assertFalse(smallEvaluator.matchUserGroup("user1", userGroups));
+
+		userGroups.add("g2");
+
+		assertTrue(smallEvaluator.matchUserGroup("user1", userGroups));
+	}
+
+	@Test
+	public void test_matchUserGroup_publicAndCurrentUser() {
+		RangerPolicyItemEvaluator publicEvaluator = createEvaluator(Collections.<String>emptyList(), Arrays.asList("g1", RangerPolicyEngine.GROUP_PUBLIC));
+
+		assertTrue(publicEvaluator.matchUserGroup("anyone", asSet("unrelated")));
+
+		RangerPolicyItemEvaluator currentUserEvaluator = createEvaluator(Arrays.asList(RangerPolicyEngine.USER_CURRENT), Collections.<String>emptyList());
+
+		assertTrue(currentUserEvaluator.matchUserGroup("anyone", null));
+		assertFalse(currentUserEvaluator.matchUserGroup(null, asSet("g1")));
+	}
+
+	private RangerPolicyItemEvaluator createEvaluator(List<String> users, List<String> groups) {
+		RangerServiceDef serviceDef = new RangerServiceDef();
+
+		serviceDef.setName("test");
+		serviceDef.setAccessTypes(Arrays.asList(new RangerAccessTypeDef(1L, "read", "read", null, null)));
+
+		RangerPolicyItem policyItem = new RangerPolicyItem(Arrays.asList(new RangerPolicyItemAccess("read")), users, groups, Collections.<RangerPolicyItemCondition>emptyList(), false);
+
+		RangerPolicy policy = new RangerPolicy();
+
+		policy.setId(1L);
+
+		RangerPolicyItemEvaluator ret = new RangerDefaultPolicyItemEvaluator(serviceDef, policy, policyItem, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW, 0, new RangerPolicyEngineOptions());
+
+		ret.init();
+
+		return ret;
+	}
+
+	private static Set<String> asSet(String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+}
@@ -21,13 +21,16 @@ package org.apache.ranger.plugin.resourcematcher;
 
 import com.google.common.collect.Lists;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.commons.io.IOCase;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerWildcardMatcher;
 import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
 public class RangerPathResourceMatcherTest {
 
@@ -68,6 +71,52 @@ public class RangerPathResourceMatcherTest {
         }
     }
 
+    @Test
+    public void testRecursiveWildcardMatchSameAsFilenameUtils() throws Exception {
+        String[] paths    = { "/", "//", "a", "a/", "/app", "/app/", "/app/hive/test.db", "/App/Hive/test.db/", "app/hive", "/app//hive/test.db", "//app/hive", "/app/hive//",
+                              "/app/hive/test.db/tbl1/part=1", "/app/hive/test.db/tbl1/part=1/p2=a/p3=b/p4=c/p5=d/p6=e/p7=f/p8=g/p9=h/p10=i/p11=j/p12=k/000001_0" };
+        String[] policies = { "/*", "/app/*", "/app/h*", "/app/*/test.db", "/app/?ive", "/a*/*/t*.db", "*hive*", "/app/hive/test.db/*/part=?", "app/*" };
+
+        for (String path : paths) {
+            for (String policy : policies) {
+                for (boolean ignoreCase : new boolean[] { true, false }) {
+                    boolean expected = RangerPathResourceMatcher.isRecursiveWildCardMatch(path, policy, '/', ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+                    boolean actual   = RangerPathResourceMatcher.isRecursiveWildCardMatch(path, RangerWildcardMatcher.compile(policy, ignoreCase), '/');
+
+                    assertEquals("path=" + path + ", policy=" + policy + ", ignoreCase=" + ignoreCase, expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIsMatchWithTokens() throws Exception {
+        MatcherWrapper matcher = new MatcherWrapper("/home/{USER}/*", true, true);
+
+        for (int i = 0; i < 3; i++) { // alternate users, to verify that expansion for one user isn't reused for another
+            for (String user : new String[] { "user1", "user2" }) {
+                Map<String, Object> evalContext = new HashMap<>();
+                RangerAccessRequestUtil.setCurrentUserInContext(evalContext, user);
+
+                assertEquals(user, true, matcher.isMatch("/home/" + user + "/a/b/c/d", evalContext));
+                assertEquals(user, true, matcher.isMatch("/home/" + user + "/a", evalContext));
+                assertEquals(user, false, matcher.isMatch("/home/" + user + "x/a/b", evalContext));
+                assertEquals(user, false, matcher.isMatch("/home/user3/a/b", evalContext));
+                assertNotNull(user, evalContext.get(RangerAccessRequestUtil.KEY_CONTEXT_TOKEN_EXPANSIONS));
+            }
+        }
+
+        // a context reused for another user must not see the expansion cached for the earlier user
+        Map<String, Object> evalContext = new HashMap<>();
+
+        RangerAccessRequestUtil.setCurrentUserInContext(evalContext, "user1");
+        assertEquals(true, matcher.isMatch("/home/user1/a", evalContext));
+
+        RangerAccessRequestUtil.setCurrentUserInContext(evalContext, "user2");
+        assertEquals(false, matcher.isMatch("/home/user1/a", evalContext));
+        assertEquals(true, matcher.isMatch("/home/user2/a", evalContext));
+    }
+
     String getMessage(Object[] row) {
         return String.format("Resource=%s, Policy=%s, optWildcard=%s, recursive=%s, result=%s",
                 (String)row[0], (String)row[1], (boolean)row[2], (boolean)row[3], (boolean)row[4]);
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.GrantRevokeRequest;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRangerSharedPolicyEngine {
+	private static final String SERVICE_TYPE    = "hdfs";
+	private static final String PROPERTY_PREFIX = "ranger.plugin." + SERVICE_TYPE;
+
+	private static final AtomicInteger adminClientCount = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		RangerConfiguration config = RangerConfiguration.getInstance();
+
+		config.set(PROPERTY_PREFIX + ".service.name", "cl1_hdfs");
+		config.set(PROPERTY_PREFIX + ".policy.source.impl", TestAdminClient.class.getName());
+		config.set(PROPERTY_PREFIX + ".policy.pollIntervalMs", "3600000");
+		config.set(PROPERTY_PREFIX + ".policy.policyReorderInterval", "-1");
+
+		adminClientCount.set(0);
+	}
+
+	@After
+	public void tearDown() {
+		RangerConfiguration config = RangerConfiguration.getInstance();
+
+		config.unset(PROPERTY_PREFIX + ".service.name");
+		config.unset(PROPERTY_PREFIX + ".policy.source.impl");
+		config.unset(PROPERTY_PREFIX + ".policy.pollIntervalMs");
+		config.unset(PROPERTY_PREFIX + ".policy.policyReorderInterval");
+		config.unset(PROPERTY_PREFIX + ".policy.engine.shared");
+	}
+
+	@Test
+	public void testSharedPolicyEngine() {
+		RangerConfiguration.getInstance().setBoolean(PROPERTY_PREFIX + ".policy.engine.shared", true);
+
+		RangerBasePlugin plugin1 = new RangerBasePlugin(SERVICE_TYPE, "app1");
+		RangerBasePlugin plugin2 = new RangerBasePlugin(SERVICE_TYPE, "app1");
+
+		plugin1.init();
+		plugin2.init();
+
+		assertEquals("only one refresher/admin-client expected", 1, adminClientCount.get());
+		assertEquals(1, RangerSharedPolicyEngine.getSharedPolicyEngineCount());
+		assertNotNull(plugin1.getPolicyEngine());
+		assertSame(plugin1.getPolicyEngine(), plugin2.getPolicyEngine());
+
+		// engine built by the owner is given to all plugins
+		plugin1.setPolicies(createPolicies(2L));
+
+		assertSame(plugin1.getPolicyEngine(), plugin2.getPolicyEngine());
+
+		// when the owner leaves, the other plugin takes over the refresher
+		plugin1.cleanup();
+
+		assertEquals(2, adminClientCount.get());
+		assertEquals(1, RangerSharedPolicyEngine.getSharedPolicyEngineCount());
+		assertNotNull(plugin2.getPolicyEngine());
+
+		plugin2.cleanup();
+
+		assertEquals(0, RangerSharedPolicyEngine.getSharedPolicyEngineCount());
+	}
+
+	@Test
+	public void testSharedPolicyEnginePerAppId() {
+		RangerConfiguration.getInstance().setBoolean(PROPERTY_PREFIX + ".policy.engine.shared", true);
+
+		RangerBasePlugin plugin1 = new RangerBasePlugin(SERVICE_TYPE, "app1");
+		RangerBasePlugin plugin2 = new RangerBasePlugin(SERVICE_TYPE, "app2");
+
+		plugin1.init();
+		plugin2.init();
+
+		// refresher, policy cache file and context enrichers are per appId; plugins of different appIds don't share them
+		assertEquals(2, adminClientCount.get());
+		assertEquals(2, RangerSharedPolicyEngine.getSharedPolicyEngineCount());
+		assertNotSame(plugin1.getPolicyEngine(), plugin2.getPolicyEngine());
+
+		plugin1.cleanup();
+		plugin2.cleanup();
+
+		assertEquals(0, RangerSharedPolicyEngine.getSharedPolicyEngineCount());
+	}
+
+	@Test
+	public void testUnsharedPolicyEngine() {
+		RangerBasePlugin plugin1 = new RangerBasePlugin(SERVICE_TYPE, "app1");
+		RangerBasePlugin plugin2 = new RangerBasePlugin(SERVICE_TYPE, "app2");
+
+		plugin1.init();
+		plugin2.init();
+
+		assertEquals(2, adminClientCount.get());
+		assertEquals(0, RangerSharedPolicyEngine.getSharedPolicyEngineCount());
+		assertNotSame(plugin1.getPolicyEngine(), plugin2.getPolicyEngine());
+
+		plugin1.cleanup();
+		plugin2.cleanup();
+	}
+
+	private static ServicePolicies createPolicies(long version) {
+		ServicePolicies ret = new ServicePolicies();
+
+		try {
+			ret.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(SERVICE_TYPE));
+		} catch (Exception excp) {
+			throw new RuntimeException(excp);
+		}
+
+		ret.setServiceName("cl1_hdfs");
+		ret.setPolicyVersion(version);
+		ret.setPolicies(new ArrayList<RangerPolicy>());
+
+		return ret;
+	}
+
+	public static class TestAdminClient implements RangerAdminClient {
+		@Override
+		public void init(String serviceName, String appId, String configPropertyPrefix) {
+			adminClientCount.incrementAndGet();
+		}
+
+		@Override
+		public ServicePolicies getServicePoliciesIfUpdated(long lastKnownVersion, long lastActivationTimeInMillis) throws Exception {
+			return lastKnownVersion == -1 ? createPolicies(1L) : null;
+		}
+
+		@Override
+		public void grantAccess(GrantRevokeRequest request) throws Exception {
+		}
+
+		@Override
+		public void revokeAccess(GrantRevokeRequest request) throws Exception {
+		}
+
+		@Override
+		public ServiceTags getServiceTagsIfUpdated(long lastKnownVersion, long lastActivationTimeInMillis) throws Exception {
+			return null;
+		}
+
+		@Override
+		public List<String> getTagTypes(String tagTypePattern) throws Exception {
+			return null;
+		}
+	}
+}
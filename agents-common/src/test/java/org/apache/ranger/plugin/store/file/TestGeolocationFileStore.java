@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.store.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ranger.plugin.geo.RangerGeolocationData;
+import org.apache.ranger.plugin.geo.RangerGeolocationIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestGeolocationFileStore {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testIndexFileMatchesCsv() throws Exception {
+		File indexFile = tempFolder.newFile("geo.idx");
+
+		assertTrue(GeolocationIndexConverter.convert("/etc/ranger/geo/geo.txt", indexFile.getPath(), true));
+		assertTrue(RangerGeolocationIndex.isIndexFile(indexFile));
+
+		GeolocationFileStore csvStore   = createStore("/etc/ranger/geo/geo.txt", true);
+		GeolocationFileStore longStore  = createStore("/etc/ranger/geo/geo_long.txt", false);
+		GeolocationFileStore indexStore = createStore(indexFile.getPath(), true);
+
+		assertArrayEquals(csvStore.getGeoDatabase().getMetadata().getLocationDataItemNames(), indexStore.getGeoDatabase().getMetadata().getLocationDataItemNames());
+		assertEquals(csvStore.getGeoDatabase().getIndex().size(), indexStore.getGeoDatabase().getIndex().size());
+
+		for (String ipAddress : new String[] { "10.0.0.255", "10.0.1.1", "10.0.3.0", "20.0.100.72", "20.0.100.80", "20.0.100.129", "20.0.100.130", "10.0.0.254", "1.2.3.4", "255.255.255.255" }) {
+			RangerGeolocationData expected = csvStore.getGeoLocation(ipAddress);
+
+			assertEquals(ipAddress, expected, indexStore.getGeoLocation(ipAddress));
+			assertEquals(ipAddress, expected, longStore.getGeoLocation(ipAddress));
+		}
+
+		RangerGeolocationData data = indexStore.getGeoLocation("20.0.100.75");
+
+		assertNotNull(data);
+		assertEquals("Angola", indexStore.getGeoDatabase().getValue(data, "COUNTRY_NAME"));
+		assertNull(indexStore.getGeoLocation("20.0.100.130"));
+	}
+
+	@Test
+	public void testSharedLocations() {
+		RangerGeolocationIndex index = new RangerGeolocationIndex.Builder().setAttributeNames(new String[] { "COUNTRY" })
+		                                                                  .add(300L, 399L, new String[] { "US" })
+		                                                                  .add(100L, 199L, new String[] { "US" })
+		                                                                  .add(0xFFFFFF00L, 0xFFFFFFFFL, new String[] { "CA" })
+		                                                                  .build();
+
+		assertEquals(3, index.size());
+		assertEquals(100L, index.getFromAddress(0));
+		assertEquals(0xFFFFFF00L, index.getFromAddress(2));
+		assertTrue(index.getLocation(0) == index.getLocation(1));
+		assertEquals(-1, index.find(99L));
+		assertEquals(0, index.find(199L));
+		assertEquals(-1, index.find(200L));
+		assertEquals(1, index.find(300L));
+		assertEquals(2, index.find(0xFFFFFFFFL));
+		assertFalse(RangerGeolocationIndex.isIndexFile(new File("/nonexistent")));
+	}
+
+	private GeolocationFileStore createStore(String filePath, boolean ipInDotFormat) {
+		Map<String, String> context = new HashMap<>();
+
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, filePath);
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_IP_IN_DOT_FORMAT, Boolean.toString(ipInDotFormat));
+
+		GeolocationFileStore ret = new GeolocationFileStore();
+
+		ret.init(context);
+
+		assertNotNull(ret.getGeoDatabase());
+
+		return ret;
+	}
+}
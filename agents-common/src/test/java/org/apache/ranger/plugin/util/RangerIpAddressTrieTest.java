@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RangerIpAddressTrieTest {
+    @Test
+    public void testParseAddress() {
+        assertArrayEquals(new byte[] { 10, 0, (byte) 255, 1 }, RangerIpAddressTrie.parseAddress("10.0.255.1"));
+        assertArrayEquals(new byte[] { 0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 }, RangerIpAddressTrie.parseAddress("2001:DB8::1"));
+        assertArrayEquals(new byte[16], RangerIpAddressTrie.parseAddress("::"));
+
+        assertNull(RangerIpAddressTrie.parseAddress("10.0.255"));
+        assertNull(RangerIpAddressTrie.parseAddress("10.0.255.1.2"));
+        assertNull(RangerIpAddressTrie.parseAddress("10.0.256.1"));
+        assertNull(RangerIpAddressTrie.parseAddress("10.0.01.1"));
+        assertNull(RangerIpAddressTrie.parseAddress("1.2.3.boo"));
+        assertNull(RangerIpAddressTrie.parseAddress("1:2:3:4:5:6"));
+        assertNull(RangerIpAddressTrie.parseAddress("1::2::3"));
+        assertNull(RangerIpAddressTrie.parseAddress("1:2:3:4:5:6:7:8::"));
+        assertNull(RangerIpAddressTrie.parseAddress("12345::"));
+    }
+
+    @Test
+    public void testLongestPrefixMatch() {
+        RangerIpAddressTrie<String> trie = new RangerIpAddressTrie<>();
+
+        assertTrue(trie.put("10.0.0.0/8", "a"));
+        assertTrue(trie.put("10.1.0.0/16", "b"));
+        assertTrue(trie.put("10.1.2.3", "c"));
+        assertTrue(trie.put("2001:db8::/32", "d"));
+        assertFalse(trie.put("10.0.0.0/40", "x"));
+        assertFalse(trie.put("host/8", "x"));
+        assertEquals(4, trie.size());
+
+        assertEquals("a", trie.get("10.200.0.1"));
+        assertEquals("b", trie.get("10.1.200.1"));
+        assertEquals("c", trie.get("10.1.2.3"));
+        assertEquals("d", trie.get("2001:db8:1::"));
+        assertNull(trie.get("11.0.0.1"));
+        assertNull(trie.get("2001:db9::"));
+        assertNull(trie.get("not-an-address"));
+
+        assertTrue(trie.containsPrefixOf("10.1.2.4"));
+        assertFalse(trie.containsPrefixOf("192.168.0.1"));
+
+        assertTrue(trie.put("0.0.0.0/0", "default"));
+        assertEquals("default", trie.get("192.168.0.1"));
+        assertNull(trie.get("::1"));
+    }
+}
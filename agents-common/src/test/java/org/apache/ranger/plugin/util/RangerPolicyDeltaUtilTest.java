@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.junit.Test;
+
+public class RangerPolicyDeltaUtilTest {
+
+    @Test
+    public void testGetAndApplyDeltas() {
+        List<RangerPolicy> oldPolicies = Arrays.asList(policy(1L, 1L), policy(2L, 1L), policy(3L, 1L));
+        List<RangerPolicy> newPolicies = Arrays.asList(policy(1L, 1L), policy(2L, 2L), policy(4L, 1L));
+
+        List<RangerPolicyDelta> deltas = RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicies, newPolicies);
+
+        assertEquals(3, deltas.size());
+        assertDelta(deltas.get(0), RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 2L, 2L);
+        assertDelta(deltas.get(1), RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 4L, 1L);
+        assertDelta(deltas.get(2), RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 3L, 1L);
+
+        List<RangerPolicy> policies = RangerPolicyDeltaUtil.applyDeltas(oldPolicies, deltas);
+
+        assertEquals(ids(newPolicies), ids(policies));
+        assertSame(oldPolicies.get(0), policies.get(0));
+        assertSame(newPolicies.get(1), policies.get(1));
+        assertSame(newPolicies.get(2), policies.get(2));
+
+        assertNull(RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicies, Arrays.asList(policy(1L, 1L), policy(1L, 2L))));
+        assertNull(RangerPolicyDeltaUtil.getPolicyDeltas(oldPolicies, Arrays.asList(policy(null, 1L))));
+    }
+
+    @Test
+    public void testMergeDeltas() {
+        List<RangerPolicyDelta> deltas      = Arrays.asList(delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 4L, 1L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 2L, 2L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 3L, 1L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 5L, 1L));
+        List<RangerPolicyDelta> laterDeltas = Arrays.asList(delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 4L, 2L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 2L, 2L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 3L, 2L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 5L, 1L),
+                                                            delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 1L, 2L));
+
+        List<RangerPolicyDelta> merged = RangerPolicyDeltaUtil.mergeDeltas(deltas, laterDeltas);
+
+        assertEquals(4, merged.size());
+        assertDelta(merged.get(0), RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 4L, 2L);
+        assertDelta(merged.get(1), RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 2L, 2L);
+        assertDelta(merged.get(2), RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 3L, 2L);
+        assertDelta(merged.get(3), RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 1L, 2L);
+
+        assertNull(RangerPolicyDeltaUtil.mergeDeltas(deltas, Arrays.asList(delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 4L, 2L))));
+        assertNull(RangerPolicyDeltaUtil.mergeDeltas(deltas, Arrays.asList(delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 3L, 2L))));
+
+        // merging in steps gives the same policies as a direct diff
+        List<RangerPolicy> v1 = Arrays.asList(policy(1L, 1L), policy(2L, 1L), policy(3L, 1L));
+        List<RangerPolicy> v2 = Arrays.asList(policy(1L, 1L), policy(2L, 2L), policy(4L, 1L));
+        List<RangerPolicy> v3 = Arrays.asList(policy(1L, 2L), policy(3L, 2L), policy(4L, 2L));
+
+        List<RangerPolicyDelta> v1ToV3 = RangerPolicyDeltaUtil.mergeDeltas(RangerPolicyDeltaUtil.getPolicyDeltas(v1, v2), RangerPolicyDeltaUtil.getPolicyDeltas(v2, v3));
+
+        assertEquals(ids(v3), ids(RangerPolicyDeltaUtil.applyDeltas(v1, v1ToV3)));
+    }
+
+    @Test
+    public void testApplyServicePolicyDeltas() {
+        ServicePolicies servicePolicies = new ServicePolicies();
+
+        servicePolicies.setServiceName("svc1");
+        servicePolicies.setPolicyVersion(1L);
+        servicePolicies.setPolicies(Arrays.asList(policy(1L, 1L), policy(2L, 1L)));
+        servicePolicies.setTagPolicies(new ServicePolicies.TagPolicies());
+        servicePolicies.getTagPolicies().setServiceName("tag1");
+        servicePolicies.getTagPolicies().setPolicies(Arrays.asList(policy(10L, 1L)));
+
+        assertFalse(RangerPolicyDeltaUtil.isDelta(servicePolicies));
+
+        ServicePolicies servicePolicyDeltas = new ServicePolicies();
+
+        servicePolicyDeltas.setServiceName("svc1");
+        servicePolicyDeltas.setPolicyVersion(3L);
+        servicePolicyDeltas.setPolicyDeltas(Arrays.asList(delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 1L, 1L)));
+        servicePolicyDeltas.setTagPolicies(new ServicePolicies.TagPolicies());
+        servicePolicyDeltas.getTagPolicies().setServiceName("tag1");
+        servicePolicyDeltas.getTagPolicies().setPolicyDeltas(Arrays.asList(delta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 11L, 1L)));
+
+        assertTrue(RangerPolicyDeltaUtil.isDelta(servicePolicyDeltas));
+
+        ServicePolicies updated = RangerPolicyDeltaUtil.applyDeltas(servicePolicies, servicePolicyDeltas);
+
+        assertFalse(RangerPolicyDeltaUtil.isDelta(updated));
+        assertEquals(Long.valueOf(3L), updated.getPolicyVersion());
+        assertEquals(Arrays.asList(2L), ids(updated.getPolicies()));
+        assertEquals(Arrays.asList(10L, 11L), ids(updated.getTagPolicies().getPolicies()));
+        assertEquals(Arrays.asList(1L, 2L), ids(servicePolicies.getPolicies()));
+    }
+
+    private static RangerPolicy policy(Long id, Long version) {
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setVersion(version);
+
+        return ret;
+    }
+
+    private static RangerPolicyDelta delta(int changeType, Long policyId, Long policyVersion) {
+        return new RangerPolicyDelta(changeType, policy(policyId, policyVersion));
+    }
+
+    private static void assertDelta(RangerPolicyDelta delta, int changeType, Long policyId, Long policyVersion) {
+        assertEquals(Integer.valueOf(changeType), delta.getChangeType());
+        assertEquals(policyId, delta.getPolicyId());
+        assertEquals(policyVersion, delta.getPolicy().getVersion());
+    }
+
+    private static List<Long> ids(List<RangerPolicy> policies) {
+        List<Long> ret = new ArrayList<>();
+
+        for (RangerPolicy policy : policies) {
+            ret.add(policy.getId());
+        }
+
+        return ret;
+    }
+}
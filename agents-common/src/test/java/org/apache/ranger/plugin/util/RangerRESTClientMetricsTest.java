@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+public class RangerRESTClientMetricsTest {
+    private static final long LONG_POLL_HOLD_MS = 500;
+
+    @Test
+    public void testMetrics() {
+        RangerRESTClientMetrics metrics = new RangerRESTClientMetrics();
+        Client                  client  = new Client(new StatusHandler());
+
+        client.addFilter(metrics);
+
+        assertEquals(200, get(client, 200));
+        assertEquals(304, get(client, 304));
+        assertEquals(503, get(client, 503));
+        assertEquals(429, get(client, 429));
+
+        try {
+            get(client, -1);
+
+            fail("expected ClientHandlerException");
+        } catch (ClientHandlerException excp) {
+            // expected
+        }
+
+        assertEquals(5, metrics.getRequestCount());
+        assertEquals(3, metrics.getFailedRequestCount());
+        assertEquals(0, metrics.getActiveRequestCount());
+        assertEquals(metrics.getTotalLatencyMs() / 5, metrics.getAverageLatencyMs());
+    }
+
+    @Test
+    public void testLongPollNotInLatency() {
+        RangerRESTClientMetrics metrics = new RangerRESTClientMetrics();
+        Client                  client  = new Client(new StatusHandler());
+
+        client.addFilter(metrics);
+
+        assertEquals(200, get(client, 200));
+        assertEquals(304, client.resource("http://localhost:6080/status/304").queryParam("lastKnownVersion", "5")
+                                .queryParam(RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS, String.valueOf(LONG_POLL_HOLD_MS))
+                                .get(ClientResponse.class).getStatus());
+
+        assertEquals(2, metrics.getRequestCount());
+        assertEquals(1, metrics.getLongPollRequestCount());
+        assertTrue(metrics.getMaxLatencyMs() < LONG_POLL_HOLD_MS);
+        assertEquals(metrics.getTotalLatencyMs(), metrics.getAverageLatencyMs());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        RangerRESTClientMetrics metrics     = new RangerRESTClientMetrics();
+        MBeanServer             mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName              objectName  = new ObjectName("org.apache.ranger:type=RESTClient,name=" + ObjectName.quote("hdfsdev@host-hdfs"));
+        Client                  client      = new Client(new StatusHandler());
+
+        client.addFilter(metrics);
+
+        metrics.register("hdfsdev@host-hdfs");
+        metrics.register("hdfsdev@host-hdfs"); // re-registration replaces
+
+        get(client, 200);
+
+        assertEquals(1L, mbeanServer.getAttribute(objectName, "RequestCount"));
+
+        metrics.unregister();
+
+        assertFalse(mbeanServer.isRegistered(objectName));
+    }
+
+    private static int get(Client client, int status) {
+        return client.resource("http://localhost:6080/status/" + status).get(ClientResponse.class).getStatus();
+    }
+
+    // responds with the status given in the last path segment; a negative status fails the request. Long-polled requests are held for LONG_POLL_HOLD_MS
+    private static class StatusHandler implements ClientHandler {
+        @Override
+        public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+            String path   = request.getURI().getPath();
+            int    status = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+
+            if (request.getURI().getQuery() != null && request.getURI().getQuery().contains(RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS)) {
+                try {
+                    Thread.sleep(LONG_POLL_HOLD_MS);
+                } catch (InterruptedException excp) {
+                    throw new ClientHandlerException(excp);
+                }
+            }
+
+            if (status < 0) {
+                throw new ClientHandlerException("connection refused");
+            }
+
+            return new ClientResponse(status, new InBoundHeaders(), null, null);
+        }
+    }
+}
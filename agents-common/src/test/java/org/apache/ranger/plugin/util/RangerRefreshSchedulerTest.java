@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/*
+ * refreshes are run directly by the test, with polling intervals long enough for the scheduler never to run them on its own;
+ * tests that need the scheduler to run refreshes wait on latches
+ */
+public class RangerRefreshSchedulerTest {
+	private static final long HOUR_MS = 60 * 60 * 1000L;
+
+	private final TestClock clock = new TestClock(1000L);
+
+	@Test
+	public void testDelay() {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(1, 0, 1000, 0, clock);
+
+		assertEquals(100, scheduler.getDelayMs(100, 0, 0));
+
+		for (int i = 0; i < 100; i++) {
+			assertBetween(50, 100, scheduler.getDelayMs(100, 1, 0));
+			assertBetween(200, 400, scheduler.getDelayMs(100, 3, 0));
+			assertBetween(500, 1000, scheduler.getDelayMs(100, 30, 0)); // capped at maxBackoffMs
+
+			assertBetween(700, 770, scheduler.getDelayMs(100, 1, 700)); // retry-after hint
+			assertBetween(1000, 1100, scheduler.getDelayMs(100, 1, 60 * 1000)); // hint capped at maxBackoffMs
+		}
+	}
+
+	@Test
+	public void testScheduleAfterRefresh() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(1, 0, 10 * HOUR_MS, 0, clock);
+		TestTask               task      = new TestTask(HOUR_MS);
+
+		scheduler.register(task);
+
+		RangerRefreshScheduler.TaskState state = scheduler.getTaskState(task);
+
+		assertEquals(1000L + HOUR_MS, state.getNextRunTimeMs());
+
+		task.refreshTimeMs = 5000; // like a long-polled download
+
+		state.run();
+
+		assertEquals(1, task.refreshCount.get());
+		assertEquals(1000L + HOUR_MS, state.getNextRunTimeMs()); // time spent in the refresh counts towards the polling interval
+
+		scheduler.unregister(task);
+	}
+
+	@Test
+	public void testRetryAfterOnFailure() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(1, 0, 10 * HOUR_MS, 0, clock);
+		TestTask               task      = new TestTask(HOUR_MS);
+
+		scheduler.register(task);
+
+		RangerRefreshScheduler.TaskState state = scheduler.getTaskState(task);
+
+		task.retryAfterMs = 5 * HOUR_MS;
+
+		state.run();
+
+		assertEquals(1, state.getFailureCount());
+		assertBetween(clock.currentTimeMillis() + 5 * HOUR_MS, clock.currentTimeMillis() + 5 * HOUR_MS + HOUR_MS / 2, state.getNextRunTimeMs());
+
+		task.retryAfterMs = -1;
+
+		long startTimeMs = clock.currentTimeMillis();
+
+		state.run();
+
+		assertEquals(0, state.getFailureCount());
+		assertEquals(startTimeMs + HOUR_MS, state.getNextRunTimeMs());
+
+		scheduler.unregister(task);
+	}
+
+	@Test
+	public void testNoRefreshAfterUnregister() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(1, 0, 10 * HOUR_MS, 0, clock);
+		TestTask               task      = new TestTask(HOUR_MS);
+
+		scheduler.register(task);
+
+		RangerRefreshScheduler.TaskState state = scheduler.getTaskState(task);
+
+		scheduler.unregister(task);
+
+		state.run();
+
+		assertEquals(0, task.refreshCount.get());
+		assertNull(scheduler.getTaskState(task));
+	}
+
+	@Test(timeout = 60 * 1000L)
+	public void testRefreshNow() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(1, 0, 10 * HOUR_MS, 0, clock);
+		TestTask               task      = new TestTask(HOUR_MS);
+
+		scheduler.register(task, true);
+
+		task.refreshed.await(); // without waiting for the polling interval
+
+		scheduler.unregister(task);
+	}
+
+	@Test(timeout = 60 * 1000L)
+	public void testLongPollDoesntDelayOtherTasks() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(4, 0, 10 * HOUR_MS, 0, clock);
+		final TestTask         tags      = new TestTask(HOUR_MS);
+		TestTask               policies  = new TestTask(HOUR_MS) {
+			@Override
+			public void refresh() throws Exception {
+				super.refresh();
+
+				tags.refreshed.await(); // long-poll held until the tag refresher of the same service has run
+			}
+		};
+
+		scheduler.register(policies, true);
+		scheduler.register(tags, true);
+
+		policies.refreshed.await();
+		tags.refreshed.await();
+
+		scheduler.unregister(policies);
+		scheduler.unregister(tags);
+	}
+
+	@Test(timeout = 60 * 1000L)
+	public void testCoalesceTasksOfService() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(4, 0, 10 * HOUR_MS, 10 * 1000L, clock);
+		TestTask               policies  = new TestTask(HOUR_MS);
+		TestTask               tags      = new TestTask(HOUR_MS);
+
+		scheduler.register(policies);
+		scheduler.register(tags);
+
+		RangerRefreshScheduler.TaskState policiesState = scheduler.getTaskState(policies);
+		RangerRefreshScheduler.TaskState tagsState     = scheduler.getTaskState(tags);
+
+		policiesState.run();
+
+		assertEquals(1000L + HOUR_MS, tagsState.getNextRunTimeMs()); // not due within the window
+
+		clock.advance(HOUR_MS - 5000);
+
+		long startTimeMs = clock.currentTimeMillis();
+
+		policiesState.run();
+
+		assertEquals(startTimeMs, tagsState.getNextRunTimeMs()); // due within the window: run right away
+
+		tags.refreshed.await();
+
+		scheduler.unregister(tags); // returns after the coalesced refresh completes
+
+		assertEquals(1, tags.refreshCount.get());
+		assertEquals(2, policies.refreshCount.get());
+		assertEquals(startTimeMs + HOUR_MS, policiesState.getNextRunTimeMs()); // not pulled in by the coalesced refresh
+
+		scheduler.unregister(policies);
+	}
+
+	@Test(timeout = 60 * 1000L)
+	public void testUnregisterInterruptsRefresh() throws Exception {
+		RangerRefreshScheduler scheduler = new RangerRefreshScheduler(1, 0, 10 * HOUR_MS, 0, clock);
+		TestTask               task      = new TestTask(HOUR_MS) {
+			@Override
+			public void refresh() throws Exception {
+				super.refresh();
+
+				new CountDownLatch(1).await(); // long-poll that doesn't end by itself
+			}
+		};
+
+		scheduler.register(task, true);
+
+		task.refreshed.await();
+
+		scheduler.unregister(task); // returns only after the refresh is interrupted
+
+		assertEquals(1, task.refreshCount.get());
+	}
+
+	private static void assertBetween(long min, long max, long value) {
+		assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+	}
+
+	private static class TestClock implements RangerRefreshScheduler.Clock {
+		private volatile long timeMs;
+
+		TestClock(long timeMs) {
+			this.timeMs = timeMs;
+		}
+
+		@Override
+		public long currentTimeMillis() {
+			return timeMs;
+		}
+
+		void advance(long durationMs) {
+			timeMs += durationMs;
+		}
+	}
+
+	private class TestTask implements RangerRefreshScheduler.RefreshTask {
+		final long           pollingIntervalMs;
+		final AtomicInteger  refreshCount  = new AtomicInteger();
+		final CountDownLatch refreshed     = new CountDownLatch(1);
+		volatile long        refreshTimeMs = 0;
+		volatile long        retryAfterMs  = -1;
+
+		TestTask(long pollingIntervalMs) {
+			this.pollingIntervalMs = pollingIntervalMs;
+		}
+
+		@Override
+		public String getServiceName() {
+			return "svc1";
+		}
+
+		@Override
+		public long getPollingIntervalMs() {
+			return pollingIntervalMs;
+		}
+
+		@Override
+		public void refresh() throws Exception {
+			refreshCount.incrementAndGet();
+			refreshed.countDown();
+
+			clock.advance(refreshTimeMs);
+
+			if (retryAfterMs >= 0) {
+				throw new RangerAdminUnavailableException(getServiceName(), 503, retryAfterMs);
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class RangerStripedCounterTest {
+
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        final int                  threadCount   = 8;
+        final int                  addsPerThread = 100000;
+        final RangerStripedCounter counter       = new RangerStripedCounter(4);
+        final CountDownLatch       startLatch    = new CountDownLatch(1);
+        List<Thread>               threads       = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException excp) {
+                        return;
+                    }
+
+                    for (int j = 0; j < addsPerThread; j++) {
+                        counter.add(j % 2 == 0 ? 1 : 2);
+                    }
+                }
+            };
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        startLatch.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals((long) threadCount * addsPerThread * 3 / 2, counter.sum());
+        assertTrue("stripeCount=" + counter.getStripeCount(), counter.getStripeCount() <= 4);
+    }
+
+    @Test
+    public void testSumThenReset() {
+        RangerStripedCounter counter = new RangerStripedCounter();
+
+        counter.increment();
+        counter.add(5);
+
+        assertEquals(6L, counter.sum());
+        assertEquals(6L, counter.sumThenReset());
+        assertEquals(0L, counter.sum());
+
+        counter.add(3);
+        counter.reset();
+
+        assertEquals(0L, counter.sum());
+        assertEquals("uncontended counter should not allocate stripes", 0, counter.getStripeCount());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.junit.Test;
+
+public class RangerWildcardMatcherTest {
+
+	@Test
+	public void testPatternShapes() {
+		assertTrue(RangerWildcardMatcher.compile("abc", false).isMatch("abc"));
+		assertFalse(RangerWildcardMatcher.compile("abc", false).isMatch("ABC"));
+		assertTrue(RangerWildcardMatcher.compile("abc", true).isMatch("ABC"));
+		assertTrue(RangerWildcardMatcher.compile("abc*", false).isMatch("abcdef"));
+		assertTrue(RangerWildcardMatcher.compile("*def", false).isMatch("abcdef"));
+		assertTrue(RangerWildcardMatcher.compile("*cd*", false).isMatch("abcdef"));
+		assertTrue(RangerWildcardMatcher.compile("ab**ef", false).isMatch("abcdef"));
+		assertFalse(RangerWildcardMatcher.compile("abc*cde", false).isMatch("abcde"));
+		assertTrue(RangerWildcardMatcher.compile("a?c*e?", false).isMatch("abcdef"));
+		assertTrue(RangerWildcardMatcher.compile("*", false).isMatch(""));
+		assertFalse(RangerWildcardMatcher.compile("*", false).isMatch(null));
+		assertTrue(RangerWildcardMatcher.compile("", false).isMatch(""));
+		assertFalse(RangerWildcardMatcher.compile("", false).isMatch("a"));
+
+		// prefix matching, as used for recursive paths
+		assertTrue(RangerWildcardMatcher.compile("/app/*/db", false).isMatch("/app/hive/db/table", "/app/hive/db".length()));
+		assertFalse(RangerWildcardMatcher.compile("/app/*/db", false).isMatch("/app/hive/db/table", "/app/hive".length()));
+	}
+
+	@Test
+	public void testCompareWithFilenameUtils() {
+		Random random   = new Random(20171016L);
+		String alphabet = "abAB/.*?";
+
+		for (int i = 0; i < 100000; i++) {
+			String  pattern    = randomString(random, alphabet, 8);
+			String  str        = randomString(random, "abAB/.", 10);
+			boolean ignoreCase = random.nextBoolean();
+			IOCase  ioCase     = ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+			boolean expected   = FilenameUtils.wildcardMatch(str, pattern, ioCase);
+
+			assertEquals("compile(" + pattern + ").isMatch(" + str + "), ignoreCase=" + ignoreCase, expected, RangerWildcardMatcher.compile(pattern, ignoreCase).isMatch(str));
+			assertEquals("wildcardMatch(" + str + ", " + pattern + "), ignoreCase=" + ignoreCase, expected, RangerWildcardMatcher.wildcardMatch(str, pattern, ignoreCase));
+		}
+	}
+
+	private static String randomString(Random random, String alphabet, int maxLen) {
+		int           len = random.nextInt(maxLen + 1);
+		StringBuilder sb  = new StringBuilder(len);
+
+		for (int i = 0; i < len; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Date;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ServicePoliciesBinaryCodecTest {
+    private final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").setPrettyPrinting().create();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ServicePolicies policies = loadServicePolicies("/policyengine/test_policyengine_tag_hive.json");
+        byte[]          json     = gson.toJson(policies).getBytes("UTF-8");
+        byte[]          binary   = toBinary(policies);
+
+        assertTrue(binary.length < json.length / 2);
+
+        InputStream in = new ByteArrayInputStream(binary);
+
+        assertTrue(ServicePoliciesBinaryCodec.isBinaryFormat(in));
+
+        ServicePolicies copy = ServicePoliciesBinaryCodec.read(in);
+
+        assertEquals(gson.toJson(policies), gson.toJson(copy));
+    }
+
+    @Test
+    public void testRoundTripOfSpecialCharacters() throws Exception {
+        ServicePolicies policies = loadServicePolicies("/policyengine/test_policyengine_hive.json");
+        RangerPolicy    policy   = policies.getPolicies().get(0);
+
+        policy.setName("quote\" backslash\\ newline\n tab\t nul\u0000 unicode\u00e9\u4e2d");
+        policy.setDescription(null);
+        policy.getResources().put("key\"with\\escapes", new RangerPolicyResource("value\r\n"));
+
+        ServicePolicies copy = ServicePoliciesBinaryCodec.read(new ByteArrayInputStream(toBinary(policies)));
+
+        assertEquals(policy.getName(), copy.getPolicies().get(0).getName());
+        assertEquals(gson.toJson(policies), gson.toJson(copy));
+    }
+
+    @Test
+    public void testNotBinaryFormat() throws Exception {
+        ServicePolicies policies = loadServicePolicies("/policyengine/test_policyengine_hive.json");
+        byte[]          json     = gson.toJson(policies).getBytes("UTF-8");
+        InputStream     in       = new ByteArrayInputStream(json);
+
+        assertFalse(ServicePoliciesBinaryCodec.isBinaryFormat(in));
+        assertFalse(ServicePoliciesBinaryCodec.isBinaryFormat(new ByteArrayInputStream(new byte[] { 'R' })));
+
+        ServicePolicies copy = gson.fromJson(new InputStreamReader(in, "UTF-8"), ServicePolicies.class); // isBinaryFormat() must not consume the stream
+
+        assertEquals(policies.getPolicies().size(), copy.getPolicies().size());
+
+        try {
+            ServicePoliciesBinaryCodec.read(new ByteArrayInputStream(json));
+
+            fail("expected IOException for JSON input");
+        } catch (IOException excp) {
+            // expected
+        }
+    }
+
+    private ServicePolicies loadServicePolicies(String resourceName) throws IOException {
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream(resourceName), "UTF-8")) {
+            JsonObject      testCase = new JsonParser().parse(reader).getAsJsonObject();
+            ServicePolicies ret      = gson.fromJson(testCase, ServicePolicies.class);
+
+            ret.setPolicyVersion(10L);
+            ret.setPolicyUpdateTime(new Date());
+
+            if (testCase.has("tagPolicyInfo")) {
+                ServicePolicies.TagPolicies tagPolicies = gson.fromJson(testCase.get("tagPolicyInfo"), ServicePolicies.TagPolicies.class);
+
+                tagPolicies.setPolicyVersion(-1L);
+
+                ret.setTagPolicies(tagPolicies);
+            }
+
+            return ret;
+        }
+    }
+
+    private byte[] toBinary(ServicePolicies policies) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ServicePoliciesBinaryCodec.write(policies, out);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+public class ServicePoliciesSnapshotTest {
+    private final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshotFile = File.createTempFile("ServicePoliciesSnapshotTest", ".snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ServicePolicies policies = loadServicePolicies("/policyengine/test_policyengine_hive.json", 10L);
+
+        ServicePoliciesSnapshot.write(policies, snapshotFile);
+
+        ServicePoliciesSnapshot snapshot = ServicePoliciesSnapshot.open(snapshotFile);
+
+        assertEquals("hivedev", snapshot.getServiceName());
+        assertEquals(10L, snapshot.getPolicyVersion());
+        assertEquals(gson.toJson(policies), gson.toJson(snapshot.getServicePolicies()));
+        assertFalse(new File(snapshotFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        ServicePolicies policies = loadServicePolicies("/policyengine/test_policyengine_hive.json", 10L);
+
+        ServicePoliciesSnapshot.write(policies, snapshotFile);
+
+        policies.setPolicyVersion(11L);
+        policies.getPolicies().remove(0);
+
+        ServicePoliciesSnapshot.write(policies, snapshotFile);
+
+        ServicePoliciesSnapshot snapshot = ServicePoliciesSnapshot.open(snapshotFile);
+
+        assertEquals(11L, snapshot.getPolicyVersion());
+        assertEquals(policies.getPolicies().size(), snapshot.getServicePolicies().getPolicies().size());
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws Exception {
+        ServicePoliciesSnapshot.write(loadServicePolicies("/policyengine/test_policyengine_hive.json", 10L), snapshotFile);
+
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw")) {
+            long offset = raf.length() - 20;
+
+            raf.seek(offset);
+
+            int b = raf.read();
+
+            raf.seek(offset);
+            raf.write(b ^ 0xff);
+        }
+
+        // header is still readable; decoding the policies fails
+        ServicePoliciesSnapshot snapshot = ServicePoliciesSnapshot.open(snapshotFile);
+
+        assertEquals(10L, snapshot.getPolicyVersion());
+
+        try {
+            snapshot.getServicePolicies();
+
+            fail("expected IOException for corrupt snapshot");
+        } catch (IOException excp) {
+            // expected
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        try {
+            ServicePoliciesSnapshot.open(snapshotFile);
+
+            fail("expected IOException for truncated snapshot");
+        } catch (IOException excp) {
+            // expected
+        }
+    }
+
+    private ServicePolicies loadServicePolicies(String resourceName, long policyVersion) throws IOException {
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream(resourceName), "UTF-8")) {
+            ServicePolicies ret = gson.fromJson(reader, ServicePolicies.class);
+
+            ret.setServiceName("hivedev");
+            ret.setPolicyVersion(policyVersion);
+
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.policyengine;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Measures RangerPathResourceMatcher.isMatch() for recursive policies against deep paths, like partition directories
+ * of Hive tables, where a recursive policy is matched against every ancestor of the path.
+ *
+ * Usage: RangerPathMatcherPerfTester [iterations] [path-depth]
+ */
+public class RangerPathMatcherPerfTester {
+    static final Log LOG = LogFactory.getLog(RangerPathMatcherPerfTester.class);
+
+    static final int DEFAULT_ITERATIONS = 100000;
+    static final int DEFAULT_PATH_DEPTH = 20;
+    static final int PATHS_COUNT        = 64;
+
+    static final String[] POLICY_VALUES = {
+            "/data/warehouse/db3.db",         // recursive
+            "/data/warehouse/*.db/t*/p1=*",   // recursive wildcard
+            "/data/*/db?.db/tbl_nomatch",     // recursive wildcard, no match: every ancestor is checked
+            "/user/{USER}/*",                 // recursive wildcard with token
+    };
+
+    public static void main(String[] args) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerPathMatcherPerfTester.main()");
+        }
+
+        int iterations = args != null && args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        int pathDepth  = args != null && args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PATH_DEPTH;
+
+        List<String>              paths        = buildPaths(pathDepth);
+        List<Map<String, Object>> evalContexts = new ArrayList<>();
+
+        for (String user : new String[] { "user1", "user2" }) {
+            Map<String, Object> evalContext = new HashMap<>();
+
+            RangerAccessRequestUtil.setCurrentUserInContext(evalContext, user);
+
+            evalContexts.add(evalContext);
+        }
+
+        for (String policyValue : POLICY_VALUES) {
+            RangerPathResourceMatcher matcher = createMatcher(policyValue);
+
+            // warm-up
+            runMatcher(matcher, paths, evalContexts, Math.max(1, iterations / 10));
+
+            long startTimeNanos = System.nanoTime();
+            long matchCount     = runMatcher(matcher, paths, evalContexts, iterations);
+            long elapsedNanos   = System.nanoTime() - startTimeNanos;
+
+            LOG.info("policy=" + policyValue + "; pathDepth=" + pathDepth + "; calls=" + iterations + "; matches=" + matchCount
+                     + "; elapsedMs=" + (elapsedNanos / 1000000) + "; avgNanosPerCall=" + (iterations > 0 ? elapsedNanos / iterations : 0));
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPathMatcherPerfTester.main()");
+        }
+    }
+
+    static RangerPathResourceMatcher createMatcher(String policyValue) {
+        RangerResourceDef resourceDef = new RangerResourceDef();
+        Map<String, String> matcherOptions = new HashMap<>();
+
+        matcherOptions.put(RangerPathResourceMatcher.OPTION_WILD_CARD, "true");
+        matcherOptions.put(RangerPathResourceMatcher.OPTION_IGNORE_CASE, "false");
+
+        resourceDef.setName("path");
+        resourceDef.setMatcherOptions(matcherOptions);
+
+        RangerPolicyResource policyResource = new RangerPolicyResource(policyValue, Boolean.FALSE, Boolean.TRUE);
+        RangerPathResourceMatcher ret = new RangerPathResourceMatcher();
+
+        ret.setResourceDef(resourceDef);
+        ret.setPolicyResource(policyResource);
+        ret.init();
+
+        return ret;
+    }
+
+    static List<String> buildPaths(int pathDepth) {
+        List<String> ret = new ArrayList<>(PATHS_COUNT);
+
+        for (int i = 0; i < PATHS_COUNT; i++) {
+            StringBuilder sb = new StringBuilder();
+
+            if (i % 2 == 0) {
+                sb.append("/data/warehouse/db").append((i / 2) % 8).append(".db/tbl").append(i);
+            } else {
+                sb.append("/user/user").append(i % 4);
+            }
+
+            for (int level = 1; level < pathDepth; level++) {
+                sb.append("/p").append(level).append('=').append(i + level);
+            }
+
+            sb.append("/000000_").append(i);
+
+            ret.add(sb.toString());
+        }
+
+        Collections.shuffle(ret, new Random(PATHS_COUNT));
+
+        return ret;
+    }
+
+    private static long runMatcher(RangerPathResourceMatcher matcher, List<String> paths, List<Map<String, Object>> evalContexts, int iterations) {
+        long ret = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            String              path        = paths.get(i % paths.size());
+            Map<String, Object> evalContext = evalContexts.get((i / paths.size()) % evalContexts.size());
+
+            if (matcher.isMatch(path, evalContext)) {
+                ret++;
+            }
+        }
+
+        return ret;
+    }
+}
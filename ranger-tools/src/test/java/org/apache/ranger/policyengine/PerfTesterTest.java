@@ -57,6 +57,11 @@ public class PerfTesterTest {
         }
     }
 
+    @Test
+    public void testPathMatcher() {
+        RangerPathMatcherPerfTester.main(new String[] { "1000", "20" });
+    }
+
     String[] readCommandLine() {
         // Read arguments from a file - with hardcoded name 'commandline'
 
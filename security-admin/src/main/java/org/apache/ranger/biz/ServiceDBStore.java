@@ -66,6 +66,7 @@ import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerFactory;
 import org.apache.ranger.common.RangerServicePoliciesCache;
+import org.apache.ranger.common.RangerServiceVersionNotifier;
 import org.apache.ranger.common.RangerVersionInfo;
 import org.apache.ranger.common.StringUtil;
 import org.apache.ranger.common.UserSessionBase;
@@ -2357,8 +2358,16 @@ public class ServiceDBStore extends AbstractServiceStore {
 
 	@Override
 	public ServicePolicies getServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion) throws Exception {
+		return getServicePoliciesIfUpdated(serviceName, lastKnownVersion, false);
+	}
+
+	/*
+	 * With needsPolicyDeltas, returns only the changes since lastKnownVersion - in ServicePolicies.policyDeltas -
+	 * when available in the cache. All policies are returned otherwise.
+	 */
+	public ServicePolicies getServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion, boolean needsPolicyDeltas) throws Exception {
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("==> ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ")");
+			LOG.debug("==> ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + needsPolicyDeltas + ")");
 		}
 
 		ServicePolicies ret = null;
@@ -2375,8 +2384,10 @@ public class ServiceDBStore extends AbstractServiceStore {
 			LOG.warn("serviceVersionInfo does not exist. name=" + serviceName);
 		}
 
+		RangerServiceVersionNotifier.getInstance().setPolicyVersion(serviceName, serviceVersionInfoDbObj == null ? null : serviceVersionInfoDbObj.getPolicyVersion());
+
 		if (lastKnownVersion == null || serviceVersionInfoDbObj == null || serviceVersionInfoDbObj.getPolicyVersion() == null || !lastKnownVersion.equals(serviceVersionInfoDbObj.getPolicyVersion())) {
-			ret = RangerServicePoliciesCache.getInstance().getServicePolicies(serviceName, serviceDbObj.getId(), this);
+			ret = RangerServicePoliciesCache.getInstance().getServicePolicies(serviceName, serviceDbObj.getId(), lastKnownVersion, needsPolicyDeltas, this);
 		}
 
 		if (ret != null && lastKnownVersion != null && lastKnownVersion.equals(ret.getPolicyVersion())) {
@@ -2389,7 +2400,8 @@ public class ServiceDBStore extends AbstractServiceStore {
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()));
+			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + needsPolicyDeltas + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size())
+					+ ", deltaCount=" + ((ret == null || ret.getPolicyDeltas() == null) ? 0 : ret.getPolicyDeltas().size()));
 		}
 
 		return ret;
@@ -2664,7 +2676,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 			serviceVersionInfoDbObj.setPolicyVersion(getNextVersion(serviceVersionInfoDbObj.getPolicyVersion()));
 			serviceVersionInfoDbObj.setPolicyUpdateTime(new Date());
 
-			serviceVersionInfoDao.update(serviceVersionInfoDbObj);
+			serviceVersionInfoDao.update(serviceVersionInfoDbObj, serviceDbObj.getName());
 
 		} else {
 			LOG.warn("updatePolicyVersion(service=" + serviceDbObj.getName() + "): serviceVersionInfo not found, creating it..");
@@ -2676,7 +2688,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 			serviceVersionInfoDbObj.setTagVersion(serviceDbObj.getTagVersion());
 			serviceVersionInfoDbObj.setTagUpdateTime(serviceDbObj.getTagUpdateTime());
 
-			serviceVersionInfoDao.create(serviceVersionInfoDbObj);
+			serviceVersionInfoDao.create(serviceVersionInfoDbObj, serviceDbObj.getName());
 		}
 
 		// if this is a tag service, update all services that refer to this tag service
@@ -2697,7 +2709,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 							serviceVersionInfoDbObj.setTagVersion(getNextVersion(serviceVersionInfoDbObj.getTagVersion()));
 							serviceVersionInfoDbObj.setTagUpdateTime(new Date());
 						}
-						serviceVersionInfoDao.update(serviceVersionInfoDbObj);
+						serviceVersionInfoDao.update(serviceVersionInfoDbObj, referringService.getName());
 					} else {
 						LOG.warn("updatePolicyVersion(service=" + referringService.getName() + "): serviceVersionInfo not found, creating it..");
 						serviceVersionInfoDbObj = new XXServiceVersionInfo();
@@ -2711,7 +2723,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 							serviceVersionInfoDbObj.setTagVersion(referringService.getTagVersion());
 							serviceVersionInfoDbObj.setTagUpdateTime(referringService.getTagUpdateTime());
 						}
-						serviceVersionInfoDao.create(serviceVersionInfoDbObj);
+						serviceVersionInfoDao.create(serviceVersionInfoDbObj, referringService.getName());
 					}
 				}
 			}
@@ -3063,7 +3075,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 					serviceVersionInfo.setPolicyVersion(getNextVersion(serviceVersionInfo.getPolicyVersion()));
 					serviceVersionInfo.setPolicyUpdateTime(serviceDef.getUpdateTime());
 
-					serviceVersionInfoDao.update(serviceVersionInfo);
+					serviceVersionInfoDao.update(serviceVersionInfo, service.getName());
 				} else {
 					LOG.warn("updateServicesForServiceDefUpdate(service=" + service.getName() + "): serviceVersionInfo not found, creating it..");
 					serviceVersionInfo = new XXServiceVersionInfo();
@@ -3073,7 +3085,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 					serviceVersionInfo.setPolicyUpdateTime(new Date());
 					serviceVersionInfo.setTagUpdateTime(service.getTagUpdateTime());
 
-					serviceVersionInfoDao.create(serviceVersionInfo);
+					serviceVersionInfoDao.create(serviceVersionInfo, service.getName());
 				}
 
 				if(isTagServiceDef) {
@@ -3086,7 +3098,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 								serviceVersionInfo.setPolicyVersion(getNextVersion(serviceVersionInfo.getPolicyVersion()));
 								serviceVersionInfo.setPolicyUpdateTime(serviceDef.getUpdateTime());
 
-								serviceVersionInfoDao.update(serviceVersionInfo);
+								serviceVersionInfoDao.update(serviceVersionInfo, referringService.getName());
 							} else {
 								LOG.warn("updateServicesForServiceDefUpdate(service=" + referringService.getName() + "): serviceVersionInfo not found, creating it..");
 								serviceVersionInfo = new XXServiceVersionInfo();
@@ -3096,7 +3108,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 								serviceVersionInfo.setPolicyUpdateTime(new Date());
 								serviceVersionInfo.setTagUpdateTime(referringService.getTagUpdateTime());
 
-								serviceVersionInfoDao.create(serviceVersionInfo);
+								serviceVersionInfoDao.create(serviceVersionInfo, referringService.getName());
 							}
 						}
 					}
@@ -33,6 +33,7 @@ import org.apache.ranger.common.GUIDUtil;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerServiceTagsCache;
+import org.apache.ranger.common.RangerServiceVersionNotifier;
 import org.apache.ranger.db.RangerDaoManager;
 import org.apache.ranger.entity.XXResourceDef;
 import org.apache.ranger.entity.XXService;
@@ -922,6 +923,8 @@ public class TagDBStore extends AbstractTagStore {
 			LOG.warn("serviceVersionInfo does not exist. name=" + serviceName);
 		}
 
+		RangerServiceVersionNotifier.getInstance().setTagVersion(serviceName, serviceVersionInfoDbObj == null ? null : serviceVersionInfoDbObj.getTagVersion());
+
 		if (lastKnownVersion == null || serviceVersionInfoDbObj == null || serviceVersionInfoDbObj.getTagVersion() == null || !lastKnownVersion.equals(serviceVersionInfoDbObj.getTagVersion())) {
 			ret = RangerServiceTagsCache.getInstance().getServiceTags(serviceName, xxService.getId(), this);
 		}
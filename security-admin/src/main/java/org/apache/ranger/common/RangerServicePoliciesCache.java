@@ -23,12 +23,16 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.store.ServiceStore;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -41,10 +45,12 @@ public class RangerServicePoliciesCache {
 	private static final Log LOG = LogFactory.getLog(RangerServicePoliciesCache.class);
 
 	private static final int MAX_WAIT_TIME_FOR_UPDATE = 10;
+	private static final int MAX_POLICY_DELTA_LOG_SIZE = 10;
 
 	private static volatile RangerServicePoliciesCache sInstance = null;
 	private final boolean useServicePoliciesCache;
 	private final int waitTimeInSeconds;
+	private final int policyDeltaLogSize;
 
 	private final Map<String, ServicePoliciesWrapper> servicePoliciesMap = new HashMap<String, ServicePoliciesWrapper>();
 
@@ -62,6 +68,7 @@ public class RangerServicePoliciesCache {
 	private RangerServicePoliciesCache() {
 		useServicePoliciesCache = RangerConfiguration.getInstance().getBoolean("ranger.admin.policy.download.usecache", true);
 		waitTimeInSeconds = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		policyDeltaLogSize = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.max.policy.delta.versions", MAX_POLICY_DELTA_LOG_SIZE);
 	}
 
 	public void dump() {
@@ -89,9 +96,18 @@ public class RangerServicePoliciesCache {
 	}
 
 	public ServicePolicies getServicePolicies(String serviceName, Long serviceId, ServiceStore serviceStore) throws Exception {
+		return getServicePolicies(serviceName, serviceId, -1L, false, serviceStore);
+	}
+
+	/*
+	 * Returns the latest policies of the service. With needsPolicyDeltas, only the changes since lastKnownVersion are
+	 * returned - in policyDeltas, instead of policies - when these changes are still in the cache; otherwise all policies
+	 * are returned.
+	 */
+	public ServicePolicies getServicePolicies(String serviceName, Long serviceId, Long lastKnownVersion, boolean needsPolicyDeltas, ServiceStore serviceStore) throws Exception {
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerServicePoliciesCache.getServicePolicies(" + serviceName + ", " + serviceId + ")");
+			LOG.debug("==> RangerServicePoliciesCache.getServicePolicies(" + serviceName + ", " + serviceId + ", " + lastKnownVersion + ", " + needsPolicyDeltas + ")");
 		}
 
 		ServicePolicies ret = null;
@@ -149,6 +165,16 @@ public class RangerServicePoliciesCache {
 				}
 
 				servicePolicies = servicePoliciesWrapper.getServicePolicies();
+
+				if (needsPolicyDeltas && servicePolicies != null && lastKnownVersion != null && lastKnownVersion != -1L) {
+					ServicePolicies servicePolicyDeltas = servicePoliciesWrapper.getServicePolicyDeltas(servicePolicies, lastKnownVersion);
+
+					if (servicePolicyDeltas != null) {
+						servicePolicies = servicePolicyDeltas;
+					} else if (LOG.isDebugEnabled()) {
+						LOG.debug("getServicePolicies(" + serviceName + "): changes since version " + lastKnownVersion + " not found in cache. Returning all policies");
+					}
+				}
 			}
 
 			ret = servicePolicies;
@@ -158,7 +184,8 @@ public class RangerServicePoliciesCache {
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerServicePoliciesCache.getServicePolicies(" + serviceName + ", " + serviceId + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size()));
+			LOG.debug("<== RangerServicePoliciesCache.getServicePolicies(" + serviceName + ", " + serviceId + ", " + lastKnownVersion + ", " + needsPolicyDeltas + "): count=" + ((ret == null || ret.getPolicies() == null) ? 0 : ret.getPolicies().size())
+					+ ", deltaCount=" + ((ret == null || ret.getPolicyDeltas() == null) ? 0 : ret.getPolicyDeltas().size()));
 		}
 
 		return ret;
@@ -169,6 +196,7 @@ public class RangerServicePoliciesCache {
 		ServicePolicies servicePolicies;
 		Date updateTime = null;
 		long longestDbLoadTimeInMs = -1;
+		volatile List<PolicyDeltaLogEntry> policyDeltaLog = Collections.emptyList();
 
 		ReentrantLock lock = new ReentrantLock();
 
@@ -242,6 +270,7 @@ public class RangerServicePoliciesCache {
 					if (servicePoliciesFromDb.getPolicyVersion() == null) {
 						servicePoliciesFromDb.setPolicyVersion(0L);
 					}
+					updatePolicyDeltaLog(servicePolicies, servicePoliciesFromDb);
 					servicePolicies = servicePoliciesFromDb;
 					pruneUnusedAttributes();
 				}
@@ -252,6 +281,118 @@ public class RangerServicePoliciesCache {
 			}
 		}
 
+		/*
+		 * Returns the changes from lastKnownVersion to the version of servicePolicies, or null if the changes
+		 * are not available in the log
+		 */
+		ServicePolicies getServicePolicyDeltas(ServicePolicies servicePolicies, Long lastKnownVersion) {
+			List<PolicyDeltaLogEntry> deltaLog        = policyDeltaLog;
+			List<RangerPolicyDelta>   policyDeltas    = null;
+			List<RangerPolicyDelta>   tagPolicyDeltas = null;
+			Long                      version         = null;
+
+			for (PolicyDeltaLogEntry entry : deltaLog) {
+				if (version == null) {
+					if (!entry.fromVersion.equals(lastKnownVersion)) {
+						continue;
+					}
+
+					policyDeltas    = entry.policyDeltas;
+					tagPolicyDeltas = entry.tagPolicyDeltas;
+				} else if (!entry.fromVersion.equals(version)) {
+					return null;
+				} else {
+					policyDeltas    = RangerPolicyDeltaUtil.mergeDeltas(policyDeltas, entry.policyDeltas);
+					tagPolicyDeltas = RangerPolicyDeltaUtil.mergeDeltas(tagPolicyDeltas, entry.tagPolicyDeltas);
+
+					if (policyDeltas == null || tagPolicyDeltas == null) {
+						return null;
+					}
+				}
+
+				version = entry.toVersion;
+			}
+
+			if (version == null || !version.equals(servicePolicies.getPolicyVersion())) { // log truncated, or being updated
+				return null;
+			}
+
+			ServicePolicies ret = new ServicePolicies();
+
+			ret.setServiceId(servicePolicies.getServiceId());
+			ret.setServiceName(servicePolicies.getServiceName());
+			ret.setPolicyVersion(servicePolicies.getPolicyVersion());
+			ret.setPolicyUpdateTime(servicePolicies.getPolicyUpdateTime());
+			ret.setServiceDef(servicePolicies.getServiceDef());
+			ret.setAuditMode(servicePolicies.getAuditMode());
+			ret.setPolicyDeltas(policyDeltas);
+
+			if (servicePolicies.getTagPolicies() != null) {
+				ServicePolicies.TagPolicies tagPolicies    = servicePolicies.getTagPolicies();
+				ServicePolicies.TagPolicies tagPoliciesRet = new ServicePolicies.TagPolicies();
+
+				tagPoliciesRet.setServiceId(tagPolicies.getServiceId());
+				tagPoliciesRet.setServiceName(tagPolicies.getServiceName());
+				tagPoliciesRet.setPolicyVersion(tagPolicies.getPolicyVersion());
+				tagPoliciesRet.setPolicyUpdateTime(tagPolicies.getPolicyUpdateTime());
+				tagPoliciesRet.setServiceDef(tagPolicies.getServiceDef());
+				tagPoliciesRet.setAuditMode(tagPolicies.getAuditMode());
+				tagPoliciesRet.setPolicyDeltas(tagPolicyDeltas);
+
+				ret.setTagPolicies(tagPoliciesRet);
+			}
+
+			return ret;
+		}
+
+		private void updatePolicyDeltaLog(ServicePolicies oldServicePolicies, ServicePolicies newServicePolicies) {
+			List<PolicyDeltaLogEntry> deltaLog = null;
+
+			if (policyDeltaLogSize > 0 && oldServicePolicies != null && oldServicePolicies.getPolicyVersion() != null && newServicePolicies.getPolicyVersion() != null) {
+				ServicePolicies.TagPolicies oldTagPolicies = oldServicePolicies.getTagPolicies();
+				ServicePolicies.TagPolicies newTagPolicies = newServicePolicies.getTagPolicies();
+
+				if (StringUtils.equals(oldTagPolicies == null ? null : oldTagPolicies.getServiceName(), newTagPolicies == null ? null : newTagPolicies.getServiceName())) {
+					List<RangerPolicyDelta> policyDeltas    = RangerPolicyDeltaUtil.getPolicyDeltas(oldServicePolicies.getPolicies(), newServicePolicies.getPolicies());
+					List<RangerPolicyDelta> tagPolicyDeltas = oldTagPolicies == null ? new ArrayList<RangerPolicyDelta>() : RangerPolicyDeltaUtil.getPolicyDeltas(oldTagPolicies.getPolicies(), newTagPolicies.getPolicies());
+
+					if (policyDeltas != null && tagPolicyDeltas != null) {
+						deltaLog = new ArrayList<PolicyDeltaLogEntry>(policyDeltaLog);
+
+						deltaLog.add(new PolicyDeltaLogEntry(oldServicePolicies.getPolicyVersion(), newServicePolicies.getPolicyVersion(), pruneDeletedPolicies(policyDeltas), pruneDeletedPolicies(tagPolicyDeltas)));
+
+						if (deltaLog.size() > policyDeltaLogSize) {
+							deltaLog = new ArrayList<PolicyDeltaLogEntry>(deltaLog.subList(deltaLog.size() - policyDeltaLogSize, deltaLog.size()));
+						}
+					}
+				}
+			}
+
+			policyDeltaLog = deltaLog != null ? deltaLog : Collections.<PolicyDeltaLogEntry>emptyList();
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("ServicePoliciesWrapper.updatePolicyDeltaLog(): policyDeltaLog=" + policyDeltaLog);
+			}
+		}
+
+		// only the id is needed to delete a policy
+		private List<RangerPolicyDelta> pruneDeletedPolicies(List<RangerPolicyDelta> policyDeltas) {
+			for (int i = 0; i < policyDeltas.size(); i++) {
+				RangerPolicyDelta policyDelta = policyDeltas.get(i);
+
+				if (policyDelta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+					RangerPolicy deletedPolicy = new RangerPolicy();
+
+					deletedPolicy.setId(policyDelta.getPolicyId());
+					deletedPolicy.setVersion(policyDelta.getPolicy().getVersion());
+
+					policyDeltas.set(i, new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, deletedPolicy));
+				}
+			}
+
+			return policyDeltas;
+		}
+
 		private void pruneUnusedAttributes() {
 			if (servicePolicies != null) {
 				pruneUnusedPolicyAttributes(servicePolicies.getPolicies());
@@ -284,7 +425,8 @@ public class RangerServicePoliciesCache {
 			sb.append("updateTime=").append(updateTime)
 					.append(", longestDbLoadTimeInMs=").append(longestDbLoadTimeInMs)
 					.append(", Service-Version:").append(servicePolicies != null ? servicePolicies.getPolicyVersion() : "null")
-					.append(", Number-Of-Policies:").append(servicePolicies != null ? servicePolicies.getPolicies().size() : 0);
+					.append(", Number-Of-Policies:").append(servicePolicies != null ? servicePolicies.getPolicies().size() : 0)
+					.append(", Policy-Delta-Log:").append(policyDeltaLog);
 
 			sb.append("} ");
 
@@ -300,5 +442,23 @@ public class RangerServicePoliciesCache {
 			return sb.toString();
 		}
 	}
-}
 
+	private static class PolicyDeltaLogEntry {
+		final Long                    fromVersion;
+		final Long                    toVersion;
+		final List<RangerPolicyDelta> policyDeltas;
+		final List<RangerPolicyDelta> tagPolicyDeltas;
+
+		PolicyDeltaLogEntry(Long fromVersion, Long toVersion, List<RangerPolicyDelta> policyDeltas, List<RangerPolicyDelta> tagPolicyDeltas) {
+			this.fromVersion     = fromVersion;
+			this.toVersion       = toVersion;
+			this.policyDeltas    = policyDeltas;
+			this.tagPolicyDeltas = tagPolicyDeltas;
+		}
+
+		@Override
+		public String toString() {
+			return "{fromVersion=" + fromVersion + ", toVersion=" + toVersion + ", policyDeltas=" + policyDeltas.size() + ", tagPolicyDeltas=" + tagPolicyDeltas.size() + "}";
+		}
+	}
+}
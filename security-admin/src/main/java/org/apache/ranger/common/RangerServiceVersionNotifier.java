@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * Tracks policy/tag versions of services, as last seen by this Ranger Admin instance, to let policy and tag download
+ * requests from plugins wait for a change instead of returning 'not modified' right away (long-poll).
+ *
+ * Versions are recorded when they are read from the database while serving downloads; any update to the version of a
+ * service clears the recorded versions, after the transaction commits, and wakes up the requests waiting for that
+ * service. A request waits only when the version it already has is the version recorded here, so that an unknown or
+ * newer version is always served immediately. Updates made by other Ranger Admin instances are not seen here; requests
+ * waiting for such changes return at the timeout, which is why the timeout is capped.
+ */
+public class RangerServiceVersionNotifier {
+	private static final Log LOG = LogFactory.getLog(RangerServiceVersionNotifier.class);
+
+	public static final String PROP_LONG_POLL_MAX_TIMEOUT_MS = "ranger.admin.download.long.poll.max.timeout.ms";
+	public static final String PROP_LONG_POLL_MAX_WAITERS    = "ranger.admin.download.long.poll.max.waiters";
+
+	private static final long DEFAULT_LONG_POLL_MAX_TIMEOUT_MS = 30 * 1000L;
+	private static final int  DEFAULT_LONG_POLL_MAX_WAITERS    = 100;
+
+	private static volatile RangerServiceVersionNotifier sInstance = null;
+
+	private final long                                   maxTimeoutMs;
+	private final Semaphore                              waiters;
+	private final ConcurrentMap<String, ServiceVersions> serviceVersions = new ConcurrentHashMap<>();
+
+	public static RangerServiceVersionNotifier getInstance() {
+		if (sInstance == null) {
+			synchronized (RangerServiceVersionNotifier.class) {
+				if (sInstance == null) {
+					sInstance = new RangerServiceVersionNotifier(RangerConfiguration.getInstance().getLong(PROP_LONG_POLL_MAX_TIMEOUT_MS, DEFAULT_LONG_POLL_MAX_TIMEOUT_MS),
+					                                             RangerConfiguration.getInstance().getInt(PROP_LONG_POLL_MAX_WAITERS, DEFAULT_LONG_POLL_MAX_WAITERS));
+				}
+			}
+		}
+
+		return sInstance;
+	}
+
+	RangerServiceVersionNotifier(long maxTimeoutMs, int maxWaiters) {
+		this.maxTimeoutMs = maxWaiters > 0 ? Math.max(maxTimeoutMs, 0) : 0;
+		this.waiters      = new Semaphore(Math.max(maxWaiters, 0));
+	}
+
+	/*
+	 * maximum time a download request is held; 0 when long-poll is disabled
+	 */
+	public long getMaxTimeoutMs() {
+		return maxTimeoutMs;
+	}
+
+	public void setPolicyVersion(String serviceName, Long policyVersion) {
+		if (serviceName != null) {
+			getServiceVersions(serviceName).setPolicyVersion(policyVersion);
+		}
+	}
+
+	public void setTagVersion(String serviceName, Long tagVersion) {
+		if (serviceName != null) {
+			getServiceVersions(serviceName).setTagVersion(tagVersion);
+		}
+	}
+
+	/*
+	 * to be called when policy or tag version of the service is updated. If called within a transaction, waiting
+	 * requests are woken up after the transaction commits, so that they see the updated version
+	 */
+	public void onVersionChange(final String serviceName) {
+		if (serviceName == null) {
+			return;
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					versionChanged(serviceName);
+				}
+			});
+		} else {
+			versionChanged(serviceName);
+		}
+	}
+
+	/*
+	 * waits until the policy version of the service is different from lastKnownVersion, or timeoutMs elapses
+	 */
+	public void waitForPolicyChange(String serviceName, long lastKnownVersion, long timeoutMs) {
+		waitForChange(serviceName, lastKnownVersion, timeoutMs, false);
+	}
+
+	/*
+	 * waits until the tag version of the service is different from lastKnownVersion, or timeoutMs elapses
+	 */
+	public void waitForTagChange(String serviceName, long lastKnownVersion, long timeoutMs) {
+		waitForChange(serviceName, lastKnownVersion, timeoutMs, true);
+	}
+
+	private void waitForChange(String serviceName, long lastKnownVersion, long timeoutMs, boolean isTagVersion) {
+		ServiceVersions versions = serviceName != null ? serviceVersions.get(serviceName) : null;
+
+		timeoutMs = Math.min(timeoutMs, maxTimeoutMs);
+
+		if (versions == null || timeoutMs <= 0) {
+			return;
+		}
+
+		if (!waiters.tryAcquire()) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerServiceVersionNotifier.waitForChange(" + serviceName + "): too many waiting requests. Not waiting");
+			}
+
+			return;
+		}
+
+		try {
+			versions.waitForChange(lastKnownVersion, timeoutMs, isTagVersion);
+		} catch (InterruptedException excp) {
+			Thread.currentThread().interrupt();
+		} finally {
+			waiters.release();
+		}
+	}
+
+	private void versionChanged(String serviceName) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerServiceVersionNotifier.versionChanged(" + serviceName + ")");
+		}
+
+		ServiceVersions versions = serviceVersions.get(serviceName);
+
+		if (versions != null) {
+			versions.clear();
+		}
+	}
+
+	private ServiceVersions getServiceVersions(String serviceName) {
+		ServiceVersions ret = serviceVersions.get(serviceName);
+
+		if (ret == null) {
+			ret = new ServiceVersions();
+
+			ServiceVersions existing = serviceVersions.putIfAbsent(serviceName, ret);
+
+			if (existing != null) {
+				ret = existing;
+			}
+		}
+
+		return ret;
+	}
+
+	private static class ServiceVersions {
+		private Long policyVersion;
+		private Long tagVersion;
+
+		synchronized void setPolicyVersion(Long policyVersion) {
+			if (this.policyVersion != null && !this.policyVersion.equals(policyVersion)) {
+				notifyAll();
+			}
+
+			this.policyVersion = policyVersion;
+		}
+
+		synchronized void setTagVersion(Long tagVersion) {
+			if (this.tagVersion != null && !this.tagVersion.equals(tagVersion)) {
+				notifyAll();
+			}
+
+			this.tagVersion = tagVersion;
+		}
+
+		synchronized void clear() {
+			policyVersion = null;
+			tagVersion    = null;
+
+			notifyAll();
+		}
+
+		synchronized void waitForChange(long lastKnownVersion, long timeoutMs, boolean isTagVersion) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeoutMs;
+
+			while (true) {
+				Long version = isTagVersion ? tagVersion : policyVersion;
+
+				if (version == null || version != lastKnownVersion) {
+					break;
+				}
+
+				long remainingMs = deadline - System.currentTimeMillis();
+
+				if (remainingMs <= 0) {
+					break;
+				}
+
+				wait(remainingMs);
+			}
+		}
+	}
+}
@@ -23,6 +23,7 @@ import java.util.List;
 import javax.persistence.NoResultException;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.common.RangerServiceVersionNotifier;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXServiceVersionInfo;
 
@@ -37,6 +38,28 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		super(daoManager);
 	}
 
+	/*
+	 * creates version info of the given service, and wakes up policy/tag download requests waiting for changes in it
+	 */
+	public XXServiceVersionInfo create(XXServiceVersionInfo obj, String serviceName) {
+		XXServiceVersionInfo ret = create(obj);
+
+		RangerServiceVersionNotifier.getInstance().onVersionChange(serviceName);
+
+		return ret;
+	}
+
+	/*
+	 * updates version info of the given service, and wakes up policy/tag download requests waiting for changes in it
+	 */
+	public XXServiceVersionInfo update(XXServiceVersionInfo obj, String serviceName) {
+		XXServiceVersionInfo ret = update(obj);
+
+		RangerServiceVersionNotifier.getInstance().onVersionChange(serviceName);
+
+		return ret;
+	}
+
 	public XXServiceVersionInfo findByServiceName(String serviceName) {
 		if (serviceName == null) {
 			return null;
@@ -75,7 +98,8 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		}
 
 		try {
-			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByServiceResourceId", tClass).setParameter("resourceId", resourceId).getResultList();
+			@SuppressWarnings("unchecked")
+			List<Object[]> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByServiceResourceId").setParameter("resourceId", resourceId).getResultList();
 
 			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime);
 		} catch (NoResultException e) {
@@ -89,7 +113,8 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		}
 
 		try {
-			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByTagId", tClass).setParameter("tagId", tagId).getResultList();
+			@SuppressWarnings("unchecked")
+			List<Object[]> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByTagId").setParameter("tagId", tagId).getResultList();
 
 			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime);
 		} catch (NoResultException e) {
@@ -103,7 +128,8 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		}
 
 		try {
-			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByTagDefId", tClass).setParameter("tagDefId", tagDefId).getResultList();
+			@SuppressWarnings("unchecked")
+			List<Object[]> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByTagDefId").setParameter("tagDefId", tagDefId).getResultList();
 
 			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime);
 		} catch (NoResultException e) {
@@ -111,7 +137,8 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		}
 	}
 
-	private void updateTagVersionAndTagUpdateTime(List<XXServiceVersionInfo> serviceVersionInfos, Date updateTime) {
+	// serviceVersionInfos: XXServiceVersionInfo and name of the service
+	private void updateTagVersionAndTagUpdateTime(List<Object[]> serviceVersionInfos, Date updateTime) {
 		if(CollectionUtils.isEmpty(serviceVersionInfos)) {
 			return;
 		}
@@ -120,7 +147,10 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 			updateTime = new Date();
 		}
 
-		for(XXServiceVersionInfo serviceVersionInfo : serviceVersionInfos) {
+		for(Object[] serviceVersionInfoAndName : serviceVersionInfos) {
+			XXServiceVersionInfo serviceVersionInfo = (XXServiceVersionInfo) serviceVersionInfoAndName[0];
+			String               serviceName        = (String) serviceVersionInfoAndName[1];
+
 			Long currentTagVersion = serviceVersionInfo.getTagVersion();
 
 			if(currentTagVersion == null) {
@@ -129,6 +159,8 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 
 			serviceVersionInfo.setTagVersion(currentTagVersion + 1);
 			serviceVersionInfo.setTagUpdateTime(updateTime);
+
+			RangerServiceVersionNotifier.getInstance().onVersionChange(serviceName);
 		}
 	}
 }
@@ -83,6 +83,7 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerService;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.validation.RangerPolicyValidator;
@@ -101,6 +102,8 @@ import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
 import org.apache.ranger.plugin.util.GrantRevokeRequest;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
 import org.apache.ranger.plugin.util.SearchFilter;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.apache.ranger.security.context.RangerAPIList;
@@ -141,6 +144,7 @@ public class ServiceREST {
 	final static public String PARAM_SERVICE_TYPE     = "serviceType";
 	final static public String PARAM_POLICY_NAME      = "policyName";
 	final static public String PARAM_UPDATE_IF_EXISTS = "updateIfExists";
+	final static public String PARAM_SUPPORTS_POLICY_DELTAS = "supportsPolicyDeltas";
 	public static final String Allowed_User_List_For_Download = "policy.download.auth.users";
 	public static final String Allowed_User_List_For_Grant_Revoke = "policy.grantrevoke.auth.users";
 
@@ -2299,7 +2303,7 @@ public class ServiceREST {
 
 	@GET
 	@Path("/policies/download/{serviceName}")
-	@Produces({ "application/json", "application/xml" })
+	@Produces({ "application/json", "application/xml", RangerRESTUtils.REST_MIME_TYPE_POLICIES_BINARY })
 	public ServicePolicies getServicePoliciesIfUpdated(
 			@PathParam("serviceName") String serviceName,
 			@QueryParam("lastKnownVersion") Long lastKnownVersion,
@@ -2338,7 +2342,8 @@ public class ServiceREST {
 				if(RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
 					perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getServicePoliciesIfUpdated(serviceName=" + serviceName + ",lastKnownVersion=" + lastKnownVersion + ",lastActivationTime=" + lastActivationTime + ")");
 				}
-				ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+				boolean supportsPolicyDeltas = Boolean.parseBoolean(request.getParameter(PARAM_SUPPORTS_POLICY_DELTAS));
+				ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, supportsPolicyDeltas);
 
 				if (servicePolicies == null) {
 					downloadedVersion = lastKnownVersion;
@@ -2348,7 +2353,11 @@ public class ServiceREST {
 					downloadedVersion = servicePolicies.getPolicyVersion();
 					ret = filterServicePolicies(servicePolicies);
 					httpCode = HttpServletResponse.SC_OK;
-					logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+					if (RangerPolicyDeltaUtil.isDelta(ret)) {
+						logMsg = "Returning " + ret.getPolicyDeltas().size() + " policy changes since version " + lastKnownVersion + ". Policy version=" + ret.getPolicyVersion();
+					} else {
+						logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+					}
 				}
 			} catch (Throwable excp) {
 				LOG.error("getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ") failed");
@@ -2376,7 +2385,7 @@ public class ServiceREST {
 
 	@GET
 	@Path("/secure/policies/download/{serviceName}")
-	@Produces({ "application/json", "application/xml" })
+	@Produces({ "application/json", "application/xml", RangerRESTUtils.REST_MIME_TYPE_POLICIES_BINARY })
 	public ServicePolicies getSecureServicePoliciesIfUpdated(
 			@PathParam("serviceName") String serviceName,
 			@QueryParam("lastKnownVersion") Long lastKnownVersion,
@@ -2445,7 +2454,8 @@ public class ServiceREST {
 					}
 				}
 				if (isAllowed) {
-					ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+					boolean supportsPolicyDeltas = Boolean.parseBoolean(request.getParameter(PARAM_SUPPORTS_POLICY_DELTAS));
+					ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, supportsPolicyDeltas);
 					if (servicePolicies == null) {
 						downloadedVersion = lastKnownVersion;
 						httpCode = HttpServletResponse.SC_NOT_MODIFIED;
@@ -2454,7 +2464,11 @@ public class ServiceREST {
 						downloadedVersion = servicePolicies.getPolicyVersion();
 						ret = filterServicePolicies(servicePolicies);
 						httpCode = HttpServletResponse.SC_OK;
-						logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+						if (RangerPolicyDeltaUtil.isDelta(ret)) {
+							logMsg = "Returning " + ret.getPolicyDeltas().size() + " policy changes since version " + lastKnownVersion + ". Policy version=" + ret.getPolicyVersion();
+						} else {
+							logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+						}
 					}
 
 				} else {
@@ -2953,7 +2967,9 @@ public class ServiceREST {
 		boolean containsDisabledResourcePolicies = false;
 		boolean containsDisabledTagPolicies = false;
 
-		if (servicePolicies != null) {
+		if (RangerPolicyDeltaUtil.isDelta(servicePolicies)) {
+			ret = filterServicePolicyDeltas(servicePolicies);
+		} else if (servicePolicies != null) {
 			List<RangerPolicy> policies = null;
 
 			policies = servicePolicies.getPolicies();
@@ -3026,6 +3042,58 @@ public class ServiceREST {
 		return ret;
 	}
 
+	private ServicePolicies filterServicePolicyDeltas(ServicePolicies servicePolicies) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceDef(servicePolicies.getServiceDef());
+		ret.setServiceId(servicePolicies.getServiceId());
+		ret.setServiceName(servicePolicies.getServiceName());
+		ret.setPolicyVersion(servicePolicies.getPolicyVersion());
+		ret.setPolicyUpdateTime(servicePolicies.getPolicyUpdateTime());
+		ret.setAuditMode(servicePolicies.getAuditMode());
+		ret.setPolicyDeltas(filterPolicyDeltas(servicePolicies.getPolicyDeltas()));
+
+		if (servicePolicies.getTagPolicies() != null) {
+			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+
+			tagPolicies.setServiceDef(servicePolicies.getTagPolicies().getServiceDef());
+			tagPolicies.setServiceId(servicePolicies.getTagPolicies().getServiceId());
+			tagPolicies.setServiceName(servicePolicies.getTagPolicies().getServiceName());
+			tagPolicies.setPolicyVersion(servicePolicies.getTagPolicies().getPolicyVersion());
+			tagPolicies.setPolicyUpdateTime(servicePolicies.getTagPolicies().getPolicyUpdateTime());
+			tagPolicies.setAuditMode(servicePolicies.getTagPolicies().getAuditMode());
+			tagPolicies.setPolicyDeltas(filterPolicyDeltas(servicePolicies.getTagPolicies().getPolicyDeltas()));
+
+			ret.setTagPolicies(tagPolicies);
+		}
+
+		return ret;
+	}
+
+	// disabled policies are not sent to plugins; hence a create/update of a disabled policy is sent as a delete
+	private List<RangerPolicyDelta> filterPolicyDeltas(List<RangerPolicyDelta> policyDeltas) {
+		List<RangerPolicyDelta> ret = new ArrayList<RangerPolicyDelta>();
+
+		if (policyDeltas != null) {
+			for (RangerPolicyDelta policyDelta : policyDeltas) {
+				RangerPolicy policy = policyDelta.getPolicy();
+
+				if (policy != null && !policy.getIsEnabled() && policyDelta.getChangeType() != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+					RangerPolicy deletedPolicy = new RangerPolicy();
+
+					deletedPolicy.setId(policy.getId());
+					deletedPolicy.setVersion(policy.getVersion());
+
+					ret.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, deletedPolicy));
+				} else {
+					ret.add(policyDelta);
+				}
+			}
+		}
+
+		return ret;
+	}
+
 	private void validateGrantRevokeRequest(GrantRevokeRequest request){
 		if( request!=null){
 			if(CollectionUtils.isEmpty(request.getUsers()) && CollectionUtils.isEmpty(request.getGroups())){
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.service.filter;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.RangerServiceVersionNotifier;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/*
+ * Long-poll for policy and tag downloads: when a plugin asks for it, with query parameter longPollTimeoutMs, the
+ * request is held until the version of the service changes or the timeout expires, before the download is processed.
+ * Waiting here, instead of in the REST resource, keeps the request from holding a database transaction while it waits.
+ *
+ * Responses to downloads include the maximum timeout supported, so that plugins use long-poll only with Ranger Admin
+ * versions that support it.
+ */
+public class RangerDownloadLongPollFilter implements ContainerRequestFilter, ContainerResponseFilter {
+	private static final Log LOG = LogFactory.getLog(RangerDownloadLongPollFilter.class);
+
+	private static final Pattern POLICY_DOWNLOAD_PATH = Pattern.compile("^/?plugins/(?:secure/)?policies/download/([^/]+)/?$");
+	private static final Pattern TAG_DOWNLOAD_PATH    = Pattern.compile("^/?tags/(?:secure/)?download/([^/]+)/?$");
+
+	private final RangerServiceVersionNotifier notifier;
+
+	public RangerDownloadLongPollFilter() {
+		this(RangerServiceVersionNotifier.getInstance());
+	}
+
+	RangerDownloadLongPollFilter(RangerServiceVersionNotifier notifier) {
+		this.notifier = notifier;
+	}
+
+	@Override
+	public ContainerRequest filter(ContainerRequest request) {
+		if ("GET".equals(request.getMethod())) {
+			String timeoutMs = request.getQueryParameters().getFirst(RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS);
+
+			if (StringUtils.isNotEmpty(timeoutMs)) {
+				String  path          = request.getPath();
+				Matcher policyMatcher = POLICY_DOWNLOAD_PATH.matcher(path);
+				Matcher tagMatcher    = policyMatcher.matches() ? null : TAG_DOWNLOAD_PATH.matcher(path);
+
+				if (tagMatcher == null) {
+					waitForChange(policyMatcher.group(1), false, timeoutMs, request.getQueryParameters().getFirst(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION));
+				} else if (tagMatcher.matches()) {
+					waitForChange(tagMatcher.group(1), true, timeoutMs, request.getQueryParameters().getFirst(RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM));
+				}
+			}
+		}
+
+		return request;
+	}
+
+	@Override
+	public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+		long maxTimeoutMs = notifier.getMaxTimeoutMs();
+
+		if (maxTimeoutMs > 0 && "GET".equals(request.getMethod())) {
+			String path = request.getPath();
+
+			if (POLICY_DOWNLOAD_PATH.matcher(path).matches() || TAG_DOWNLOAD_PATH.matcher(path).matches()) {
+				response.getHttpHeaders().putSingle(RangerRESTUtils.REST_HEADER_LONG_POLL_MAX_TIMEOUT_MS, Long.toString(maxTimeoutMs));
+			}
+		}
+
+		return response;
+	}
+
+	private void waitForChange(String serviceName, boolean isTagDownload, String timeoutMs, String version) {
+		if (StringUtils.isEmpty(version)) {
+			return;
+		}
+
+		try {
+			long lastKnownVersion = Long.parseLong(version);
+			long waitTimeMs       = Long.parseLong(timeoutMs);
+
+			if (isTagDownload) {
+				notifier.waitForTagChange(serviceName, lastKnownVersion, waitTimeMs);
+			} else {
+				notifier.waitForPolicyChange(serviceName, lastKnownVersion, waitTimeMs);
+			}
+		} catch (NumberFormatException excp) {
+			LOG.warn("RangerDownloadLongPollFilter: ignoring invalid parameters " + RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS + "=" + timeoutMs + ", lastKnownVersion=" + version);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.store.ServiceStore;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestRangerServicePoliciesCache {
+
+	@Test
+	public void testGetServicePolicyDeltas() throws Exception {
+		String       serviceName  = "testGetServicePolicyDeltas";
+		Long         serviceId    = 1L;
+		ServiceStore serviceStore = Mockito.mock(ServiceStore.class);
+
+		RangerServicePoliciesCache cache = RangerServicePoliciesCache.getInstance();
+
+		setServicePolicies(serviceStore, serviceName, 1L, policy(1L, 1L), policy(2L, 1L), policy(3L, 1L));
+		Assert.assertFalse(RangerPolicyDeltaUtil.isDelta(cache.getServicePolicies(serviceName, serviceId, -1L, true, serviceStore)));
+
+		setServicePolicies(serviceStore, serviceName, 2L, policy(1L, 1L), policy(2L, 2L), policy(3L, 1L));
+		cache.getServicePolicies(serviceName, serviceId, 1L, true, serviceStore);
+
+		setServicePolicies(serviceStore, serviceName, 3L, policy(1L, 1L), policy(2L, 2L), policy(4L, 1L));
+
+		ServicePolicies ret = cache.getServicePolicies(serviceName, serviceId, 1L, true, serviceStore);
+
+		Assert.assertTrue(RangerPolicyDeltaUtil.isDelta(ret));
+		Assert.assertEquals(Long.valueOf(3L), ret.getPolicyVersion());
+		Assert.assertEquals(3, ret.getPolicyDeltas().size());
+
+		ret = cache.getServicePolicies(serviceName, serviceId, 2L, true, serviceStore);
+
+		Assert.assertTrue(RangerPolicyDeltaUtil.isDelta(ret));
+		Assert.assertEquals(2, ret.getPolicyDeltas().size());
+		Assert.assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE), ret.getPolicyDeltas().get(0).getChangeType());
+		Assert.assertEquals(Integer.valueOf(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE), ret.getPolicyDeltas().get(1).getChangeType());
+
+		// version not in the log, or deltas not supported by the caller: all policies
+		Assert.assertFalse(RangerPolicyDeltaUtil.isDelta(cache.getServicePolicies(serviceName, serviceId, 0L, true, serviceStore)));
+		Assert.assertFalse(RangerPolicyDeltaUtil.isDelta(cache.getServicePolicies(serviceName, serviceId, 1L, false, serviceStore)));
+	}
+
+	@Test
+	public void testGetServicePolicyDeltasAfterLogTruncation() throws Exception {
+		String       serviceName  = "testGetServicePolicyDeltasAfterLogTruncation";
+		Long         serviceId    = 2L;
+		ServiceStore serviceStore = Mockito.mock(ServiceStore.class);
+
+		RangerServicePoliciesCache cache = RangerServicePoliciesCache.getInstance();
+
+		for (long version = 1; version <= 15; version++) {
+			setServicePolicies(serviceStore, serviceName, version, policy(1L, 1L), policy(2L, version));
+			cache.getServicePolicies(serviceName, serviceId, version - 1, true, serviceStore);
+		}
+
+		Assert.assertFalse(RangerPolicyDeltaUtil.isDelta(cache.getServicePolicies(serviceName, serviceId, 1L, true, serviceStore)));
+
+		ServicePolicies ret = cache.getServicePolicies(serviceName, serviceId, 10L, true, serviceStore);
+
+		Assert.assertTrue(RangerPolicyDeltaUtil.isDelta(ret));
+		Assert.assertEquals(1, ret.getPolicyDeltas().size());
+		Assert.assertEquals(Long.valueOf(15L), ret.getPolicyDeltas().get(0).getPolicy().getVersion());
+	}
+
+	private void setServicePolicies(ServiceStore serviceStore, String serviceName, Long version, RangerPolicy... policies) throws Exception {
+		ServicePolicies servicePolicies = new ServicePolicies();
+		List<RangerPolicy> policyList = new ArrayList<RangerPolicy>();
+
+		for (RangerPolicy policy : policies) {
+			policyList.add(policy);
+		}
+
+		servicePolicies.setServiceName(serviceName);
+		servicePolicies.setPolicyVersion(version);
+		servicePolicies.setPolicies(policyList);
+
+		Mockito.when(serviceStore.getServicePolicyVersion(serviceName)).thenReturn(version);
+		Mockito.when(serviceStore.getServicePolicies(serviceName)).thenReturn(servicePolicies);
+	}
+
+	private RangerPolicy policy(Long id, Long version) {
+		RangerPolicy ret = new RangerPolicy();
+
+		ret.setId(id);
+		ret.setVersion(version);
+
+		return ret;
+	}
+}
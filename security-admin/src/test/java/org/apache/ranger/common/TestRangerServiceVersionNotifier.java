@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestRangerServiceVersionNotifier {
+	@Test
+	public void testNoWaitForUnknownOrNewerVersion() {
+		RangerServiceVersionNotifier notifier = new RangerServiceVersionNotifier(10 * 1000L, 10);
+
+		assertTrue(timeWaitForPolicyChange(notifier, "svc1", 5L, 5000) < 1000); // version of svc1 not known yet
+
+		notifier.setPolicyVersion("svc1", 6L);
+
+		assertTrue(timeWaitForPolicyChange(notifier, "svc1", 5L, 5000) < 1000); // plugin has an older version
+	}
+
+	@Test
+	public void testWaitUntilTimeout() {
+		RangerServiceVersionNotifier notifier = new RangerServiceVersionNotifier(10 * 1000L, 10);
+
+		notifier.setPolicyVersion("svc1", 5L);
+
+		assertTrue(timeWaitForPolicyChange(notifier, "svc1", 5L, 200) >= 200);
+	}
+
+	@Test
+	public void testWakeUpOnVersionChange() throws Exception {
+		final RangerServiceVersionNotifier notifier = new RangerServiceVersionNotifier(60 * 1000L, 10);
+		final CountDownLatch               started  = new CountDownLatch(1);
+		final CountDownLatch               done     = new CountDownLatch(2);
+
+		notifier.setPolicyVersion("svc1", 5L);
+		notifier.setTagVersion("svc1", 3L);
+
+		Thread policyWaiter = new Thread() {
+			@Override
+			public void run() {
+				started.countDown();
+				notifier.waitForPolicyChange("svc1", 5L, 60 * 1000L);
+				done.countDown();
+			}
+		};
+
+		Thread tagWaiter = new Thread() {
+			@Override
+			public void run() {
+				notifier.waitForTagChange("svc1", 3L, 60 * 1000L);
+				done.countDown();
+			}
+		};
+
+		policyWaiter.start();
+		tagWaiter.start();
+		started.await();
+
+		notifier.onVersionChange("svc1");
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testMaxWaiters() {
+		RangerServiceVersionNotifier notifier = new RangerServiceVersionNotifier(10 * 1000L, 0); // long-poll disabled
+
+		notifier.setPolicyVersion("svc1", 5L);
+
+		assertTrue(timeWaitForPolicyChange(notifier, "svc1", 5L, 5000) < 1000);
+	}
+
+	private long timeWaitForPolicyChange(RangerServiceVersionNotifier notifier, String serviceName, long lastKnownVersion, long timeoutMs) {
+		long startTime = System.currentTimeMillis();
+
+		notifier.waitForPolicyChange(serviceName, lastKnownVersion, timeoutMs);
+
+		return System.currentTimeMillis() - startTime;
+	}
+}
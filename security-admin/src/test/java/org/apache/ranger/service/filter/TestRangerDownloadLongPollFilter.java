@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.service.filter;
+
+import org.apache.ranger.common.RangerServiceVersionNotifier;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+
+public class TestRangerDownloadLongPollFilter {
+	private final RangerServiceVersionNotifier notifier = Mockito.mock(RangerServiceVersionNotifier.class);
+	private final RangerDownloadLongPollFilter filter   = new RangerDownloadLongPollFilter(notifier);
+
+	@Test
+	public void testWaitForPolicyChange() {
+		filter.filter(createRequest("GET", "plugins/policies/download/hdfsdev", RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, "5", "1000"));
+		filter.filter(createRequest("GET", "/plugins/secure/policies/download/hivedev/", RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, "7", "2000"));
+
+		Mockito.verify(notifier).waitForPolicyChange("hdfsdev", 5L, 1000L);
+		Mockito.verify(notifier).waitForPolicyChange("hivedev", 7L, 2000L);
+		Mockito.verify(notifier, Mockito.never()).waitForTagChange(Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong());
+	}
+
+	@Test
+	public void testWaitForTagChange() {
+		filter.filter(createRequest("GET", "tags/download/hdfsdev", RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, "3", "1000"));
+		filter.filter(createRequest("GET", "tags/secure/download/hivedev", RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, "4", "2000"));
+
+		Mockito.verify(notifier).waitForTagChange("hdfsdev", 3L, 1000L);
+		Mockito.verify(notifier).waitForTagChange("hivedev", 4L, 2000L);
+		Mockito.verify(notifier, Mockito.never()).waitForPolicyChange(Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong());
+	}
+
+	@Test
+	public void testNoWait() {
+		filter.filter(createRequest("GET", "plugins/policies/download/hdfsdev", RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, "5", null)); // no long-poll asked
+		filter.filter(createRequest("GET", "plugins/policies/download/hdfsdev", RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, "invalid", "1000"));
+		filter.filter(createRequest("POST", "plugins/policies/download/hdfsdev", RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, "5", "1000"));
+		filter.filter(createRequest("GET", "plugins/policies/hdfsdev", RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, "5", "1000"));
+		filter.filter(createRequest("GET", "tags/download/hdfsdev/extra", RangerRESTUtils.LAST_KNOWN_TAG_VERSION_PARAM, "3", "1000"));
+
+		Mockito.verify(notifier, Mockito.never()).waitForPolicyChange(Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong());
+		Mockito.verify(notifier, Mockito.never()).waitForTagChange(Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong());
+	}
+
+	@Test
+	public void testMaxTimeoutHeader() {
+		Mockito.when(notifier.getMaxTimeoutMs()).thenReturn(30000L);
+
+		Assert.assertEquals("30000", getMaxTimeoutHeader("GET", "plugins/policies/download/hdfsdev"));
+		Assert.assertEquals("30000", getMaxTimeoutHeader("GET", "tags/secure/download/hdfsdev"));
+		Assert.assertNull(getMaxTimeoutHeader("GET", "plugins/services"));
+		Assert.assertNull(getMaxTimeoutHeader("DELETE", "plugins/policies/download/hdfsdev"));
+
+		Mockito.when(notifier.getMaxTimeoutMs()).thenReturn(0L); // long-poll disabled
+
+		Assert.assertNull(getMaxTimeoutHeader("GET", "plugins/policies/download/hdfsdev"));
+	}
+
+	private String getMaxTimeoutHeader(String method, String path) {
+		ContainerRequest  request  = createRequest(method, path, null, null, null);
+		ContainerResponse response = Mockito.mock(ContainerResponse.class);
+		OutBoundHeaders   headers  = new OutBoundHeaders();
+
+		Mockito.when(response.getHttpHeaders()).thenReturn(headers);
+
+		filter.filter(request, response);
+
+		Object ret = headers.getFirst(RangerRESTUtils.REST_HEADER_LONG_POLL_MAX_TIMEOUT_MS);
+
+		return ret == null ? null : ret.toString();
+	}
+
+	private ContainerRequest createRequest(String method, String path, String versionParam, String version, String timeoutMs) {
+		ContainerRequest   request     = Mockito.mock(ContainerRequest.class);
+		MultivaluedMapImpl queryParams = new MultivaluedMapImpl();
+
+		if (versionParam != null && version != null) {
+			queryParams.add(versionParam, version);
+		}
+
+		if (timeoutMs != null) {
+			queryParams.add(RangerRESTUtils.REST_PARAM_LONG_POLL_TIMEOUT_MS, timeoutMs);
+		}
+
+		Mockito.when(request.getMethod()).thenReturn(method);
+		Mockito.when(request.getPath()).thenReturn(path);
+		Mockito.when(request.getQueryParameters()).thenReturn(queryParams);
+
+		return request;
+	}
+}